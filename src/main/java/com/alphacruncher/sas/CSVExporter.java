@@ -0,0 +1,736 @@
+package com.alphacruncher.sas;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.AvroDataWriter;
+import com.epam.parso.CSVDataWriter;
+import com.epam.parso.Column;
+import com.epam.parso.JsonLinesDataWriter;
+import com.epam.parso.PostgreSQLBinaryDataWriter;
+import com.epam.parso.ReaderMetrics;
+import com.epam.parso.SasFileReader;
+import com.epam.parso.impl.AvroDataWriterImpl;
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.DatabaseDialect;
+import com.epam.parso.impl.DialectAwareCSVDataWriterImpl;
+import com.epam.parso.impl.JsonLinesDataWriterImpl;
+import com.epam.parso.impl.NoopReaderMetrics;
+import com.epam.parso.impl.OutputCompression;
+import com.epam.parso.impl.OutputFormat;
+import com.epam.parso.impl.PostgreSQLBinaryDataWriterImpl;
+import com.epam.parso.impl.SasFilePosition;
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SortingSasFileReader;
+import com.epam.parso.impl.SplittingCSVDataWriterImpl;
+import com.epam.parso.impl.jfr.ExportEvent;
+import com.epam.parso.impl.jfr.JfrSupport;
+
+/**
+ * Converts .sas7bdat files to CSV files, optionally compressing the output while
+ * the rows are produced and splitting it into parts for parallel database loading.
+ */
+public class CSVExporter {
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CSVExporter.class);
+
+    /**
+     * The default number of input pages read between two checkpoints.
+     */
+    public static final long DEFAULT_CHECKPOINT_PAGES = 1000;
+
+    /**
+     * The size of the character buffer in front of the output stream.
+     */
+    private static final int WRITER_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The compression applied to the output.
+     */
+    private OutputCompression compression = OutputCompression.NONE;
+
+    /**
+     * The compression level.
+     */
+    private int compressionLevel = OutputCompression.DEFAULT_LEVEL;
+
+    /**
+     * The number of compression threads.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The database dialect used to write NULL values, or null for plain CSV.
+     */
+    private DatabaseDialect dialect;
+
+    /**
+     * The maximal number of rows in an output part, 0 if the rows are not limited.
+     */
+    private long maxRowsPerPart;
+
+    /**
+     * The maximal number of uncompressed bytes in an output part, 0 if the bytes are not limited.
+     */
+    private long maxBytesPerPart;
+
+    /**
+     * True if every output part starts with the column names.
+     */
+    private boolean headerPerPart;
+
+    /**
+     * The format of the output.
+     */
+    private OutputFormat outputFormat = OutputFormat.CSV;
+
+    /**
+     * The codec compressing the blocks of the Avro output.
+     */
+    private String avroCodec = AvroDataWriterImpl.DEFLATE_CODEC;
+
+    /**
+     * The number of uncompressed bytes of a block of the Avro output.
+     */
+    private int avroBlockSize = AvroDataWriterImpl.DEFAULT_BLOCK_SIZE;
+
+    /**
+     * The file the progress of the conversion is saved to and resumed from, or null without checkpoints.
+     */
+    private Path checkpointFile;
+
+    /**
+     * The number of input pages read between two checkpoints.
+     */
+    private long checkpointPages = DEFAULT_CHECKPOINT_PAGES;
+
+    /**
+     * The sort order of the output rows, or null to write them in the order of the input.
+     */
+    private String orderBy;
+
+    /**
+     * The number of bytes of rows held in memory while sorting.
+     */
+    private long sortMemoryBudget = SortingSasFileReader.DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * The directory of the temporary files of the sort, or null for the default temporary directory.
+     */
+    private Path tempDirectory;
+
+    /**
+     * The listener of the pages and rows read and written.
+     */
+    private ReaderMetrics metrics = NoopReaderMetrics.INSTANCE;
+
+    /**
+     * @return the compression applied to the output
+     */
+    public OutputCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression the compression to apply to the output
+     */
+    public void setCompression(OutputCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return the compression level
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @param compressionLevel the compression level to set
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return the number of compression threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads the number of compression threads to set
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return the database dialect, or null for plain CSV
+     */
+    public DatabaseDialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * @param dialect the database dialect to set, or null for plain CSV
+     */
+    public void setDialect(DatabaseDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * @return the maximal number of rows in an output part, 0 if the rows are not limited
+     */
+    public long getMaxRowsPerPart() {
+        return maxRowsPerPart;
+    }
+
+    /**
+     * @param maxRowsPerPart the maximal number of rows in an output part, 0 for no limit
+     */
+    public void setMaxRowsPerPart(long maxRowsPerPart) {
+        this.maxRowsPerPart = maxRowsPerPart;
+    }
+
+    /**
+     * @return the maximal number of uncompressed bytes in an output part, 0 if the bytes are not limited
+     */
+    public long getMaxBytesPerPart() {
+        return maxBytesPerPart;
+    }
+
+    /**
+     * @param maxBytesPerPart the maximal number of uncompressed bytes in an output part, 0 for no limit
+     */
+    public void setMaxBytesPerPart(long maxBytesPerPart) {
+        this.maxBytesPerPart = maxBytesPerPart;
+    }
+
+    /**
+     * @return true if every output part starts with the column names
+     */
+    public boolean isHeaderPerPart() {
+        return headerPerPart;
+    }
+
+    /**
+     * @param headerPerPart true if every output part has to start with the column names
+     */
+    public void setHeaderPerPart(boolean headerPerPart) {
+        this.headerPerPart = headerPerPart;
+    }
+
+    /**
+     * @return the format of the output
+     */
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * @param outputFormat the format of the output, CSV by default
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    /**
+     * @return the codec compressing the blocks of the Avro output
+     */
+    public String getAvroCodec() {
+        return avroCodec;
+    }
+
+    /**
+     * @param avroCodec the codec compressing the blocks of the Avro output, 'null' or 'deflate'
+     */
+    public void setAvroCodec(String avroCodec) {
+        this.avroCodec = avroCodec;
+    }
+
+    /**
+     * @return the number of uncompressed bytes of a block of the Avro output
+     */
+    public int getAvroBlockSize() {
+        return avroBlockSize;
+    }
+
+    /**
+     * @param avroBlockSize the number of uncompressed bytes of a block of the Avro output
+     */
+    public void setAvroBlockSize(int avroBlockSize) {
+        this.avroBlockSize = avroBlockSize;
+    }
+
+    /**
+     * @return the settings changing the bytes of a checkpointed output, the format and the dialect, recorded in
+     * the checkpoints so a conversion is only resumed with the same settings
+     */
+    String getOutputSettings() {
+        return outputFormat.name() + "," + (dialect == null ? "" : dialect.name());
+    }
+
+    /**
+     * @return the file the progress of the conversion is saved to and resumed from, or null without checkpoints
+     */
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @param checkpointFile the file to save the progress of the conversion to and resume it from, or null
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * @return the number of input pages read between two checkpoints
+     */
+    public long getCheckpointPages() {
+        return checkpointPages;
+    }
+
+    /**
+     * @param checkpointPages the number of input pages to read between two checkpoints
+     */
+    public void setCheckpointPages(long checkpointPages) {
+        this.checkpointPages = checkpointPages;
+    }
+
+    /**
+     * @return the sort order of the output rows, or null if they are written in the order of the input
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * @param orderBy the sort order of the output rows, such as "subject_id, visit_date DESC",
+     *                or null to write them in the order of the input
+     */
+    public void setOrderBy(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * @return the number of bytes of rows held in memory while sorting
+     */
+    public long getSortMemoryBudget() {
+        return sortMemoryBudget;
+    }
+
+    /**
+     * @param sortMemoryBudget the number of bytes of rows to hold in memory while sorting
+     */
+    public void setSortMemoryBudget(long sortMemoryBudget) {
+        this.sortMemoryBudget = sortMemoryBudget;
+    }
+
+    /**
+     * @return the directory of the temporary files of the sort, or null for the default temporary directory
+     */
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @param tempDirectory the directory of the temporary files of the sort, or null for the default
+     *                      temporary directory
+     */
+    public void setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * @return the listener of the pages and rows read and written
+     */
+    public ReaderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics the listener of the pages and rows read and written, passed to the readers this exporter
+     *                creates and called for every row written
+     */
+    public void setMetrics(ReaderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return true if the output is split into parts
+     */
+    public boolean isSplitting() {
+        return maxRowsPerPart > 0 || maxBytesPerPart > 0;
+    }
+
+    /**
+     * Converts a .sas7bdat file to a CSV file. With a checkpoint file, the conversion resumes from
+     * the checkpoint if it matches the input and saves its progress every checkpoint pages. With a sort
+     * order, the rows are sorted by an external merge sort within the sort memory budget first.
+     * @param input The .sas7bdat file.
+     * @param output The CSV file to write.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    public long export(Path input, Path output) throws IOException {
+        if (orderBy != null) {
+            if (checkpointFile != null) {
+                throw new IllegalArgumentException("Sorted output can not be resumed from checkpoints");
+            }
+            try (SortingSasFileReader sortedReader = new SortingSasFileReader.Builder(input).orderBy(orderBy)
+                    .memoryBudget(sortMemoryBudget).tempDirectory(tempDirectory).threads(threads).metrics(metrics)
+                    .build()) {
+                return export(sortedReader, output);
+            }
+        }
+        if (checkpointFile != null) {
+            return exportWithCheckpoints(input, output);
+        }
+        try (InputStream is = new FileInputStream(input.toFile())) {
+            return export(new SasFileReaderImpl(is, metrics), output);
+        }
+    }
+
+    /**
+     * Writes the rows of a .sas7bdat file reader to a CSV file.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @param output The CSV file to write, or the directory of the parts if the output is split.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    public long export(SasFileReader sasFileReader, Path output) throws IOException {
+        ExportEvent event = beginExportEvent();
+        return commitExportEvent(event, output, write(sasFileReader, output));
+    }
+
+    /**
+     * Writes the rows of a .sas7bdat file reader to a CSV file, the directory of the parts,
+     * a PostgreSQL binary COPY file, an Avro object container file or a JSON Lines file.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @param output The file to write, or the directory of the parts if the output is split.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long write(SasFileReader sasFileReader, Path output) throws IOException {
+        switch (outputFormat) {
+            case AVRO:
+                if (isSplitting() || compression != OutputCompression.NONE) {
+                    throw new IllegalArgumentException("Avro output can not be split into parts or compressed as a"
+                            + " whole, its blocks are compressed with the Avro codec");
+                }
+                try (OutputStream os = openOutputStream(output);
+                     AvroDataWriter avroDataWriter = new AvroDataWriterImpl.Builder(os, sasFileReader.getColumns())
+                             .name(getRecordName(output)).codec(avroCodec).level(compressionLevel)
+                             .blockSize(avroBlockSize).threads(threads).build()) {
+                    return writeRows(sasFileReader, avroDataWriter);
+                }
+            case JSON_LINES:
+                if (isSplitting()) {
+                    throw new IllegalArgumentException("JSON Lines output can not be split into parts");
+                }
+                try (OutputStream os = openOutputStream(output);
+                     JsonLinesDataWriter jsonLinesDataWriter = new JsonLinesDataWriterImpl.Builder(os,
+                             sasFileReader.getColumns()).threads(threads).build()) {
+                    return writeRows(sasFileReader, jsonLinesDataWriter);
+                }
+            case POSTGRESQL_BINARY:
+                if (isSplitting()) {
+                    throw new IllegalArgumentException("PostgreSQL binary output can not be split into parts");
+                }
+                try (OutputStream os = openOutputStream(output)) {
+                    return writeRows(sasFileReader, new PostgreSQLBinaryDataWriterImpl(os));
+                }
+            case CSV:
+            default:
+                if (isSplitting()) {
+                    Files.createDirectories(output);
+                    try (SplittingCSVDataWriterImpl splittingWriter = new SplittingCSVDataWriterImpl.Builder(output)
+                            .maxRows(maxRowsPerPart).maxBytes(maxBytesPerPart).headerPerPart(headerPerPart)
+                            .dialect(dialect).compression(compression, compressionLevel, threads).build()) {
+                        return writeRows(sasFileReader, splittingWriter);
+                    }
+                }
+                try (Writer writer = openWriter(output)) {
+                    return writeRows(sasFileReader, dialect == null ? new CSVDataWriterImpl(writer)
+                            : new DialectAwareCSVDataWriterImpl(writer, dialect));
+                }
+        }
+    }
+
+    /**
+     * Converts a .sas7bdat file to an uncompressed output file, resuming from the checkpoint file if
+     * it exists and matches the input, and deletes the checkpoint file when the output is complete.
+     * A checkpoint is only valid for the same input, with the same size, modification time and SAS
+     * modification date, and the same output settings it was written with, see
+     * {@link #getOutputSettings()}; otherwise the conversion starts again.
+     * @param input The .sas7bdat file.
+     * @param output The file to write.
+     * @return The number of rows in the output.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long exportWithCheckpoints(Path input, Path output) throws IOException {
+        if (isSplitting() || compression != OutputCompression.NONE || outputFormat == OutputFormat.AVRO
+                || outputFormat == OutputFormat.JSON_LINES) {
+            throw new IllegalArgumentException("Checkpoints need an uncompressed CSV or PostgreSQL binary output"
+                    + " written to a single file");
+        }
+        ExportCheckpoint checkpoint = ExportCheckpoint.read(checkpointFile);
+        ExportEvent event = beginExportEvent();
+        long rows;
+        try (InputStream is = new FileInputStream(input.toFile())) {
+            SasFileReaderImpl sasFileReader = new SasFileReaderImpl(is, metrics);
+            ExportCheckpoint start = ExportCheckpoint.of(input, sasFileReader.getSasFileProperties(),
+                    getOutputSettings(), sasFileReader.getPosition(), 0);
+            if (checkpoint != null && (!checkpoint.matches(start) || !Files.exists(output)
+                    || Files.size(output) < checkpoint.getOutputOffset())) {
+                LOGGER.warn("The checkpoint " + checkpointFile + " does not match " + input
+                        + " or the output settings, converting from the start");
+                checkpoint = null;
+            }
+            try (FileOutputStream fos = new FileOutputStream(output.toFile(), checkpoint != null)) {
+                if (checkpoint != null) {
+                    LOGGER.info("Resuming " + input + " from row " + checkpoint.getPosition().getRowIndex());
+                    fos.getChannel().truncate(checkpoint.getOutputOffset());
+                    sasFileReader.seek(checkpoint.getPosition());
+                }
+                rows = writeRows(sasFileReader, fos, checkpoint == null, start);
+            }
+        }
+        Files.deleteIfExists(checkpointFile);
+        return commitExportEvent(event, output, rows);
+    }
+
+    /**
+     * Begins the flight recorder event of a conversion.
+     * @return The begun event, or null if the JDK Flight Recorder API is not available.
+     */
+    private static ExportEvent beginExportEvent() {
+        if (!JfrSupport.AVAILABLE) {
+            return null;
+        }
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits the flight recorder event of a conversion.
+     * @param event The event returned by {@link #beginExportEvent()}.
+     * @param output The output file or directory.
+     * @param rows The number of rows written.
+     * @return The number of rows written.
+     */
+    private long commitExportEvent(ExportEvent event, Path output, long rows) {
+        if (event != null) {
+            String format = outputFormat == OutputFormat.AVRO ? outputFormat.getDescription() + " " + avroCodec
+                    : outputFormat.getDescription();
+            event.setExport(output.toString(), format
+                    + (compression == OutputCompression.NONE ? "" : ", " + compression.getName()), rows);
+            event.commit();
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the rows of a reader to a file, saving a checkpoint on the first page boundary after every
+     * checkpoint pages. The output is flushed and synced before the checkpoint is saved, so the checkpoint
+     * never points past the data on disk.
+     * @param sasFileReader The reader of the .sas7bdat file, positioned at the first row to write.
+     * @param fos The output file stream, positioned at the end of the rows before the first row to write.
+     * @param newOutput True if the output is new and its header has to be written.
+     * @param origin The checkpoint of the conversion at its start, identifying the input and the output settings.
+     * @return The number of rows in the output.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long writeRows(SasFileReaderImpl sasFileReader, FileOutputStream fos, boolean newOutput,
+                           ExportCheckpoint origin) throws IOException {
+        OutputStream os = new BufferedOutputStream(JfrSupport.wrap(fos), WRITER_BUFFER_SIZE);
+        Writer writer = null;
+        CSVDataWriter csvDataWriter = null;
+        PostgreSQLBinaryDataWriter binaryDataWriter = null;
+        List<Column> columns = sasFileReader.getColumns();
+        if (outputFormat == OutputFormat.POSTGRESQL_BINARY) {
+            binaryDataWriter = new PostgreSQLBinaryDataWriterImpl(os);
+            if (newOutput) {
+                binaryDataWriter.writeHeader();
+            }
+        } else {
+            writer = new BufferedWriter(new OutputStreamWriter(os, "utf-8"), WRITER_BUFFER_SIZE);
+            csvDataWriter = dialect == null ? new CSVDataWriterImpl(writer)
+                    : new DialectAwareCSVDataWriterImpl(writer, dialect);
+            if (newOutput) {
+                csvDataWriter.writeColumnNames(columns);
+            }
+        }
+        Flushable flushable = writer == null ? os : writer;
+        long rows = sasFileReader.getPosition().getRowIndex();
+        long checkpointPage = sasFileReader.getPosition().getPageIndex();
+        boolean metricsEnabled = metrics.isEnabled();
+        for (Object[] data = sasFileReader.readNext(); data != null; data = sasFileReader.readNext()) {
+            long start = metricsEnabled ? System.nanoTime() : 0;
+            if (binaryDataWriter != null) {
+                binaryDataWriter.writeRow(columns, data);
+            } else {
+                csvDataWriter.writeRow(columns, data);
+            }
+            if (metricsEnabled) {
+                metrics.rowWritten(System.nanoTime() - start);
+            }
+            rows++;
+            SasFilePosition position = sasFileReader.getPosition();
+            if (position.getRowOnPageIndex() == 0 && position.getPageIndex() - checkpointPage >= checkpointPages) {
+                flushable.flush();
+                fos.getChannel().force(false);
+                origin.at(position, fos.getChannel().position()).write(checkpointFile);
+                checkpointPage = position.getPageIndex();
+            }
+        }
+        if (binaryDataWriter != null) {
+            binaryDataWriter.writeTrailer();
+        }
+        flushable.flush();
+        return rows;
+    }
+
+    /**
+     * Writes the column names and all rows of a reader with a CSV writer.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @param csvDataWriter The CSV writer.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long writeRows(SasFileReader sasFileReader, CSVDataWriter csvDataWriter) throws IOException {
+        csvDataWriter.writeColumnNames(sasFileReader.getColumns());
+        long rows = 0;
+        boolean metricsEnabled = metrics.isEnabled();
+        for (Object[] data = sasFileReader.readNext(); data != null; data = sasFileReader.readNext()) {
+            long start = metricsEnabled ? System.nanoTime() : 0;
+            csvDataWriter.writeRow(sasFileReader.getColumns(), data);
+            if (metricsEnabled) {
+                metrics.rowWritten(System.nanoTime() - start);
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Writes all rows of a reader in the PostgreSQL binary COPY format.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @param binaryDataWriter The binary COPY writer.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long writeRows(SasFileReader sasFileReader, PostgreSQLBinaryDataWriter binaryDataWriter)
+            throws IOException {
+        binaryDataWriter.writeHeader();
+        long rows = 0;
+        boolean metricsEnabled = metrics.isEnabled();
+        for (Object[] data = sasFileReader.readNext(); data != null; data = sasFileReader.readNext()) {
+            long start = metricsEnabled ? System.nanoTime() : 0;
+            binaryDataWriter.writeRow(sasFileReader.getColumns(), data);
+            if (metricsEnabled) {
+                metrics.rowWritten(System.nanoTime() - start);
+            }
+            rows++;
+        }
+        binaryDataWriter.writeTrailer();
+        return rows;
+    }
+
+    /**
+     * Writes all rows of a reader as Avro records.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @param avroDataWriter The Avro writer.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long writeRows(SasFileReader sasFileReader, AvroDataWriter avroDataWriter) throws IOException {
+        boolean metricsEnabled = metrics.isEnabled();
+        for (Object[] data = sasFileReader.readNext(); data != null; data = sasFileReader.readNext()) {
+            long start = metricsEnabled ? System.nanoTime() : 0;
+            avroDataWriter.writeRow(data);
+            if (metricsEnabled) {
+                metrics.rowWritten(System.nanoTime() - start);
+            }
+        }
+        return avroDataWriter.getRowCount();
+    }
+
+    /**
+     * Writes all rows of a reader as JSON Lines.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @param jsonLinesDataWriter The JSON Lines writer.
+     * @return The number of rows written.
+     * @throws IOException if reading the input or writing the output is impossible.
+     */
+    private long writeRows(SasFileReader sasFileReader, JsonLinesDataWriter jsonLinesDataWriter)
+            throws IOException {
+        boolean metricsEnabled = metrics.isEnabled();
+        for (Object[] data = sasFileReader.readNext(); data != null; data = sasFileReader.readNext()) {
+            long start = metricsEnabled ? System.nanoTime() : 0;
+            jsonLinesDataWriter.writeRow(data);
+            if (metricsEnabled) {
+                metrics.rowWritten(System.nanoTime() - start);
+            }
+        }
+        return jsonLinesDataWriter.getRowCount();
+    }
+
+    /**
+     * Returns the name of the Avro record of an output file: its name without the extension.
+     * @param output The output file.
+     * @return The name of the record.
+     */
+    private static String getRecordName(Path output) {
+        String fileName = output.getFileName().toString();
+        int dot = fileName.indexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    /**
+     * Opens a UTF-8 writer on the given file, compressing the written bytes with
+     * the configured compression.
+     * @param output The file to write.
+     * @return The buffered writer.
+     * @throws IOException if the file can not be opened.
+     */
+    protected Writer openWriter(Path output) throws IOException {
+        OutputStream os = compression.wrap(JfrSupport.wrap(new FileOutputStream(output.toFile())), compressionLevel,
+                threads);
+        return new BufferedWriter(new OutputStreamWriter(os, "utf-8"), WRITER_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a buffered stream on the given file, compressing the written bytes with
+     * the configured compression.
+     * @param output The file to write.
+     * @return The buffered stream.
+     * @throws IOException if the file can not be opened.
+     */
+    protected OutputStream openOutputStream(Path output) throws IOException {
+        return new BufferedOutputStream(compression.wrap(JfrSupport.wrap(new FileOutputStream(output.toFile())),
+                compressionLevel, threads), WRITER_BUFFER_SIZE);
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.alphacruncher.sas;
+
+import java.math.BigDecimal;
+
+/**
+ * The statistics of the values of a .sas7bdat file column collected by a data scan:
+ * the number of values and nulls, whether all numbers are integral, the range of the
+ * numbers, the maximal decimal scale and the maximal length of the strings without their
+ * trailing blanks, as they are exported: leading blanks are kept like the reader keeps them.
+ * Numbers are expected as read by {@link com.epam.parso.SasFileReader#readNextRaw()}.
+ */
+public class ColumnProfile {
+
+    /**
+     * The largest magnitude up to which every integral double is exactly representable.
+     */
+    private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+
+    /**
+     * The number of non-null values.
+     */
+    private long values;
+
+    /**
+     * The number of null values.
+     */
+    private long nulls;
+
+    /**
+     * True if all numbers are integral and exactly representable as long values.
+     */
+    private boolean integral = true;
+
+    /**
+     * The smallest number.
+     */
+    private double min = Double.POSITIVE_INFINITY;
+
+    /**
+     * The largest number.
+     */
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * The maximal number of decimal digits after the decimal point of the numbers.
+     */
+    private int maxScale;
+
+    /**
+     * The maximal length of the strings without their trailing blanks.
+     */
+    private int maxLength;
+
+    /**
+     * True if all rows of the file were scanned, false if the profile is based on a sample.
+     */
+    private boolean complete;
+
+    /**
+     * Adds a value to the statistics.
+     * @param value The value of the column in a row, can be null.
+     */
+    public void add(Object value) {
+        if (value == null) {
+            nulls++;
+            return;
+        }
+        values++;
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isInfinite(d)) {
+                integral = false;
+            } else if (!(value instanceof Long || value instanceof Integer)) {
+                if (d != Math.rint(d) || Math.abs(d) > MAX_EXACT_INTEGER) {
+                    integral = false;
+                    maxScale = Math.max(maxScale, BigDecimal.valueOf(d).stripTrailingZeros().scale());
+                }
+            }
+            min = Math.min(min, d);
+            max = Math.max(max, d);
+        } else if (value instanceof byte[]) {
+            maxLength = Math.max(maxLength, ((byte[]) value).length);
+        } else {
+            maxLength = Math.max(maxLength, getExportedLength(value.toString()));
+        }
+    }
+
+    /**
+     * Returns the length of a string without the trailing blanks the parser strips from the stored values.
+     * @param value The string.
+     * @return The length of the string without its trailing spaces, tabs and NUL characters.
+     */
+    private static int getExportedLength(String value) {
+        int length = value.length();
+        while (length > 0 && (value.charAt(length - 1) == ' ' || value.charAt(length - 1) == '\t'
+                || value.charAt(length - 1) == '\0')) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of non-null values
+     */
+    public long getValues() {
+        return values;
+    }
+
+    /**
+     * @return the number of null values
+     */
+    public long getNulls() {
+        return nulls;
+    }
+
+    /**
+     * @return true if all numbers are integral and exactly representable as long values
+     */
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    /**
+     * @return the smallest number, positive infinity if there were no numbers
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest number, negative infinity if there were no numbers
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the maximal number of decimal digits after the decimal point of the numbers
+     */
+    public int getMaxScale() {
+        return maxScale;
+    }
+
+    /**
+     * @return the maximal length of the strings without their trailing blanks
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return true if all rows of the file were scanned, false if the profile is based on a sample
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @param complete true if all rows of the file were scanned
+     */
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+}
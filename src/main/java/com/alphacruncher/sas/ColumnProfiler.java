@@ -0,0 +1,70 @@
+package com.alphacruncher.sas;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.epam.parso.SasFileReader;
+
+/**
+ * Collects the {@link ColumnProfile} of every column of a .sas7bdat file in a single
+ * pass over its rows. The rows are read without date conversion. A full scan reads
+ * every row, a sampled scan stops after the given number of rows: it is much faster
+ * on large files, but the types inferred from it are only safe for the scanned rows.
+ */
+public class ColumnProfiler {
+
+    /**
+     * The number of rows to scan, 0 to scan all rows.
+     */
+    private final long sampleRows;
+
+    /**
+     * Creates a profiler.
+     * @param sampleRows The number of rows to scan, 0 to scan all rows.
+     */
+    public ColumnProfiler(long sampleRows) {
+        if (sampleRows < 0) {
+            throw new IllegalArgumentException("The number of sampled rows can not be negative");
+        }
+        this.sampleRows = sampleRows;
+    }
+
+    /**
+     * @return the number of rows to scan, 0 if all rows are scanned
+     */
+    public long getSampleRows() {
+        return sampleRows;
+    }
+
+    /**
+     * Scans the remaining rows of a reader, up to the sample size.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @return The profiles of the columns, in the order of the columns.
+     * @throws IOException if reading the file is impossible.
+     */
+    public List<ColumnProfile> profile(SasFileReader sasFileReader) throws IOException {
+        int columnCount = sasFileReader.getColumns().size();
+        List<ColumnProfile> profiles = new ArrayList<ColumnProfile>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            profiles.add(new ColumnProfile());
+        }
+        long rows = 0;
+        Object[] row = null;
+        for (; sampleRows == 0 || rows < sampleRows; rows++) {
+            row = sasFileReader.readNextRaw();
+            if (row == null) {
+                break;
+            }
+            for (int i = 0; i < columnCount; i++) {
+                profiles.get(i).add(row[i]);
+            }
+        }
+        boolean complete = row == null || rows >= sasFileReader.getSasFileProperties().getRowCount();
+        for (ColumnProfile profile : profiles) {
+            profile.setComplete(complete);
+        }
+        return profiles;
+    }
+
+}
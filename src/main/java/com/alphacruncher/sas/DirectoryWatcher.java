@@ -0,0 +1,294 @@
+package com.alphacruncher.sas;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.SasFileProperties;
+import com.epam.parso.impl.SasFileReaderImpl;
+
+/**
+ * Watches a directory and converts the .sas7bdat files written into it as soon as they
+ * are complete, with an {@link IncrementalConverter}. A file is considered complete when
+ * the page count in its header covers the whole file, or when its size and modification
+ * time did not change for the settle time. The conversions run on a bounded pool of
+ * worker threads in the same process, so they share the warm JIT state and buffers.
+ */
+public class DirectoryWatcher implements Closeable {
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    /**
+     * The default time the size and the modification time of a file have to be unchanged, in milliseconds.
+     */
+    public static final long DEFAULT_SETTLE_MILLIS = 5000;
+
+    /**
+     * The interval of checking the files being written, in milliseconds.
+     */
+    private static final long POLL_MILLIS = 250;
+
+    /**
+     * The number of waiting conversions per worker thread.
+     */
+    private static final int QUEUED_FILES_PER_JOB = 4;
+
+    /**
+     * The suffix of the .sas7bdat files.
+     */
+    private static final String SAS_FILE_SUFFIX = ".sas7bdat";
+
+    /**
+     * The converter of the files.
+     */
+    private final IncrementalConverter converter;
+
+    /**
+     * The watched directory.
+     */
+    private final Path directory;
+
+    /**
+     * The time the size and the modification time of a file have to be unchanged, in milliseconds.
+     */
+    private final long settleMillis;
+
+    /**
+     * The workers converting the complete files.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * The service notifying the changes of the directory.
+     */
+    private final WatchService watchService;
+
+    /**
+     * The files being written, with their last observed state.
+     */
+    private final Map<Path, Observation> pending = new LinkedHashMap<Path, Observation>();
+
+    /**
+     * The files being converted.
+     */
+    private final Set<Path> converting = Collections.synchronizedSet(new HashSet<Path>());
+
+    /**
+     * Set when the watcher is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a watcher of a directory.
+     * @param converter The converter of the files, its source directory has to be the watched directory.
+     * @param directory The watched directory.
+     * @param jobs The number of files converted in parallel.
+     * @param settleMillis The time the size and the modification time of a file have to be unchanged.
+     * @throws IOException if the directory can not be watched.
+     */
+    public DirectoryWatcher(IncrementalConverter converter, Path directory, int jobs, long settleMillis)
+            throws IOException {
+        this.converter = converter;
+        this.directory = directory;
+        this.settleMillis = settleMillis;
+        this.workers = new ThreadPoolExecutor(jobs, jobs, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(jobs * QUEUED_FILES_PER_JOB));
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Converts the files already in the directory and then the files written into it, until the
+     * watcher is closed.
+     * @throws IOException if the directory can not be listed.
+     */
+    public void run() throws IOException {
+        observeAll();
+        try {
+            while (!closed) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            observeAll();
+                        } else {
+                            observe(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                submitCompleteFiles();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Watch service closed", e);
+        }
+    }
+
+    /**
+     * Stops watching the directory and waits for the running conversions.
+     * @throws IOException if the watch service can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds every .sas7bdat file of the directory to the observed files.
+     * @throws IOException if the directory can not be listed.
+     */
+    private void observeAll() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                observe(file);
+            }
+        }
+    }
+
+    /**
+     * Adds a file to the observed files if it is a .sas7bdat file.
+     * @param file The created or modified file.
+     */
+    private void observe(Path file) {
+        if (file.getFileName().toString().toLowerCase().endsWith(SAS_FILE_SUFFIX) && !pending.containsKey(file)) {
+            pending.put(file, new Observation());
+        }
+    }
+
+    /**
+     * Submits the conversion of the observed files which are complete. Files being converted and files
+     * not accepted by the full worker queue stay observed.
+     */
+    private void submitCompleteFiles() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Path, Observation>> i = pending.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Path, Observation> entry = i.next();
+            final Path file = entry.getKey();
+            if (!Files.isRegularFile(file)) {
+                i.remove();
+                continue;
+            }
+            if (converting.contains(file) || !entry.getValue().isComplete(file, now)) {
+                continue;
+            }
+            try {
+                converting.add(file);
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (converter.convertIfChanged(file)) {
+                                LOGGER.info("Converted " + file.getFileName());
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            LOGGER.error("Failed to convert " + file.getFileName(), e);
+                        } finally {
+                            converting.remove(file);
+                        }
+                    }
+                });
+                i.remove();
+            } catch (RejectedExecutionException e) {
+                converting.remove(file);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the page count in the header of a file covers the whole file.
+     * @param file The .sas7bdat file.
+     * @param size The size of the file.
+     * @return true if the header length and the pages add up to the size of the file.
+     */
+    static boolean isHeaderComplete(Path file, long size) {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+            SasFileProperties properties = SasFileReaderImpl.metadataReader(is).getSasFileProperties();
+            return properties.getPageCount() > 0 && properties.getPageLength() > 0
+                    && properties.getHeaderLength() + properties.getPageCount() * properties.getPageLength() == size;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The last observed state of a file being written.
+     */
+    private final class Observation {
+        /**
+         * The last observed size of the file.
+         */
+        private long size = -1;
+
+        /**
+         * The last observed modification time of the file.
+         */
+        private long mtime = -1;
+
+        /**
+         * The time the size or the modification time of the file last changed.
+         */
+        private long changed;
+
+        /**
+         * Checks whether the file is complete: its header covers the whole file, or its size and modification
+         * time did not change for the settle time. The header is read only when the size changed.
+         * @param file The .sas7bdat file.
+         * @param now The current time.
+         * @return true if the file can be converted.
+         */
+        private boolean isComplete(Path file, long now) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return false;
+            }
+            long currentMtime = attributes.lastModifiedTime().toMillis();
+            if (attributes.size() != size || currentMtime != mtime) {
+                size = attributes.size();
+                mtime = currentMtime;
+                changed = now;
+                return isHeaderComplete(file, size);
+            }
+            return now - changed >= settleMillis;
+        }
+    }
+}
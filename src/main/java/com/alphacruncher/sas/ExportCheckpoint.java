@@ -0,0 +1,212 @@
+package com.alphacruncher.sas;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+
+import com.epam.parso.SasFileProperties;
+import com.epam.parso.impl.SasFilePosition;
+
+/**
+ * The progress of a conversion saved on a page boundary of the input: what identifies the input,
+ * its size, its modification time and the modification date in its SAS header, the settings of
+ * the output, the position of the next row to read and the length of the output holding the rows
+ * before it. A conversion is resumed by truncating the output to that length and seeking the input
+ * to the position, only if the input and the output settings are the same. The checkpoint is a one
+ * line CSV file with a header, replaced atomically.
+ */
+public final class ExportCheckpoint {
+
+    /**
+     * The header line of the checkpoint file.
+     */
+    private static final String[] HEADER = {"input_size", "input_modified", "sas_date_modified", "output_settings",
+        "page", "row_on_page", "row", "output_offset"};
+
+    /**
+     * The suffix of the checkpoint file while it is written.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * The size of the input file.
+     */
+    private final long inputSize;
+
+    /**
+     * The modification time of the input file, in milliseconds since the epoch.
+     */
+    private final long inputModified;
+
+    /**
+     * The modification date in the SAS header of the input, in milliseconds since the epoch, or -1 without it.
+     */
+    private final long sasDateModified;
+
+    /**
+     * The settings of the output the rows are written with, such as its format and dialect.
+     */
+    private final String outputSettings;
+
+    /**
+     * The position of the next row to read.
+     */
+    private final SasFilePosition position;
+
+    /**
+     * The length of the output holding the rows before the position.
+     */
+    private final long outputOffset;
+
+    /**
+     * Creates a checkpoint.
+     * @param inputSize The size of the input file.
+     * @param inputModified The modification time of the input file, in milliseconds since the epoch.
+     * @param sasDateModified The modification date in the SAS header of the input, in milliseconds since the
+     * epoch, or -1 without it.
+     * @param outputSettings The settings of the output the rows are written with.
+     * @param position The position of the next row to read.
+     * @param outputOffset The length of the output holding the rows before the position.
+     */
+    public ExportCheckpoint(long inputSize, long inputModified, long sasDateModified, String outputSettings,
+                            SasFilePosition position, long outputOffset) {
+        this.inputSize = inputSize;
+        this.inputModified = inputModified;
+        this.sasDateModified = sasDateModified;
+        this.outputSettings = outputSettings;
+        this.position = position;
+        this.outputOffset = outputOffset;
+    }
+
+    /**
+     * Creates a checkpoint of the conversion of an input file.
+     * @param input The input file.
+     * @param properties The metadata of the input file.
+     * @param outputSettings The settings of the output the rows are written with.
+     * @param position The position of the next row to read.
+     * @param outputOffset The length of the output holding the rows before the position.
+     * @return The checkpoint.
+     * @throws IOException if the attributes of the input file can not be read.
+     */
+    public static ExportCheckpoint of(Path input, SasFileProperties properties, String outputSettings,
+                                      SasFilePosition position, long outputOffset) throws IOException {
+        return new ExportCheckpoint(Files.size(input), Files.getLastModifiedTime(input).toMillis(),
+                properties.getDateModified() == null ? -1 : properties.getDateModified().getTime(), outputSettings,
+                position, outputOffset);
+    }
+
+    /**
+     * The function to get a checkpoint of the same conversion at another position.
+     * @param nextPosition The position of the next row to read.
+     * @param nextOutputOffset The length of the output holding the rows before the position.
+     * @return The checkpoint.
+     */
+    public ExportCheckpoint at(SasFilePosition nextPosition, long nextOutputOffset) {
+        return new ExportCheckpoint(inputSize, inputModified, sasDateModified, outputSettings, nextPosition,
+                nextOutputOffset);
+    }
+
+    /**
+     * The function to check whether another checkpoint is of the same conversion: the same input, with the same
+     * size and modification times, and the same output settings.
+     * @param other The other checkpoint.
+     * @return True if the conversion can be resumed from this checkpoint for the other one.
+     */
+    public boolean matches(ExportCheckpoint other) {
+        return inputSize == other.inputSize && inputModified == other.inputModified
+                && sasDateModified == other.sasDateModified && outputSettings.equals(other.outputSettings);
+    }
+
+    /**
+     * @return the size of the input file
+     */
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * @return the modification time of the input file, in milliseconds since the epoch
+     */
+    public long getInputModified() {
+        return inputModified;
+    }
+
+    /**
+     * @return the modification date in the SAS header of the input, in milliseconds since the epoch, or -1
+     */
+    public long getSasDateModified() {
+        return sasDateModified;
+    }
+
+    /**
+     * @return the settings of the output the rows are written with
+     */
+    public String getOutputSettings() {
+        return outputSettings;
+    }
+
+    /**
+     * @return the position of the next row to read
+     */
+    public SasFilePosition getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the length of the output holding the rows before the position
+     */
+    public long getOutputOffset() {
+        return outputOffset;
+    }
+
+    /**
+     * Reads a checkpoint file.
+     * @param file The checkpoint file.
+     * @return The checkpoint, or null if the file does not exist or is not a valid checkpoint.
+     * @throws IOException if the file can not be read.
+     */
+    public static ExportCheckpoint read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CSVReader csvReader = new CSVReader(reader);
+            csvReader.readNext();
+            String[] line = csvReader.readNext();
+            if (line == null || line.length != HEADER.length) {
+                return null;
+            }
+            return new ExportCheckpoint(Long.parseLong(line[0]), Long.parseLong(line[1]), Long.parseLong(line[2]),
+                    line[3], new SasFilePosition(Long.parseLong(line[4]), Integer.parseInt(line[5]),
+                    Long.parseLong(line[6])), Long.parseLong(line[7]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the checkpoint under a temporary name and renames it over the previous one.
+     * @param file The checkpoint file.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            CSVWriter csvWriter = new CSVWriter(writer);
+            csvWriter.writeNext(HEADER);
+            csvWriter.writeNext(new String[]{String.valueOf(inputSize), String.valueOf(inputModified),
+                String.valueOf(sasDateModified), outputSettings, String.valueOf(position.getPageIndex()),
+                String.valueOf(position.getRowOnPageIndex()), String.valueOf(position.getRowIndex()),
+                String.valueOf(outputOffset)});
+            csvWriter.flush();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
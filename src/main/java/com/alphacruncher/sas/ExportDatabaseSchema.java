@@ -42,6 +42,9 @@ public final class ExportDatabaseSchema {
      * --collation The database collation to use (default is 'latin1_bin').
      * --folder The path of the folder where the .sas7bdat files are located.
      * --sql-file The name of the output SQL script file.
+     * --threads The number of files read in parallel, the number of processors is the default.
+     * --infer-types Scans all rows of the files to infer the narrowest column types.
+     * --sample-rows Infers the column types from the given number of rows of each file.
      *
      * @param args Command line arguments.
      */
@@ -63,6 +66,12 @@ public final class ExportDatabaseSchema {
                 .desc("The path of the folder where the .sas7bdat files are located.").hasArg().build());
         options.addOption(Option.builder("q").longOpt("sql-file").required()
                 .desc("The name of the output SQL script file.").hasArg().build());
+        options.addOption(Option.builder("t").longOpt("threads")
+                .desc("The number of files read in parallel.").hasArg().build());
+        options.addOption(Option.builder("i").longOpt("infer-types")
+                .desc("Scans all rows of the files to infer the narrowest column types.").build());
+        options.addOption(Option.builder("r").longOpt("sample-rows")
+                .desc("Infers the column types from the given number of rows of each file.").hasArg().build());
 
         try {
             CommandLine line = parser.parse(options, args);
@@ -73,19 +82,23 @@ public final class ExportDatabaseSchema {
             String collation = line.getOptionValue("c", SchemaExporter.COLLATION_LATIN1_BIN);
             String folder = line.getOptionValue("f");
             String sqlFile = line.getOptionValue("q");
+            int threads = Integer.parseInt(line.getOptionValue("t",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
 
-            StringBuffer sb = new StringBuffer();
             SchemaExporter schemaExporter = SchemaExporter.getExporterForDialect(dialect,
                     schema, engine, charset, collation);
-            schemaExporter.exportSchema(folder, sb);
-            String sqlScript = sb.toString();
+            if (line.hasOption("r")) {
+                schemaExporter.setProfiler(new ColumnProfiler(Long.parseLong(line.getOptionValue("r"))));
+            } else if (line.hasOption("i")) {
+                schemaExporter.setProfiler(new ColumnProfiler(0));
+            }
             Charset utf8 = Charset.forName("UTF-8");
             try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(sqlFile), utf8)) {
-                writer.write(sqlScript, 0, sqlScript.length());
+                schemaExporter.exportSchema(folder, writer, threads);
             } catch (IOException x) {
                 LOGGER.error("Failed to write SQL script file", x);
             }
-        } catch (ParseException e) {
+        } catch (ParseException | IllegalArgumentException e) {
             LOGGER.error("Error while parsing command line arguments", e);
         }
     }
@@ -2,18 +2,32 @@ package com.alphacruncher.sas;
 
 import java.io.BufferedWriter;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.management.JMException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
 
-import com.epam.parso.CSVDataWriter;
 import com.epam.parso.CSVMetadataWriter;
-import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.AvroDataWriterImpl;
 import com.epam.parso.impl.CSVMetadataWriterImpl;
+import com.epam.parso.impl.CountingReaderMetrics;
+import com.epam.parso.impl.NoopReaderMetrics;
+import com.epam.parso.impl.OutputCompression;
+import com.epam.parso.impl.OutputFormat;
 import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SortingSasFileReader;
 
 /**
  * @author daniel.sali@alphacruncher.com sas7bdat to CSV converter class using
@@ -27,49 +41,270 @@ public final class ExportToCSV {
     }
 
     /**
-     * The main function, the entry point of execution.
+     * The main function, the entry point of execution. The input SAS file name
+     * and the output CSV file name have to be passed as arguments, optionally
+     * preceded by the following options:
+     * --compress 'none' (default) or 'gzip'.
+     * --level The compression level, from 1 (fastest) to 9 (best), 6 is the default.
+     * --threads The number of compression threads, the number of processors is the default.
+     * --dialect 'MySQL' or 'PostgreSQL', writes the NULL string of the dialect for missing values.
+     * --split-rows Splits the output into parts of at most the given number of rows.
+     * --split-bytes Splits the output into parts of at most about the given number of uncompressed bytes.
+     * --part-header Writes the column names to every part, not only to the first one.
+     * --pg-binary Writes the PostgreSQL binary COPY format instead of CSV.
+     * --avro Writes an Avro object container file instead of CSV.
+     * --jsonl Writes JSON Lines, one object per row, instead of CSV; with --threads, rows are encoded in parallel.
+     * --avro-codec The codec of the Avro blocks, 'null' or 'deflate' (default).
+     * --avro-block-size The number of uncompressed bytes of an Avro block, 1048576 is the default.
+     * --jobs The number of files converted in parallel if the input is a directory.
+     * --watch Keeps watching the input directory and converts the files written into it.
+     * --settle The milliseconds the size of a file written into the watched directory has to be unchanged.
+     * --checkpoint Saves the progress to the given file and resumes from it, for uncompressed single file outputs.
+     * --checkpoint-pages The number of input pages read between two checkpoints, 1000 is the default.
+     * --order-by Sorts the rows by the given columns, such as 'subject_id, visit_date DESC', with an external
+     * merge sort spilling to temporary files.
+     * --sort-memory The megabytes of rows held in memory while sorting, 256 is the default.
+     * --temp-dir The directory of the temporary files of the sort, the system temporary directory is the default.
+     * --stats Prints the pages, rows and time spent reading, decompressing, decoding and writing, and
+     * registers the counters as the com.epam.parso:type=ReaderMetrics MXBean.
+     * If the output is split, the output file name is the directory of the parts.
+     * If the input is a directory, its new and changed .sas7bdat files are converted
+     * to the output directory, see {@link IncrementalConverter}, and with --watch the files
+     * written later too, see {@link DirectoryWatcher}.
      *
      * @param args
-     *            The paths to the input and output files.
+     *            The options and the paths to the input and output files.
      */
     public static void main(String[] args) {
-        if (args.length != 2) {
+        Options options = new Options();
+        options.addOption(Option.builder("z").longOpt("compress")
+                .desc("'none' (default) or 'gzip'.").hasArg().build());
+        options.addOption(Option.builder("l").longOpt("level")
+                .desc("The compression level, from 1 (fastest) to 9 (best), 6 is the default.").hasArg().build());
+        options.addOption(Option.builder("t").longOpt("threads")
+                .desc("The number of compression threads.").hasArg().build());
+        options.addOption(Option.builder("d").longOpt("dialect")
+                .desc("'MySQL' or 'PostgreSQL', writes the NULL string of the dialect.").hasArg().build());
+        options.addOption(Option.builder("r").longOpt("split-rows")
+                .desc("Splits the output into parts of at most the given number of rows.").hasArg().build());
+        options.addOption(Option.builder("b").longOpt("split-bytes")
+                .desc("Splits the output into parts of about the given number of bytes.").hasArg().build());
+        options.addOption(Option.builder("p").longOpt("part-header")
+                .desc("Writes the column names to every part.").build());
+        options.addOption(Option.builder("j").longOpt("jobs")
+                .desc("The number of files converted in parallel if the input is a directory.").hasArg().build());
+        options.addOption(Option.builder("g").longOpt("pg-binary")
+                .desc("Writes the PostgreSQL binary COPY format instead of CSV.").build());
+        options.addOption(Option.builder("a").longOpt("avro")
+                .desc("Writes an Avro object container file instead of CSV.").build());
+        options.addOption(Option.builder().longOpt("avro-codec")
+                .desc("The codec of the Avro blocks, 'null' or 'deflate' (default).").hasArg().build());
+        options.addOption(Option.builder().longOpt("avro-block-size")
+                .desc("The number of uncompressed bytes of an Avro block, 1048576 is the default.").hasArg().build());
+        options.addOption(Option.builder().longOpt("jsonl")
+                .desc("Writes JSON Lines, one object per row, instead of CSV.").build());
+        options.addOption(Option.builder("w").longOpt("watch")
+                .desc("Keeps watching the input directory and converts the files written into it.").build());
+        options.addOption(Option.builder("s").longOpt("settle")
+                .desc("The milliseconds the size of a written file has to be unchanged, 5000 is the default.")
+                .hasArg().build());
+        options.addOption(Option.builder("c").longOpt("checkpoint")
+                .desc("Saves the progress to the given file and resumes from it.").hasArg().build());
+        options.addOption(Option.builder("n").longOpt("checkpoint-pages")
+                .desc("The number of input pages read between two checkpoints, 1000 is the default.")
+                .hasArg().build());
+        options.addOption(Option.builder().longOpt("order-by")
+                .desc("Sorts the rows by the given columns, such as 'subject_id, visit_date DESC'.").hasArg().build());
+        options.addOption(Option.builder().longOpt("sort-memory")
+                .desc("The megabytes of rows held in memory while sorting, 256 is the default.").hasArg().build());
+        options.addOption(Option.builder().longOpt("temp-dir")
+                .desc("The directory of the temporary files of the sort.").hasArg().build());
+        options.addOption(Option.builder().longOpt("stats")
+                .desc("Prints the pages, rows and time spent in every phase of the conversion.").build());
+
+        CSVExporter exporter = new CSVExporter();
+        String[] files;
+        int jobs;
+        long settleMillis;
+        CountingReaderMetrics metrics = null;
+        try {
+            CommandLine line = new DefaultParser().parse(options, args);
+            files = line.getArgs();
+            exporter.setCompression(OutputCompression.fromName(
+                    line.getOptionValue("z", OutputCompression.NONE.getName())));
+            exporter.setCompressionLevel(Integer.parseInt(
+                    line.getOptionValue("l", String.valueOf(OutputCompression.DEFAULT_LEVEL))));
+            exporter.setThreads(Integer.parseInt(
+                    line.getOptionValue("t", String.valueOf(exporter.getThreads()))));
+            if (line.hasOption("d")) {
+                exporter.setDialect(SchemaExporter.dialectForName(line.getOptionValue("d")));
+            }
+            exporter.setMaxRowsPerPart(Long.parseLong(line.getOptionValue("r", "0")));
+            exporter.setMaxBytesPerPart(Long.parseLong(line.getOptionValue("b", "0")));
+            exporter.setHeaderPerPart(line.hasOption("p"));
+            exporter.setOutputFormat(getOutputFormat(line));
+            exporter.setAvroCodec(line.getOptionValue("avro-codec", AvroDataWriterImpl.DEFLATE_CODEC));
+            exporter.setAvroBlockSize(Integer.parseInt(line.getOptionValue("avro-block-size",
+                    String.valueOf(AvroDataWriterImpl.DEFAULT_BLOCK_SIZE))));
+            if (line.hasOption("c")) {
+                exporter.setCheckpointFile(Paths.get(line.getOptionValue("c")));
+            }
+            exporter.setCheckpointPages(Long.parseLong(line.getOptionValue("n",
+                    String.valueOf(CSVExporter.DEFAULT_CHECKPOINT_PAGES))));
+            exporter.setOrderBy(line.getOptionValue("order-by"));
+            exporter.setSortMemoryBudget(Long.parseLong(line.getOptionValue("sort-memory",
+                    String.valueOf(SortingSasFileReader.DEFAULT_MEMORY_BUDGET >> 20))) << 20);
+            if (line.hasOption("temp-dir")) {
+                exporter.setTempDirectory(Paths.get(line.getOptionValue("temp-dir")));
+            }
+            jobs = Integer.parseInt(line.getOptionValue("j", "1"));
+            settleMillis = line.hasOption("w") ? Long.parseLong(line.getOptionValue("s",
+                    String.valueOf(DirectoryWatcher.DEFAULT_SETTLE_MILLIS))) : -1;
+            if (line.hasOption("stats")) {
+                metrics = new CountingReaderMetrics();
+                exporter.setMetrics(metrics);
+            }
+        } catch (ParseException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (files.length != 2) {
             System.err.println("The input SAS file name and the "
                     + "output CSV file name have to be passed as arguments.");
             return;
         }
-        InputStream is;
-        try {
-            is = new FileInputStream(args[0]);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+        if (metrics != null) {
+            try {
+                metrics.register(files[0]);
+            } catch (JMException e) {
+                System.err.println("The statistics can not be registered in JMX: " + e.getMessage());
+            }
+        }
+
+        if (Files.isDirectory(Paths.get(files[0]))) {
+            if (exporter.getCheckpointFile() != null) {
+                System.err.println("Checkpoints are supported for single input files only.");
+                return;
+            }
+            if (settleMillis < 0) {
+                convertDirectory(exporter, Paths.get(files[0]), Paths.get(files[1]), jobs);
+            } else {
+                watchDirectory(exporter, Paths.get(files[0]), Paths.get(files[1]), jobs, settleMillis);
+            }
+            printStats(metrics);
             return;
         }
-        com.epam.parso.SasFileReader sasFileReader = new SasFileReaderImpl(is);
-        try (Writer stdOutWriter = new BufferedWriter(new OutputStreamWriter(
-                System.out))) {
-            stdOutWriter.write("Metadata for " + args[0] + ":\n");
+
+        try (InputStream is = new FileInputStream(files[0])) {
+            boolean exportsFile = exporter.getCheckpointFile() != null || exporter.getOrderBy() != null;
+            com.epam.parso.SasFileReader sasFileReader = new SasFileReaderImpl(is,
+                    exportsFile ? NoopReaderMetrics.INSTANCE : exporter.getMetrics());
+            Writer stdOutWriter = new BufferedWriter(new OutputStreamWriter(System.out));
+            stdOutWriter.write("Metadata for " + files[0] + ":\n");
             CSVMetadataWriter csvMetadataWriter = new CSVMetadataWriterImpl(stdOutWriter);
             csvMetadataWriter.writeMetadata(sasFileReader.getColumns());
             stdOutWriter.write("-----------------\n\n");
-        } catch (Exception e) {
+            stdOutWriter.flush();
+
+            if (exportsFile) {
+                exporter.export(Paths.get(files[0]), Paths.get(files[1]));
+            } else {
+                exporter.export(sasFileReader, Paths.get(files[1]));
+            }
+            String format = exporter.getOutputFormat().getDescription();
+            System.out.println(format + " successfully written to: " + files[1]);
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
-            return;
         }
-        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
-                new FileOutputStream(args[1]), "utf-8"))) {
-            CSVDataWriter csvDataWriter = new CSVDataWriterImpl(writer);
-            csvDataWriter.writeColumnNames(sasFileReader.getColumns());
-            Object[] data;
-            while ((data = sasFileReader.readNext()) != null) {
-                csvDataWriter.writeRow(sasFileReader.getColumns(), data);
+        printStats(metrics);
+    }
+
+    /**
+     * Returns the output format chosen with --pg-binary, --avro or --jsonl, CSV if none is given.
+     *
+     * @param line
+     *            The parsed command line.
+     * @return The output format.
+     * @throws IllegalArgumentException if more than one of --pg-binary, --avro and --jsonl is given.
+     */
+    private static OutputFormat getOutputFormat(CommandLine line) {
+        int formats = 0;
+        for (String option : new String[]{"g", "a", "jsonl"}) {
+            if (line.hasOption(option)) {
+                formats++;
             }
-            writer.flush();
-            writer.close();
-            System.out.println("CSV successfully written to: " + args[1]);
+        }
+        if (formats > 1) {
+            throw new IllegalArgumentException("Only one of --pg-binary, --avro and --jsonl can be given.");
+        }
+        if (line.hasOption("a")) {
+            return OutputFormat.AVRO;
+        }
+        if (line.hasOption("jsonl")) {
+            return OutputFormat.JSON_LINES;
+        }
+        return line.hasOption("g") ? OutputFormat.POSTGRESQL_BINARY : OutputFormat.CSV;
+    }
+
+    /**
+     * Prints the summary of the statistics collected with --stats.
+     *
+     * @param metrics
+     *            The collected statistics, or null without --stats.
+     */
+    private static void printStats(CountingReaderMetrics metrics) {
+        if (metrics != null) {
+            System.out.print(metrics.getSummary());
+        }
+    }
+
+    /**
+     * Converts the new and changed .sas7bdat files of a directory and prints a summary.
+     *
+     * @param exporter
+     *            The exporter converting a file.
+     * @param input
+     *            The directory of the .sas7bdat files.
+     * @param output
+     *            The directory of the outputs.
+     * @param jobs
+     *            The number of files converted in parallel.
+     */
+    private static void convertDirectory(CSVExporter exporter, Path input, Path output, int jobs) {
+        IncrementalConverter converter = new IncrementalConverter(exporter, input, output);
+        converter.setJobs(jobs);
+        try {
+            IncrementalConverter.Summary summary = converter.convert();
+            System.out.println("Converted: " + summary.getConverted().size()
+                    + ", unchanged: " + summary.getUnchanged().size()
+                    + ", deleted: " + summary.getDeleted().size()
+                    + ", failed: " + summary.getFailed().size());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Converts the .sas7bdat files of a directory and the files written into it until the process is stopped.
+     *
+     * @param exporter
+     *            The exporter converting a file.
+     * @param input
+     *            The watched directory of the .sas7bdat files.
+     * @param output
+     *            The directory of the outputs.
+     * @param jobs
+     *            The number of files converted in parallel.
+     * @param settleMillis
+     *            The milliseconds the size of a written file has to be unchanged.
+     */
+    private static void watchDirectory(CSVExporter exporter, Path input, Path output, int jobs, long settleMillis) {
+        IncrementalConverter converter = new IncrementalConverter(exporter, input, output);
+        try (DirectoryWatcher watcher = new DirectoryWatcher(converter, input, jobs, settleMillis)) {
+            System.out.println("Watching " + input + " for .sas7bdat files.");
+            watcher.run();
         } catch (IOException e) {
             e.printStackTrace();
-            return;
         }
     }
 
@@ -0,0 +1,599 @@
+package com.alphacruncher.sas;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+
+import com.epam.parso.impl.SasFileReaderImpl;
+
+/**
+ * Converts the .sas7bdat files of a directory to CSV files, reconverting only the files
+ * which are new or changed since the previous run. A manifest in the output directory
+ * records for every source file its size, modification time, the modification date
+ * stored in its header, its output and the number of rows written. A source whose size
+ * or modification time differs is reconverted unless its header modification date is
+ * unchanged, for example after a copy. Every output is written under a temporary name
+ * and renamed when complete, so readers never see partial files, and the outputs of
+ * deleted sources are removed.
+ */
+public class IncrementalConverter {
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalConverter.class);
+
+    /**
+     * The name of the manifest file in the output directory.
+     */
+    public static final String MANIFEST_FILE_NAME = ".parso-manifest.csv";
+
+    /**
+     * The header line of the manifest.
+     */
+    private static final String[] MANIFEST_HEADER = {"source", "size", "mtime", "date_modified", "output", "rows"};
+
+    /**
+     * The suffix of the .sas7bdat files.
+     */
+    private static final String SAS_FILE_SUFFIX = ".sas7bdat";
+
+    /**
+     * The suffix of the temporary outputs.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * The exporter converting a file.
+     */
+    private final CSVExporter exporter;
+
+    /**
+     * The directory of the .sas7bdat files.
+     */
+    private final Path sourceDirectory;
+
+    /**
+     * The directory of the CSV files and the manifest.
+     */
+    private final Path outputDirectory;
+
+    /**
+     * The number of files converted in parallel.
+     */
+    private int jobs = 1;
+
+    /**
+     * Creates a converter.
+     * @param exporter The exporter converting a file.
+     * @param sourceDirectory The directory of the .sas7bdat files.
+     * @param outputDirectory The directory of the CSV files and the manifest.
+     */
+    public IncrementalConverter(CSVExporter exporter, Path sourceDirectory, Path outputDirectory) {
+        this.exporter = exporter;
+        this.sourceDirectory = sourceDirectory;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * @return the number of files converted in parallel
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * @param jobs the number of files converted in parallel
+     */
+    public void setJobs(int jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * Converts the new and changed files of the source directory, removes the outputs of
+     * the deleted files and updates the manifest. A file failing to convert is logged, its
+     * previous output and manifest entry are kept, and it is retried on the next run.
+     * @return The names of the converted, unchanged, deleted and failed source files.
+     * @throws IOException if the directories or the manifest can not be read or written.
+     */
+    public synchronized Summary convert() throws IOException {
+        Files.createDirectories(outputDirectory);
+        Map<String, Entry> previous = readManifest();
+        Map<String, Entry> current = new TreeMap<String, Entry>();
+        Summary summary = new Summary();
+
+        List<Path> changed = new ArrayList<Path>();
+        Map<String, Entry> outdated = new TreeMap<String, Entry>();
+        for (Path source : listSourceFiles()) {
+            String name = source.getFileName().toString();
+            Entry entry = previous.remove(name);
+            if (entry != null && isUnchanged(source, entry)) {
+                current.put(name, entry);
+                summary.unchanged.add(name);
+            } else {
+                changed.add(source);
+                if (entry != null) {
+                    outdated.put(name, entry);
+                }
+            }
+        }
+
+        for (Entry deleted : previous.values()) {
+            deleteRecursively(outputDirectory.resolve(deleted.getOutput()));
+            summary.deleted.add(deleted.getSource());
+            LOGGER.info("Removed the output of deleted file " + deleted.getSource());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, jobs));
+        try {
+            List<Future<Entry>> conversions = new ArrayList<Future<Entry>>(changed.size());
+            for (final Path source : changed) {
+                conversions.add(executor.submit(new Callable<Entry>() {
+                    @Override
+                    public Entry call() throws IOException {
+                        return convert(source);
+                    }
+                }));
+            }
+            for (int i = 0; i < changed.size(); i++) {
+                String name = changed.get(i).getFileName().toString();
+                try {
+                    Entry converted = conversions.get(i).get();
+                    current.put(name, converted);
+                    summary.converted.add(name);
+                    deleteReplacedOutput(outdated.get(name), converted);
+                } catch (ExecutionException e) {
+                    LOGGER.error("Failed to convert " + name, e.getCause());
+                    summary.failed.add(name);
+                    if (outdated.containsKey(name)) {
+                        current.put(name, outdated.get(name));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while converting " + name);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        writeManifest(current.values());
+        return summary;
+    }
+
+    /**
+     * Converts a single source file if it is new or changed since it was recorded in the manifest,
+     * and records it in the manifest. Several files can be converted in parallel.
+     * @param source The .sas7bdat file in the source directory.
+     * @return true if the file was converted, false if it was unchanged.
+     * @throws IOException if the file can not be converted or the manifest can not be updated.
+     */
+    public boolean convertIfChanged(Path source) throws IOException {
+        String name = source.getFileName().toString();
+        Entry entry;
+        synchronized (this) {
+            Files.createDirectories(outputDirectory);
+            entry = readManifest().get(name);
+        }
+        if (entry != null) {
+            long mtime = entry.getMtime();
+            if (isUnchanged(source, entry)) {
+                if (entry.getMtime() != mtime) {
+                    record(entry);
+                }
+                return false;
+            }
+        }
+        Entry converted = convert(source);
+        record(converted);
+        deleteReplacedOutput(entry, converted);
+        return true;
+    }
+
+    /**
+     * Deletes the previous output of a converted file if the new output has another name, such as
+     * after switching to a compressed or split output, so no orphaned outputs are left behind.
+     * @param previous The previous manifest entry of the file, or null if it is new.
+     * @param converted The manifest entry of the new output.
+     * @throws IOException if the previous output can not be deleted.
+     */
+    private void deleteReplacedOutput(Entry previous, Entry converted) throws IOException {
+        if (previous != null && !previous.getOutput().equals(converted.getOutput())) {
+            deleteRecursively(outputDirectory.resolve(previous.getOutput()));
+            LOGGER.info("Removed the previous output " + previous.getOutput() + " of " + converted.getSource());
+        }
+    }
+
+    /**
+     * Adds or replaces an entry of the manifest.
+     * @param entry The manifest entry.
+     * @throws IOException if the manifest can not be updated.
+     */
+    private synchronized void record(Entry entry) throws IOException {
+        Map<String, Entry> entries = readManifest();
+        entries.put(entry.getSource(), entry);
+        writeManifest(entries.values());
+    }
+
+    /**
+     * Converts a source file to its output, writing under a temporary name first and renaming
+     * the complete output over the previous one.
+     * @param source The .sas7bdat file.
+     * @return The manifest entry of the file.
+     * @throws IOException if the file can not be converted.
+     */
+    Entry convert(Path source) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        String name = source.getFileName().toString();
+        String output = getOutputName(name);
+        Path target = outputDirectory.resolve(output);
+        Path temporary = outputDirectory.resolve("." + output + TEMPORARY_SUFFIX);
+        deleteRecursively(temporary);
+        long rows;
+        Date dateModified;
+        try (InputStream is = new BufferedInputStream(new FileInputStream(source.toFile()))) {
+            SasFileReaderImpl sasFileReader = new SasFileReaderImpl(is, exporter.getMetrics());
+            dateModified = sasFileReader.getSasFileProperties().getDateModified();
+            rows = exporter.getOrderBy() == null ? exporter.export(sasFileReader, temporary)
+                    : exporter.export(source, temporary);
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(temporary);
+            throw e;
+        }
+        replace(temporary, target);
+        LOGGER.info("Converted " + name + " to " + output + ", rows: " + rows);
+        return new Entry(name, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                dateModified == null ? -1 : dateModified.getTime(), output, rows);
+    }
+
+    /**
+     * Checks whether a source file is unchanged since it was recorded in the manifest. The size
+     * and the modification time are compared first. If they differ, the header modification date
+     * decides, in which case the recorded modification time is updated.
+     * @param source The .sas7bdat file.
+     * @param entry The manifest entry of the file.
+     * @return true if the file does not have to be converted.
+     * @throws IOException if the attributes of the file can not be read.
+     */
+    private boolean isUnchanged(Path source, Entry entry) throws IOException {
+        if (!Files.exists(outputDirectory.resolve(entry.getOutput()))
+                || !entry.getOutput().equals(getOutputName(entry.getSource()))) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        if (attributes.size() != entry.getSize()) {
+            return false;
+        }
+        long mtime = attributes.lastModifiedTime().toMillis();
+        if (mtime == entry.getMtime()) {
+            return true;
+        }
+        if (entry.getDateModified() < 0) {
+            return false;
+        }
+        try (InputStream is = new BufferedInputStream(new FileInputStream(source.toFile()))) {
+            Date dateModified = SasFileReaderImpl.metadataReader(is).getSasFileProperties().getDateModified();
+            if (dateModified != null && dateModified.getTime() == entry.getDateModified()) {
+                entry.mtime = mtime;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the output of a source file in the output directory: the CSV, binary COPY, Avro or
+     * JSON Lines file, or the directory of the parts if the exporter splits its output.
+     * @param source The name of the .sas7bdat file.
+     * @return The name of the output.
+     */
+    private String getOutputName(String source) {
+        String table = source.substring(0, source.length() - SAS_FILE_SUFFIX.length());
+        if (exporter.isSplitting()) {
+            return table;
+        }
+        String extension = exporter.getOutputFormat().getFileExtension();
+        return table + extension + exporter.getCompression().getFileExtension();
+    }
+
+    /**
+     * Lists the .sas7bdat files of the source directory in the order of their names.
+     * @return The .sas7bdat files.
+     * @throws IOException if the directory can not be listed.
+     */
+    private List<Path> listSourceFiles() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceDirectory)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().toLowerCase().endsWith(SAS_FILE_SUFFIX)
+                        && Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Reads the manifest of the previous run.
+     * @return The entries of the manifest by source file name, empty if there is no manifest.
+     * @throws IOException if the manifest can not be read.
+     */
+    private Map<String, Entry> readManifest() throws IOException {
+        Map<String, Entry> entries = new TreeMap<String, Entry>();
+        Path manifest = outputDirectory.resolve(MANIFEST_FILE_NAME);
+        if (!Files.exists(manifest)) {
+            return entries;
+        }
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            CSVReader csvReader = new CSVReader(reader);
+            csvReader.readNext();
+            for (String[] line = csvReader.readNext(); line != null; line = csvReader.readNext()) {
+                if (line.length == MANIFEST_HEADER.length) {
+                    Entry entry = new Entry(line[0], Long.parseLong(line[1]), Long.parseLong(line[2]),
+                            Long.parseLong(line[3]), line[4], Long.parseLong(line[5]));
+                    entries.put(entry.getSource(), entry);
+                }
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid manifest, converting all files", e);
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the manifest under a temporary name and renames it over the previous one.
+     * @param entries The entries of the manifest.
+     * @throws IOException if the manifest can not be written.
+     */
+    private void writeManifest(Iterable<Entry> entries) throws IOException {
+        Path temporary = outputDirectory.resolve(MANIFEST_FILE_NAME + TEMPORARY_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            CSVWriter csvWriter = new CSVWriter(writer);
+            csvWriter.writeNext(MANIFEST_HEADER);
+            for (Entry entry : entries) {
+                csvWriter.writeNext(new String[]{entry.getSource(), String.valueOf(entry.getSize()),
+                    String.valueOf(entry.getMtime()), String.valueOf(entry.getDateModified()), entry.getOutput(),
+                    String.valueOf(entry.getRows())});
+            }
+            csvWriter.flush();
+        }
+        replace(temporary, outputDirectory.resolve(MANIFEST_FILE_NAME));
+    }
+
+    /**
+     * Renames a complete output over the previous one. Files are replaced with an atomic rename, a directory
+     * of parts is renamed after the previous directory is moved aside.
+     * @param temporary The complete output under its temporary name.
+     * @param target The name of the output.
+     * @throws IOException if the output can not be renamed.
+     */
+    private static void replace(Path temporary, Path target) throws IOException {
+        if (Files.isDirectory(target)) {
+            Path previous = target.resolveSibling("." + target.getFileName() + ".old");
+            deleteRecursively(previous);
+            Files.move(target, previous, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteRecursively(previous);
+        } else {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes a file or a directory with its content, if it exists.
+     * @param path The file or directory.
+     * @throws IOException if the file or directory can not be deleted.
+     */
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * A line of the manifest: a converted source file and its output.
+     */
+    public static final class Entry {
+        /**
+         * The name of the .sas7bdat file.
+         */
+        private final String source;
+
+        /**
+         * The size of the .sas7bdat file.
+         */
+        private final long size;
+
+        /**
+         * The modification time of the .sas7bdat file, in milliseconds since the epoch.
+         */
+        private long mtime;
+
+        /**
+         * The modification date stored in the header of the .sas7bdat file, in milliseconds since the epoch,
+         * -1 if unknown.
+         */
+        private final long dateModified;
+
+        /**
+         * The name of the output in the output directory.
+         */
+        private final String output;
+
+        /**
+         * The number of rows written.
+         */
+        private final long rows;
+
+        /**
+         * Creates a manifest entry.
+         * @param source The name of the .sas7bdat file.
+         * @param size The size of the .sas7bdat file.
+         * @param mtime The modification time of the .sas7bdat file.
+         * @param dateModified The modification date stored in the header of the .sas7bdat file.
+         * @param output The name of the output in the output directory.
+         * @param rows The number of rows written.
+         */
+        Entry(String source, long size, long mtime, long dateModified, String output, long rows) {
+            this.source = source;
+            this.size = size;
+            this.mtime = mtime;
+            this.dateModified = dateModified;
+            this.output = output;
+            this.rows = rows;
+        }
+
+        /**
+         * The function to get {@link Entry#source}.
+         * @return the name of the .sas7bdat file.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * The function to get {@link Entry#size}.
+         * @return the size of the .sas7bdat file.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * The function to get {@link Entry#mtime}.
+         * @return the modification time of the .sas7bdat file.
+         */
+        public long getMtime() {
+            return mtime;
+        }
+
+        /**
+         * The function to get {@link Entry#dateModified}.
+         * @return the modification date stored in the header of the .sas7bdat file, -1 if unknown.
+         */
+        public long getDateModified() {
+            return dateModified;
+        }
+
+        /**
+         * The function to get {@link Entry#output}.
+         * @return the name of the output in the output directory.
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        /**
+         * The function to get {@link Entry#rows}.
+         * @return the number of rows written.
+         */
+        public long getRows() {
+            return rows;
+        }
+    }
+
+    /**
+     * The source files handled by a run of the converter.
+     */
+    public static final class Summary {
+        /**
+         * The names of the converted files.
+         */
+        private final List<String> converted = new ArrayList<String>();
+
+        /**
+         * The names of the files which did not have to be converted.
+         */
+        private final List<String> unchanged = new ArrayList<String>();
+
+        /**
+         * The names of the deleted files whose outputs were removed.
+         */
+        private final List<String> deleted = new ArrayList<String>();
+
+        /**
+         * The names of the files failing to convert.
+         */
+        private final List<String> failed = new ArrayList<String>();
+
+        /**
+         * The function to get {@link Summary#converted}.
+         * @return the names of the converted files.
+         */
+        public List<String> getConverted() {
+            return converted;
+        }
+
+        /**
+         * The function to get {@link Summary#unchanged}.
+         * @return the names of the files which did not have to be converted.
+         */
+        public List<String> getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * The function to get {@link Summary#deleted}.
+         * @return the names of the deleted files whose outputs were removed.
+         */
+        public List<String> getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * The function to get {@link Summary#failed}.
+         * @return the names of the files failing to convert.
+         */
+        public List<String> getFailed() {
+            return failed;
+        }
+    }
+}
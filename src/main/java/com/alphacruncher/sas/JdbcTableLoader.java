@@ -0,0 +1,608 @@
+package com.alphacruncher.sas;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileReader;
+import com.epam.parso.impl.DatabaseColumnType;
+import com.epam.parso.impl.DatabaseDialect;
+
+/**
+ * Loads the rows of a .sas7bdat file into a database table over JDBC. The rows are
+ * read by the calling thread, grouped into batches and put into a bounded queue, from
+ * which several connections insert them in parallel with batched prepared statements.
+ * Every connection commits its own transactions after the configured number of rows,
+ * so a failed load leaves the rows of the already committed transactions in the table;
+ * their number is reported by the thrown {@link PartialLoadException}.
+ * The values are bound according to the column types of the schema written by the
+ * {@link SchemaExporter}, so the table can be created with the exported DDL.
+ */
+public final class JdbcTableLoader {
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcTableLoader.class);
+
+    /**
+     * The default number of rows in a JDBC batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The default number of rows a connection inserts in one transaction.
+     */
+    public static final int DEFAULT_COMMIT_ROWS = 10000;
+
+    /**
+     * The default number of connections inserting in parallel.
+     */
+    public static final int DEFAULT_CONNECTIONS = 4;
+
+    /**
+     * The time to wait for free space in the queue before checking for failed connections, in milliseconds.
+     */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /**
+     * The encoding of character values read as byte arrays, the same as in the CSV writers.
+     */
+    private static final Charset BYTES_ENCODING = Charset.forName("CP1252");
+
+    /**
+     * The data source providing the connections.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * The database dialect used to quote the table and column names.
+     */
+    private final DatabaseDialect dialect;
+
+    /**
+     * The schema of the table, or null to use the default schema of the connections.
+     */
+    private final String schema;
+
+    /**
+     * The name of the table to load the rows into.
+     */
+    private final String tableName;
+
+    /**
+     * The number of rows in a JDBC batch.
+     */
+    private final int batchSize;
+
+    /**
+     * The number of rows a connection inserts in one transaction.
+     */
+    private final int commitRows;
+
+    /**
+     * The number of connections inserting in parallel.
+     */
+    private final int connections;
+
+    /**
+     * The maximal number of batches waiting in the queue.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Creates a loader from the builder.
+     * @param builder The builder holding the settings of the loader.
+     */
+    private JdbcTableLoader(Builder builder) {
+        dataSource = builder.dataSource;
+        dialect = builder.dialect;
+        schema = builder.schema;
+        tableName = builder.tableName;
+        batchSize = builder.batchSize;
+        commitRows = builder.commitRows;
+        connections = builder.connections;
+        queueCapacity = builder.queueCapacity > 0 ? builder.queueCapacity : 2 * builder.connections;
+    }
+
+    /**
+     * Loads all remaining rows of a .sas7bdat file reader into the table.
+     * @param sasFileReader The reader of the .sas7bdat file.
+     * @return The number of rows loaded.
+     * @throws IOException if reading the .sas7bdat file is impossible.
+     * @throws PartialLoadException if inserting the rows fails, with the first failure of the connections as the
+     *                              cause and the number of rows committed before the failure.
+     * @throws SQLException if inserting the rows fails.
+     */
+    public long load(SasFileReader sasFileReader) throws IOException, SQLException {
+        List<Column> columns = sasFileReader.getColumns();
+        List<DatabaseColumnType> types = new ArrayList<DatabaseColumnType>(columns.size());
+        for (Column column : columns) {
+            types.add(DatabaseColumnType.of(column));
+        }
+        String sql = getInsertStatement(columns);
+        LOGGER.debug(sql);
+
+        BlockingQueue<List<Object[]>> queue = new ArrayBlockingQueue<List<Object[]>>(queueCapacity);
+        List<Object[]> end = new ArrayList<Object[]>(0);
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicLong committed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        List<Future<Long>> workers = new ArrayList<Future<Long>>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                workers.add(executor.submit(new Worker(sql, types, queue, end, aborted, committed)));
+            }
+            boolean completed = false;
+            try {
+                List<Object[]> batch = new ArrayList<Object[]>(batchSize);
+                for (Object[] row = sasFileReader.readNext(); row != null && !aborted.get();
+                     row = sasFileReader.readNext()) {
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        offer(queue, batch, aborted);
+                        batch = new ArrayList<Object[]>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    offer(queue, batch, aborted);
+                }
+                completed = true;
+            } finally {
+                if (!completed) {
+                    aborted.set(true);
+                }
+                for (int i = 0; i < connections; i++) {
+                    offer(queue, end, aborted);
+                }
+            }
+            return getLoadedRows(workers, committed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the INSERT statement with one parameter for every column.
+     * @param columns The columns of the .sas7bdat file.
+     * @return The INSERT statement.
+     */
+    String getInsertStatement(List<Column> columns) {
+        String escape = dialect.getEscapeString();
+        StringBuilder sb = new StringBuilder("INSERT INTO ");
+        if (StringUtils.isNotBlank(schema)) {
+            sb.append(escape).append(schema).append(escape).append('.');
+        }
+        sb.append(escape).append(tableName).append(escape).append(" (");
+        List<String> names = new ArrayList<String>(columns.size());
+        List<String> parameters = new ArrayList<String>(columns.size());
+        for (Column column : columns) {
+            names.add(escape + column.getName() + escape);
+            parameters.add("?");
+        }
+        sb.append(StringUtils.join(names, ", ")).append(") VALUES (")
+            .append(StringUtils.join(parameters, ", ")).append(')');
+        return sb.toString();
+    }
+
+    /**
+     * Puts a batch into the queue, waiting for free space as long as no connection failed.
+     * @param queue The queue of batches.
+     * @param batch The batch of rows.
+     * @param aborted Set if the load failed.
+     * @throws IOException if the reading thread is interrupted.
+     */
+    private static void offer(BlockingQueue<List<Object[]>> queue, List<Object[]> batch, AtomicBoolean aborted)
+            throws IOException {
+        try {
+            while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (aborted.get()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading rows", e);
+        }
+    }
+
+    /**
+     * Waits for the connections to finish and sums the rows they inserted.
+     * @param workers The results of the connections.
+     * @param committed The number of rows committed by all connections.
+     * @return The number of rows loaded.
+     * @throws IOException if the reading thread is interrupted.
+     * @throws PartialLoadException with the first failure of the connections as the cause.
+     */
+    private static long getLoadedRows(List<Future<Long>> workers, AtomicLong committed)
+            throws IOException, PartialLoadException {
+        long rows = 0;
+        SQLException failure = null;
+        for (Future<Long> worker : workers) {
+            try {
+                rows += worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading rows", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                            : new SQLException(e.getCause());
+                } else {
+                    LOGGER.error("Loading rows failed", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw new PartialLoadException(failure, committed.get());
+        }
+        return rows;
+    }
+
+    /**
+     * Binds a value read from a .sas7bdat file to a parameter of the INSERT statement.
+     * @param statement The prepared statement.
+     * @param index The index of the parameter, starting from 1.
+     * @param type The database column type of the column.
+     * @param value The value, can be null.
+     * @throws SQLException if the parameter can not be set.
+     */
+    static void bind(PreparedStatement statement, int index, DatabaseColumnType type, Object value)
+            throws SQLException {
+        switch (type) {
+            case INT:
+                if (isFinite(value)) {
+                    statement.setInt(index, ((Number) value).intValue());
+                } else {
+                    statement.setNull(index, Types.INTEGER);
+                }
+                break;
+            case DATETIME:
+                if (value instanceof LocalDateTime) {
+                    statement.setTimestamp(index, Timestamp.valueOf((LocalDateTime) value));
+                } else {
+                    statement.setNull(index, Types.TIMESTAMP);
+                }
+                break;
+            case TIME:
+                if (value instanceof LocalDateTime) {
+                    statement.setTime(index, Time.valueOf(((LocalDateTime) value).toLocalTime()));
+                } else {
+                    statement.setNull(index, Types.TIME);
+                }
+                break;
+            case DATE:
+                if (value instanceof Date) {
+                    statement.setDate(index, java.sql.Date.valueOf(Instant.ofEpochMilli(((Date) value).getTime())
+                            .atZone(ZoneOffset.UTC).toLocalDate()));
+                } else {
+                    statement.setNull(index, Types.DATE);
+                }
+                break;
+            case VARCHAR:
+                if (value instanceof byte[]) {
+                    statement.setString(index, new String((byte[]) value, BYTES_ENCODING));
+                } else if (value != null) {
+                    statement.setString(index, value.toString());
+                } else {
+                    statement.setNull(index, Types.VARCHAR);
+                }
+                break;
+            case NUMERIC:
+            default:
+                if (isFinite(value)) {
+                    statement.setBigDecimal(index, value instanceof Double || value instanceof Float
+                            ? BigDecimal.valueOf(((Number) value).doubleValue())
+                            : BigDecimal.valueOf(((Number) value).longValue()));
+                } else {
+                    statement.setNull(index, Types.NUMERIC);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Checks whether a value is a number which can be stored in an integer or numeric column.
+     * @param value The value.
+     * @return true if the value is a number and not an infinite or NaN double.
+     */
+    private static boolean isFinite(Object value) {
+        if (!(value instanceof Number)) {
+            return false;
+        }
+        double d = ((Number) value).doubleValue();
+        return !Double.isInfinite(d) && !Double.isNaN(d);
+    }
+
+    /**
+     * Inserts the batches taken from the queue using its own connection.
+     */
+    private final class Worker implements Callable<Long> {
+        /**
+         * The INSERT statement.
+         */
+        private final String sql;
+
+        /**
+         * The database column types of the columns.
+         */
+        private final List<DatabaseColumnType> types;
+
+        /**
+         * The queue of batches.
+         */
+        private final BlockingQueue<List<Object[]>> queue;
+
+        /**
+         * The batch marking the end of the rows.
+         */
+        private final List<Object[]> end;
+
+        /**
+         * Set if the load failed.
+         */
+        private final AtomicBoolean aborted;
+
+        /**
+         * The number of rows committed by all connections.
+         */
+        private final AtomicLong totalCommitted;
+
+        /**
+         * Creates a worker.
+         * @param sql The INSERT statement.
+         * @param types The database column types of the columns.
+         * @param queue The queue of batches.
+         * @param end The batch marking the end of the rows.
+         * @param aborted Set if the load failed.
+         * @param totalCommitted The number of rows committed by all connections.
+         */
+        private Worker(String sql, List<DatabaseColumnType> types, BlockingQueue<List<Object[]>> queue,
+                List<Object[]> end, AtomicBoolean aborted, AtomicLong totalCommitted) {
+            this.sql = sql;
+            this.types = types;
+            this.queue = queue;
+            this.end = end;
+            this.aborted = aborted;
+            this.totalCommitted = totalCommitted;
+        }
+
+        /**
+         * Inserts batches until the end of the rows, committing after every {@link JdbcTableLoader#commitRows} rows.
+         * The uncommitted rows are rolled back if the load fails.
+         * @return The number of rows committed by the worker.
+         * @throws Exception if inserting the rows fails.
+         */
+        @Override
+        public Long call() throws Exception {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                long committed = 0;
+                long uncommitted = 0;
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (List<Object[]> batch = queue.take(); batch != end && !aborted.get(); batch = queue.take()) {
+                        for (Object[] row : batch) {
+                            for (int i = 0; i < types.size(); i++) {
+                                bind(statement, i + 1, types.get(i), row[i]);
+                            }
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        uncommitted += batch.size();
+                        if (uncommitted >= commitRows) {
+                            connection.commit();
+                            totalCommitted.addAndGet(uncommitted);
+                            committed += uncommitted;
+                            uncommitted = 0;
+                        }
+                    }
+                    if (aborted.get()) {
+                        connection.rollback();
+                    } else {
+                        connection.commit();
+                        totalCommitted.addAndGet(uncommitted);
+                        committed += uncommitted;
+                    }
+                    return committed;
+                } catch (SQLException | RuntimeException | InterruptedException e) {
+                    aborted.set(true);
+                    connection.rollback();
+                    throw e;
+                }
+            } catch (SQLException | RuntimeException e) {
+                aborted.set(true);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Thrown when a load fails after some connections may have committed rows, which stay in the table.
+     */
+    public static final class PartialLoadException extends SQLException {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of rows committed before the failure.
+         */
+        private final long committedRows;
+
+        /**
+         * Creates an exception for the failure of a connection.
+         * @param cause The first failure of the connections.
+         * @param committedRows The number of rows committed before the failure.
+         */
+        PartialLoadException(SQLException cause, long committedRows) {
+            super("Loading rows failed with " + committedRows + " rows already committed: " + cause.getMessage(),
+                    cause.getSQLState(), cause.getErrorCode(), cause);
+            this.committedRows = committedRows;
+        }
+
+        /**
+         * @return the number of rows committed before the failure, left in the table
+         */
+        public long getCommittedRows() {
+            return committedRows;
+        }
+    }
+
+    /**
+     * Builder for {@link JdbcTableLoader}.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for {@link JdbcTableLoader#dataSource} variable.
+         */
+        private final DataSource dataSource;
+
+        /**
+         * Builder variable for {@link JdbcTableLoader#tableName} variable.
+         */
+        private final String tableName;
+
+        /**
+         * Default value for {@link JdbcTableLoader#dialect} variable.
+         */
+        private DatabaseDialect dialect = DatabaseDialect.MYSQL;
+
+        /**
+         * Default value for {@link JdbcTableLoader#schema} variable.
+         */
+        private String schema;
+
+        /**
+         * Default value for {@link JdbcTableLoader#batchSize} variable.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        /**
+         * Default value for {@link JdbcTableLoader#commitRows} variable.
+         */
+        private int commitRows = DEFAULT_COMMIT_ROWS;
+
+        /**
+         * Default value for {@link JdbcTableLoader#connections} variable.
+         */
+        private int connections = DEFAULT_CONNECTIONS;
+
+        /**
+         * Default value for {@link JdbcTableLoader#queueCapacity} variable, 0 for twice the connections.
+         */
+        private int queueCapacity;
+
+        /**
+         * Creates a builder of a loader inserting into the given table.
+         * @param dataSource The data source providing the connections.
+         * @param tableName The name of the table.
+         */
+        public Builder(DataSource dataSource, String tableName) {
+            this.dataSource = dataSource;
+            this.tableName = tableName;
+        }
+
+        /**
+         * The function to specify builders dialect variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder dialect(DatabaseDialect val) {
+            dialect = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders schema variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder schema(String val) {
+            schema = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders batchSize variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder batchSize(int val) {
+            batchSize = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders commitRows variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder commitRows(int val) {
+            commitRows = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders connections variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder connections(int val) {
+            connections = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders queueCapacity variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder queueCapacity(int val) {
+            queueCapacity = val;
+            return this;
+        }
+
+        /**
+         * Create {@link JdbcTableLoader} using specified params.
+         * @return built loader.
+         */
+        public JdbcTableLoader build() {
+            if (batchSize < 1 || commitRows < 1 || connections < 1 || queueCapacity < 0) {
+                throw new IllegalArgumentException("The batch size, the rows per transaction and the number of "
+                        + "connections have to be positive");
+            }
+            return new JdbcTableLoader(this);
+        }
+    }
+}
@@ -29,20 +29,22 @@ public class PostgreSQLSchemaExporter extends SchemaExporter {
 
     /**
      * @see com.alphacruncher.sas.SchemaExporter#addCreateTableStatement(
-     * java.lang.String, java.util.List, java.lang.StringBuffer)
+     * java.lang.String, java.util.List, java.util.List, java.lang.StringBuffer)
      */
     @Override
     protected void addCreateTableStatement(String tableName,
-            List<Column> columns, StringBuffer sb) {
+            List<Column> columns, List<ColumnProfile> profiles, StringBuffer sb) {
         sb.append("CREATE TABLE ").append(getDialect().getEscapeString())
             .append(tableName).append(getDialect().getEscapeString()).append(" (")
             .append(System.getProperty("line.separator"));
         List<String> columnDefs = new ArrayList<String>(columns.size());
-        for (Column c : columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            Column c = columns.get(i);
+            ColumnProfile profile = profiles == null ? null : profiles.get(i);
             StringBuffer csb = new StringBuffer(" ");
             csb.append(getDialect().getEscapeString()).append(c.getName())
                 .append(getDialect().getEscapeString()).append(" ");
-            csb.append(getDatabaseType(c)).append(" NULL DEFAULT NULL");
+            csb.append(getDatabaseType(c, profile)).append(getNullConstraint(profile));
             columnDefs.add(csb.toString());
         }
         sb.append(StringUtils.join(columnDefs, "," + System.getProperty("line.separator")));
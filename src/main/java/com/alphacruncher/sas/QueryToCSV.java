@@ -0,0 +1,111 @@
+package com.alphacruncher.sas;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Paths;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.alphacruncher.sas.sql.SqlEngine;
+
+/**
+ * Runs a SQL query over a sas7bdat file and writes the result as CSV, see
+ * {@link com.alphacruncher.sas.sql.SqlQuery} for the supported queries.
+ */
+public final class QueryToCSV {
+
+    /**
+     * The size of the buffer of the output, in characters.
+     */
+    private static final int WRITER_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Private constructor.
+     */
+    private QueryToCSV() {
+    }
+
+    /**
+     * The main function, the entry point of execution. The query and optionally the output CSV file name have to
+     * be passed as arguments, the result is written to the standard output without a file name. The options are:
+     * --batch-size The number of rows read and filtered at once, 1024 is the default.
+     * --dialect 'MySQL' or 'PostgreSQL', writes the NULL string of the dialect for missing values.
+     * --threads The number of threads of a GROUP BY query, the number of processors is the default.
+     * --memory The megabytes of groups held in memory by a GROUP BY query before spilling them, 256 is the default.
+     * --temp-dir The directory of the spilled groups, the system temporary directory is the default.
+     * --snapshot Reads the file from its columnar snapshot, written next to it on the first run.
+     * For example: {@code QueryToCSV "SELECT id, amount FROM 'claims.sas7bdat' WHERE amount > 100 LIMIT 10"}.
+     *
+     * @param args
+     *            The options, the query and the path to the output file.
+     */
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("b").longOpt("batch-size")
+                .desc("The number of rows read and filtered at once, 1024 is the default.").hasArg().build());
+        options.addOption(Option.builder("d").longOpt("dialect")
+                .desc("'MySQL' or 'PostgreSQL', writes the NULL string of the dialect.").hasArg().build());
+        options.addOption(Option.builder("t").longOpt("threads")
+                .desc("The number of threads of a GROUP BY query, the number of processors is the default.")
+                .hasArg().build());
+        options.addOption(Option.builder("m").longOpt("memory")
+                .desc("The megabytes of groups held in memory before spilling them, 256 is the default.")
+                .hasArg().build());
+        options.addOption(Option.builder().longOpt("temp-dir")
+                .desc("The directory of the spilled groups, the system temporary directory is the default.")
+                .hasArg().build());
+        options.addOption(Option.builder().longOpt("snapshot")
+                .desc("Reads the file from its columnar snapshot, written next to it on the first run.").build());
+
+        SqlEngine engine = new SqlEngine();
+        String[] arguments;
+        try {
+            CommandLine line = new DefaultParser().parse(options, args);
+            arguments = line.getArgs();
+            engine.setBatchSize(Integer.parseInt(line.getOptionValue("b",
+                    String.valueOf(SqlEngine.DEFAULT_BATCH_SIZE))));
+            if (line.hasOption("d")) {
+                engine.setDialect(SchemaExporter.dialectForName(line.getOptionValue("d")));
+            }
+            if (line.hasOption("t")) {
+                engine.setThreads(Integer.parseInt(line.getOptionValue("t")));
+            }
+            if (line.hasOption("m")) {
+                engine.setMemoryBudget(Long.parseLong(line.getOptionValue("m")) << 20);
+            }
+            if (line.hasOption("temp-dir")) {
+                engine.setTempDirectory(Paths.get(line.getOptionValue("temp-dir")));
+            }
+            engine.setSnapshots(line.hasOption("snapshot"));
+        } catch (ParseException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (arguments.length != 1 && arguments.length != 2) {
+            System.err.println("The query and optionally the output CSV file name have to be passed as arguments.");
+            return;
+        }
+
+        try (OutputStream os = arguments.length == 2 ? new FileOutputStream(arguments[1]) : System.out) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(os, "utf-8"), WRITER_BUFFER_SIZE);
+            long rows = engine.execute(arguments[0], writer);
+            writer.flush();
+            if (arguments.length == 2) {
+                System.out.println(rows + " rows successfully written to: " + arguments[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,375 @@
+package com.alphacruncher.sas;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.impl.SasFileReaderImpl;
+
+/**
+ * Publishes the rows of a .sas7bdat file in batches to subscribers which signal their demand, following the
+ * Reactive Streams rules: a batch is only read when a subscriber has requested it, so a slow subscriber pauses the
+ * reading of the pages instead of letting rows pile up in memory. Every subscriber reads the file from its beginning
+ * on the executor given to the builder, and the file is closed after the last row, a failure or a cancellation.
+ * The {@link Subscriber} and {@link Subscription} interfaces have the methods of {@code java.util.concurrent.Flow}
+ * and {@code org.reactivestreams}, so adapting them to either takes one delegating class.
+ */
+public final class RowBatchPublisher {
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowBatchPublisher.class);
+
+    /**
+     * The default number of rows in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The file to read.
+     */
+    private final Path file;
+
+    /**
+     * The executor reading the file and signalling the subscribers.
+     */
+    private final Executor executor;
+
+    /**
+     * The number of rows in a batch.
+     */
+    private final int batchSize;
+
+    /**
+     * True to read the rows without converting dates, as {@link SasFileReaderImpl#readNextRaw()} does.
+     */
+    private final boolean raw;
+
+    /**
+     * Creates a publisher from the builder.
+     * @param builder The builder holding the settings of the publisher.
+     */
+    private RowBatchPublisher(Builder builder) {
+        file = builder.file;
+        executor = builder.executor;
+        batchSize = builder.batchSize;
+        raw = builder.raw;
+    }
+
+    /**
+     * Subscribes to the rows of the file. No row is read before the subscriber requests batches.
+     * @param subscriber The subscriber, signalled on the executor after {@link Subscriber#onSubscribe}.
+     */
+    public void subscribe(Subscriber subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        BatchSubscription subscription = new BatchSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * The receiver of the batches of rows, with the methods of {@code Flow.Subscriber<List<Object[]>>}.
+     */
+    public interface Subscriber {
+        /**
+         * Called once before any other signal.
+         * @param subscription The subscription to request batches with or to cancel.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called for every requested batch.
+         * @param rows The rows of the batch, at least one.
+         */
+        void onNext(List<Object[]> rows);
+
+        /**
+         * Called once if the file can not be read or a request is invalid, the file is closed.
+         * @param throwable The failure.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once after the last batch, the file is closed.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The demand of a subscriber, with the methods of {@code Flow.Subscription}.
+     */
+    public interface Subscription {
+        /**
+         * Adds to the number of batches the subscriber can receive.
+         * @param n The number of batches, positive.
+         */
+        void request(long n);
+
+        /**
+         * Stops the batches and closes the file.
+         */
+        void cancel();
+    }
+
+    /**
+     * The subscription of a subscriber, reading the file on the executor while there is demand. Signals are
+     * serialized by a work-in-progress counter, so at most one task reads the file at a time and a request made
+     * from {@link Subscriber#onNext} does not recurse.
+     */
+    private final class BatchSubscription implements Subscription, Runnable {
+        /**
+         * The subscriber.
+         */
+        private final Subscriber subscriber;
+
+        /**
+         * The number of batches requested and not sent, {@link Long#MAX_VALUE} for no limit.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * The number of signals to process, the task is scheduled when it becomes positive.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Set when the subscription is cancelled.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * The invalid request to report, or null.
+         */
+        private volatile IllegalArgumentException invalidRequest;
+
+        /**
+         * The stream of the file, opened with the first request.
+         */
+        private InputStream stream;
+
+        /**
+         * The reader of the file, opened with the first request.
+         */
+        private SasFileReaderImpl reader;
+
+        /**
+         * Set after the terminal signal or the cancellation.
+         */
+        private boolean done;
+
+        /**
+         * Creates the subscription of a subscriber.
+         * @param subscriber The subscriber.
+         */
+        private BatchSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Adds to the demand and schedules the reading of the batches.
+         * @param n The number of batches, an invalid number is reported with {@link Subscriber#onError}.
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " batches, the request has to be "
+                        + "positive");
+            } else {
+                long current;
+                long next;
+                do {
+                    current = demand.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!demand.compareAndSet(current, next));
+            }
+            schedule();
+        }
+
+        /**
+         * Stops the batches, the file is closed by the task.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Schedules the task unless it is already scheduled or running.
+         */
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancelled = true;
+                    if (!done) {
+                        finish(e, true);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Processes the signals until no new one arrived while processing.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Sends the requested batches, or the terminal signal, and closes the file when done.
+         */
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish(null, false);
+                return;
+            }
+            if (invalidRequest != null) {
+                finish(invalidRequest, true);
+                return;
+            }
+            try {
+                if (reader == null) {
+                    stream = new BufferedInputStream(new FileInputStream(file.toFile()));
+                    reader = new SasFileReaderImpl(stream);
+                }
+                while (demand.get() > 0 && !cancelled && invalidRequest == null) {
+                    List<Object[]> rows = new ArrayList<Object[]>(batchSize);
+                    Object[] row = null;
+                    while (rows.size() < batchSize) {
+                        row = raw ? reader.readNextRaw() : reader.readNext();
+                        if (row == null) {
+                            break;
+                        }
+                        rows.add(row);
+                    }
+                    if (!rows.isEmpty()) {
+                        if (demand.get() != Long.MAX_VALUE) {
+                            demand.decrementAndGet();
+                        }
+                        subscriber.onNext(rows);
+                    }
+                    if (row == null) {
+                        finish(null, true);
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                finish(e, true);
+            }
+        }
+
+        /**
+         * Closes the file and sends the terminal signal.
+         * @param failure The failure to send, or null for the completion.
+         * @param signal False on cancellation, when no signal is sent.
+         */
+        private void finish(Throwable failure, boolean signal) {
+            done = true;
+            reader = null;
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Can not close " + file, e);
+                }
+                stream = null;
+            }
+            if (signal) {
+                if (failure == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link RowBatchPublisher}.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for {@link RowBatchPublisher#file} variable.
+         */
+        private final Path file;
+
+        /**
+         * Builder variable for {@link RowBatchPublisher#executor} variable.
+         */
+        private final Executor executor;
+
+        /**
+         * Default value for {@link RowBatchPublisher#batchSize} variable.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        /**
+         * Default value for {@link RowBatchPublisher#raw} variable.
+         */
+        private boolean raw;
+
+        /**
+         * Creates a builder of a publisher of the rows of a file.
+         * @param file The .sas7bdat file.
+         * @param executor The executor reading the file and signalling the subscribers.
+         */
+        public Builder(Path file, Executor executor) {
+            this.file = file;
+            this.executor = executor;
+        }
+
+        /**
+         * The function to specify builders batchSize variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder batchSize(int val) {
+            batchSize = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders raw variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder raw(boolean val) {
+            raw = val;
+            return this;
+        }
+
+        /**
+         * Create {@link RowBatchPublisher} using specified params.
+         * @return built publisher.
+         */
+        public RowBatchPublisher build() {
+            if (batchSize < 1 || file == null || executor == null) {
+                throw new IllegalArgumentException("The file, the executor and a positive batch size are required");
+            }
+            return new RowBatchPublisher(this);
+        }
+    }
+}
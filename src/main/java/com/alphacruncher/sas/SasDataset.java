@@ -0,0 +1,768 @@
+package com.alphacruncher.sas;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileProperties;
+import com.epam.parso.impl.DatabaseColumnType;
+import com.epam.parso.impl.ReadPlan;
+import com.epam.parso.impl.ReadPlanner;
+import com.epam.parso.impl.SasFileReaderImpl;
+
+/**
+ * A logical table split into several .sas7bdat files with the same schema, such as the monthly partitions
+ * {@code claims_2019_01.sas7bdat}, {@code claims_2019_02.sas7bdat}, ... of a SAS library. The files are given as
+ * a directory or a glob of file names and sorted by name. Their schemas are checked with the metadata alone: the
+ * files must have the same column names (ignoring case) and types, their numeric columns must be read as the same
+ * kind of values, dates, times, datetimes or numbers, whatever their formats, and character columns take the largest
+ * length.
+ * The rows are read by a pool of threads, one file per thread, into bounded queues of row batches, and returned in
+ * the order of the files or in the order they are read. The pool has at most the threads of the builder and the
+ * parallelism of the {@link ReadPlan} of every file, which the planner sizes from the cores, the heap and the
+ * projected columns. The row offset of every file allows to start reading at
+ * any row of the dataset.
+ */
+public final class SasDataset {
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SasDataset.class);
+
+    /**
+     * The default number of rows in a batch passed from the reading threads.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The default number of batches waiting to be returned for every file read.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    /**
+     * The time to wait for free space in a queue before checking whether the reader is closed, in milliseconds.
+     */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /**
+     * The suffix of the .sas7bdat files.
+     */
+    private static final String SAS_FILE_SUFFIX = ".sas7bdat";
+
+    /**
+     * The characters of a glob of file names.
+     */
+    private static final Pattern GLOB_CHARACTERS = Pattern.compile("[*?\\[{]");
+
+    /**
+     * The files of the dataset, sorted by name.
+     */
+    private final List<Path> files;
+
+    /**
+     * The columns of the dataset.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The index of the first row of every file in the dataset, followed by the row count of the dataset.
+     */
+    private final long[] rowOffsets;
+
+    /**
+     * The way to read every file, chosen by a {@link ReadPlanner}.
+     */
+    private final List<ReadPlan> plans;
+
+    /**
+     * The number of files read in parallel, the smallest of the builder threads and the parallelism of the plans.
+     */
+    private final int threads;
+
+    /**
+     * The indexes of the columns to decode, or null to decode all of them.
+     */
+    private final int[] projection;
+
+    /**
+     * True to return the rows in the order of the files, false to return them as soon as they are read.
+     */
+    private final boolean ordered;
+
+    /**
+     * True to read the rows without converting dates, as {@link SasFileReaderImpl#readNextRaw()} does.
+     */
+    private final boolean raw;
+
+    /**
+     * The number of rows in a batch.
+     */
+    private final int batchSize;
+
+    /**
+     * The number of batches waiting to be returned for every file read.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Creates a dataset from the builder and the metadata of its files.
+     * @param builder The builder holding the settings of the dataset.
+     * @param files The files of the dataset.
+     * @param columns The columns of the dataset.
+     * @param rowOffsets The index of the first row of every file, followed by the row count of the dataset.
+     * @param plans The way to read every file.
+     * @param projection The indexes of the columns to decode, or null to decode all of them.
+     */
+    private SasDataset(Builder builder, List<Path> files, List<Column> columns, long[] rowOffsets,
+                       List<ReadPlan> plans, int[] projection) {
+        this.files = Collections.unmodifiableList(files);
+        this.columns = Collections.unmodifiableList(columns);
+        this.rowOffsets = rowOffsets;
+        this.plans = Collections.unmodifiableList(plans);
+        int parallelism = builder.threads;
+        for (ReadPlan plan : plans) {
+            parallelism = Math.min(parallelism, plan.getParallelism());
+        }
+        threads = parallelism;
+        this.projection = projection;
+        ordered = builder.ordered;
+        raw = builder.raw;
+        batchSize = builder.batchSize;
+        queueCapacity = builder.queueCapacity;
+    }
+
+    /**
+     * @return the files of the dataset, sorted by name
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the columns of the dataset, with the largest length of every column among the files
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows of all the files, from their metadata
+     */
+    public long getRowCount() {
+        return rowOffsets[files.size()];
+    }
+
+    /**
+     * The function to get the number of files read in parallel: the threads of the builder, limited by the
+     * parallelism of the {@link ReadPlan} of every file.
+     * @return The size of the pool of reading threads, before limiting it to the number of files.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * The function to get the way a file is read, chosen from its layout by a {@link ReadPlanner}.
+     * @param fileIndex The index of the file in {@link #getFiles()}.
+     * @return The plan of the file.
+     */
+    public ReadPlan getReadPlan(int fileIndex) {
+        return plans.get(fileIndex);
+    }
+
+    /**
+     * The function to get the index of the first row of a file in the dataset.
+     * @param fileIndex The index of the file in {@link #getFiles()}.
+     * @return The index of the first row of the file.
+     */
+    public long getRowOffset(int fileIndex) {
+        return rowOffsets[fileIndex];
+    }
+
+    /**
+     * The function to find the file holding a row of the dataset.
+     * @param row The index of the row in the dataset.
+     * @return The index of the file in {@link #getFiles()}.
+     */
+    public int getFileIndex(long row) {
+        if (row < 0 || row >= getRowCount()) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + getRowCount());
+        }
+        int index = Arrays.binarySearch(rowOffsets, 0, files.size(), row);
+        if (index < 0) {
+            return -index - 2;
+        }
+        while (index + 1 < files.size() && rowOffsets[index + 1] == row) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Starts reading all the rows of the dataset.
+     * @return The reader, which has to be closed.
+     */
+    public DatasetReader open() {
+        return new DatasetReader(0, 0);
+    }
+
+    /**
+     * Starts reading the rows of the dataset from a row, in the order of the files whatever the ordering setting.
+     * The rows of the first file before the row are skipped without being decompressed or decoded, see
+     * {@link SasFileReaderImpl#skipRows(long)}.
+     * @param firstRow The index of the first row to read in the dataset.
+     * @return The reader, which has to be closed.
+     */
+    public DatasetReader open(long firstRow) {
+        if (firstRow == getRowCount()) {
+            return new DatasetReader(files.size(), 0);
+        }
+        int fileIndex = getFileIndex(firstRow);
+        return new DatasetReader(fileIndex, firstRow - rowOffsets[fileIndex]);
+    }
+
+    /**
+     * Lists the .sas7bdat files of a directory or matching a glob of file names.
+     * @param location The directory, or a directory followed by a glob of file names such as
+     * {@code /data/claims_*.sas7bdat}.
+     * @return The files, sorted by name.
+     * @throws IOException if the directory can not be listed.
+     */
+    static List<Path> listFiles(String location) throws IOException {
+        Path directory = Paths.get(location);
+        String glob = "*" + SAS_FILE_SUFFIX;
+        int separator = Math.max(location.lastIndexOf('/'), location.lastIndexOf(File.separatorChar));
+        if (GLOB_CHARACTERS.matcher(location.substring(separator + 1)).find()) {
+            directory = Paths.get(separator >= 0 ? location.substring(0, separator + 1) : ".");
+            glob = location.substring(separator + 1);
+        }
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        List<Path> result = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && matcher.matches(file.getFileName())
+                        && file.getFileName().toString().toLowerCase().endsWith(SAS_FILE_SUFFIX)) {
+                    result.add(file);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Reads the metadata of the files in parallel.
+     * @param files The files.
+     * @param threads The number of files read in parallel.
+     * @return The properties and the columns of every file.
+     * @throws IOException if a file can not be read.
+     */
+    private static List<SasFileReaderImpl> readMetadata(List<Path> files, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+        try {
+            List<Future<SasFileReaderImpl>> futures = new ArrayList<Future<SasFileReaderImpl>>(files.size());
+            for (final Path file : files) {
+                futures.add(executor.submit(new Callable<SasFileReaderImpl>() {
+                    @Override
+                    public SasFileReaderImpl call() throws IOException {
+                        try (InputStream is = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+                            return SasFileReaderImpl.metadataReader(is);
+                        }
+                    }
+                }));
+            }
+            List<SasFileReaderImpl> result = new ArrayList<SasFileReaderImpl>(files.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading the metadata", e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Can not read the metadata of " + files.get(i), e.getCause());
+                }
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the columns of a file into the columns of the dataset.
+     * @param columns The columns of the dataset, the lengths are updated.
+     * @param fileColumns The columns of the file.
+     * @param file The file, for the error message.
+     * @param first The first file, for the error message.
+     */
+    private static void mergeColumns(List<Column> columns, List<Column> fileColumns, Path file, Path first) {
+        if (fileColumns.size() != columns.size()) {
+            throw new IllegalArgumentException(file + " has " + fileColumns.size() + " columns, " + first + " has "
+                    + columns.size());
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            Column fileColumn = fileColumns.get(i);
+            if (!column.getName().equalsIgnoreCase(fileColumn.getName())
+                    || column.getType() != fileColumn.getType()) {
+                throw new IllegalArgumentException("Column " + (i + 1) + " of " + file + " is " + fileColumn.getName()
+                        + " (" + fileColumn.getType().getSimpleName() + "), it is " + column.getName() + " ("
+                        + column.getType().getSimpleName() + ") in " + first);
+            }
+            if (DatabaseColumnType.of(column) != DatabaseColumnType.of(fileColumn)) {
+                throw new IllegalArgumentException("Column " + column.getName() + " of " + file + " is read as "
+                        + DatabaseColumnType.of(fileColumn) + " (format '" + fileColumn.getFormat()
+                        + "'), it is read as " + DatabaseColumnType.of(column) + " (format '" + column.getFormat()
+                        + "') in " + first);
+            }
+            if (fileColumn.getLength() > column.getLength()) {
+                columns.set(i, new Column(column.getId(), column.getName(), column.getLabel(), column.getFormat(),
+                        column.getType(), fileColumn.getLength()));
+            }
+        }
+    }
+
+    /**
+     * A batch of rows read from a file, or the end of the rows of the file or the failure reading it.
+     */
+    private static final class Batch {
+        /**
+         * The index of the file.
+         */
+        private final int file;
+
+        /**
+         * The rows, empty at the end of the file.
+         */
+        private final List<Object[]> rows;
+
+        /**
+         * The failure reading the file, or null.
+         */
+        private final Exception failure;
+
+        /**
+         * Creates a batch.
+         * @param file The index of the file.
+         * @param rows The rows, empty at the end of the file.
+         * @param failure The failure reading the file, or null.
+         */
+        private Batch(int file, List<Object[]> rows, Exception failure) {
+            this.file = file;
+            this.rows = rows;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * The reader of the rows of the dataset. The files are read by a pool of threads which is stopped when the
+     * reader is closed.
+     */
+    public final class DatasetReader implements Closeable {
+        /**
+         * The threads reading the files.
+         */
+        private final ExecutorService executor;
+
+        /**
+         * The queues of batches of every file in order, or a single shared queue otherwise.
+         */
+        private final List<BlockingQueue<Batch>> queues;
+
+        /**
+         * The index of the first file read.
+         */
+        private final int firstFile;
+
+        /**
+         * The number of files whose rows were all returned.
+         */
+        private int finishedFiles;
+
+        /**
+         * The batch being returned, or null.
+         */
+        private Batch batch;
+
+        /**
+         * The index of the next row of the batch to return.
+         */
+        private int batchRow;
+
+        /**
+         * Set when the reader is closed.
+         */
+        private volatile boolean closed;
+
+        /**
+         * Starts reading the files.
+         * @param firstFile The index of the first file to read.
+         * @param skipRows The number of rows of the first file to skip.
+         */
+        private DatasetReader(int firstFile, long skipRows) {
+            this.firstFile = firstFile;
+            boolean inOrder = ordered || firstFile > 0 || skipRows > 0;
+            int fileCount = files.size() - firstFile;
+            executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, fileCount)));
+            queues = new ArrayList<BlockingQueue<Batch>>();
+            if (!inOrder) {
+                queues.add(new ArrayBlockingQueue<Batch>(queueCapacity * threads));
+            }
+            for (int i = firstFile; i < files.size(); i++) {
+                BlockingQueue<Batch> queue;
+                if (inOrder) {
+                    queue = new ArrayBlockingQueue<Batch>(queueCapacity);
+                    queues.add(queue);
+                } else {
+                    queue = queues.get(0);
+                }
+                executor.execute(new FileReader(i, i == firstFile ? skipRows : 0, queue));
+            }
+            executor.shutdown();
+        }
+
+        /**
+         * Reads the next row of the dataset.
+         * @return The values of the row, as returned by {@link SasFileReaderImpl#readNext()}, with null in the
+         * columns not projected, or null after the last row.
+         * @throws IOException if a file can not be read.
+         */
+        public Object[] readNext() throws IOException {
+            while (batch == null || batchRow == batch.rows.size()) {
+                if (finishedFiles == files.size() - firstFile) {
+                    return null;
+                }
+                batch = take();
+                batchRow = 0;
+                if (batch.failure != null) {
+                    throw new IOException("Can not read " + files.get(batch.file), batch.failure);
+                }
+                if (batch.rows.isEmpty()) {
+                    finishedFiles++;
+                }
+            }
+            return batch.rows.get(batchRow++);
+        }
+
+        /**
+         * @return the file of the last row returned, or null before the first row
+         */
+        public Path getCurrentFile() {
+            return batch == null ? null : files.get(batch.file);
+        }
+
+        /**
+         * Stops reading the files and waits for the reading threads.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Takes the next batch, from the queue of the current file in order.
+         * @return The batch.
+         * @throws IOException if the reading thread is interrupted.
+         */
+        private Batch take() throws IOException {
+            BlockingQueue<Batch> queue = queues.size() == 1 ? queues.get(0) : queues.get(finishedFiles);
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading rows", e);
+            }
+        }
+
+        /**
+         * Reads the rows of a file into a queue of batches.
+         */
+        private final class FileReader implements Runnable {
+            /**
+             * The index of the file.
+             */
+            private final int file;
+
+            /**
+             * The number of rows to skip at the beginning of the file.
+             */
+            private final long skipRows;
+
+            /**
+             * The queue of batches.
+             */
+            private final BlockingQueue<Batch> queue;
+
+            /**
+             * Creates the reader of a file.
+             * @param file The index of the file.
+             * @param skipRows The number of rows to skip at the beginning of the file.
+             * @param queue The queue of batches.
+             */
+            private FileReader(int file, long skipRows, BlockingQueue<Batch> queue) {
+                this.file = file;
+                this.skipRows = skipRows;
+                this.queue = queue;
+            }
+
+            /**
+             * Reads the rows of the file in batches, followed by an empty batch or the failure.
+             */
+            @Override
+            public void run() {
+                try (InputStream is = plans.get(file).open(files.get(file))) {
+                    SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                    if (projection != null) {
+                        reader.setProjection(projection);
+                    }
+                    reader.skipRows(skipRows);
+                    List<Object[]> rows = new ArrayList<Object[]>(batchSize);
+                    for (Object[] row = next(reader); row != null && !closed; row = next(reader)) {
+                        rows.add(row);
+                        if (rows.size() == batchSize) {
+                            put(new Batch(file, rows, null));
+                            rows = new ArrayList<Object[]>(batchSize);
+                        }
+                    }
+                    if (!rows.isEmpty()) {
+                        put(new Batch(file, rows, null));
+                    }
+                    put(new Batch(file, Collections.<Object[]>emptyList(), null));
+                } catch (IOException | RuntimeException e) {
+                    try {
+                        put(new Batch(file, Collections.<Object[]>emptyList(), e));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            /**
+             * Reads the next row of the file.
+             * @param reader The reader of the file.
+             * @return The row, or null after the last row.
+             * @throws IOException if the file can not be read.
+             */
+            private Object[] next(SasFileReaderImpl reader) throws IOException {
+                return raw ? reader.readNextRaw() : reader.readNext();
+            }
+
+            /**
+             * Puts a batch into the queue, waiting for free space as long as the reader is open.
+             * @param item The batch.
+             * @throws InterruptedException if the thread is interrupted.
+             */
+            private void put(Batch item) throws InterruptedException {
+                while (!closed) {
+                    if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link SasDataset}.
+     */
+    public static class Builder {
+        /**
+         * The directory or the glob of the files.
+         */
+        private final String location;
+
+        /**
+         * Default value for {@link SasDataset#threads} variable.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Default value for {@link SasDataset#ordered} variable.
+         */
+        private boolean ordered = true;
+
+        /**
+         * Default value for {@link SasDataset#raw} variable.
+         */
+        private boolean raw;
+
+        /**
+         * Default value for {@link SasDataset#batchSize} variable.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        /**
+         * Default value for {@link SasDataset#queueCapacity} variable.
+         */
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        /**
+         * The names of the columns to decode, or null to decode all of them.
+         */
+        private String[] columnNames;
+
+        /**
+         * Creates a builder of the dataset of the .sas7bdat files of a directory or matching a glob.
+         * @param location The directory, or a directory followed by a glob of file names such as
+         * {@code /data/claims_*.sas7bdat}.
+         */
+        public Builder(String location) {
+            this.location = location;
+        }
+
+        /**
+         * The function to specify builders threads variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders ordered variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder ordered(boolean val) {
+            ordered = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders raw variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder raw(boolean val) {
+            raw = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders batchSize variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder batchSize(int val) {
+            batchSize = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders queueCapacity variable.
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder queueCapacity(int val) {
+            queueCapacity = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders columns variable: the names of the columns to decode, ignoring case.
+         * The other columns are returned as null and left out of the {@link ReadPlan} of the files.
+         * @param val value to be set, null or empty to decode all the columns.
+         * @return result builder.
+         */
+        public Builder columns(String... val) {
+            columnNames = val == null || val.length == 0 ? null : val.clone();
+            return this;
+        }
+
+        /**
+         * Finds the indexes of the projected columns.
+         * @param columns The columns of the dataset.
+         * @return The indexes of the columns, or null to decode all of them.
+         * @throws IllegalArgumentException if a column is not found.
+         */
+        private int[] resolveProjection(List<Column> columns) {
+            if (columnNames == null) {
+                return null;
+            }
+            int[] result = new int[columnNames.length];
+            for (int i = 0; i < columnNames.length; i++) {
+                result[i] = -1;
+                for (int j = 0; j < columns.size() && result[i] < 0; j++) {
+                    if (columns.get(j).getName().equalsIgnoreCase(columnNames[i])) {
+                        result[i] = j;
+                    }
+                }
+                if (result[i] < 0) {
+                    throw new IllegalArgumentException("No column " + columnNames[i] + " in " + location);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Lists the files, reads their metadata and checks their schemas.
+         * @return the dataset.
+         * @throws IOException if the files can not be listed or their metadata can not be read.
+         * @throws IllegalArgumentException if no file is found, the schemas of the files are not compatible or a
+         * projected column is not found.
+         */
+        public SasDataset build() throws IOException {
+            if (threads < 1 || batchSize < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("The threads, the batch size and the queue capacity have to be "
+                        + "positive");
+            }
+            List<Path> files = listFiles(location);
+            if (files.isEmpty()) {
+                throw new IllegalArgumentException("No .sas7bdat file found in " + location);
+            }
+            List<SasFileReaderImpl> metadata = readMetadata(files, threads);
+            List<Column> columns = new ArrayList<Column>(metadata.get(0).getColumns());
+            long[] rowOffsets = new long[files.size() + 1];
+            List<ReadPlan> plans = new ArrayList<ReadPlan>(files.size());
+            ReadPlanner planner = new ReadPlanner();
+            for (int i = 0; i < files.size(); i++) {
+                mergeColumns(columns, metadata.get(i).getColumns(), files.get(i), files.get(0));
+            }
+            int[] projection = resolveProjection(columns);
+            int projectedColumns = projection == null ? columns.size() : projection.length;
+            for (int i = 0; i < files.size(); i++) {
+                SasFileProperties properties = metadata.get(i).getSasFileProperties();
+                rowOffsets[i + 1] = rowOffsets[i] + properties.getRowCount();
+                plans.add(planner.plan(properties, Files.size(files.get(i)), projectedColumns));
+                LOGGER.debug("Reading {}: {}", files.get(i), plans.get(i));
+            }
+            return new SasDataset(this, files, columns, rowOffsets, plans, projection);
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.alphacruncher.sas;
 
-import static com.epam.parso.impl.SasFileConstants.DATETIME_FORMATS;
-import static com.epam.parso.impl.SasFileConstants.DATE_FORMATS;
-import static com.epam.parso.impl.SasFileConstants.TIME_FORMATS;
-
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -21,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import com.epam.parso.Column;
 import com.epam.parso.SasFileReader;
+import com.epam.parso.impl.DatabaseColumnType;
 import com.epam.parso.impl.DatabaseDialect;
 import com.epam.parso.impl.SasFileReaderImpl;
 
@@ -61,6 +72,16 @@ public abstract class SchemaExporter {
      */
     static final String COLLATION_LATIN1_BIN = "latin1_bin";
 
+    /**
+     * The number of files read ahead per thread while the statements are written in file order.
+     */
+    private static final int PENDING_FILES_PER_THREAD = 4;
+
+    /**
+     * The maximal precision of the exact decimal types inferred from the data.
+     */
+    static final int MAX_DECIMAL_PRECISION = 18;
+
     /**
      * The database dialect to use to export the schema of the .sas7bdat files.
      */
@@ -86,6 +107,11 @@ public abstract class SchemaExporter {
      */
     private String collation;
 
+    /**
+     * The profiler scanning the data of the files, or null if the types are derived from the metadata only.
+     */
+    private ColumnProfiler profiler;
+
     /**
      * Creates a SchemaExporter using the given dialect.
      * @param dialect The database dialect to use.
@@ -173,6 +199,22 @@ public abstract class SchemaExporter {
         this.collation = collation;
     }
 
+    /**
+     * @return the profiler scanning the data of the files to infer the narrowest column types,
+     * or null if the types are derived from the metadata only
+     */
+    public ColumnProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @param profiler the profiler scanning the data of the files to infer the narrowest column
+     * types, or null to derive the types from the metadata only
+     */
+    public void setProfiler(ColumnProfiler profiler) {
+        this.profiler = profiler;
+    }
+
     /**
      * Adds a CREATE TABLE statement to the StringBuffer to create a table where the data of
      * a .sas7bdat file can be loaded, based on the columns of the file.
@@ -180,8 +222,22 @@ public abstract class SchemaExporter {
      * @param columns The columns in the .sas7bdat file.
      * @param sb The StringBuffer containing the SQL script.
      */
+    protected void addCreateTableStatement(final String tableName,
+            final List<Column> columns, final StringBuffer sb) {
+        addCreateTableStatement(tableName, columns, null, sb);
+    }
+
+    /**
+     * Adds a CREATE TABLE statement to the StringBuffer to create a table where the data of
+     * a .sas7bdat file can be loaded, based on the columns of the file and the profiles of
+     * their values.
+     * @param tableName The name of the table to be created.
+     * @param columns The columns in the .sas7bdat file.
+     * @param profiles The profiles of the columns, or null if the data was not scanned.
+     * @param sb The StringBuffer containing the SQL script.
+     */
     protected abstract void addCreateTableStatement(final String tableName,
-            final List<Column> columns, final StringBuffer sb);
+            final List<Column> columns, final List<ColumnProfile> profiles, final StringBuffer sb);
 
     /**
      * Adds the CREATE DATABASE statement to the StringBuffer to create the database
@@ -198,21 +254,101 @@ public abstract class SchemaExporter {
      * @param sb The StringBuffer containing the SQL script.
      */
     public void exportSchema(final String folder, final StringBuffer sb) {
-        Path dir = Paths.get(folder);
-        addCreateSchemaStatement(sb);
-
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.sas7bdat")) {
-            for (Path file: stream) {
-                LOGGER.info("Processing :" + file.getFileName());
-                SasFileReader sasFileReader =
-                        new SasFileReaderImpl(new FileInputStream(file.toFile()));
-                addCreateTableStatement(file.getFileName().toString()
-                        .replaceAll(".sas7bdat", ""),
-                        sasFileReader.getColumns(), sb);
-            }
+        StringWriter writer = new StringWriter();
+        try {
+            exportSchema(folder, writer, 1);
         } catch (IOException | DirectoryIteratorException x) {
             LOGGER.error("Error while listing .sas7bdat files in folder", x);
         }
+        sb.append(writer.getBuffer());
+    }
+
+    /**
+     * Writes the CREATE DATABASE statement to create the schema and
+     * the CREATE TABLE statement for each .sas7bdat file in the given folder
+     * to the writer. The files are read in parallel, only up to the first data
+     * page unless a profiler is set, and the statements are written in the order
+     * of the file names as soon as they are available. Files which can not be
+     * read are logged and skipped.
+     * @param folder The folder containing the .sas7bdat files.
+     * @param writer The writer of the SQL script.
+     * @param threads The number of files read in parallel.
+     * @throws IOException if listing the folder or writing the script is impossible.
+     */
+    public void exportSchema(final String folder, final Writer writer, final int threads) throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(folder), "*.sas7bdat")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+
+        StringBuffer schemaStatement = new StringBuffer();
+        addCreateSchemaStatement(schemaStatement);
+        writer.append(schemaStatement);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            Deque<Future<StringBuffer>> pending = new ArrayDeque<Future<StringBuffer>>();
+            int window = Math.max(1, threads) * PENDING_FILES_PER_THREAD;
+            for (final Path file : files) {
+                if (pending.size() == window) {
+                    writeStatement(pending.removeFirst(), writer);
+                }
+                pending.addLast(executor.submit(new Callable<StringBuffer>() {
+                    @Override
+                    public StringBuffer call() throws IOException {
+                        return getCreateTableStatement(file);
+                    }
+                }));
+            }
+            while (!pending.isEmpty()) {
+                writeStatement(pending.removeFirst(), writer);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads the metadata of a .sas7bdat file and returns the CREATE TABLE statement
+     * of the file. The file is closed before the method returns.
+     * @param file The .sas7bdat file.
+     * @return The CREATE TABLE statement.
+     * @throws IOException if the file can not be read.
+     */
+    private StringBuffer getCreateTableStatement(final Path file) throws IOException {
+        LOGGER.info("Processing :" + file.getFileName());
+        StringBuffer sb = new StringBuffer();
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+            SasFileReader sasFileReader = profiler == null ? SasFileReaderImpl.metadataReader(is)
+                    : new SasFileReaderImpl(is);
+            addCreateTableStatement(file.getFileName().toString()
+                    .replaceAll(".sas7bdat", ""),
+                    sasFileReader.getColumns(), profiler == null ? null : profiler.profile(sasFileReader), sb);
+        }
+        return sb;
+    }
+
+    /**
+     * Waits for the CREATE TABLE statement of a file and writes it. Failures
+     * of reading the file are logged and the file is skipped.
+     * @param statement The CREATE TABLE statement being built.
+     * @param writer The writer of the SQL script.
+     * @throws IOException if writing the script is impossible.
+     */
+    private static void writeStatement(final Future<StringBuffer> statement, final Writer writer)
+            throws IOException {
+        try {
+            writer.append(statement.get());
+        } catch (ExecutionException e) {
+            LOGGER.error("Error while reading .sas7bdat file", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting the schema");
+        }
     }
 
     /**
@@ -221,37 +357,125 @@ public abstract class SchemaExporter {
      * @return The database column type corresponding to the .sas7bdat file column.
      */
     protected String getDatabaseType(final Column c) {
-        if (Number.class.equals(c.getType())) {
-            if (c.getLength() <= 2) {
+        switch (DatabaseColumnType.of(c)) {
+            case INT:
                 return dialect.getIntType();
-            }
-            if (StringUtils.isBlank(c.getFormat())) {
-                return dialect.getNumericType()
-                        + dialect.getDefaultPrecision();
-            }
-            for (Pattern p : DATETIME_FORMATS) {
-                Matcher m = p.matcher(c.getFormat());
-                if (m.matches()) {
-                    return dialect.getDateTimeType() + "(3)";
+            case DATETIME:
+                return dialect.getDateTimeType() + "(3)";
+            case TIME:
+                return dialect.getTimeType() + "(3)";
+            case DATE:
+                return dialect.getDateType();
+            case VARCHAR:
+                return dialect.getVarcharType() + "(" + c.getLength() + ")";
+            case NUMERIC:
+            default:
+                if (StringUtils.isNotBlank(c.getFormat())) {
+                    LOGGER.warn("Couldn't determine column format, defaulting to numeric: "
+                            + c.getName() + "\t" + c.getFormat());
                 }
-            }
-            for (Pattern p : TIME_FORMATS) {
-                Matcher m = p.matcher(c.getFormat());
-                if (m.matches()) {
-                    return dialect.getTimeType() + "(3)";
+                return dialect.getNumericType() + dialect.getDefaultPrecision();
+        }
+    }
+
+    /**
+     * Returns the narrowest database type which holds the scanned values of the given
+     * .sas7bdat file column. Integral numbers get the smallest integer type covering
+     * their range, other numbers an exact decimal type if the integer and the decimal
+     * digits fit in {@link #MAX_DECIMAL_PRECISION} digits and a double otherwise, and
+     * character columns a varchar of the longest value without trailing blanks. Date and
+     * time columns, and columns without values keep the type derived from the metadata.
+     * The types are only narrowed by a full scan: with a sampled profile, numbers keep
+     * the integer type of the metadata if the sample fits it and are widened to a bigint
+     * or a double otherwise, and character columns keep the width of the metadata, so
+     * the values outside the sample are neither truncated nor rejected.
+     * @param c The .sas7bdat file column.
+     * @param profile The profile of the values of the column, or null if the data was not scanned.
+     * @return The database column type corresponding to the .sas7bdat file column.
+     */
+    protected String getDatabaseType(final Column c, final ColumnProfile profile) {
+        if (profile == null || profile.getValues() == 0) {
+            return getDatabaseType(c);
+        }
+        if (!profile.isComplete()) {
+            return getSampledDatabaseType(c, profile);
+        }
+        switch (DatabaseColumnType.of(c)) {
+            case INT:
+            case NUMERIC:
+                double maxAbs = Math.max(Math.abs(profile.getMin()), Math.abs(profile.getMax()));
+                if (profile.isIntegral()) {
+                    if (profile.getMin() >= Short.MIN_VALUE && profile.getMax() <= Short.MAX_VALUE) {
+                        return dialect.getSmallintType();
+                    }
+                    if (profile.getMin() >= Integer.MIN_VALUE && profile.getMax() <= Integer.MAX_VALUE) {
+                        return dialect.getIntType();
+                    }
+                    return dialect.getBigintType();
                 }
-            }
-            for (Pattern p : DATE_FORMATS) {
-                Matcher m = p.matcher(c.getFormat());
-                if (m.matches()) {
-                    return dialect.getDateType();
+                if (!Double.isInfinite(maxAbs)) {
+                    int integerDigits = BigDecimal.valueOf(maxAbs).setScale(0, RoundingMode.DOWN).precision();
+                    if (integerDigits + profile.getMaxScale() <= MAX_DECIMAL_PRECISION) {
+                        return dialect.getNumericType() + "(" + (integerDigits + profile.getMaxScale()) + ","
+                                + profile.getMaxScale() + ")";
+                    }
                 }
-            }
-            LOGGER.warn("Couldn't determine column format, defaulting to numeric: "
-                    + c.getName() + "\t" + c.getFormat());
-            return dialect.getNumericType() + dialect.getDefaultPrecision();
+                return dialect.getDoubleType();
+            case VARCHAR:
+                return dialect.getVarcharType() + "(" + Math.max(1, profile.getMaxLength()) + ")";
+            default:
+                return getDatabaseType(c);
+        }
+    }
+
+    /**
+     * Returns the database type of a column whose values were sampled: the type derived from the metadata,
+     * widened to a bigint or a double for numbers the sample shows it can not hold.
+     * @param c The .sas7bdat file column.
+     * @param profile The profile of a sample of the values of the column.
+     * @return The database column type corresponding to the .sas7bdat file column.
+     */
+    private String getSampledDatabaseType(final Column c, final ColumnProfile profile) {
+        switch (DatabaseColumnType.of(c)) {
+            case INT:
+                if (!profile.isIntegral()) {
+                    return dialect.getDoubleType();
+                }
+                if (profile.getMin() >= Integer.MIN_VALUE && profile.getMax() <= Integer.MAX_VALUE) {
+                    return dialect.getIntType();
+                }
+                return dialect.getBigintType();
+            case NUMERIC:
+                return dialect.getDoubleType();
+            default:
+                return getDatabaseType(c);
+        }
+    }
+
+    /**
+     * Returns the NULL constraint of a column: NOT NULL if a full scan found no null values.
+     * @param profile The profile of the values of the column, or null if the data was not scanned.
+     * @return The NULL constraint of the column definition, starting with a space.
+     */
+    protected String getNullConstraint(final ColumnProfile profile) {
+        if (profile != null && profile.isComplete() && profile.getValues() > 0 && profile.getNulls() == 0) {
+            return " NOT NULL";
+        }
+        return " NULL DEFAULT NULL";
+    }
+
+    /**
+     * Returns the DatabaseDialect of a supported database dialect name.
+     * @param dialect The database dialect name, 'MySQL' or 'PostgreSQL'.
+     * @return The DatabaseDialect instance.
+     */
+    static DatabaseDialect dialectForName(String dialect) {
+        if (DIALECT_MYSQL.equals(dialect)) {
+            return DatabaseDialect.MYSQL;
+        } else if (DIALECT_POSTGRES.equals(dialect)) {
+            return DatabaseDialect.POSTGRESQL;
         } else {
-            return dialect.getVarcharType() + "(" + c.getLength() + ")";
+            throw new IllegalArgumentException("Unsupported dialect: " + dialect);
         }
     }
 
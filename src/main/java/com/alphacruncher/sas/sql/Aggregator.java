@@ -0,0 +1,553 @@
+package com.alphacruncher.sas.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.epam.parso.Column;
+import com.epam.parso.impl.CountingOutputStream;
+import com.epam.parso.impl.DatabaseColumnType;
+
+/**
+ * Runs the GROUP BY and the aggregates of a {@link SqlQuery}. Every worker reads a range of pages into its own
+ * {@link GroupTable}, in batches of undecoded rows whose keys and aggregated columns are decoded straight into
+ * primitive arrays, so no row is boxed into objects; when the table grows over the memory budget of the worker, its
+ * groups are written to a temporary file partition by partition and the worker goes on with an empty table. The
+ * partial tables and the spilled groups are then merged one hash partition at a time, so only the groups of one
+ * partition are held at once, and emitted sorted by key within the partition. A partition whose merged groups grow
+ * over the budget is spilled again, split with the next bits of the hash, and merged one sub-partition at a time, so
+ * the merge holds about the budget whatever the number of groups. The order of the groups does not depend on the
+ * number of workers nor on the spills of the workers.
+ */
+final class Aggregator {
+
+    /**
+     * The groups aggregated by a worker: the table in memory and the spilled ones.
+     */
+    static final class Partial {
+        /**
+         * The groups in memory.
+         */
+        private GroupTable table;
+
+        /**
+         * The spilled groups.
+         */
+        private final List<Spill> spills = new ArrayList<>();
+
+        /**
+         * Creates the groups of a worker.
+         *
+         * @param table the empty table.
+         */
+        Partial(GroupTable table) {
+            this.table = table;
+        }
+
+        /**
+         * The function to get the spilled groups.
+         *
+         * @return the spills.
+         */
+        List<Spill> getSpills() {
+            return spills;
+        }
+    }
+
+    /**
+     * The groups of a table written to a temporary file, partition by partition at one level.
+     */
+    static final class Spill {
+        /**
+         * The file.
+         */
+        private final Path file;
+
+        /**
+         * The offsets of the partitions in the file.
+         */
+        private final long[] offsets = new long[GroupTable.PARTITIONS];
+
+        /**
+         * The numbers of groups of the partitions.
+         */
+        private final int[] counts = new int[GroupTable.PARTITIONS];
+
+        /**
+         * Writes the groups of a table to a new temporary file.
+         *
+         * @param table     the table.
+         * @param directory the directory of the file, or null for the default temporary directory.
+         * @param level     the level of the partitions, see {@link GroupTable#partition(int, int)}.
+         * @throws IOException if writing is impossible.
+         */
+        Spill(GroupTable table, Path directory, int level) throws IOException {
+            file = directory == null ? Files.createTempFile("parso-groups", ".bin")
+                    : Files.createTempFile(directory, "parso-groups", ".bin");
+            try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file)))) {
+                DataOutputStream out = new DataOutputStream(counter);
+                for (int partition = 0; partition < GroupTable.PARTITIONS; partition++) {
+                    offsets[partition] = counter.getCount();
+                    counts[partition] = table.write(out, partition, level);
+                }
+                out.flush();
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+
+        /**
+         * Reads the groups of a partition and merges them into a table.
+         *
+         * @param partition the partition.
+         * @param table     the table.
+         * @throws IOException if reading is impossible.
+         */
+        void read(int partition, GroupTable table) throws IOException {
+            if (counts[partition] == 0) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file)) {
+                channel.position(offsets[partition]);
+                InputStream is = new BufferedInputStream(Channels.newInputStream(channel));
+                DataInputStream in = new DataInputStream(is);
+                for (int i = 0; i < counts[partition]; i++) {
+                    table.read(in);
+                }
+            }
+        }
+
+        /**
+         * Deletes the file.
+         *
+         * @throws IOException if deleting is impossible.
+         */
+        void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The query.
+     */
+    private final SqlQuery query;
+
+    /**
+     * The columns of the file.
+     */
+    private final List<Column> fileColumns;
+
+    /**
+     * The indexes of the key columns.
+     */
+    private final int[] keyColumns;
+
+    /**
+     * Whether a key column is numeric.
+     */
+    private final boolean[] keyNumeric;
+
+    /**
+     * The types of the key columns.
+     */
+    private final DatabaseColumnType[] keyTypes;
+
+    /**
+     * The kinds of the aggregates.
+     */
+    private final GroupTable.Kind[] kinds;
+
+    /**
+     * The indexes of the columns of the aggregates, -1 for {@code COUNT(*)}.
+     */
+    private final int[] columns;
+
+    /**
+     * Whether the column of an aggregate is numeric.
+     */
+    private final boolean[] numeric;
+
+    /**
+     * The types of the columns of the aggregates.
+     */
+    private final DatabaseColumnType[] types;
+
+    /**
+     * The sources of the result columns: the index of a key column, or -1 - the index of an aggregate.
+     */
+    private final int[] sources;
+
+    /**
+     * The columns of the result.
+     */
+    private final List<Column> resultColumns = new ArrayList<>();
+
+    /**
+     * The indexes of the columns the query reads.
+     */
+    private final int[] usedColumns;
+
+    /**
+     * The largest number of bytes of groups held at once by the last {@link #emit}.
+     */
+    private long mergedBytes;
+
+    /**
+     * Binds an aggregating query to the columns of a file.
+     *
+     * @param query       the query.
+     * @param fileColumns the columns of the file.
+     * @throws IllegalArgumentException if the query does not match the columns of the file.
+     */
+    Aggregator(SqlQuery query, List<Column> fileColumns) {
+        this.query = query;
+        this.fileColumns = fileColumns;
+        ColumnBinder binder = new ColumnBinder(fileColumns);
+        List<String> groupBy = query.getGroupBy();
+        keyColumns = new int[groupBy.size()];
+        keyNumeric = new boolean[groupBy.size()];
+        keyTypes = new DatabaseColumnType[groupBy.size()];
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyColumns[k] = binder.resolve(groupBy.get(k));
+            keyTypes[k] = binder.getType(keyColumns[k]);
+            keyNumeric[k] = keyTypes[k] != DatabaseColumnType.VARCHAR;
+        }
+        List<SelectItem> items = query.getItems();
+        int aggregateCount = items.size() - query.getColumns().size();
+        kinds = new GroupTable.Kind[aggregateCount];
+        columns = new int[aggregateCount];
+        numeric = new boolean[aggregateCount];
+        types = new DatabaseColumnType[aggregateCount];
+        sources = new int[items.size()];
+        int aggregate = 0;
+        for (int i = 0; i < items.size(); i++) {
+            SelectItem item = items.get(i);
+            if (item.getAggregate() == null) {
+                int column = binder.resolve(item.getColumn());
+                int key = 0;
+                while (keyColumns[key] != column) {
+                    key++;
+                }
+                sources[i] = key;
+                resultColumns.add(rename(binder.getColumn(column), item.getAlias()));
+                continue;
+            }
+            kinds[aggregate] = item.getAggregate();
+            columns[aggregate] = -1;
+            String format = "";
+            if (item.getColumn() != null) {
+                columns[aggregate] = binder.resolve(item.getColumn());
+                types[aggregate] = binder.getType(columns[aggregate]);
+                numeric[aggregate] = types[aggregate] != DatabaseColumnType.VARCHAR;
+                if (!numeric[aggregate] && kinds[aggregate] != GroupTable.Kind.COUNT
+                        && kinds[aggregate] != GroupTable.Kind.DISTINCT) {
+                    throw new IllegalArgumentException("The column " + item.getColumn() + " of "
+                            + kinds[aggregate] + " has to be numeric");
+                }
+                if (kinds[aggregate] == GroupTable.Kind.MIN || kinds[aggregate] == GroupTable.Kind.MAX) {
+                    format = binder.getColumn(columns[aggregate]).getFormat();
+                }
+            }
+            sources[i] = -1 - aggregate;
+            resultColumns.add(new Column(i + 1, item.getName(), item.getName(), format, Number.class, 8));
+            aggregate++;
+        }
+        if (query.getWhere() != null) {
+            query.getWhere().bind(binder, false);
+        }
+        usedColumns = binder.getUsedColumns();
+    }
+
+    /**
+     * The function to get the columns of the result.
+     *
+     * @return the columns.
+     */
+    List<Column> getColumns() {
+        return resultColumns;
+    }
+
+    /**
+     * The function to get the columns the query reads.
+     *
+     * @return the indexes of the columns, in ascending order.
+     */
+    int[] getUsedColumns() {
+        return usedColumns.clone();
+    }
+
+    /**
+     * Aggregates the rows of a batch source, one {@link ColumnBatch} at a time: the filters and the table read the
+     * columns they use as arrays filled by the batch.
+     *
+     * @param batch     the batch reading the rows, from a reader with the projection of {@link #getUsedColumns()} or
+     *                  from the cached chunks of these columns.
+     * @param budget    the number of bytes of groups held before spilling them.
+     * @param directory the directory of the spill files, or null for the default temporary directory.
+     * @return the aggregated groups, whose spill files the caller deletes.
+     * @throws IOException if reading the file or writing the spill files is impossible.
+     */
+    Partial aggregate(ColumnBatch batch, long budget, Path directory) throws IOException {
+        Filter filter = query.getWhere() == null ? null
+                : query.getWhere().bind(new ColumnBinder(fileColumns), false);
+        Partial partial = new Partial(newTable());
+        int batchSize = batch.capacity();
+        int[] selection = new int[batchSize];
+        boolean end = false;
+        try {
+            while (!end) {
+                int size = batch.read(batchSize);
+                end = size < batchSize;
+                for (int i = 0; i < size; i++) {
+                    selection[i] = i;
+                }
+                int count = filter == null ? size : filter.filter(batch, selection, size);
+                partial.table.add(batch, selection, count);
+                if (partial.table.getBytes() > budget) {
+                    partial.spills.add(new Spill(partial.table, directory, 0));
+                    partial.table = partial.table.emptyCopy();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(partial);
+            throw e;
+        }
+        return partial;
+    }
+
+    /**
+     * Merges the groups of the workers partition by partition and emits them.
+     *
+     * @param partials  the groups of the workers.
+     * @param limit     the maximum number of groups, or {@link SqlQuery#NO_LIMIT}.
+     * @param sink      the destination of the groups, started by the caller.
+     * @param budget    the number of bytes of groups merged in memory before splitting a partition.
+     * @param directory the directory of the spill files, or null for the default temporary directory.
+     * @return the number of groups emitted.
+     * @throws IOException if reading or writing the spill files or writing the result is impossible.
+     */
+    long emit(List<Partial> partials, long limit, RowSink sink, long budget, Path directory) throws IOException {
+        List<GroupTable> tables = new ArrayList<>();
+        List<Spill> spills = new ArrayList<>();
+        for (Partial partial : partials) {
+            tables.add(partial.table);
+            spills.addAll(partial.spills);
+        }
+        Merge merge = new Merge(limit, sink, budget, directory);
+        merge.emit(tables, spills, 0);
+        mergedBytes = merge.largestBytes;
+        return merge.emitted;
+    }
+
+    /**
+     * The function to get the largest number of bytes of groups held at once by the last {@link #emit}.
+     *
+     * @return the number of bytes.
+     */
+    long getMergedBytes() {
+        return mergedBytes;
+    }
+
+    /**
+     * The merge of the groups of the workers, emitting them partition by partition.
+     */
+    private final class Merge {
+        /**
+         * The maximum number of groups, or {@link SqlQuery#NO_LIMIT}.
+         */
+        private final long limit;
+
+        /**
+         * The destination of the groups.
+         */
+        private final RowSink sink;
+
+        /**
+         * The number of bytes of groups merged in memory before splitting a partition.
+         */
+        private final long budget;
+
+        /**
+         * The directory of the spill files, or null for the default temporary directory.
+         */
+        private final Path directory;
+
+        /**
+         * The row passed to the sink.
+         */
+        private final Object[] row = new Object[sources.length];
+
+        /**
+         * The number of groups emitted.
+         */
+        private long emitted;
+
+        /**
+         * The largest number of bytes of a merged table.
+         */
+        private long largestBytes;
+
+        /**
+         * Creates a merge.
+         *
+         * @param limit     the maximum number of groups, or {@link SqlQuery#NO_LIMIT}.
+         * @param sink      the destination of the groups.
+         * @param budget    the number of bytes of groups merged in memory before splitting a partition.
+         * @param directory the directory of the spill files, or null for the default temporary directory.
+         */
+        private Merge(long limit, RowSink sink, long budget, Path directory) {
+            this.limit = limit;
+            this.sink = sink;
+            this.budget = budget;
+            this.directory = directory;
+        }
+
+        /**
+         * Merges and emits the groups of tables and spills partition by partition. The groups of a partition
+         * growing over the budget are spilled with the partitions of the next level, and merged again one
+         * sub-partition at a time. A table with fewer groups than partitions, or at the last level, is not split.
+         *
+         * @param tables the tables, holding the groups of one partition of the previous level.
+         * @param spills the spills written with the partitions of this level.
+         * @param level  the level of the partitions.
+         * @throws IOException if reading or writing the spill files or writing the result is impossible.
+         */
+        private void emit(List<GroupTable> tables, List<Spill> spills, int level) throws IOException {
+            for (int partition = 0; partition < GroupTable.PARTITIONS && emitted != limit; partition++) {
+                GroupTable merged = newTable();
+                List<Spill> overflow = new ArrayList<>();
+                try {
+                    for (Spill spill : spills) {
+                        spill.read(partition, merged);
+                        merged = split(merged, overflow, level);
+                    }
+                    for (GroupTable table : tables) {
+                        merged.mergeFrom(table, partition, level);
+                        merged = split(merged, overflow, level);
+                    }
+                    if (keyColumns.length == 0 && level == 0 && partition == GroupTable.partition(0, 0)) {
+                        merged.addEmptyKey();
+                    }
+                    if (!overflow.isEmpty()) {
+                        emit(Collections.singletonList(merged), overflow, level + 1);
+                        continue;
+                    }
+                    int[] groups = merged.getSortedGroups();
+                    for (int i = 0; i < groups.length && emitted != limit; i++) {
+                        fill(merged, groups[i], row);
+                        sink.accept(row);
+                        emitted++;
+                    }
+                } finally {
+                    for (Spill spill : overflow) {
+                        spill.delete();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Spills a merged table over the budget with the partitions of the next level.
+         *
+         * @param merged   the merged table.
+         * @param overflow the spills of the partition.
+         * @param level    the level of the partition.
+         * @return the merged table, or an empty one if it was spilled.
+         * @throws IOException if writing is impossible.
+         */
+        private GroupTable split(GroupTable merged, List<Spill> overflow, int level) throws IOException {
+            long bytes = merged.getBytes();
+            largestBytes = Math.max(largestBytes, bytes);
+            if (bytes <= budget || merged.size() < GroupTable.PARTITIONS || level + 1 == GroupTable.LEVELS) {
+                return merged;
+            }
+            overflow.add(new Spill(merged, directory, level + 1));
+            return merged.emptyCopy();
+        }
+    }
+
+    /**
+     * Deletes the spill files of a worker.
+     *
+     * @param partial the groups of the worker.
+     * @throws IOException if deleting is impossible.
+     */
+    static void delete(Partial partial) throws IOException {
+        for (Spill spill : partial.spills) {
+            spill.delete();
+        }
+    }
+
+    /**
+     * Creates an empty table of the groups of the query.
+     *
+     * @return the table.
+     */
+    private GroupTable newTable() {
+        return new GroupTable(fileColumns.size(), keyColumns, keyNumeric, kinds, columns, numeric);
+    }
+
+    /**
+     * Fills a row of the result with a group.
+     *
+     * @param table the table.
+     * @param group the index of the group.
+     * @param row   the row.
+     */
+    private void fill(GroupTable table, int group, Object[] row) {
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            if (source >= 0) {
+                row[i] = keyNumeric[source] ? ColumnBatch.toValue(table.getNumberKey(group, source), keyTypes[source])
+                        : table.getStringKey(group, source);
+                continue;
+            }
+            int aggregate = -1 - source;
+            switch (kinds[aggregate]) {
+                case ROWS:
+                    row[i] = table.getRows(group);
+                    break;
+                case COUNT:
+                case DISTINCT:
+                    row[i] = table.getCount(aggregate, group);
+                    break;
+                case SUM:
+                    row[i] = table.getCount(aggregate, group) == 0 ? null
+                            : ColumnBatch.toValue(table.getValue(aggregate, group), DatabaseColumnType.NUMERIC);
+                    break;
+                case MEAN:
+                    row[i] = table.getCount(aggregate, group) == 0 ? null : ColumnBatch.toValue(
+                            table.getValue(aggregate, group) / table.getCount(aggregate, group),
+                            DatabaseColumnType.NUMERIC);
+                    break;
+                default:
+                    row[i] = ColumnBatch.toValue(table.getValue(aggregate, group), types[aggregate]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * The function to rename a column.
+     *
+     * @param column the column.
+     * @param alias  the new name, or null to keep the name.
+     * @return the renamed column.
+     */
+    static Column rename(Column column, String alias) {
+        return alias == null ? column : new Column(column.getId(), alias, column.getLabel(), column.getFormat(),
+                column.getType(), column.getLength());
+    }
+}
@@ -0,0 +1,188 @@
+package com.alphacruncher.sas.sql;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.epam.parso.Column;
+import com.epam.parso.impl.ColumnChunk;
+import com.epam.parso.impl.ColumnChunkCache;
+import com.epam.parso.impl.ColumnChunkSource;
+import com.epam.parso.impl.ColumnarSnapshot;
+import com.epam.parso.impl.DatabaseColumnType;
+
+/**
+ * A {@link ColumnBatch} reading the columns used by a query from a {@link ColumnChunkSource}: a
+ * {@link ColumnChunkCache}, so a file queried again is not decompressed and decoded again while its chunks are
+ * cached, or a {@link ColumnarSnapshot}, whose chunks are mapped. The chunks of the used columns are fetched one chunk
+ * at a time, when the batches reach them, so a query stopping early does not read the rest of the file, and the
+ * chunks behind the batches are released.
+ */
+final class ChunkColumnBatch extends ColumnBatch {
+
+    /**
+     * The types of the columns of the file.
+     */
+    private final DatabaseColumnType[] types;
+
+    /**
+     * The source of the chunks.
+     */
+    private final ColumnChunkSource source;
+
+    /**
+     * The chunks of the used columns fetched so far, by column index and chunk index, null for the other columns.
+     */
+    private final ColumnChunk[][] chunks;
+
+    /**
+     * The indexes of the used columns.
+     */
+    private final int[] usedColumns;
+
+    /**
+     * The charset of the character values.
+     */
+    private final Charset charset;
+
+    /**
+     * The number of rows not read yet, if the query uses no column.
+     */
+    private long rowsLeft;
+
+    /**
+     * The index of the chunk of the first row of the batch.
+     */
+    private int firstChunk;
+
+    /**
+     * The index of the first row of the batch in its chunk.
+     */
+    private int firstRow;
+
+    /**
+     * The index of the chunk of the next row to read.
+     */
+    private int nextChunk;
+
+    /**
+     * The index of the next row to read in its chunk.
+     */
+    private int nextRow;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param source      the source of the chunks of the file.
+     * @param columns     the columns of the file.
+     * @param encoding    the encoding of the file.
+     * @param usedColumns the indexes of the columns the query uses.
+     * @param rowCount    the number of rows of the file, read if the query uses no column.
+     * @param capacity    the maximum number of rows of the batch.
+     * @throws IOException if reading the metadata of the file is impossible.
+     */
+    ChunkColumnBatch(ColumnChunkSource source, List<Column> columns, String encoding, int[] usedColumns,
+                     long rowCount, int capacity) throws IOException {
+        super(columns.size(), capacity);
+        types = new DatabaseColumnType[columns.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = DatabaseColumnType.of(columns.get(i));
+        }
+        this.source = source;
+        this.usedColumns = usedColumns.clone();
+        chunks = new ColumnChunk[columns.size()][];
+        int chunkCount = usedColumns.length > 0 ? source.getChunkCount() : 0;
+        for (int column : usedColumns) {
+            chunks[column] = new ColumnChunk[chunkCount];
+        }
+        charset = Charset.forName(encoding);
+        rowsLeft = rowCount;
+    }
+
+    @Override
+    protected int readRows(int count) throws IOException {
+        if (usedColumns.length == 0) {
+            int size = (int) Math.min(count, rowsLeft);
+            rowsLeft -= size;
+            return size;
+        }
+        for (int column : usedColumns) {
+            for (int chunk = firstChunk; chunk < nextChunk; chunk++) {
+                chunks[column][chunk] = null;
+            }
+        }
+        firstChunk = nextChunk;
+        firstRow = nextRow;
+        ColumnChunk[] first = chunks[usedColumns[0]];
+        int size = 0;
+        while (size < count && nextChunk < first.length) {
+            if (first[nextChunk] == null) {
+                ColumnChunk[] fetched = source.getChunk(nextChunk, usedColumns);
+                for (int i = 0; i < usedColumns.length; i++) {
+                    chunks[usedColumns[i]][nextChunk] = fetched[i];
+                }
+            }
+            int step = Math.min(count - size, first[nextChunk].getRowCount() - nextRow);
+            size += step;
+            nextRow += step;
+            if (nextRow == first[nextChunk].getRowCount()) {
+                nextChunk++;
+                nextRow = 0;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    protected void fillNumbers(int column, double[] values) {
+        ColumnChunk[] columnChunks = chunks[column];
+        int chunk = firstChunk;
+        int row = firstRow;
+        for (int i = 0; i < size(); i++) {
+            while (row == columnChunks[chunk].getRowCount()) {
+                chunk++;
+                row = 0;
+            }
+            values[i] = columnChunks[chunk].getDouble(row++);
+        }
+    }
+
+    @Override
+    protected void fillStrings(int column, String[] values) {
+        ColumnChunk[] columnChunks = chunks[column];
+        int chunk = firstChunk;
+        int row = firstRow;
+        for (int i = 0; i < size(); i++) {
+            while (row == columnChunks[chunk].getRowCount()) {
+                chunk++;
+                row = 0;
+            }
+            byte[] bytes = columnChunks[chunk].getBytes(row++);
+            values[i] = bytes == null ? null : new String(bytes, charset);
+        }
+    }
+
+    @Override
+    Object[] getRow(int row) {
+        Object[] values = new Object[types.length];
+        for (int column : usedColumns) {
+            ColumnChunk[] columnChunks = chunks[column];
+            int chunk = firstChunk;
+            int index = firstRow + row;
+            while (index >= columnChunks[chunk].getRowCount()) {
+                index -= columnChunks[chunk].getRowCount();
+                chunk++;
+            }
+            if (types[column] == DatabaseColumnType.VARCHAR) {
+                byte[] bytes = columnChunks[chunk].getBytes(index);
+                values[column] = bytes == null ? null : new String(bytes, charset);
+            } else if (types[column] == DatabaseColumnType.INT) {
+                double number = columnChunks[chunk].getDouble(index);
+                values[column] = number != number ? null : (Object) (int) number;
+            } else {
+                values[column] = toValue(columnChunks[chunk].getDouble(index), types[column]);
+            }
+        }
+        return values;
+    }
+}
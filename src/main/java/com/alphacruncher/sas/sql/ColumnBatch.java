@@ -0,0 +1,208 @@
+package com.alphacruncher.sas.sql;
+
+import static com.epam.parso.impl.SasFileConstants.EPSILON;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_DAYS_DIFFERENCE;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_SECONDS_DIFFERENCE;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.epam.parso.impl.DatabaseColumnType;
+
+/**
+ * A batch of rows read by a query, with the values of the filtered columns as arrays. The arrays are filled the
+ * first time a filter asks for a column and reused by the other filters of the column: the numbers, dates and times
+ * as doubles in the units of the .sas7bdat files, NaN for the missing values, and the characters as strings. Only
+ * the accepted rows are turned into objects. The arrays are kept for the next batches, so a query allocates them
+ * once. The rows come from a reader, see {@link ReaderColumnBatch}, or from the chunks of a column cache or a
+ * columnar snapshot, see {@link ChunkColumnBatch}.
+ */
+abstract class ColumnBatch {
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final double MILLISECONDS_IN_DAY = 86400000;
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOSECONDS_IN_SECOND = 1e9;
+
+    /**
+     * The maximum number of rows of the batch.
+     */
+    private final int capacity;
+
+    /**
+     * The numbers of the columns, by column index.
+     */
+    private final double[][] numbers;
+
+    /**
+     * The strings of the columns, by column index.
+     */
+    private final String[][] strings;
+
+    /**
+     * Whether the numbers of a column are the ones of the current rows.
+     */
+    private final boolean[] numbersFilled;
+
+    /**
+     * Whether the strings of a column are the ones of the current rows.
+     */
+    private final boolean[] stringsFilled;
+
+    /**
+     * The number of rows in the batch.
+     */
+    private int size;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param columnCount the number of columns of the file.
+     * @param capacity    the maximum number of rows of the batch.
+     */
+    ColumnBatch(int columnCount, int capacity) {
+        this.capacity = capacity;
+        numbers = new double[columnCount][];
+        strings = new String[columnCount][];
+        numbersFilled = new boolean[columnCount];
+        stringsFilled = new boolean[columnCount];
+    }
+
+    /**
+     * The function to get the maximum number of rows of the batch.
+     *
+     * @return the maximum number of rows.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The function to get the number of rows in the batch.
+     *
+     * @return the number of rows.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Replaces the rows of the batch by the next rows and drops the arrays of the previous rows.
+     *
+     * @param count the maximum number of rows to read, at most {@link #capacity()}.
+     * @return the number of rows read, less than the count only if there are no more rows.
+     * @throws IOException if reading the file is impossible.
+     */
+    int read(int count) throws IOException {
+        Arrays.fill(numbersFilled, false);
+        Arrays.fill(stringsFilled, false);
+        size = readRows(Math.min(count, capacity));
+        return size;
+    }
+
+    /**
+     * The function to get the values of a numeric column, the dates in days and the times in seconds since
+     * 1960-01-01, and NaN for the missing values.
+     *
+     * @param column the index of the column.
+     * @return the values of the rows of the batch.
+     */
+    double[] numbers(int column) {
+        double[] values = numbers[column];
+        if (values == null) {
+            values = new double[capacity];
+            numbers[column] = values;
+        }
+        if (!numbersFilled[column]) {
+            fillNumbers(column, values);
+            numbersFilled[column] = true;
+        }
+        return values;
+    }
+
+    /**
+     * The function to get the values of a character column, null for the missing values.
+     *
+     * @param column the index of the column.
+     * @return the values of the rows of the batch.
+     */
+    String[] strings(int column) {
+        String[] values = strings[column];
+        if (values == null) {
+            values = new String[capacity];
+            strings[column] = values;
+        }
+        if (!stringsFilled[column]) {
+            fillStrings(column, values);
+            stringsFilled[column] = true;
+        }
+        return values;
+    }
+
+    /**
+     * Reads the next rows into the batch.
+     *
+     * @param count the maximum number of rows to read, at most {@link #capacity()}.
+     * @return the number of rows read, less than the count only if there are no more rows.
+     * @throws IOException if reading the file is impossible.
+     */
+    protected abstract int readRows(int count) throws IOException;
+
+    /**
+     * Fills the values of a numeric column of the rows of the batch, as returned by {@link #numbers(int)}.
+     *
+     * @param column the index of the column.
+     * @param values the array receiving {@link #size()} values.
+     */
+    protected abstract void fillNumbers(int column, double[] values);
+
+    /**
+     * Fills the values of a character column of the rows of the batch, as returned by {@link #strings(int)}.
+     *
+     * @param column the index of the column.
+     * @param values the array receiving {@link #size()} values.
+     */
+    protected abstract void fillStrings(int column, String[] values);
+
+    /**
+     * The function to get a row of the batch as the reader of the file returns it.
+     *
+     * @param row the index of the row in the batch.
+     * @return the values of the row, one per column of the file, null for the columns the query does not use.
+     */
+    abstract Object[] getRow(int row);
+
+    /**
+     * The function to convert a number of {@link #numbers(int)} back to the kind of value the reader returns for a
+     * column of a type: a date, a date and time, or a Long if the number is whole and a Double otherwise.
+     *
+     * @param number the number, NaN for a missing value.
+     * @param type   the type of the column.
+     * @return the value, or null if it is missing.
+     */
+    static Object toValue(double number, DatabaseColumnType type) {
+        if (number != number) {
+            return null;
+        }
+        switch (type) {
+            case DATE:
+                return new Date((long) ((number - START_DATES_DAYS_DIFFERENCE) * MILLISECONDS_IN_DAY));
+            case DATETIME:
+            case TIME:
+                double seconds = Math.floor(number);
+                return LocalDateTime.ofEpochSecond((long) seconds - START_DATES_SECONDS_DIFFERENCE,
+                        (int) ((number - seconds) * NANOSECONDS_IN_SECOND), ZoneOffset.UTC);
+            default:
+                long whole = Math.round(number);
+                return Math.abs(number - whole) >= EPSILON ? (Object) number : (Object) whole;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.epam.parso.Column;
+import com.epam.parso.impl.DatabaseColumnType;
+
+/**
+ * Resolves the column names of a query against the columns of a file, ignoring case, and records the columns the
+ * query reads, so only those are decoded.
+ */
+final class ColumnBinder {
+
+    /**
+     * The columns of the file.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The indexes of the columns by lower case name, the first one for duplicate names.
+     */
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * The types of the columns.
+     */
+    private final DatabaseColumnType[] types;
+
+    /**
+     * Whether a column is used by the query.
+     */
+    private final boolean[] used;
+
+    /**
+     * Creates a binder for the columns of a file.
+     *
+     * @param columns the columns of the file.
+     */
+    ColumnBinder(List<Column> columns) {
+        this.columns = columns;
+        types = new DatabaseColumnType[columns.size()];
+        used = new boolean[columns.size()];
+        for (int i = columns.size() - 1; i >= 0; i--) {
+            indexes.put(columns.get(i).getName().toLowerCase(Locale.ROOT), i);
+            types[i] = DatabaseColumnType.of(columns.get(i));
+        }
+    }
+
+    /**
+     * Finds a column by name and marks it as used.
+     *
+     * @param name the name of the column, in any case.
+     * @return the index of the column.
+     * @throws IllegalArgumentException if the file has no such column.
+     */
+    int resolve(String name) {
+        Integer index = indexes.get(name.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+        used[index] = true;
+        return index;
+    }
+
+    /**
+     * The function to get the type of a column.
+     *
+     * @param index the index of the column.
+     * @return the type of the column.
+     */
+    DatabaseColumnType getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * The function to get a column of the file.
+     *
+     * @param index the index of the column.
+     * @return the column.
+     */
+    Column getColumn(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * The function to get the indexes of the columns resolved so far.
+     *
+     * @return the indexes of the used columns, in ascending order.
+     */
+    int[] getUsedColumns() {
+        int count = 0;
+        for (boolean column : used) {
+            count += column ? 1 : 0;
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                result[count++] = i;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,464 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.epam.parso.impl.DatabaseColumnType;
+
+/**
+ * A condition of a WHERE clause as parsed, with the names of the columns. It is bound to the columns of a file as a
+ * {@link Filter}, with its type checked and NOT pushed down to the leaves by De Morgan's laws: a negated comparison
+ * becomes the opposite comparison, which rejects missing values too, the way SQL treats the unknown results of its
+ * three-valued logic in a WHERE clause.
+ */
+abstract class Condition {
+
+    /**
+     * Builds the filter of the condition for the columns of a file.
+     *
+     * @param binder  the columns of the file.
+     * @param negated whether the condition is under an odd number of NOTs.
+     * @return the filter.
+     * @throws IllegalArgumentException if a column is unknown or can not be compared with a literal.
+     */
+    abstract Filter bind(ColumnBinder binder, boolean negated);
+
+    /**
+     * The comparison operators.
+     */
+    enum Operator {
+        /**
+         * Equal.
+         */
+        EQ("=", false, true, false),
+        /**
+         * Not equal.
+         */
+        NE("<>", true, false, true),
+        /**
+         * Less than.
+         */
+        LT("<", true, false, false),
+        /**
+         * Less than or equal.
+         */
+        LE("<=", true, true, false),
+        /**
+         * Greater than.
+         */
+        GT(">", false, false, true),
+        /**
+         * Greater than or equal.
+         */
+        GE(">=", false, true, true);
+
+        /**
+         * The symbol of the operator.
+         */
+        private final String symbol;
+        /**
+         * Whether a value less than, equal to and greater than the other one is accepted.
+         */
+        private final boolean[] accepted;
+
+        /**
+         * Creates an operator.
+         *
+         * @param symbol  the symbol of the operator.
+         * @param less    whether a value less than the other one is accepted.
+         * @param equal   whether a value equal to the other one is accepted.
+         * @param greater whether a value greater than the other one is accepted.
+         */
+        Operator(String symbol, boolean less, boolean equal, boolean greater) {
+            this.symbol = symbol;
+            this.accepted = new boolean[]{less, equal, greater};
+        }
+
+        /**
+         * Finds the operator of a symbol.
+         *
+         * @param symbol the symbol, {@code !=} is {@link #NE} too.
+         * @return the operator, or null if the symbol is not an operator.
+         */
+        static Operator of(String symbol) {
+            if ("!=".equals(symbol)) {
+                return NE;
+            }
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The function to get the operator with swapped operands, {@code 5 < x} is {@code x > 5}.
+         *
+         * @return the operator.
+         */
+        Operator swap() {
+            switch (this) {
+                case LT:
+                    return GT;
+                case LE:
+                    return GE;
+                case GT:
+                    return LT;
+                case GE:
+                    return LE;
+                default:
+                    return this;
+            }
+        }
+
+        /**
+         * The function to get whether a value less than, equal to and greater than the other one is accepted.
+         *
+         * @param negated whether the comparison is negated.
+         * @return the accepted signs of the comparison, by sign + 1.
+         */
+        boolean[] accepted(boolean negated) {
+            boolean[] result = accepted.clone();
+            for (int i = 0; i < result.length; i++) {
+                result[i] ^= negated;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The function to get whether a column holds numbers, dates or times.
+     *
+     * @param binder the columns of the file.
+     * @param column the index of the column.
+     * @return whether the column is numeric.
+     */
+    private static boolean isNumeric(ColumnBinder binder, int column) {
+        return binder.getType(column) != DatabaseColumnType.VARCHAR;
+    }
+
+    /**
+     * A comparison of a column with a literal.
+     */
+    static final class Comparison extends Condition {
+        /**
+         * The name of the column.
+         */
+        private final String column;
+        /**
+         * The operator, with the column on the left.
+         */
+        private final Operator operator;
+        /**
+         * The literal.
+         */
+        private final Literal literal;
+
+        /**
+         * Creates the condition.
+         *
+         * @param column   the name of the column.
+         * @param operator the operator, with the column on the left.
+         * @param literal  the literal.
+         */
+        Comparison(String column, Operator operator, Literal literal) {
+            this.column = column;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            int index = binder.resolve(column);
+            if (!isNumeric(binder, index)) {
+                return new Filter.StringComparison(index, literal.toText(column), operator.accepted(negated));
+            }
+            double value = literal.toNumber(binder.getType(index), column);
+            if (Double.isNaN(value)) {
+                throw new IllegalArgumentException("Use IS NULL to find the missing values of " + column);
+            }
+            double low = Double.NEGATIVE_INFINITY;
+            double high = Double.POSITIVE_INFINITY;
+            boolean inside = true;
+            switch (negated ? negate(operator) : operator) {
+                case EQ:
+                    low = value;
+                    high = value;
+                    break;
+                case NE:
+                    low = value;
+                    high = value;
+                    inside = false;
+                    break;
+                case LT:
+                    high = Math.nextDown(value);
+                    break;
+                case LE:
+                    high = value;
+                    break;
+                case GT:
+                    low = Math.nextUp(value);
+                    break;
+                default:
+                    low = value;
+                    break;
+            }
+            return new Filter.NumberRange(index, low, high, inside);
+        }
+
+        /**
+         * The function to get the opposite operator, accepting the values the operator rejects.
+         *
+         * @param operator the operator.
+         * @return the opposite operator.
+         */
+        private static Operator negate(Operator operator) {
+            switch (operator) {
+                case EQ:
+                    return Operator.NE;
+                case NE:
+                    return Operator.EQ;
+                case LT:
+                    return Operator.GE;
+                case LE:
+                    return Operator.GT;
+                case GT:
+                    return Operator.LE;
+                default:
+                    return Operator.LT;
+            }
+        }
+    }
+
+    /**
+     * A {@code [NOT] BETWEEN low AND high} condition.
+     */
+    static final class Between extends Condition {
+        /**
+         * The name of the column.
+         */
+        private final String column;
+        /**
+         * The lower bound, inclusive.
+         */
+        private final Literal low;
+        /**
+         * The upper bound, inclusive.
+         */
+        private final Literal high;
+        /**
+         * Whether the condition is NOT BETWEEN.
+         */
+        private final boolean not;
+
+        /**
+         * Creates the condition.
+         *
+         * @param column the name of the column.
+         * @param low    the lower bound, inclusive.
+         * @param high   the upper bound, inclusive.
+         * @param not    whether the condition is NOT BETWEEN.
+         */
+        Between(String column, Literal low, Literal high, boolean not) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+            this.not = not;
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            boolean outside = not ^ negated;
+            int index = binder.resolve(column);
+            if (isNumeric(binder, index)) {
+                return new Filter.NumberRange(index, low.toNumber(binder.getType(index), column),
+                        high.toNumber(binder.getType(index), column), !outside);
+            }
+            Filter lower = new Filter.StringComparison(index, low.toText(column), Operator.GE.accepted(outside));
+            Filter upper = new Filter.StringComparison(index, high.toText(column), Operator.LE.accepted(outside));
+            Filter[] bounds = {lower, upper};
+            return outside ? new Filter.Any(bounds) : new Filter.All(bounds);
+        }
+    }
+
+    /**
+     * A {@code [NOT] IN (literals)} condition.
+     */
+    static final class In extends Condition {
+        /**
+         * The name of the column.
+         */
+        private final String column;
+        /**
+         * The literals.
+         */
+        private final List<Literal> literals;
+        /**
+         * Whether the condition is NOT IN.
+         */
+        private final boolean not;
+
+        /**
+         * Creates the condition.
+         *
+         * @param column   the name of the column.
+         * @param literals the literals.
+         * @param not      whether the condition is NOT IN.
+         */
+        In(String column, List<Literal> literals, boolean not) {
+            this.column = column;
+            this.literals = new ArrayList<>(literals);
+            this.not = not;
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            boolean inside = !(not ^ negated);
+            int index = binder.resolve(column);
+            if (isNumeric(binder, index)) {
+                double[] values = new double[literals.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = literals.get(i).toNumber(binder.getType(index), column);
+                }
+                return new Filter.NumberSet(index, values, inside);
+            }
+            Set<String> values = new HashSet<>();
+            for (Literal literal : literals) {
+                values.add(literal.toText(column));
+            }
+            return new Filter.StringSet(index, values, inside);
+        }
+    }
+
+    /**
+     * A {@code [NOT] LIKE 'pattern'} condition.
+     */
+    static final class Like extends Condition {
+        /**
+         * The name of the column.
+         */
+        private final String column;
+        /**
+         * The pattern.
+         */
+        private final String pattern;
+        /**
+         * Whether the condition is NOT LIKE.
+         */
+        private final boolean not;
+
+        /**
+         * Creates the condition.
+         *
+         * @param column  the name of the column.
+         * @param pattern the pattern, {@code %} matches any characters and {@code _} one character.
+         * @param not     whether the condition is NOT LIKE.
+         */
+        Like(String column, String pattern, boolean not) {
+            this.column = column;
+            this.pattern = pattern;
+            this.not = not;
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            int index = binder.resolve(column);
+            if (isNumeric(binder, index)) {
+                throw new IllegalArgumentException("LIKE needs a character column: " + column);
+            }
+            return new Filter.StringPattern(index, pattern, !(not ^ negated));
+        }
+    }
+
+    /**
+     * An {@code IS [NOT] NULL} condition, true for the missing values of the numeric columns.
+     */
+    static final class IsNull extends Condition {
+        /**
+         * The name of the column.
+         */
+        private final String column;
+        /**
+         * Whether the condition is IS NOT NULL.
+         */
+        private final boolean not;
+
+        /**
+         * Creates the condition.
+         *
+         * @param column the name of the column.
+         * @param not    whether the condition is IS NOT NULL.
+         */
+        IsNull(String column, boolean not) {
+            this.column = column;
+            this.not = not;
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            int index = binder.resolve(column);
+            return new Filter.Missing(index, isNumeric(binder, index), !(not ^ negated));
+        }
+    }
+
+    /**
+     * The conjunction or the disjunction of conditions.
+     */
+    static final class Junction extends Condition {
+        /**
+         * Whether the conditions are joined by AND, otherwise by OR.
+         */
+        private final boolean and;
+        /**
+         * The conditions.
+         */
+        private final List<Condition> conditions;
+
+        /**
+         * Creates the condition.
+         *
+         * @param and        whether the conditions are joined by AND, otherwise by OR.
+         * @param conditions the conditions.
+         */
+        Junction(boolean and, List<Condition> conditions) {
+            this.and = and;
+            this.conditions = new ArrayList<>(conditions);
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            Filter[] filters = new Filter[conditions.size()];
+            for (int i = 0; i < filters.length; i++) {
+                filters[i] = conditions.get(i).bind(binder, negated);
+            }
+            return and ^ negated ? new Filter.All(filters) : new Filter.Any(filters);
+        }
+    }
+
+    /**
+     * The negation of a condition.
+     */
+    static final class Not extends Condition {
+        /**
+         * The negated condition.
+         */
+        private final Condition condition;
+
+        /**
+         * Creates the condition.
+         *
+         * @param condition the negated condition.
+         */
+        Not(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        Filter bind(ColumnBinder binder, boolean negated) {
+            return condition.bind(binder, !negated);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A condition of a WHERE clause evaluated on the column arrays of a {@link ColumnBatch}. A filter takes the indexes
+ * of the rows still selected and keeps the ones it accepts, in place and in ascending order, so the conditions of an
+ * AND run one after the other over fewer and fewer rows. Every leaf filter runs one loop over a primitive array
+ * without branching on the result. The filters never accept missing values: negated conditions are pushed down to
+ * the leaves when the filters are built, so a NOT around an unknown comparison still rejects the row, as in SQL.
+ */
+abstract class Filter {
+
+    /**
+     * Keeps the selected rows accepted by the filter.
+     *
+     * @param batch     the rows.
+     * @param selection the indexes of the selected rows in ascending order, overwritten with the accepted ones.
+     * @param count     the number of selected rows.
+     * @return the number of accepted rows, at the start of the selection.
+     */
+    abstract int filter(ColumnBatch batch, int[] selection, int count);
+
+    /**
+     * Accepts the numbers of a column in or out of a closed range. The comparisons are ranges too: {@code x < v} is
+     * {@code [-inf, nextDown(v)]}, so one loop serves all of them.
+     */
+    static final class NumberRange extends Filter {
+        /**
+         * The index of the column.
+         */
+        private final int column;
+        /**
+         * The lower bound, inclusive.
+         */
+        private final double low;
+        /**
+         * The upper bound, inclusive.
+         */
+        private final double high;
+        /**
+         * Whether the values in the range are accepted, otherwise the ones out of it are.
+         */
+        private final boolean inside;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the index of the column.
+         * @param low    the lower bound, inclusive.
+         * @param high   the upper bound, inclusive.
+         * @param inside whether the values in the range are accepted, otherwise the ones out of it are.
+         */
+        NumberRange(int column, double low, double high, boolean inside) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+            this.inside = inside;
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            double[] values = batch.numbers(column);
+            int kept = 0;
+            if (inside) {
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    double value = values[row];
+                    selection[kept] = row;
+                    kept += value >= low && value <= high ? 1 : 0;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    double value = values[row];
+                    selection[kept] = row;
+                    kept += value < low || value > high ? 1 : 0;
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the numbers of a column in or out of a set of values.
+     */
+    static final class NumberSet extends Filter {
+        /**
+         * The index of the column.
+         */
+        private final int column;
+        /**
+         * The values of the set, sorted.
+         */
+        private final double[] values;
+        /**
+         * Whether the values in the set are accepted, otherwise the ones out of it are.
+         */
+        private final boolean inside;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the index of the column.
+         * @param values the values of the set.
+         * @param inside whether the values in the set are accepted, otherwise the ones out of it are.
+         */
+        NumberSet(int column, double[] values, boolean inside) {
+            this.column = column;
+            this.values = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                this.values[i] = values[i] + 0.0;
+            }
+            Arrays.sort(this.values);
+            this.inside = inside;
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            double[] column = batch.numbers(this.column);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                double value = column[row];
+                selection[kept] = row;
+                kept += value == value && Arrays.binarySearch(values, value + 0.0) >= 0 == inside ? 1 : 0;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the strings of a column by the sign of their comparison with a constant.
+     */
+    static final class StringComparison extends Filter {
+        /**
+         * The index of the column.
+         */
+        private final int column;
+        /**
+         * The constant.
+         */
+        private final String constant;
+        /**
+         * Whether a string less than, equal to and greater than the constant is accepted.
+         */
+        private final boolean[] accepted;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column   the index of the column.
+         * @param constant the constant.
+         * @param accepted whether a string less than, equal to and greater than the constant is accepted.
+         */
+        StringComparison(int column, String constant, boolean[] accepted) {
+            this.column = column;
+            this.constant = constant;
+            this.accepted = accepted.clone();
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            String[] values = batch.strings(column);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                String value = values[row];
+                selection[kept] = row;
+                kept += value != null && accepted[Integer.signum(value.compareTo(constant)) + 1] ? 1 : 0;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the strings of a column in or out of a set of values.
+     */
+    static final class StringSet extends Filter {
+        /**
+         * The index of the column.
+         */
+        private final int column;
+        /**
+         * The values of the set.
+         */
+        private final Set<String> values;
+        /**
+         * Whether the values in the set are accepted, otherwise the ones out of it are.
+         */
+        private final boolean inside;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column the index of the column.
+         * @param values the values of the set.
+         * @param inside whether the values in the set are accepted, otherwise the ones out of it are.
+         */
+        StringSet(int column, Set<String> values, boolean inside) {
+            this.column = column;
+            this.values = values;
+            this.inside = inside;
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            String[] column = batch.strings(this.column);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                String value = column[row];
+                selection[kept] = row;
+                kept += value != null && values.contains(value) == inside ? 1 : 0;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the strings of a column matching or not matching a LIKE pattern.
+     */
+    static final class StringPattern extends Filter {
+        /**
+         * The index of the column.
+         */
+        private final int column;
+        /**
+         * The matcher of the regular expression of the pattern, reset for every value.
+         */
+        private final Matcher matcher;
+        /**
+         * Whether the matching values are accepted, otherwise the other ones are.
+         */
+        private final boolean matching;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column   the index of the column.
+         * @param pattern  the LIKE pattern, {@code %} matches any characters and {@code _} one character.
+         * @param matching whether the matching values are accepted, otherwise the other ones are.
+         */
+        StringPattern(int column, String pattern, boolean matching) {
+            this.column = column;
+            this.matcher = Pattern.compile(toRegex(pattern), Pattern.DOTALL).matcher("");
+            this.matching = matching;
+        }
+
+        /**
+         * Converts a LIKE pattern to a regular expression.
+         *
+         * @param pattern the LIKE pattern.
+         * @return the regular expression.
+         */
+        static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '%' || c == '_') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '%' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return regex.toString();
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            String[] values = batch.strings(column);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                String value = values[row];
+                selection[kept] = row;
+                kept += value != null && matcher.reset(value).matches() == matching ? 1 : 0;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the missing or the present values of a column.
+     */
+    static final class Missing extends Filter {
+        /**
+         * The index of the column.
+         */
+        private final int column;
+        /**
+         * Whether the column is numeric.
+         */
+        private final boolean numeric;
+        /**
+         * Whether the missing values are accepted, otherwise the present ones are.
+         */
+        private final boolean missing;
+
+        /**
+         * Creates the filter.
+         *
+         * @param column  the index of the column.
+         * @param numeric whether the column is numeric.
+         * @param missing whether the missing values are accepted, otherwise the present ones are.
+         */
+        Missing(int column, boolean numeric, boolean missing) {
+            this.column = column;
+            this.numeric = numeric;
+            this.missing = missing;
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            int kept = 0;
+            if (numeric) {
+                double[] values = batch.numbers(column);
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[kept] = row;
+                    kept += Double.isNaN(values[row]) == missing ? 1 : 0;
+                }
+            } else {
+                String[] values = batch.strings(column);
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[kept] = row;
+                    kept += (values[row] == null) == missing ? 1 : 0;
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the rows accepted by all of its filters, applied one after the other to the remaining rows.
+     */
+    static final class All extends Filter {
+        /**
+         * The filters.
+         */
+        private final Filter[] filters;
+
+        /**
+         * Creates the filter.
+         *
+         * @param filters the filters.
+         */
+        All(Filter[] filters) {
+            this.filters = filters.clone();
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            int kept = count;
+            for (int i = 0; i < filters.length && kept > 0; i++) {
+                kept = filters[i].filter(batch, selection, kept);
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Accepts the rows accepted by any of its filters. Every filter only sees the rows the previous ones rejected,
+     * and the accepted rows are merged back in ascending order.
+     */
+    static final class Any extends Filter {
+        /**
+         * The filters.
+         */
+        private final Filter[] filters;
+
+        /**
+         * Creates the filter.
+         *
+         * @param filters the filters.
+         */
+        Any(Filter[] filters) {
+            this.filters = filters.clone();
+        }
+
+        @Override
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            int[] rest = Arrays.copyOf(selection, count);
+            int restCount = count;
+            int[] accepted = new int[count];
+            int acceptedCount = 0;
+            int[] probe = new int[count];
+            int[] merged = new int[count];
+            for (int i = 0; i < filters.length && restCount > 0; i++) {
+                System.arraycopy(rest, 0, probe, 0, restCount);
+                int probeCount = filters[i].filter(batch, probe, restCount);
+                if (probeCount == 0) {
+                    continue;
+                }
+                int a = 0;
+                int p = 0;
+                int m = 0;
+                while (a < acceptedCount || p < probeCount) {
+                    if (p == probeCount || a < acceptedCount && accepted[a] < probe[p]) {
+                        merged[m++] = accepted[a++];
+                    } else {
+                        merged[m++] = probe[p++];
+                    }
+                }
+                int[] swap = accepted;
+                accepted = merged;
+                merged = swap;
+                acceptedCount = m;
+                int r = 0;
+                p = 0;
+                for (int j = 0; j < restCount; j++) {
+                    if (p < probeCount && probe[p] == rest[j]) {
+                        p++;
+                    } else {
+                        rest[r++] = rest[j];
+                    }
+                }
+                restCount = r;
+            }
+            System.arraycopy(accepted, 0, selection, 0, acceptedCount);
+            return acceptedCount;
+        }
+    }
+}
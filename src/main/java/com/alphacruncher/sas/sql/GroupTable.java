@@ -0,0 +1,886 @@
+package com.alphacruncher.sas.sql;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The partial aggregates of the groups of a GROUP BY query, in primitive arrays. A group is found by the hash of its
+ * key in an open-addressing table of group indexes with linear probing; the key columns are stored as longs, the
+ * bits of the numbers and the codes of the strings in a {@link StringDictionary} per column, and every aggregate
+ * keeps an array of counts, an array of sums or extremes, or a {@link LongHashSet} of distinct values per group.
+ * A batch is added column by column: the hashes and the groups of all its rows first, then one loop per aggregate.
+ * <p>
+ * The hash of a key depends on the values only, not on the codes of the strings, so tables of several workers or
+ * spilled to disk are merged by hash partition: the top {@link #PARTITION_BITS} bits of the hash, and the next bits
+ * at every level where a partition too large to be merged in memory is split again.
+ */
+final class GroupTable {
+
+    /**
+     * The kinds of aggregates.
+     */
+    enum Kind {
+        /**
+         * The number of rows, {@code COUNT(*)}.
+         */
+        ROWS,
+        /**
+         * The number of present values.
+         */
+        COUNT,
+        /**
+         * The sum of the present values.
+         */
+        SUM,
+        /**
+         * The mean of the present values.
+         */
+        MEAN,
+        /**
+         * The smallest present value.
+         */
+        MIN,
+        /**
+         * The largest present value.
+         */
+        MAX,
+        /**
+         * The number of distinct present values.
+         */
+        DISTINCT
+    }
+
+    /**
+     * The number of bits of the hash choosing the partition of a group.
+     */
+    static final int PARTITION_BITS = 4;
+
+    /**
+     * The number of partitions of the groups.
+     */
+    static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    /**
+     * The number of levels of partitions in the bits of a hash.
+     */
+    static final int LEVELS = Integer.SIZE / PARTITION_BITS;
+
+    /**
+     * The code of the missing strings.
+     */
+    private static final long NULL_CODE = -1;
+
+    /**
+     * The hash of the missing strings.
+     */
+    private static final int NULL_HASH = 0x5BD1E995;
+
+    /**
+     * The multiplier combining the hashes of the key columns.
+     */
+    private static final int HASH_MULTIPLIER = 0x01000193;
+
+    /**
+     * The initial number of groups the arrays hold.
+     */
+    private static final int INITIAL_GROUPS = 16;
+
+    /**
+     * The bytes of a set of distinct values besides its values.
+     */
+    private static final long DISTINCT_SET_BYTES = 48;
+
+    /**
+     * The bytes of a distinct value, with the free slots of its set.
+     */
+    private static final long DISTINCT_VALUE_BYTES = 16;
+
+    /**
+     * The indexes of the key columns.
+     */
+    private final int[] keyColumns;
+
+    /**
+     * Whether a key column is numeric.
+     */
+    private final boolean[] keyNumeric;
+
+    /**
+     * The kinds of the aggregates.
+     */
+    private final Kind[] kinds;
+
+    /**
+     * The indexes of the columns of the aggregates, -1 for {@link Kind#ROWS}.
+     */
+    private final int[] columns;
+
+    /**
+     * Whether the column of an aggregate is numeric.
+     */
+    private final boolean[] numeric;
+
+    /**
+     * The dictionaries of the string columns of the keys and of the distinct values, by column index.
+     */
+    private final StringDictionary[] dictionaries;
+
+    /**
+     * The counts of the aggregates by group, for {@link Kind#COUNT}, {@link Kind#SUM} and {@link Kind#MEAN}.
+     */
+    private final long[][] counts;
+
+    /**
+     * The sums or the extremes of the aggregates by group.
+     */
+    private final double[][] values;
+
+    /**
+     * The distinct values of the aggregates by group.
+     */
+    private final LongHashSet[][] distincts;
+
+    /**
+     * The key of a group of another table, translated to the codes of this table.
+     */
+    private final long[] translatedKey;
+
+    /**
+     * The number of groups.
+     */
+    private int groupCount;
+
+    /**
+     * The keys of the groups, {@code keyColumns.length} longs per group.
+     */
+    private long[] keys;
+
+    /**
+     * The hashes of the keys of the groups.
+     */
+    private int[] hashes;
+
+    /**
+     * The number of rows of the groups.
+     */
+    private long[] rows;
+
+    /**
+     * The indexes + 1 of the groups by slot, 0 for the free slots; the number of slots is a power of two.
+     */
+    private int[] slots = new int[INITIAL_GROUPS * 2];
+
+    /**
+     * The estimated number of bytes of the sets of distinct values.
+     */
+    private long distinctBytes;
+
+    /**
+     * The groups of the rows of the last batch.
+     */
+    private int[] rowGroups = new int[0];
+
+    /**
+     * The hashes of the keys of the rows of the last batch.
+     */
+    private int[] rowHashes = new int[0];
+
+    /**
+     * The keys of the rows of the last batch.
+     */
+    private long[] rowKeys = new long[0];
+
+    /**
+     * Creates an empty table.
+     *
+     * @param columnCount the number of columns of the file.
+     * @param keyColumns  the indexes of the key columns.
+     * @param keyNumeric  whether a key column is numeric.
+     * @param kinds       the kinds of the aggregates.
+     * @param columns     the indexes of the columns of the aggregates, -1 for {@link Kind#ROWS}.
+     * @param numeric     whether the column of an aggregate is numeric.
+     */
+    GroupTable(int columnCount, int[] keyColumns, boolean[] keyNumeric, Kind[] kinds, int[] columns,
+               boolean[] numeric) {
+        this.keyColumns = keyColumns.clone();
+        this.keyNumeric = keyNumeric.clone();
+        this.kinds = kinds.clone();
+        this.columns = columns.clone();
+        this.numeric = numeric.clone();
+        dictionaries = new StringDictionary[columnCount];
+        for (int c = 0; c < keyColumns.length; c++) {
+            if (!keyNumeric[c]) {
+                dictionaries[keyColumns[c]] = new StringDictionary();
+            }
+        }
+        counts = new long[kinds.length][];
+        values = new double[kinds.length][];
+        distincts = new LongHashSet[kinds.length][];
+        for (int a = 0; a < kinds.length; a++) {
+            if (kinds[a] == Kind.DISTINCT && !numeric[a] && dictionaries[columns[a]] == null) {
+                dictionaries[columns[a]] = new StringDictionary();
+            }
+        }
+        translatedKey = new long[keyColumns.length];
+        allocate(INITIAL_GROUPS);
+    }
+
+    /**
+     * Creates an empty table of the same groups and aggregates.
+     *
+     * @return the table.
+     */
+    GroupTable emptyCopy() {
+        return new GroupTable(dictionaries.length, keyColumns, keyNumeric, kinds, columns, numeric);
+    }
+
+    /**
+     * Adds the selected rows of a batch to their groups.
+     *
+     * @param batch     the rows.
+     * @param selection the indexes of the selected rows.
+     * @param count     the number of selected rows.
+     */
+    void add(ColumnBatch batch, int[] selection, int count) {
+        int width = keyColumns.length;
+        if (rowGroups.length < count) {
+            rowGroups = new int[count];
+            rowHashes = new int[count];
+            rowKeys = new long[count * width];
+        }
+        Arrays.fill(rowHashes, 0, count, 0);
+        for (int c = 0; c < width; c++) {
+            int column = keyColumns[c];
+            if (keyNumeric[c]) {
+                double[] numbers = batch.numbers(column);
+                for (int i = 0; i < count; i++) {
+                    long bits = bits(numbers[selection[i]]);
+                    rowKeys[i * width + c] = bits;
+                    rowHashes[i] = rowHashes[i] * HASH_MULTIPLIER + (int) (bits ^ (bits >>> 32));
+                }
+            } else {
+                String[] strings = batch.strings(column);
+                StringDictionary dictionary = dictionaries[column];
+                for (int i = 0; i < count; i++) {
+                    String value = strings[selection[i]];
+                    rowKeys[i * width + c] = value == null ? NULL_CODE : dictionary.code(value);
+                    rowHashes[i] = rowHashes[i] * HASH_MULTIPLIER + (value == null ? NULL_HASH : value.hashCode());
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            rowGroups[i] = find(finish(rowHashes[i]), rowKeys, i * width);
+        }
+        for (int i = 0; i < count; i++) {
+            rows[rowGroups[i]]++;
+        }
+        for (int a = 0; a < kinds.length; a++) {
+            if (kinds[a] == Kind.COUNT && !numeric[a]) {
+                countStrings(a, batch.strings(columns[a]), selection, count);
+            } else if (kinds[a] == Kind.DISTINCT && !numeric[a]) {
+                addDistinctStrings(a, batch.strings(columns[a]), selection, count);
+            } else if (kinds[a] != Kind.ROWS) {
+                accumulate(a, batch.numbers(columns[a]), selection, count);
+            }
+        }
+    }
+
+    /**
+     * Adds the values of a numeric column to an aggregate.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param numbers   the values of the column.
+     * @param selection the indexes of the selected rows.
+     * @param count     the number of selected rows.
+     */
+    private void accumulate(int aggregate, double[] numbers, int[] selection, int count) {
+        long[] present = counts[aggregate];
+        double[] result = values[aggregate];
+        switch (kinds[aggregate]) {
+            case COUNT:
+                for (int i = 0; i < count; i++) {
+                    double value = numbers[selection[i]];
+                    present[rowGroups[i]] += value == value ? 1 : 0;
+                }
+                break;
+            case SUM:
+            case MEAN:
+                for (int i = 0; i < count; i++) {
+                    double value = numbers[selection[i]];
+                    if (value == value) {
+                        result[rowGroups[i]] += value;
+                        present[rowGroups[i]]++;
+                    }
+                }
+                break;
+            case MIN:
+                for (int i = 0; i < count; i++) {
+                    double value = numbers[selection[i]];
+                    if (value == value && !(result[rowGroups[i]] <= value)) {
+                        result[rowGroups[i]] = value;
+                    }
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < count; i++) {
+                    double value = numbers[selection[i]];
+                    if (value == value && !(result[rowGroups[i]] >= value)) {
+                        result[rowGroups[i]] = value;
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    double value = numbers[selection[i]];
+                    if (value == value) {
+                        addDistinct(aggregate, rowGroups[i], bits(value));
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * Counts the present values of a string column.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param strings   the values of the column.
+     * @param selection the indexes of the selected rows.
+     * @param count     the number of selected rows.
+     */
+    private void countStrings(int aggregate, String[] strings, int[] selection, int count) {
+        long[] present = counts[aggregate];
+        for (int i = 0; i < count; i++) {
+            present[rowGroups[i]] += strings[selection[i]] != null ? 1 : 0;
+        }
+    }
+
+    /**
+     * Adds the values of a string column to the distinct values of the groups.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param strings   the values of the column.
+     * @param selection the indexes of the selected rows.
+     * @param count     the number of selected rows.
+     */
+    private void addDistinctStrings(int aggregate, String[] strings, int[] selection, int count) {
+        StringDictionary dictionary = dictionaries[columns[aggregate]];
+        for (int i = 0; i < count; i++) {
+            String value = strings[selection[i]];
+            if (value != null) {
+                addDistinct(aggregate, rowGroups[i], dictionary.code(value));
+            }
+        }
+    }
+
+    /**
+     * Adds a value to the distinct values of a group.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param group     the index of the group.
+     * @param value     the bits of the number or the code of the string.
+     */
+    private void addDistinct(int aggregate, int group, long value) {
+        LongHashSet set = distincts[aggregate][group];
+        if (set == null) {
+            set = new LongHashSet();
+            distincts[aggregate][group] = set;
+            distinctBytes += DISTINCT_SET_BYTES;
+        }
+        if (set.add(value)) {
+            distinctBytes += DISTINCT_VALUE_BYTES;
+        }
+    }
+
+    /**
+     * Adds the group of the empty key if it is missing: a query aggregating all the rows has one group even if no row
+     * is selected.
+     */
+    void addEmptyKey() {
+        find(finish(0), translatedKey, 0);
+    }
+
+    /**
+     * Merges the groups of another table of the same query into this one.
+     *
+     * @param other     the other table.
+     * @param partition the partition of the merged groups, or -1 for all of them.
+     * @param level     the level of the partition.
+     */
+    void mergeFrom(GroupTable other, int partition, int level) {
+        int width = keyColumns.length;
+        for (int group = 0; group < other.groupCount; group++) {
+            int hash = other.hashes[group];
+            if (partition >= 0 && partition(hash, level) != partition) {
+                continue;
+            }
+            for (int c = 0; c < width; c++) {
+                long key = other.keys[group * width + c];
+                if (!keyNumeric[c] && key != NULL_CODE) {
+                    key = translate(other, keyColumns[c], key);
+                }
+                translatedKey[c] = key;
+            }
+            int target = find(hash, translatedKey, 0);
+            rows[target] += other.rows[group];
+            for (int a = 0; a < kinds.length; a++) {
+                switch (kinds[a]) {
+                    case COUNT:
+                        counts[a][target] += other.counts[a][group];
+                        break;
+                    case SUM:
+                    case MEAN:
+                        counts[a][target] += other.counts[a][group];
+                        values[a][target] += other.values[a][group];
+                        break;
+                    case MIN:
+                    case MAX:
+                        mergeExtreme(a, target, other.values[a][group]);
+                        break;
+                    case DISTINCT:
+                        LongHashSet set = other.distincts[a][group];
+                        if (set != null) {
+                            for (long value : set.toArray()) {
+                                addDistinct(a, target, numeric[a] ? value : translate(other, columns[a], value));
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the extreme value of a group of another table.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param group     the index of the group.
+     * @param value     the extreme value of the other table, NaN if it has none.
+     */
+    private void mergeExtreme(int aggregate, int group, double value) {
+        double current = values[aggregate][group];
+        if (value == value && (current != current
+                || (kinds[aggregate] == Kind.MIN ? value < current : value > current))) {
+            values[aggregate][group] = value;
+        }
+    }
+
+    /**
+     * Translates the code of a string in another table to the code in this table.
+     *
+     * @param other  the other table.
+     * @param column the index of the column.
+     * @param code   the code in the other table.
+     * @return the code in this table.
+     */
+    private long translate(GroupTable other, int column, long code) {
+        return dictionaries[column].code(other.dictionaries[column].get((int) code));
+    }
+
+    /**
+     * Writes the groups of a partition, for {@link #read(DataInput)}.
+     *
+     * @param out       the output.
+     * @param partition the partition.
+     * @param level     the level of the partition.
+     * @return the number of groups written.
+     * @throws IOException if writing is impossible.
+     */
+    int write(DataOutput out, int partition, int level) throws IOException {
+        int width = keyColumns.length;
+        int written = 0;
+        for (int group = 0; group < groupCount; group++) {
+            if (partition(hashes[group], level) != partition) {
+                continue;
+            }
+            out.writeInt(hashes[group]);
+            for (int c = 0; c < width; c++) {
+                long key = keys[group * width + c];
+                if (keyNumeric[c]) {
+                    out.writeLong(key);
+                } else {
+                    writeString(out, key == NULL_CODE ? null : dictionaries[keyColumns[c]].get((int) key));
+                }
+            }
+            out.writeLong(rows[group]);
+            for (int a = 0; a < kinds.length; a++) {
+                switch (kinds[a]) {
+                    case COUNT:
+                        out.writeLong(counts[a][group]);
+                        break;
+                    case SUM:
+                    case MEAN:
+                        out.writeLong(counts[a][group]);
+                        out.writeDouble(values[a][group]);
+                        break;
+                    case MIN:
+                    case MAX:
+                        out.writeDouble(values[a][group]);
+                        break;
+                    case DISTINCT:
+                        long[] distinct = distincts[a][group] == null ? new long[0] : distincts[a][group].toArray();
+                        out.writeInt(distinct.length);
+                        for (long value : distinct) {
+                            if (numeric[a]) {
+                                out.writeLong(value);
+                            } else {
+                                writeString(out, dictionaries[columns[a]].get((int) value));
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Reads a group written by {@link #write(DataOutput, int, int)} and merges it into this table.
+     *
+     * @param in the input.
+     * @throws IOException if reading is impossible.
+     */
+    void read(DataInput in) throws IOException {
+        int hash = in.readInt();
+        for (int c = 0; c < keyColumns.length; c++) {
+            if (keyNumeric[c]) {
+                translatedKey[c] = in.readLong();
+            } else {
+                String value = readString(in);
+                translatedKey[c] = value == null ? NULL_CODE : dictionaries[keyColumns[c]].code(value);
+            }
+        }
+        int target = find(hash, translatedKey, 0);
+        rows[target] += in.readLong();
+        for (int a = 0; a < kinds.length; a++) {
+            switch (kinds[a]) {
+                case COUNT:
+                    counts[a][target] += in.readLong();
+                    break;
+                case SUM:
+                case MEAN:
+                    counts[a][target] += in.readLong();
+                    values[a][target] += in.readDouble();
+                    break;
+                case MIN:
+                case MAX:
+                    mergeExtreme(a, target, in.readDouble());
+                    break;
+                case DISTINCT:
+                    int distinct = in.readInt();
+                    for (int i = 0; i < distinct; i++) {
+                        addDistinct(a, target, numeric[a] ? in.readLong()
+                                : dictionaries[columns[a]].code(readString(in)));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * The function to get the number of groups.
+     *
+     * @return the number of groups.
+     */
+    int size() {
+        return groupCount;
+    }
+
+    /**
+     * The function to get the estimated number of bytes held by the table.
+     *
+     * @return the number of bytes.
+     */
+    long getBytes() {
+        long bytes = (8L * keyColumns.length + 4 + 8 + 16L * kinds.length) * hashes.length + 4L * slots.length
+                + distinctBytes;
+        for (StringDictionary dictionary : dictionaries) {
+            if (dictionary != null) {
+                bytes += dictionary.getBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The function to get a numeric key of a group.
+     *
+     * @param group the index of the group.
+     * @param key   the index of the key column.
+     * @return the value, NaN if it is missing.
+     */
+    double getNumberKey(int group, int key) {
+        return Double.longBitsToDouble(keys[group * keyColumns.length + key]);
+    }
+
+    /**
+     * The function to get a string key of a group.
+     *
+     * @param group the index of the group.
+     * @param key   the index of the key column.
+     * @return the value, null if it is missing.
+     */
+    String getStringKey(int group, int key) {
+        long code = keys[group * keyColumns.length + key];
+        return code == NULL_CODE ? null : dictionaries[keyColumns[key]].get((int) code);
+    }
+
+    /**
+     * The function to get the number of rows of a group.
+     *
+     * @param group the index of the group.
+     * @return the number of rows.
+     */
+    long getRows(int group) {
+        return rows[group];
+    }
+
+    /**
+     * The function to get the number of values of an aggregate of a group: the present values of
+     * {@link Kind#COUNT}, {@link Kind#SUM} and {@link Kind#MEAN}, and the distinct values of {@link Kind#DISTINCT}.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param group     the index of the group.
+     * @return the number of values.
+     */
+    long getCount(int aggregate, int group) {
+        if (kinds[aggregate] == Kind.DISTINCT) {
+            return distincts[aggregate][group] == null ? 0 : distincts[aggregate][group].size();
+        }
+        return counts[aggregate][group];
+    }
+
+    /**
+     * The function to get the sum or the extreme value of an aggregate of a group.
+     *
+     * @param aggregate the index of the aggregate.
+     * @param group     the index of the group.
+     * @return the value, NaN for the extreme of a group without values.
+     */
+    double getValue(int aggregate, int group) {
+        return values[aggregate][group];
+    }
+
+    /**
+     * The function to get the groups sorted by key, the missing values first.
+     *
+     * @return the indexes of the groups.
+     */
+    int[] getSortedGroups() {
+        Integer[] groups = new Integer[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            groups[group] = group;
+        }
+        Arrays.sort(groups, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                for (int c = 0; c < keyColumns.length; c++) {
+                    int result;
+                    if (keyNumeric[c]) {
+                        double a = getNumberKey(first, c);
+                        double b = getNumberKey(second, c);
+                        result = a != a || b != b ? Boolean.compare(b != b, a != a) : Double.compare(a, b);
+                    } else {
+                        String a = getStringKey(first, c);
+                        String b = getStringKey(second, c);
+                        result = a == null || b == null ? Boolean.compare(b == null, a == null) : a.compareTo(b);
+                    }
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            }
+        });
+        int[] result = new int[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            result[group] = groups[group];
+        }
+        return result;
+    }
+
+    /**
+     * The function to get the partition of a hash at a level: the {@link #PARTITION_BITS} bits of the hash after
+     * the ones of the previous levels, from the top.
+     *
+     * @param hash  the hash of a key.
+     * @param level the level, from 0 to {@link #LEVELS} - 1.
+     * @return the partition.
+     */
+    static int partition(int hash, int level) {
+        return (hash >>> (Integer.SIZE - PARTITION_BITS * (level + 1))) & (PARTITIONS - 1);
+    }
+
+    /**
+     * Finds the group of a key, adding it if it is new.
+     *
+     * @param hash   the hash of the key.
+     * @param key    the array holding the key.
+     * @param offset the offset of the key in the array.
+     * @return the index of the group.
+     */
+    private int find(int hash, long[] key, int offset) {
+        int width = keyColumns.length;
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int group = slots[slot] - 1;
+            if (hashes[group] == hash && sameKey(group * width, key, offset, width)) {
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (groupCount == hashes.length) {
+            allocate(groupCount * 2);
+        }
+        int group = groupCount;
+        groupCount++;
+        System.arraycopy(key, offset, keys, group * width, width);
+        hashes[group] = hash;
+        slots[slot] = group + 1;
+        if (groupCount * 2 > slots.length) {
+            rehash();
+        }
+        return group;
+    }
+
+    /**
+     * The function to compare the key of a group with a key.
+     *
+     * @param start  the offset of the key of the group in {@link #keys}.
+     * @param key    the array holding the key.
+     * @param offset the offset of the key in the array.
+     * @param width  the number of key columns.
+     * @return whether the keys are equal.
+     */
+    private boolean sameKey(int start, long[] key, int offset, int width) {
+        for (int c = 0; c < width; c++) {
+            if (keys[start + c] != key[offset + c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grows the arrays of the groups.
+     *
+     * @param capacity the number of groups the arrays hold.
+     */
+    private void allocate(int capacity) {
+        int previous = hashes == null ? 0 : hashes.length;
+        keys = keys == null ? new long[capacity * keyColumns.length] : Arrays.copyOf(keys, capacity
+                * keyColumns.length);
+        hashes = hashes == null ? new int[capacity] : Arrays.copyOf(hashes, capacity);
+        rows = rows == null ? new long[capacity] : Arrays.copyOf(rows, capacity);
+        for (int a = 0; a < kinds.length; a++) {
+            switch (kinds[a]) {
+                case SUM:
+                case MEAN:
+                    values[a] = values[a] == null ? new double[capacity] : Arrays.copyOf(values[a], capacity);
+                    counts[a] = counts[a] == null ? new long[capacity] : Arrays.copyOf(counts[a], capacity);
+                    break;
+                case COUNT:
+                    counts[a] = counts[a] == null ? new long[capacity] : Arrays.copyOf(counts[a], capacity);
+                    break;
+                case MIN:
+                case MAX:
+                    values[a] = values[a] == null ? new double[capacity] : Arrays.copyOf(values[a], capacity);
+                    Arrays.fill(values[a], previous, capacity, Double.NaN);
+                    break;
+                case DISTINCT:
+                    distincts[a] = distincts[a] == null ? new LongHashSet[capacity]
+                            : Arrays.copyOf(distincts[a], capacity);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Doubles the number of slots.
+     */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int group = 0; group < groupCount; group++) {
+            int slot = hashes[group] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = group + 1;
+        }
+    }
+
+    /**
+     * The function to get the key bits of a number, the same for 0 and -0 and for all the missing values.
+     *
+     * @param value the number.
+     * @return the bits.
+     */
+    private static long bits(double value) {
+        return Double.doubleToLongBits(value + 0.0);
+    }
+
+    /**
+     * Spreads the bits of the combined hashes of the key columns.
+     *
+     * @param hash the combined hash.
+     * @return the hash of the key.
+     */
+    private static int finish(int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Writes a string or null.
+     *
+     * @param out   the output.
+     * @param value the string, or null.
+     * @throws IOException if writing is impossible.
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in the input.
+     * @return the string, or null.
+     * @throws IOException if reading is impossible.
+     */
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,215 @@
+package com.alphacruncher.sas.sql;
+
+import static com.epam.parso.impl.SasFileConstants.START_DATES_DAYS_DIFFERENCE;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_SECONDS_DIFFERENCE;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import com.epam.parso.impl.DatabaseColumnType;
+
+/**
+ * A constant of a query: a number, a string, or a {@code DATE}, {@code TIMESTAMP} or {@code TIME} literal. The
+ * dates and times are kept in the units of the .sas7bdat files, days and seconds since 1960-01-01, and converted to
+ * the unit of the column they are compared with.
+ */
+final class Literal {
+
+    /**
+     * The kinds of literals.
+     */
+    enum Kind {
+        /**
+         * A number.
+         */
+        NUMBER,
+        /**
+         * A string in single quotes.
+         */
+        STRING,
+        /**
+         * A date, {@code DATE 'yyyy-mm-dd'}, in days.
+         */
+        DATE,
+        /**
+         * A date and time, {@code TIMESTAMP 'yyyy-mm-dd hh:mm:ss'}, in seconds.
+         */
+        TIMESTAMP,
+        /**
+         * A time of the day, {@code TIME 'hh:mm:ss'}, in seconds.
+         */
+        TIME
+    }
+
+    /**
+     * The number of seconds in a day.
+     */
+    private static final double SECONDS_IN_DAY = 86400;
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOSECONDS_IN_SECOND = 1e9;
+
+    /**
+     * The kind of the literal.
+     */
+    private final Kind kind;
+
+    /**
+     * The value of the numbers, dates and times.
+     */
+    private final double number;
+
+    /**
+     * The text of the literal as written in the query.
+     */
+    private final String text;
+
+    /**
+     * Creates a literal.
+     *
+     * @param kind   the kind of the literal.
+     * @param number the value of the numbers, dates and times.
+     * @param text   the text of the literal as written in the query.
+     */
+    private Literal(Kind kind, double number, String text) {
+        this.kind = kind;
+        this.number = number;
+        this.text = text;
+    }
+
+    /**
+     * Creates a number literal.
+     *
+     * @param text the digits of the number.
+     * @return the literal.
+     * @throws IllegalArgumentException if the text is not a number.
+     */
+    static Literal number(String text) {
+        try {
+            return new Literal(Kind.NUMBER, Double.parseDouble(text), text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + text, e);
+        }
+    }
+
+    /**
+     * Creates a string literal.
+     *
+     * @param text the string.
+     * @return the literal.
+     */
+    static Literal string(String text) {
+        return new Literal(Kind.STRING, Double.NaN, text);
+    }
+
+    /**
+     * Creates a date, timestamp or time literal.
+     *
+     * @param kind the kind of the literal, {@link Kind#DATE}, {@link Kind#TIMESTAMP} or {@link Kind#TIME}.
+     * @param text the ISO-8601 text of the date or time, the date and the time of a timestamp can be separated by
+     *             a space.
+     * @return the literal.
+     * @throws IllegalArgumentException if the text is not a valid date or time.
+     */
+    static Literal temporal(Kind kind, String text) {
+        String value = text.trim();
+        try {
+            switch (kind) {
+                case DATE:
+                    return new Literal(kind, LocalDate.parse(value).toEpochDay() + START_DATES_DAYS_DIFFERENCE, text);
+                case TIMESTAMP:
+                    LocalDateTime dateTime = LocalDateTime.parse(value.replace(' ', 'T'));
+                    return new Literal(kind, dateTime.toEpochSecond(ZoneOffset.UTC) + START_DATES_SECONDS_DIFFERENCE
+                            + dateTime.getNano() / NANOSECONDS_IN_SECOND, text);
+                case TIME:
+                    LocalTime time = LocalTime.parse(value);
+                    return new Literal(kind, time.toSecondOfDay() + time.getNano() / NANOSECONDS_IN_SECOND, text);
+                default:
+                    throw new IllegalArgumentException("Not a date or time literal: " + kind);
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + kind + " literal: '" + text + "'", e);
+        }
+    }
+
+    /**
+     * The function to get the kind of the literal.
+     *
+     * @return the kind of the literal.
+     */
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Converts the literal to the unit of a numeric column: days for the DATE columns, seconds for the DATETIME and
+     * TIME columns and the number itself for the other ones. A date compared with a DATETIME column is its
+     * midnight, and a timestamp compared with a DATE column is a fraction of a day.
+     *
+     * @param type   the type of the column.
+     * @param column the name of the column, for the error message.
+     * @return the value of the literal in the unit of the column.
+     * @throws IllegalArgumentException if the literal can not be compared with the column.
+     */
+    double toNumber(DatabaseColumnType type, String column) {
+        switch (kind) {
+            case NUMBER:
+                return number;
+            case DATE:
+                if (type == DatabaseColumnType.DATETIME) {
+                    return number * SECONDS_IN_DAY;
+                }
+                if (type != DatabaseColumnType.TIME) {
+                    return number;
+                }
+                break;
+            case TIMESTAMP:
+                if (type == DatabaseColumnType.DATE) {
+                    return number / SECONDS_IN_DAY;
+                }
+                if (type != DatabaseColumnType.TIME) {
+                    return number;
+                }
+                break;
+            case TIME:
+                if (type != DatabaseColumnType.DATE && type != DatabaseColumnType.DATETIME) {
+                    return number;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("The " + kind + " literal " + this + " can not be compared with the "
+                + type + " column " + column);
+    }
+
+    /**
+     * Returns the string of a string literal.
+     *
+     * @param column the name of the column compared with the literal, for the error message.
+     * @return the string.
+     * @throws IllegalArgumentException if the literal is not a string.
+     */
+    String toText(String column) {
+        if (kind != Kind.STRING) {
+            throw new IllegalArgumentException("The " + kind + " literal " + this
+                    + " can not be compared with the character column " + column);
+        }
+        return text;
+    }
+
+    /**
+     * Returns the literal as written in a query.
+     *
+     * @return the text of the literal.
+     */
+    @Override
+    public String toString() {
+        return kind == Kind.NUMBER ? text : kind == Kind.STRING ? "'" + text + "'" : kind + " '" + text + "'";
+    }
+}
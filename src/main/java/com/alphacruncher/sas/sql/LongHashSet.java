@@ -0,0 +1,132 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.Arrays;
+
+/**
+ * A set of longs in an open-addressing table with linear probing, without boxing. It holds the distinct values of
+ * a group: the bits of the numbers or the codes of the strings in a {@link StringDictionary}.
+ */
+final class LongHashSet {
+
+    /**
+     * The marker of the free slots, held apart when it is a value of the set.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    /**
+     * The initial number of slots.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The slots of the table, a power of two.
+     */
+    private long[] slots = newSlots(INITIAL_CAPACITY);
+
+    /**
+     * The number of values in the table.
+     */
+    private int size;
+
+    /**
+     * Whether {@link #FREE} is a value of the set.
+     */
+    private boolean containsFree;
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value.
+     * @return true if the value was not in the set.
+     */
+    boolean add(long value) {
+        if (value == FREE) {
+            boolean added = !containsFree;
+            containsFree = true;
+            return added;
+        }
+        int mask = slots.length - 1;
+        int slot = mix(value) & mask;
+        while (slots[slot] != FREE) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        size++;
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * The function to get the number of values of the set.
+     *
+     * @return the number of values.
+     */
+    int size() {
+        return size + (containsFree ? 1 : 0);
+    }
+
+    /**
+     * The function to get the values of the set.
+     *
+     * @return the values, in no particular order.
+     */
+    long[] toArray() {
+        long[] result = new long[size()];
+        int count = 0;
+        for (long value : slots) {
+            if (value != FREE) {
+                result[count++] = value;
+            }
+        }
+        if (containsFree) {
+            result[count] = FREE;
+        }
+        return result;
+    }
+
+    /**
+     * Doubles the number of slots.
+     */
+    private void grow() {
+        long[] old = slots;
+        slots = newSlots(old.length * 2);
+        int mask = slots.length - 1;
+        for (long value : old) {
+            if (value != FREE) {
+                int slot = mix(value) & mask;
+                while (slots[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * Creates free slots.
+     *
+     * @param capacity the number of slots.
+     * @return the slots.
+     */
+    private static long[] newSlots(int capacity) {
+        long[] result = new long[capacity];
+        Arrays.fill(result, FREE);
+        return result;
+    }
+
+    /**
+     * Spreads the bits of a value over the low bits of its hash.
+     *
+     * @param value the value.
+     * @return the hash.
+     */
+    static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
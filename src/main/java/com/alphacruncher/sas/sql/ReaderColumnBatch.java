@@ -0,0 +1,57 @@
+package com.alphacruncher.sas.sql;
+
+import java.io.IOException;
+
+import com.epam.parso.impl.RowBatch;
+import com.epam.parso.impl.SasFileReaderImpl;
+
+/**
+ * A {@link ColumnBatch} reading the rows of a reader as the bytes of a {@link RowBatch}: the columns asked for are
+ * decoded straight from the bytes into the arrays, and only the accepted rows are decoded into objects, with the
+ * projection of the reader.
+ */
+final class ReaderColumnBatch extends ColumnBatch {
+
+    /**
+     * The bytes of the rows of the batch.
+     */
+    private final RowBatch rows;
+
+    /**
+     * The index of the first page not to read, or {@link Long#MAX_VALUE} to read up to the last row.
+     */
+    private final long endPage;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param reader   the reader of the rows, with the projection of the query.
+     * @param capacity the maximum number of rows of the batch.
+     * @param endPage  the index of the first page not to read, or {@link Long#MAX_VALUE} to read up to the last row.
+     */
+    ReaderColumnBatch(SasFileReaderImpl reader, int capacity, long endPage) {
+        super(reader.getColumns().size(), capacity);
+        rows = new RowBatch(reader, capacity);
+        this.endPage = endPage;
+    }
+
+    @Override
+    protected int readRows(int count) throws IOException {
+        return rows.read(count, endPage);
+    }
+
+    @Override
+    protected void fillNumbers(int column, double[] values) {
+        rows.readNumbers(column, values);
+    }
+
+    @Override
+    protected void fillStrings(int column, String[] values) {
+        rows.readStrings(column, values);
+    }
+
+    @Override
+    Object[] getRow(int row) {
+        return rows.decodeRow(row);
+    }
+}
@@ -0,0 +1,28 @@
+package com.alphacruncher.sas.sql;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.epam.parso.Column;
+
+/**
+ * The destination of the rows of the result of a query.
+ */
+interface RowSink {
+
+    /**
+     * Starts the result.
+     *
+     * @param columns the columns of the result.
+     * @throws IOException if writing is impossible.
+     */
+    void start(List<Column> columns) throws IOException;
+
+    /**
+     * Accepts a row of the result. The array may be reused for the next row.
+     *
+     * @param row the values of the columns.
+     * @throws IOException if writing is impossible.
+     */
+    void accept(Object[] row) throws IOException;
+}
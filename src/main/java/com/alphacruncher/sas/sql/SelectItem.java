@@ -0,0 +1,88 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.Locale;
+
+/**
+ * An item of the SELECT clause: a column or an aggregate of a column, with an optional alias.
+ */
+final class SelectItem {
+
+    /**
+     * The aggregate, or null for a column.
+     */
+    private final GroupTable.Kind aggregate;
+
+    /**
+     * The name of the column, or null for {@code COUNT(*)}.
+     */
+    private final String column;
+
+    /**
+     * The alias, or null.
+     */
+    private final String alias;
+
+    /**
+     * Creates an item.
+     *
+     * @param aggregate the aggregate, or null for a column.
+     * @param column    the name of the column, or null for {@code COUNT(*)}.
+     * @param alias     the alias, or null.
+     */
+    SelectItem(GroupTable.Kind aggregate, String column, String alias) {
+        this.aggregate = aggregate;
+        this.column = column;
+        this.alias = alias;
+    }
+
+    /**
+     * The function to get the aggregate of the item.
+     *
+     * @return the aggregate, or null for a column.
+     */
+    GroupTable.Kind getAggregate() {
+        return aggregate;
+    }
+
+    /**
+     * The function to get the name of the column of the item.
+     *
+     * @return the name of the column, or null for {@code COUNT(*)}.
+     */
+    String getColumn() {
+        return column;
+    }
+
+    /**
+     * The function to get the alias of the item.
+     *
+     * @return the alias, or null.
+     */
+    String getAlias() {
+        return alias;
+    }
+
+    /**
+     * The function to get the name of the item in the result: the alias, the name of the column, or the aggregate
+     * and the name of its column such as {@code sum_x}, {@code count_distinct_x} and {@code count} for
+     * {@code COUNT(*)}.
+     *
+     * @return the name.
+     */
+    String getName() {
+        if (alias != null) {
+            return alias;
+        }
+        if (aggregate == null) {
+            return column;
+        }
+        switch (aggregate) {
+            case ROWS:
+                return "count";
+            case DISTINCT:
+                return "count_distinct_" + column;
+            default:
+                return aggregate.name().toLowerCase(Locale.ROOT) + "_" + column;
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package com.alphacruncher.sas.sql;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.epam.parso.CSVDataWriter;
+import com.epam.parso.Column;
+import com.epam.parso.SasFileProperties;
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.ColumnChunkCache;
+import com.epam.parso.impl.ColumnChunkSource;
+import com.epam.parso.impl.ColumnarSnapshot;
+import com.epam.parso.impl.DatabaseDialect;
+import com.epam.parso.impl.DialectAwareCSVDataWriterImpl;
+import com.epam.parso.impl.SasFileReaderImpl;
+
+/**
+ * Runs a {@link SqlQuery} over a .sas7bdat file and writes the result as CSV or returns it as a {@link SqlResult}.
+ * The rows are read in batches of undecoded bytes, the columns of the WHERE clause are decoded straight into
+ * primitive arrays, the filters run over these arrays and narrow a selection of row indexes, and only the selected
+ * columns of the accepted rows are decoded and written. The reading stops as soon as the LIMIT is reached; without a
+ * WHERE clause the last batch is cut to the rows still missing, so no row past the limit is read.
+ * <p>
+ * The queries with GROUP BY or aggregates split the pages of the file into ranges read by parallel threads, each
+ * aggregating its rows in its own hash table; the tables over the memory budget are spilled to temporary files, and
+ * all of them are merged at the end, one hash partition at a time, splitting again the partitions over the budget.
+ * See {@link Aggregator}.
+ * <p>
+ * With a {@link ColumnChunkCache}, the queries over the file of their FROM clause read the columns they use from the
+ * cache instead, in one thread, chunk after chunk, and only the chunks missing from the cache are read from the file,
+ * decoding only the used columns, up to the chunk where the LIMIT stops the query. With snapshots, they read the
+ * mapped chunks of the {@link ColumnarSnapshot} of the file the same way, without decoding any row.
+ */
+public final class SqlEngine {
+
+    /**
+     * The default number of rows of a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * The number of rows of a batch.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * The default number of bytes of groups held in memory by an aggregating query.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    /**
+     * The database dialect used to write NULL values, or null for plain CSV.
+     */
+    private DatabaseDialect dialect;
+
+    /**
+     * The number of threads of an aggregating query.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of bytes of groups held in memory by an aggregating query before spilling them.
+     */
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * The directory of the spill files, or null for the default temporary directory.
+     */
+    private Path tempDirectory;
+
+    /**
+     * The cache of the columns of the queried files, or null to read the files for every query.
+     */
+    private ColumnChunkCache columnCache;
+
+    /**
+     * True to read the queried files from their {@link ColumnarSnapshot}.
+     */
+    private boolean snapshots;
+
+    /**
+     * @return the number of rows of a batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the number of rows of a batch, at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size has to be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the database dialect, or null for plain CSV
+     */
+    public DatabaseDialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * @param dialect the database dialect to set, or null for plain CSV
+     */
+    public void setDialect(DatabaseDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * @return the number of threads of an aggregating query
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads the number of threads of an aggregating query, at least 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads has to be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @return the number of bytes of groups held in memory by an aggregating query
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @param memoryBudget the number of bytes of groups held in memory by an aggregating query before spilling them
+     *                     to temporary files, shared by its threads, at least 1
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("The memory budget has to be positive: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return the directory of the spill files, or null for the default temporary directory
+     */
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @param tempDirectory the directory of the spill files, or null for the default temporary directory
+     */
+    public void setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * @return the cache of the columns of the queried files, or null if the files are read for every query
+     */
+    public ColumnChunkCache getColumnCache() {
+        return columnCache;
+    }
+
+    /**
+     * @param columnCache the cache of the columns of the queried files, such as {@link ColumnChunkCache#getShared()},
+     *                    or null to read the files for every query. With a cache the queries over a file name read the
+     *                    columns they use from the cache, and only the missing chunks they reach from the file.
+     */
+    public void setColumnCache(ColumnChunkCache columnCache) {
+        this.columnCache = columnCache;
+    }
+
+    /**
+     * @return true if the queried files are read from their {@link ColumnarSnapshot}
+     */
+    public boolean isSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @param snapshots true to read the queries over a file name from the {@link ColumnarSnapshot} of the file,
+     *                  written next to it by the first query and again when the file changes, instead of the
+     *                  column cache or the file
+     */
+    public void setSnapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Parses a query, reads the file of its FROM clause and writes the result as CSV.
+     *
+     * @param sql    the text of the query.
+     * @param output the writer of the CSV, not closed.
+     * @return the number of rows written.
+     * @throws IOException              if reading the file or writing the result is impossible.
+     * @throws IllegalArgumentException if the query is invalid or does not match the columns of the file.
+     */
+    public long execute(String sql, Writer output) throws IOException {
+        return run(SqlQuery.parse(sql), csvSink(output));
+    }
+
+    /**
+     * Runs a query over the rows of a reader, its FROM clause is ignored, and writes the result as CSV. The reader
+     * decodes all the columns again when the query is done. An aggregating query reads the rows in one thread.
+     *
+     * @param query  the query.
+     * @param reader the reader of the file, positioned at the first row to query.
+     * @param output the writer of the CSV, not closed.
+     * @return the number of rows written.
+     * @throws IOException              if reading the file or writing the result is impossible.
+     * @throws IllegalArgumentException if the query does not match the columns of the file.
+     */
+    public long execute(SqlQuery query, SasFileReaderImpl reader, Writer output) throws IOException {
+        return run(query, reader, csvSink(output));
+    }
+
+    /**
+     * Parses a query, reads the file of its FROM clause and returns the result.
+     *
+     * @param sql the text of the query.
+     * @return the result.
+     * @throws IOException              if reading the file is impossible.
+     * @throws IllegalArgumentException if the query is invalid or does not match the columns of the file.
+     */
+    public SqlResult query(String sql) throws IOException {
+        ListSink sink = new ListSink();
+        run(SqlQuery.parse(sql), sink);
+        return sink.toResult();
+    }
+
+    /**
+     * Runs a query over the rows of a reader, its FROM clause is ignored, and returns the result. The reader decodes
+     * all the columns again when the query is done. An aggregating query reads the rows in one thread.
+     *
+     * @param query  the query.
+     * @param reader the reader of the file, positioned at the first row to query.
+     * @return the result.
+     * @throws IOException              if reading the file is impossible.
+     * @throws IllegalArgumentException if the query does not match the columns of the file.
+     */
+    public SqlResult query(SqlQuery query, SasFileReaderImpl reader) throws IOException {
+        ListSink sink = new ListSink();
+        run(query, reader, sink);
+        return sink.toResult();
+    }
+
+    /**
+     * Runs a query over the file of its FROM clause.
+     *
+     * @param query the query.
+     * @param sink  the destination of the result.
+     * @return the number of rows of the result.
+     * @throws IOException if reading the file or writing the result is impossible.
+     */
+    private long run(SqlQuery query, RowSink sink) throws IOException {
+        if (snapshots) {
+            ColumnarSnapshot snapshot = ColumnarSnapshot.open(Paths.get(query.getFrom()));
+            return runChunks(query, snapshot, snapshot.getColumns(), snapshot.getSasFileProperties(), sink);
+        }
+        if (columnCache != null) {
+            SasFileReaderImpl metadata;
+            try (InputStream is = new FileInputStream(query.getFrom())) {
+                metadata = SasFileReaderImpl.metadataReader(is);
+            }
+            return runChunks(query, columnCache.getSource(Paths.get(query.getFrom())), metadata.getColumns(),
+                    metadata.getSasFileProperties(), sink);
+        }
+        if (query.isAggregate()) {
+            return aggregate(query, sink);
+        }
+        try (InputStream is = new FileInputStream(query.getFrom())) {
+            return run(query, new SasFileReaderImpl(is), sink);
+        }
+    }
+
+    /**
+     * Runs a query over the rows of a reader.
+     *
+     * @param query  the query.
+     * @param reader the reader of the file, positioned at the first row to query.
+     * @param sink   the destination of the result.
+     * @return the number of rows of the result.
+     * @throws IOException if reading the file or writing the result is impossible.
+     */
+    private long run(SqlQuery query, SasFileReaderImpl reader, RowSink sink) throws IOException {
+        if (query.isAggregate()) {
+            Aggregator aggregator = new Aggregator(query, reader.getColumns());
+            sink.start(aggregator.getColumns());
+            if (query.getLimit() == 0) {
+                return 0;
+            }
+            reader.setProjection(aggregator.getUsedColumns());
+            try {
+                return aggregate(aggregator, new ReaderColumnBatch(reader, batchSize, Long.MAX_VALUE),
+                        query.getLimit(), sink);
+            } finally {
+                reader.setProjection((int[]) null);
+            }
+        }
+        ColumnBinder binder = new ColumnBinder(reader.getColumns());
+        Selection selection = new Selection(query, reader.getColumns(), binder);
+        sink.start(selection.columns);
+        if (query.getLimit() == 0) {
+            return 0;
+        }
+        reader.setProjection(binder.getUsedColumns());
+        try {
+            return writeRows(new ReaderColumnBatch(reader, batchSize, Long.MAX_VALUE), selection.filter,
+                    query.getLimit(), selection.indexes, sink);
+        } finally {
+            reader.setProjection((int[]) null);
+        }
+    }
+
+    /**
+     * Runs a query over the chunks of the columns of the file of its FROM clause.
+     *
+     * @param query      the query.
+     * @param source     the chunks of the file, from the column cache or the snapshot.
+     * @param columns    the columns of the file.
+     * @param properties the metadata of the file.
+     * @param sink       the destination of the result.
+     * @return the number of rows of the result.
+     * @throws IOException if reading the file or writing the result is impossible.
+     */
+    private long runChunks(SqlQuery query, ColumnChunkSource source, List<Column> columns,
+                           SasFileProperties properties, RowSink sink) throws IOException {
+        String encoding = properties.getEncoding();
+        long rowCount = properties.getRowCount();
+        if (query.isAggregate()) {
+            Aggregator aggregator = new Aggregator(query, columns);
+            sink.start(aggregator.getColumns());
+            if (query.getLimit() == 0) {
+                return 0;
+            }
+            return aggregate(aggregator, new ChunkColumnBatch(source, columns, encoding, aggregator.getUsedColumns(),
+                    rowCount, batchSize), query.getLimit(), sink);
+        }
+        ColumnBinder binder = new ColumnBinder(columns);
+        Selection selection = new Selection(query, columns, binder);
+        sink.start(selection.columns);
+        if (query.getLimit() == 0) {
+            return 0;
+        }
+        return writeRows(new ChunkColumnBatch(source, columns, encoding, binder.getUsedColumns(), rowCount,
+                batchSize), selection.filter, query.getLimit(), selection.indexes, sink);
+    }
+
+    /**
+     * Runs an aggregating query over the batches of one source.
+     *
+     * @param aggregator the aggregator of the query.
+     * @param batch      the batch reading the rows.
+     * @param limit      the maximum number of groups, or {@link SqlQuery#NO_LIMIT}.
+     * @param sink       the destination of the result, started.
+     * @return the number of rows of the result.
+     * @throws IOException if reading the file, spilling the groups or writing the result is impossible.
+     */
+    private long aggregate(Aggregator aggregator, ColumnBatch batch, long limit, RowSink sink) throws IOException {
+        List<Aggregator.Partial> partials = new ArrayList<>();
+        try {
+            partials.add(aggregator.aggregate(batch, memoryBudget, tempDirectory));
+            return aggregator.emit(partials, limit, sink, memoryBudget, tempDirectory);
+        } finally {
+            delete(partials);
+        }
+    }
+
+    /**
+     * Runs an aggregating query over ranges of pages of the file of its FROM clause read by parallel threads.
+     *
+     * @param query the query.
+     * @param sink  the destination of the result.
+     * @return the number of rows of the result.
+     * @throws IOException if reading the file, spilling the groups or writing the result is impossible.
+     */
+    private long aggregate(final SqlQuery query, RowSink sink) throws IOException {
+        SasFileReaderImpl metadata;
+        try (InputStream is = new FileInputStream(query.getFrom())) {
+            metadata = SasFileReaderImpl.metadataReader(is);
+        }
+        final Aggregator aggregator = new Aggregator(query, metadata.getColumns());
+        sink.start(aggregator.getColumns());
+        if (query.getLimit() == 0) {
+            return 0;
+        }
+        long pageCount = metadata.getSasFileProperties().getPageCount();
+        int ranges = (int) Math.max(1, Math.min(threads, pageCount));
+        final long budget = Math.max(1, memoryBudget / ranges);
+        List<Aggregator.Partial> partials = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(ranges);
+        try {
+            List<Future<Aggregator.Partial>> futures = new ArrayList<>(ranges);
+            for (int range = 0; range < ranges; range++) {
+                final long start = pageCount * range / ranges;
+                final long end = range == ranges - 1 ? Long.MAX_VALUE : pageCount * (range + 1) / ranges;
+                futures.add(executor.submit(new Callable<Aggregator.Partial>() {
+                    @Override
+                    public Aggregator.Partial call() throws IOException {
+                        try (InputStream is = new FileInputStream(query.getFrom())) {
+                            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                            reader.setProjection(aggregator.getUsedColumns());
+                            reader.seekToPage(start);
+                            return aggregator.aggregate(new ReaderColumnBatch(reader, batchSize, end), budget,
+                                    tempDirectory);
+                        }
+                    }
+                }));
+            }
+            IOException failure = null;
+            for (Future<Aggregator.Partial> future : futures) {
+                try {
+                    partials.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new IOException("Interrupted while aggregating " + query.getFrom(), e);
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                : new IOException("Can not aggregate " + query.getFrom(), e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return aggregator.emit(partials, query.getLimit(), sink, memoryBudget, tempDirectory);
+        } finally {
+            executor.shutdownNow();
+            delete(partials);
+        }
+    }
+
+    /**
+     * Deletes the spill files of the workers of an aggregating query.
+     *
+     * @param partials the groups of the workers.
+     * @throws IOException if deleting is impossible.
+     */
+    private static void delete(List<Aggregator.Partial> partials) throws IOException {
+        for (Aggregator.Partial partial : partials) {
+            Aggregator.delete(partial);
+        }
+    }
+
+    /**
+     * Reads the rows in batches, filters them and passes the selected columns of the accepted ones to a sink.
+     *
+     * @param batch    the batch reading the rows.
+     * @param filter   the filter of the WHERE clause, or null.
+     * @param limit    the maximum number of rows to write, or {@link SqlQuery#NO_LIMIT}.
+     * @param selected the indexes of the selected columns.
+     * @param sink     the destination of the rows.
+     * @return the number of rows written.
+     * @throws IOException if reading the file or writing the result is impossible.
+     */
+    private long writeRows(ColumnBatch batch, Filter filter, long limit, int[] selected, RowSink sink)
+            throws IOException {
+        int batchSize = batch.capacity();
+        int[] selection = new int[batchSize];
+        Object[] result = new Object[selected.length];
+        long written = 0;
+        boolean end = false;
+        while (!end && written != limit) {
+            int wanted = filter == null && limit != SqlQuery.NO_LIMIT
+                    ? (int) Math.min(batchSize, limit - written) : batchSize;
+            int size = batch.read(wanted);
+            end = size < wanted;
+            for (int i = 0; i < size; i++) {
+                selection[i] = i;
+            }
+            int count = filter == null ? size : filter.filter(batch, selection, size);
+            for (int i = 0; i < count && written != limit; i++) {
+                Object[] row = batch.getRow(selection[i]);
+                for (int j = 0; j < selected.length; j++) {
+                    result[j] = row[selected[j]];
+                }
+                sink.accept(result);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Creates the sink writing the result as CSV.
+     *
+     * @param output the writer of the CSV, not closed.
+     * @return the sink.
+     */
+    private RowSink csvSink(Writer output) {
+        final CSVDataWriter csvDataWriter = dialect == null ? new CSVDataWriterImpl(output)
+                : new DialectAwareCSVDataWriterImpl(output, dialect);
+        return new RowSink() {
+            /**
+             * The columns of the result.
+             */
+            private List<Column> columns;
+
+            @Override
+            public void start(List<Column> resultColumns) throws IOException {
+                columns = resultColumns;
+                csvDataWriter.writeColumnNames(resultColumns);
+            }
+
+            @Override
+            public void accept(Object[] row) throws IOException {
+                csvDataWriter.writeRow(columns, row);
+            }
+        };
+    }
+
+    /**
+     * The columns selected by a query without aggregates and the filter of its WHERE clause.
+     */
+    private static final class Selection {
+        /**
+         * The columns of the result.
+         */
+        private final List<Column> columns = new ArrayList<>();
+
+        /**
+         * The indexes of the selected columns in the file.
+         */
+        private final int[] indexes;
+
+        /**
+         * The filter of the WHERE clause, or null.
+         */
+        private final Filter filter;
+
+        /**
+         * Resolves the columns of a query, all the columns of the file without a select list.
+         *
+         * @param query       the query.
+         * @param fileColumns the columns of the file.
+         * @param binder      the binder of the columns of the file, which records the used columns.
+         */
+        Selection(SqlQuery query, List<Column> fileColumns, ColumnBinder binder) {
+            if (query.getItems().isEmpty()) {
+                indexes = new int[fileColumns.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = binder.resolve(fileColumns.get(i).getName());
+                    columns.add(fileColumns.get(i));
+                }
+            } else {
+                indexes = new int[query.getItems().size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    SelectItem item = query.getItems().get(i);
+                    indexes[i] = binder.resolve(item.getColumn());
+                    columns.add(Aggregator.rename(binder.getColumn(indexes[i]), item.getAlias()));
+                }
+            }
+            filter = query.getWhere() == null ? null : query.getWhere().bind(binder, false);
+        }
+    }
+
+    /**
+     * The sink holding the result in memory.
+     */
+    private static final class ListSink implements RowSink {
+        /**
+         * The columns of the result.
+         */
+        private List<Column> columns;
+
+        /**
+         * The rows of the result.
+         */
+        private final List<Object[]> rows = new ArrayList<>();
+
+        @Override
+        public void start(List<Column> resultColumns) {
+            columns = resultColumns;
+        }
+
+        @Override
+        public void accept(Object[] row) {
+            rows.add(row.clone());
+        }
+
+        /**
+         * The function to get the result.
+         *
+         * @return the result.
+         */
+        SqlResult toResult() {
+            return new SqlResult(columns, rows);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A recursive descent parser of {@link SqlQuery}. The text is split into tokens first: words, numbers, strings in
+ * single quotes, names in double quotes and symbols. A doubled quote stands for itself inside quotes. The keywords
+ * are words in any case, and DATE, TIMESTAMP and TIME are literals only when a string follows them, so they can be
+ * the names of columns too.
+ */
+final class SqlParser {
+
+    /**
+     * The kinds of tokens.
+     */
+    private enum TokenType {
+        /**
+         * A keyword, a name or a path without quotes.
+         */
+        WORD,
+        /**
+         * A number.
+         */
+        NUMBER,
+        /**
+         * A string in single quotes.
+         */
+        STRING,
+        /**
+         * A name in double quotes.
+         */
+        QUOTED_NAME,
+        /**
+         * An operator, a parenthesis, a comma, a star or a semicolon.
+         */
+        SYMBOL,
+        /**
+         * The end of the text.
+         */
+        END
+    }
+
+    /**
+     * A token of the text.
+     */
+    private static final class Token {
+        /**
+         * The kind of the token.
+         */
+        private final TokenType type;
+        /**
+         * The text of the token, without the quotes.
+         */
+        private final String text;
+        /**
+         * The position of the token in the text.
+         */
+        private final int position;
+
+        /**
+         * Creates a token.
+         *
+         * @param type     the kind of the token.
+         * @param text     the text of the token, without the quotes.
+         * @param position the position of the token in the text.
+         */
+        Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+    }
+
+    /**
+     * The characters of the symbols.
+     */
+    private static final String SYMBOL_CHARACTERS = "=<>!(),*;";
+
+    /**
+     * The text of the query.
+     */
+    private final String sql;
+
+    /**
+     * The tokens of the text.
+     */
+    private final List<Token> tokens = new ArrayList<>();
+
+    /**
+     * The index of the next token.
+     */
+    private int next;
+
+    /**
+     * Creates a parser and splits the text into tokens.
+     *
+     * @param sql the text of the query.
+     * @throws IllegalArgumentException if a quote is not closed.
+     */
+    SqlParser(String sql) {
+        this.sql = sql;
+        tokenize();
+    }
+
+    /**
+     * Parses the query.
+     *
+     * @return the query.
+     * @throws IllegalArgumentException if the text is not a valid query.
+     */
+    SqlQuery parseQuery() {
+        expectKeyword("SELECT");
+        List<SelectItem> items = new ArrayList<>();
+        if (!acceptSymbol("*")) {
+            do {
+                items.add(parseSelectItem());
+            } while (acceptSymbol(","));
+        }
+        expectKeyword("FROM");
+        Token from = advance();
+        if (from.type != TokenType.STRING && from.type != TokenType.QUOTED_NAME && from.type != TokenType.WORD) {
+            throw error(from, "the path of a file");
+        }
+        Condition where = acceptKeyword("WHERE") ? parseOr() : null;
+        List<String> groupBy = new ArrayList<>();
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY");
+            do {
+                groupBy.add(parseName());
+            } while (acceptSymbol(","));
+        }
+        long limit = SqlQuery.NO_LIMIT;
+        if (acceptKeyword("LIMIT")) {
+            Token count = advance();
+            try {
+                limit = count.type == TokenType.NUMBER ? Long.parseLong(count.text) : -1;
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 0) {
+                throw error(count, "a number of rows");
+            }
+        }
+        acceptSymbol(";");
+        if (peek().type != TokenType.END) {
+            throw error(peek(), "the end of the query");
+        }
+        SqlQuery query = new SqlQuery(items, from.text, where, groupBy, limit);
+        if (query.isAggregate()) {
+            checkGrouping(items, groupBy);
+        }
+        return query;
+    }
+
+    /**
+     * Parses an item of the SELECT clause: a column or an aggregate, with an optional alias.
+     *
+     * @return the item.
+     */
+    private SelectItem parseSelectItem() {
+        GroupTable.Kind aggregate = null;
+        String column = null;
+        Token following = peek().type == TokenType.END ? peek() : tokens.get(next + 1);
+        if (following.type == TokenType.SYMBOL && following.text.equals("(")) {
+            Token function = advance();
+            aggregate = aggregateKind(function);
+            if (aggregate == null) {
+                throw error(function, "COUNT, SUM, AVG, MEAN, MIN or MAX");
+            }
+            expectSymbol("(");
+            if (aggregate == GroupTable.Kind.COUNT && acceptSymbol("*")) {
+                aggregate = GroupTable.Kind.ROWS;
+            } else {
+                if (aggregate == GroupTable.Kind.COUNT && acceptKeyword("DISTINCT")) {
+                    aggregate = GroupTable.Kind.DISTINCT;
+                }
+                column = parseName();
+            }
+            expectSymbol(")");
+        } else {
+            column = parseName();
+        }
+        return new SelectItem(aggregate, column, acceptKeyword("AS") ? parseName() : null);
+    }
+
+    /**
+     * The function to get the aggregate a word names.
+     *
+     * @param token the token.
+     * @return the aggregate, or null if the token does not name one.
+     */
+    private static GroupTable.Kind aggregateKind(Token token) {
+        if (token.type != TokenType.WORD) {
+            return null;
+        }
+        switch (token.text.toUpperCase(Locale.ROOT)) {
+            case "COUNT":
+                return GroupTable.Kind.COUNT;
+            case "SUM":
+                return GroupTable.Kind.SUM;
+            case "AVG":
+            case "MEAN":
+                return GroupTable.Kind.MEAN;
+            case "MIN":
+                return GroupTable.Kind.MIN;
+            case "MAX":
+                return GroupTable.Kind.MAX;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Checks that the columns selected by an aggregating query are in its GROUP BY clause.
+     *
+     * @param items   the items of the SELECT clause.
+     * @param groupBy the names of the columns of the GROUP BY clause.
+     * @throws IllegalArgumentException if the query selects {@code *} or a column not in GROUP BY.
+     */
+    private static void checkGrouping(List<SelectItem> items, List<String> groupBy) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("A query with GROUP BY can not select *");
+        }
+        for (SelectItem item : items) {
+            if (item.getAggregate() != null) {
+                continue;
+            }
+            boolean grouped = false;
+            for (String name : groupBy) {
+                grouped |= name.equalsIgnoreCase(item.getColumn());
+            }
+            if (!grouped) {
+                throw new IllegalArgumentException("The column " + item.getColumn()
+                        + " has to be in GROUP BY or in an aggregate");
+            }
+        }
+    }
+
+    /**
+     * Parses the conditions joined by OR.
+     *
+     * @return the condition.
+     */
+    private Condition parseOr() {
+        List<Condition> conditions = new ArrayList<>();
+        do {
+            conditions.add(parseAnd());
+        } while (acceptKeyword("OR"));
+        return conditions.size() == 1 ? conditions.get(0) : new Condition.Junction(false, conditions);
+    }
+
+    /**
+     * Parses the conditions joined by AND.
+     *
+     * @return the condition.
+     */
+    private Condition parseAnd() {
+        List<Condition> conditions = new ArrayList<>();
+        do {
+            conditions.add(parseNot());
+        } while (acceptKeyword("AND"));
+        return conditions.size() == 1 ? conditions.get(0) : new Condition.Junction(true, conditions);
+    }
+
+    /**
+     * Parses a condition preceded by any number of NOTs.
+     *
+     * @return the condition.
+     */
+    private Condition parseNot() {
+        if (acceptKeyword("NOT")) {
+            return new Condition.Not(parseNot());
+        }
+        if (acceptSymbol("(")) {
+            Condition condition = parseOr();
+            expectSymbol(")");
+            return condition;
+        }
+        return parsePredicate();
+    }
+
+    /**
+     * Parses a comparison, BETWEEN, IN, LIKE or IS NULL condition on a column.
+     *
+     * @return the condition.
+     */
+    private Condition parsePredicate() {
+        if (isLiteral()) {
+            Literal literal = parseLiteral();
+            Token symbol = advance();
+            Condition.Operator operator = symbol.type == TokenType.SYMBOL ? Condition.Operator.of(symbol.text) : null;
+            if (operator == null) {
+                throw error(symbol, "a comparison operator");
+            }
+            return new Condition.Comparison(parseName(), operator.swap(), literal);
+        }
+        String column = parseName();
+        if (acceptKeyword("IS")) {
+            boolean not = acceptKeyword("NOT");
+            expectKeyword("NULL");
+            return new Condition.IsNull(column, not);
+        }
+        boolean not = acceptKeyword("NOT");
+        if (acceptKeyword("BETWEEN")) {
+            Literal low = parseLiteral();
+            expectKeyword("AND");
+            return new Condition.Between(column, low, parseLiteral(), not);
+        }
+        if (acceptKeyword("IN")) {
+            expectSymbol("(");
+            List<Literal> literals = new ArrayList<>();
+            do {
+                literals.add(parseLiteral());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return new Condition.In(column, literals, not);
+        }
+        if (acceptKeyword("LIKE")) {
+            Token pattern = advance();
+            if (pattern.type != TokenType.STRING) {
+                throw error(pattern, "a pattern in single quotes");
+            }
+            return new Condition.Like(column, pattern.text, not);
+        }
+        if (not) {
+            throw error(peek(), "BETWEEN, IN or LIKE");
+        }
+        Token symbol = advance();
+        Condition.Operator operator = symbol.type == TokenType.SYMBOL ? Condition.Operator.of(symbol.text) : null;
+        if (operator == null) {
+            throw error(symbol, "a comparison operator");
+        }
+        if (isKeyword(peek(), "NULL")) {
+            throw error(peek(), "a literal, use IS NULL to find the missing values");
+        }
+        return new Condition.Comparison(column, operator, parseLiteral());
+    }
+
+    /**
+     * The function to check whether the next token starts a literal.
+     *
+     * @return whether a literal follows.
+     */
+    private boolean isLiteral() {
+        Token token = peek();
+        return token.type == TokenType.NUMBER || token.type == TokenType.STRING || temporalKind(token) != null
+                && tokens.get(next + 1).type == TokenType.STRING;
+    }
+
+    /**
+     * Parses a literal.
+     *
+     * @return the literal.
+     */
+    private Literal parseLiteral() {
+        if (!isLiteral()) {
+            throw error(peek(), "a literal");
+        }
+        Token token = advance();
+        if (token.type == TokenType.NUMBER) {
+            return Literal.number(token.text);
+        }
+        if (token.type == TokenType.STRING) {
+            return Literal.string(token.text);
+        }
+        return Literal.temporal(temporalKind(token), advance().text);
+    }
+
+    /**
+     * The function to get the kind of literal a word introduces.
+     *
+     * @param token the token.
+     * @return DATE, TIMESTAMP or TIME, or null if the token is not one of these words.
+     */
+    private static Literal.Kind temporalKind(Token token) {
+        if (token.type != TokenType.WORD) {
+            return null;
+        }
+        switch (token.text.toUpperCase(Locale.ROOT)) {
+            case "DATE":
+                return Literal.Kind.DATE;
+            case "TIMESTAMP":
+                return Literal.Kind.TIMESTAMP;
+            case "TIME":
+                return Literal.Kind.TIME;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses the name of a column.
+     *
+     * @return the name.
+     */
+    private String parseName() {
+        Token token = advance();
+        if (token.type != TokenType.WORD && token.type != TokenType.QUOTED_NAME) {
+            throw error(token, "the name of a column");
+        }
+        return token.text;
+    }
+
+    /**
+     * The function to get the next token without consuming it.
+     *
+     * @return the next token.
+     */
+    private Token peek() {
+        return tokens.get(next);
+    }
+
+    /**
+     * Consumes the next token, the end of the text is never consumed.
+     *
+     * @return the token.
+     */
+    private Token advance() {
+        Token token = tokens.get(next);
+        if (token.type != TokenType.END) {
+            next++;
+        }
+        return token;
+    }
+
+    /**
+     * The function to check whether a token is a keyword.
+     *
+     * @param token   the token.
+     * @param keyword the keyword in upper case.
+     * @return whether the token is the keyword.
+     */
+    private static boolean isKeyword(Token token, String keyword) {
+        return token.type == TokenType.WORD && token.text.equalsIgnoreCase(keyword);
+    }
+
+    /**
+     * Consumes the next token if it is a keyword.
+     *
+     * @param keyword the keyword in upper case.
+     * @return whether the token was the keyword.
+     */
+    private boolean acceptKeyword(String keyword) {
+        if (isKeyword(peek(), keyword)) {
+            next++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the next token, which has to be a keyword.
+     *
+     * @param keyword the keyword in upper case.
+     */
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error(peek(), keyword);
+        }
+    }
+
+    /**
+     * Consumes the next token if it is a symbol.
+     *
+     * @param symbol the symbol.
+     * @return whether the token was the symbol.
+     */
+    private boolean acceptSymbol(String symbol) {
+        Token token = peek();
+        if (token.type == TokenType.SYMBOL && token.text.equals(symbol)) {
+            next++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the next token, which has to be a symbol.
+     *
+     * @param symbol the symbol.
+     */
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error(peek(), "'" + symbol + "'");
+        }
+    }
+
+    /**
+     * Creates the exception of an unexpected token.
+     *
+     * @param token    the unexpected token.
+     * @param expected what was expected instead.
+     * @return the exception.
+     */
+    private IllegalArgumentException error(Token token, String expected) {
+        String found = token.type == TokenType.END ? "the end of the query" : "'" + token.text + "'";
+        return new IllegalArgumentException("Expected " + expected + " at position " + token.position
+                + " of the query, found " + found);
+    }
+
+    /**
+     * Splits the text into tokens, ending with an {@link TokenType#END} token.
+     */
+    private void tokenize() {
+        int position = 0;
+        while (position < sql.length()) {
+            char c = sql.charAt(position);
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (c == '\'' || c == '"') {
+                StringBuilder text = new StringBuilder();
+                int end = position + 1;
+                while (true) {
+                    if (end == sql.length()) {
+                        throw new IllegalArgumentException("Unclosed quote at position " + position + " of the query");
+                    }
+                    if (sql.charAt(end) == c) {
+                        if (end + 1 < sql.length() && sql.charAt(end + 1) == c) {
+                            end++;
+                        } else {
+                            break;
+                        }
+                    }
+                    text.append(sql.charAt(end));
+                    end++;
+                }
+                tokens.add(new Token(c == '\'' ? TokenType.STRING : TokenType.QUOTED_NAME, text.toString(), position));
+                position = end + 1;
+            } else if (SYMBOL_CHARACTERS.indexOf(c) >= 0) {
+                int end = position + 1;
+                if (end < sql.length() && (c == '<' || c == '>' || c == '!')
+                        && (sql.charAt(end) == '=' || c == '<' && sql.charAt(end) == '>')) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.SYMBOL, sql.substring(position, end), position));
+                position = end;
+            } else {
+                int end = position;
+                while (end < sql.length() && !Character.isWhitespace(sql.charAt(end))
+                        && SYMBOL_CHARACTERS.indexOf(sql.charAt(end)) < 0 && sql.charAt(end) != '\''
+                        && sql.charAt(end) != '"') {
+                    end++;
+                }
+                String word = sql.substring(position, end);
+                tokens.add(new Token(isNumber(word) ? TokenType.NUMBER : TokenType.WORD, word, position));
+                position = end;
+            }
+        }
+        tokens.add(new Token(TokenType.END, "", sql.length()));
+    }
+
+    /**
+     * The function to check whether a word is a number.
+     *
+     * @param word the word.
+     * @return whether the word is a decimal number, with an optional sign, fraction and exponent.
+     */
+    private static boolean isNumber(String word) {
+        return word.matches("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+    }
+}
@@ -0,0 +1,152 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A query over a .sas7bdat file: {@code SELECT columns FROM 'file.sas7bdat' WHERE condition GROUP BY columns
+ * LIMIT n}. The columns are {@code *} or a list of names, in double quotes if they are not plain identifiers, and are
+ * looked up ignoring case; a selected column may be renamed by {@code AS alias}. The aggregates {@code COUNT(*)},
+ * {@code COUNT([DISTINCT] column)}, {@code SUM}, {@code AVG} or {@code MEAN}, {@code MIN} and {@code MAX} can be
+ * selected too, of all the rows or of the groups of GROUP BY; the other selected columns have to be in GROUP BY.
+ * The condition joins comparisons of a column with a literal by AND, OR, NOT and parentheses: {@code =},
+ * {@code <>}, {@code !=}, {@code <}, {@code <=}, {@code >}, {@code >=}, {@code [NOT] BETWEEN}, {@code [NOT] IN},
+ * {@code [NOT] LIKE} and {@code IS [NOT] NULL}. The literals are numbers, strings in single quotes, and
+ * {@code DATE 'yyyy-mm-dd'}, {@code TIMESTAMP 'yyyy-mm-dd hh:mm:ss'} and {@code TIME 'hh:mm:ss'}.
+ */
+public final class SqlQuery {
+
+    /**
+     * The limit of the queries without a LIMIT clause.
+     */
+    public static final long NO_LIMIT = -1;
+
+    /**
+     * The items of the SELECT clause, empty for {@code *}.
+     */
+    private final List<SelectItem> items;
+
+    /**
+     * The names of the selected columns, without the aggregates, empty for {@code *}.
+     */
+    private final List<String> columns;
+
+    /**
+     * The path of the file.
+     */
+    private final String from;
+
+    /**
+     * The condition of the WHERE clause, or null.
+     */
+    private final Condition where;
+
+    /**
+     * The names of the columns of the GROUP BY clause.
+     */
+    private final List<String> groupBy;
+
+    /**
+     * The maximum number of rows, or {@link #NO_LIMIT}.
+     */
+    private final long limit;
+
+    /**
+     * Creates a query.
+     *
+     * @param items   the items of the SELECT clause, empty for {@code *}.
+     * @param from    the path of the file.
+     * @param where   the condition of the WHERE clause, or null.
+     * @param groupBy the names of the columns of the GROUP BY clause.
+     * @param limit   the maximum number of rows, or {@link #NO_LIMIT}.
+     */
+    SqlQuery(List<SelectItem> items, String from, Condition where, List<String> groupBy, long limit) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        List<String> names = new ArrayList<>();
+        for (SelectItem item : items) {
+            if (item.getAggregate() == null) {
+                names.add(item.getColumn());
+            }
+        }
+        columns = Collections.unmodifiableList(names);
+        this.from = from;
+        this.where = where;
+        this.groupBy = Collections.unmodifiableList(new ArrayList<>(groupBy));
+        this.limit = limit;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param sql the text of the query.
+     * @return the query.
+     * @throws IllegalArgumentException if the text is not a valid query.
+     */
+    public static SqlQuery parse(String sql) {
+        return new SqlParser(sql).parseQuery();
+    }
+
+    /**
+     * The function to get the names of the selected columns, without the aggregates.
+     *
+     * @return the names of the columns, empty for {@code *}.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * The function to get the names of the columns of the GROUP BY clause.
+     *
+     * @return the names of the columns, empty without a GROUP BY clause.
+     */
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * The function to check whether the query aggregates rows, by GROUP BY or by selecting an aggregate.
+     *
+     * @return whether the query aggregates rows.
+     */
+    public boolean isAggregate() {
+        return !groupBy.isEmpty() || columns.size() != items.size();
+    }
+
+    /**
+     * The function to get the path of the file in the FROM clause.
+     *
+     * @return the path of the file.
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * The function to get the maximum number of rows of the result.
+     *
+     * @return the limit, or {@link #NO_LIMIT}.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * The function to get the condition of the WHERE clause.
+     *
+     * @return the condition, or null without a WHERE clause.
+     */
+    Condition getWhere() {
+        return where;
+    }
+
+    /**
+     * The function to get the items of the SELECT clause.
+     *
+     * @return the items, empty for {@code *}.
+     */
+    List<SelectItem> getItems() {
+        return items;
+    }
+}
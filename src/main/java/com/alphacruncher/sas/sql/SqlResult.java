@@ -0,0 +1,52 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.epam.parso.Column;
+
+/**
+ * The result of a query held in memory.
+ */
+public final class SqlResult {
+
+    /**
+     * The columns of the result.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The rows of the result.
+     */
+    private final List<Object[]> rows;
+
+    /**
+     * Creates a result.
+     *
+     * @param columns the columns of the result.
+     * @param rows    the rows of the result.
+     */
+    SqlResult(List<Column> columns, List<Object[]> rows) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * The function to get the columns of the result.
+     *
+     * @return the columns, named after the aliases and the aggregates of the query.
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * The function to get the rows of the result. The values are of the kinds the reader returns: null for the
+     * missing values, Long or Double for the numbers, Date, LocalDateTime or String; the counts are Long.
+     *
+     * @return the rows.
+     */
+    public List<Object[]> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,114 @@
+package com.alphacruncher.sas.sql;
+
+import java.util.Arrays;
+
+/**
+ * Codes the strings of a column as consecutive ints in an open-addressing table, so the keys and the distinct values
+ * of the groups are primitive. The codes are only meaningful in the dictionary that gave them.
+ */
+final class StringDictionary {
+
+    /**
+     * The initial number of slots.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The bytes held by a string besides its characters, and by its slot.
+     */
+    private static final long STRING_OVERHEAD = 64;
+
+    /**
+     * The strings by code.
+     */
+    private String[] strings = new String[INITIAL_CAPACITY / 2];
+
+    /**
+     * The codes + 1 of the strings by slot, 0 for the free slots; the number of slots is a power of two.
+     */
+    private int[] slots = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of strings.
+     */
+    private int size;
+
+    /**
+     * The estimated number of bytes held by the strings.
+     */
+    private long bytes;
+
+    /**
+     * Returns the code of a string, adding it if it is new.
+     *
+     * @param value the string.
+     * @return the code.
+     */
+    int code(String value) {
+        int mask = slots.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        while (slots[slot] != 0) {
+            int code = slots[slot] - 1;
+            if (strings[code].equals(value)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        strings[size] = value;
+        size++;
+        slots[slot] = size;
+        bytes += STRING_OVERHEAD + 2L * value.length();
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return size - 1;
+    }
+
+    /**
+     * The function to get the string of a code.
+     *
+     * @param code the code.
+     * @return the string.
+     */
+    String get(int code) {
+        return strings[code];
+    }
+
+    /**
+     * The function to get the estimated number of bytes held by the dictionary.
+     *
+     * @return the number of bytes.
+     */
+    long getBytes() {
+        return bytes + 4L * slots.length;
+    }
+
+    /**
+     * Doubles the number of slots.
+     */
+    private void grow() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = mix(strings[code].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = code + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash code over its low bits.
+     *
+     * @param hash the hash code.
+     * @return the mixed hash.
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+}
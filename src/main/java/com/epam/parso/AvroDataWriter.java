@@ -0,0 +1,74 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for exporting data from sas7bdat file to an Avro object container file, with a schema generated from
+ * the {@link Column} metadata.
+ */
+public interface AvroDataWriter extends Closeable {
+    /**
+     * The function to get the {@link Column} list written by {@link AvroDataWriter}.
+     *
+     * @return a list of columns.
+     */
+    List<Column> getColumns();
+
+    /**
+     * The function to get the Avro schema of the records, in its JSON form.
+     *
+     * @return the schema written in the header of the container file.
+     */
+    String getSchema();
+
+    /**
+     * The method to export a row from sas7bdat file (stored as an object of the
+     * {@link com.epam.parso.impl.SasFileReaderImpl} class) as an Avro record.
+     *
+     * @param row the Objects arrays that stores data from the sas7bdat file, in the order of the columns.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    void writeRow(Object[] row) throws IOException;
+
+    /**
+     * The method to export a parsed sas7bdat file (stored as an object of the
+     * {@link com.epam.parso.impl.SasFileReaderImpl} class) as Avro records.
+     *
+     * @param rows the Objects arrays array that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    void writeRowsArray(Object[][] rows) throws IOException;
+
+    /**
+     * The function to get the number of rows written.
+     *
+     * @return the number of rows written.
+     */
+    long getRowCount();
+
+    /**
+     * The method to output the last block of records and to flush the stream. The stream is not closed.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,67 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for exporting data from sas7bdat file as JSON Lines: one JSON object per row, with a member per
+ * {@link Column}, and a line feed after every object.
+ */
+public interface JsonLinesDataWriter extends Closeable {
+    /**
+     * The function to get the {@link Column} list written by {@link JsonLinesDataWriter}.
+     *
+     * @return a list of columns.
+     */
+    List<Column> getColumns();
+
+    /**
+     * The method to export a row from sas7bdat file (stored as an object of the
+     * {@link com.epam.parso.impl.SasFileReaderImpl} class) as a JSON object on its own line.
+     *
+     * @param row the Objects arrays that stores data from the sas7bdat file, in the order of the columns.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    void writeRow(Object[] row) throws IOException;
+
+    /**
+     * The method to export a parsed sas7bdat file (stored as an object of the
+     * {@link com.epam.parso.impl.SasFileReaderImpl} class) as JSON objects, one per line.
+     *
+     * @param rows the Objects arrays array that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    void writeRowsArray(Object[][] rows) throws IOException;
+
+    /**
+     * The function to get the number of rows written.
+     *
+     * @return the number of rows written.
+     */
+    long getRowCount();
+
+    /**
+     * The method to output the buffered rows and to flush the stream. The stream is not closed.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,66 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+/**
+ * Listener of the work done by the reader and the writers, for finding out whether a conversion is bound by
+ * I/O, decompression, cell decoding or output formatting. The methods are called on the hot paths, once per
+ * page or per row, by the thread reading the file, so implementations have to be cheap. The parser calls
+ * nothing and measures no time when {@link ReaderMetrics#isEnabled()} returns false.
+ */
+public interface ReaderMetrics {
+    /**
+     * The function to check whether the metrics are collected.
+     *
+     * @return false if the listener ignores all calls, so the timings do not need to be measured.
+     */
+    boolean isEnabled();
+
+    /**
+     * The method called after a page is read from the input stream.
+     *
+     * @param pageType the type of the page, as stored in the page header.
+     * @param bytes    the number of bytes read.
+     * @param nanos    the nanoseconds spent reading the page from the input stream.
+     */
+    void pageRead(int pageType, int bytes, long nanos);
+
+    /**
+     * The method called after a compressed row is decompressed.
+     *
+     * @param compressionMethod the compression literal of the file, such as SASYZCRL or SASYZCR2.
+     * @param compressedBytes   the number of compressed bytes of the row.
+     * @param rowBytes          the number of bytes of the decompressed row.
+     * @param nanos             the nanoseconds spent decompressing the row.
+     */
+    void rowDecompressed(String compressionMethod, int compressedBytes, int rowBytes, long nanos);
+
+    /**
+     * The method called after the cells of a row are decoded into objects.
+     *
+     * @param nanos the nanoseconds spent decoding the cells, without the decompression.
+     */
+    void rowDecoded(long nanos);
+
+    /**
+     * The method called after a row is formatted and written to the output.
+     *
+     * @param nanos the nanoseconds spent formatting and writing the row.
+     */
+    void rowWritten(long nanos);
+}
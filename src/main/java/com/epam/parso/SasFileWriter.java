@@ -0,0 +1,57 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Main interface for writing sas7bdat files, the counterpart of {@link SasFileReader}.
+ */
+public interface SasFileWriter extends Closeable {
+    /**
+     * The function to get the {@link Column} list written by {@link SasFileWriter}.
+     *
+     * @return a list of columns.
+     */
+    List<Column> getColumns();
+
+    /**
+     * Writes a row to the sas7bdat file.
+     *
+     * @param row an array of objects in the order of the columns: numbers, dates and LocalDateTime for numeric
+     *            columns, strings and byte arrays for character columns, null for missing values.
+     * @throws IOException if writing the file is impossible.
+     */
+    void writeRow(Object[] row) throws IOException;
+
+    /**
+     * The function to get the number of rows written.
+     *
+     * @return the number of rows written.
+     */
+    long getRowCount();
+
+    /**
+     * Writes the last page and the metadata of the sas7bdat file, and closes it.
+     *
+     * @throws IOException if writing the file is impossible.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,851 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import com.epam.parso.AvroDataWriter;
+import com.epam.parso.Column;
+
+/**
+ * This is a class to export the sas7bdat file data into an Avro object container file, written by hand after the
+ * Avro 1.x specification so no Avro library is needed. The schema is a record with a nullable field per column,
+ * missing values are written as null:
+ * <ul>
+ * <li>character columns are strings;</li>
+ * <li>numeric columns of at most 2 bytes are ints, other numeric columns are doubles;</li>
+ * <li>columns with a date format are ints of the logical type date, days since 1970-01-01;</li>
+ * <li>columns with a datetime format are longs of the logical type timestamp-micros, microseconds since
+ * 1970-01-01 00:00:00 UTC, and columns with a time format are longs of the logical type time-micros.</li>
+ * </ul>
+ * The rows are collected into blocks of about {@link Builder#blockSize(int)} bytes, and every block is encoded and
+ * compressed on a thread pool while the next rows are read. The blocks are written in the order of the rows.
+ * Both converted rows and raw rows (see {@link SasFileReaderImpl#readNextRaw()}) are accepted; the arrays of the
+ * rows are kept until their block is encoded and must not be changed after {@link #writeRow(Object[])}.
+ */
+public final class AvroDataWriterImpl implements AvroDataWriter {
+    /**
+     * The codec writing the blocks uncompressed.
+     */
+    public static final String NULL_CODEC = "null";
+
+    /**
+     * The codec compressing the blocks with raw deflate.
+     */
+    public static final String DEFLATE_CODEC = "deflate";
+
+    /**
+     * The default number of uncompressed bytes of a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /**
+     * The magic bytes that start an Avro object container file.
+     */
+    private static final byte[] MAGIC = {'O', 'b', 'j', 1};
+
+    /**
+     * The length of the marker written after the header and every block.
+     */
+    private static final int SYNC_LENGTH = 16;
+
+    /**
+     * The codecs defined by the specification that need a library this project does not depend on.
+     */
+    private static final List<String> UNSUPPORTED_CODECS = Arrays.asList("snappy", "zstandard", "zstd", "bzip2",
+            "xz");
+
+    /**
+     * The number of blocks waiting to be encoded or written per thread.
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    /**
+     * The estimated number of bytes of an encoded number, with its union branch.
+     */
+    private static final int NUMBER_SIZE = 9;
+
+    /**
+     * The number of days between 1960-01-01, the SAS epoch, and 1970-01-01, the Java epoch.
+     */
+    private static final long SAS_TO_JAVA_DAYS = 3653;
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final long MILLISECONDS_IN_DAY = 86400000L;
+
+    /**
+     * The number of seconds in a day.
+     */
+    private static final long SECONDS_IN_DAY = 86400;
+
+    /**
+     * The number of microseconds in a second.
+     */
+    private static final long MICROSECONDS_IN_SECOND = 1000000;
+
+    /**
+     * The number of microseconds in a millisecond.
+     */
+    private static final long MICROSECONDS_IN_MILLISECOND = 1000;
+
+    /**
+     * The number of nanoseconds in a microsecond.
+     */
+    private static final int NANOSECONDS_IN_MICROSECOND = 1000;
+
+    /**
+     * The largest ASCII character, written as a single UTF-8 byte.
+     */
+    private static final char MAX_ASCII = 0x7F;
+
+    /**
+     * The mask of the low 7 bits of a variable-length integer byte.
+     */
+    private static final long VARINT_MASK = 0x7F;
+
+    /**
+     * The bit that marks a variable-length integer byte followed by another one.
+     */
+    private static final int VARINT_CONTINUATION = 0x80;
+
+    /**
+     * The stream to write the container file to.
+     */
+    private final OutputStream out;
+
+    /**
+     * The columns in the order of the values of a row.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The kinds of the columns.
+     */
+    private final DatabaseColumnType[] kinds;
+
+    /**
+     * The schema of the records, in its JSON form.
+     */
+    private final String schema;
+
+    /**
+     * The codec compressing the blocks.
+     */
+    private final String codec;
+
+    /**
+     * The deflate compression level.
+     */
+    private final int level;
+
+    /**
+     * The marker written after the header and every block.
+     */
+    private final byte[] sync = new byte[SYNC_LENGTH];
+
+    /**
+     * The number of rows in a block.
+     */
+    private final int blockRows;
+
+    /**
+     * The threads encoding the blocks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The largest number of blocks waiting to be encoded or written.
+     */
+    private final int maxPendingBlocks;
+
+    /**
+     * The blocks being encoded, in the order of the rows.
+     */
+    private final Deque<Future<BlockBuffer>> pendingBlocks = new ArrayDeque<Future<BlockBuffer>>();
+
+    /**
+     * The rows of the block being filled.
+     */
+    private List<Object[]> block;
+
+    /**
+     * The number of rows written.
+     */
+    private long rowCount;
+
+    /**
+     * True after {@link #close()}.
+     */
+    private boolean closed;
+
+    /**
+     * Writes the header of the container file and starts the threads encoding the blocks.
+     *
+     * @param builder the builder holding the settings of the writer.
+     * @throws IOException if the header can not be written.
+     */
+    private AvroDataWriterImpl(Builder builder) throws IOException {
+        out = builder.outputStream;
+        columns = Collections.unmodifiableList(new ArrayList<Column>(builder.columns));
+        kinds = new DatabaseColumnType[columns.size()];
+        long rowSize = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = DatabaseColumnType.of(columns.get(i));
+            rowSize += kinds[i] == DatabaseColumnType.VARCHAR ? columns.get(i).getLength() + 2 : NUMBER_SIZE;
+        }
+        schema = buildSchema(builder.name, columns, kinds);
+        codec = builder.codec;
+        level = builder.level;
+        blockRows = (int) Math.max(1, Math.min(Integer.MAX_VALUE, builder.blockSize / Math.max(1, rowSize)));
+        new SecureRandom().nextBytes(sync);
+        writeHeader();
+        executor = Executors.newFixedThreadPool(builder.threads);
+        maxPendingBlocks = builder.threads * BLOCKS_PER_THREAD;
+        block = new ArrayList<Object[]>(blockRows);
+    }
+
+    /**
+     * @return the columns in the order of the values of a row
+     */
+    @Override
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the Avro schema of the records, in its JSON form
+     */
+    @Override
+    public String getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * The method to export a row from sas7bdat file (stored as an object of the {@link SasFileReaderImpl} class)
+     * as an Avro record. The row is added to the block being filled, which is encoded when it is full.
+     *
+     * @param row the Objects arrays that stores data from the sas7bdat file, in the order of the columns.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeRow(Object[] row) throws IOException {
+        if (closed) {
+            throw new IOException("The writer is closed");
+        }
+        if (row == null || row.length < columns.size()) {
+            throw new IllegalArgumentException("A row has to have " + columns.size() + " values");
+        }
+        block.add(row);
+        if (block.size() == blockRows) {
+            submitBlock();
+        }
+        rowCount++;
+    }
+
+    /**
+     * The method to export a parsed sas7bdat file (stored as an object of the {@link SasFileReaderImpl} class)
+     * as Avro records.
+     *
+     * @param rows the Objects arrays array that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeRowsArray(Object[][] rows) throws IOException {
+        for (Object[] currentRow : rows) {
+            if (currentRow != null) {
+                writeRow(currentRow);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The method to output the last block of records and to flush the stream, and to stop the threads encoding
+     * the blocks. The stream is not closed.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!block.isEmpty()) {
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeFirstPendingBlock();
+            }
+            out.flush();
+        } finally {
+            for (Future<BlockBuffer> future : pendingBlocks) {
+                future.cancel(true);
+            }
+            pendingBlocks.clear();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the magic bytes, the metadata holding the schema and the codec, and the sync marker.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    private void writeHeader() throws IOException {
+        BlockBuffer header = new BlockBuffer(schema.length() + SYNC_LENGTH * 4);
+        header.write(MAGIC, 0, MAGIC.length);
+        header.writeLong(2);
+        header.writeString("avro.schema");
+        header.writeString(schema);
+        header.writeString("avro.codec");
+        header.writeString(codec);
+        header.writeLong(0);
+        header.write(sync, 0, SYNC_LENGTH);
+        out.write(header.bytes, 0, header.length);
+    }
+
+    /**
+     * Submits the block of rows to encode, after writing the oldest blocks if too many are pending.
+     *
+     * @throws IOException if the stream can not be written or a block can not be encoded.
+     */
+    private void submitBlock() throws IOException {
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeFirstPendingBlock();
+        }
+        final List<Object[]> rows = block;
+        pendingBlocks.addLast(executor.submit(new Callable<BlockBuffer>() {
+            @Override
+            public BlockBuffer call() throws IOException {
+                return encodeBlock(rows);
+            }
+        }));
+        block = new ArrayList<Object[]>(blockRows);
+    }
+
+    /**
+     * Waits for the oldest encoded block and writes it to the stream.
+     *
+     * @throws IOException if the stream can not be written or a block can not be encoded.
+     */
+    private void writeFirstPendingBlock() throws IOException {
+        BlockBuffer encoded;
+        try {
+            encoded = pendingBlocks.pollFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the rows");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Can not encode the rows", e.getCause());
+        }
+        out.write(encoded.bytes, 0, encoded.length);
+    }
+
+    /**
+     * Encodes a block of rows: the number of rows, the size of the data, the data compressed with the codec and
+     * the sync marker.
+     *
+     * @param rows the rows of the block.
+     * @return the encoded block.
+     * @throws IOException if a character value can not be decoded.
+     */
+    private BlockBuffer encodeBlock(List<Object[]> rows) throws IOException {
+        BlockBuffer data = new BlockBuffer(blockRows * 16);
+        for (Object[] row : rows) {
+            for (int i = 0; i < kinds.length; i++) {
+                writeValue(data, kinds[i], row[i]);
+            }
+        }
+        if (DEFLATE_CODEC.equals(codec)) {
+            data = deflate(data, level);
+        }
+        BlockBuffer result = new BlockBuffer(data.length + 2 * NUMBER_SIZE + SYNC_LENGTH);
+        result.writeLong(rows.size());
+        result.writeLong(data.length);
+        result.write(data.bytes, 0, data.length);
+        result.write(sync, 0, SYNC_LENGTH);
+        return result;
+    }
+
+    /**
+     * Writes a value as the branch of its nullable union: 0 for null, 1 followed by the value otherwise.
+     *
+     * @param data  the buffer to write to.
+     * @param kind  the kind of the column.
+     * @param value the value read from the sas7bdat file, can be null.
+     * @throws IOException if a character value can not be decoded.
+     */
+    private static void writeValue(BlockBuffer data, DatabaseColumnType kind, Object value) throws IOException {
+        if (value == null) {
+            data.writeLong(0);
+            return;
+        }
+        if (kind == DatabaseColumnType.VARCHAR) {
+            data.writeLong(1);
+            data.writeString(value instanceof byte[] ? new String((byte[]) value, CSVDataWriterImpl.ENCODING)
+                    : value.toString());
+            return;
+        }
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || kind != DatabaseColumnType.NUMERIC && Double.isInfinite(number)) {
+                data.writeLong(0);
+                return;
+            }
+        }
+        data.writeLong(1);
+        switch (kind) {
+            case INT:
+                data.writeLong(((Number) value).intValue());
+                break;
+            case DATE:
+                data.writeLong(toDays(value));
+                break;
+            case DATETIME:
+                data.writeLong(toMicroseconds(value));
+                break;
+            case TIME:
+                data.writeLong(toMicrosecondsOfDay(value));
+                break;
+            case NUMERIC:
+            default:
+                data.writeDouble(((Number) value).doubleValue());
+                break;
+        }
+    }
+
+    /**
+     * Converts a date value to the number of days since 1970-01-01.
+     *
+     * @param value a {@link Date} or the raw number of days since 1960-01-01.
+     * @return the number of days since 1970-01-01.
+     */
+    private static long toDays(Object value) {
+        if (value instanceof Date) {
+            return Math.floorDiv(((Date) value).getTime(), MILLISECONDS_IN_DAY);
+        }
+        return (long) Math.floor(((Number) value).doubleValue()) - SAS_TO_JAVA_DAYS;
+    }
+
+    /**
+     * Converts a datetime value to the number of microseconds since 1970-01-01 00:00:00.
+     *
+     * @param value a {@link LocalDateTime} in UTC, a {@link Date} or the raw number of seconds since
+     *              1960-01-01 00:00:00.
+     * @return the number of microseconds since 1970-01-01 00:00:00.
+     */
+    private static long toMicroseconds(Object value) {
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return dateTime.toEpochSecond(ZoneOffset.UTC) * MICROSECONDS_IN_SECOND
+                    + dateTime.getNano() / NANOSECONDS_IN_MICROSECOND;
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime() * MICROSECONDS_IN_MILLISECOND;
+        }
+        return Math.round(((Number) value).doubleValue() * MICROSECONDS_IN_SECOND)
+                - SAS_TO_JAVA_DAYS * SECONDS_IN_DAY * MICROSECONDS_IN_SECOND;
+    }
+
+    /**
+     * Converts a time value to the number of microseconds since midnight.
+     *
+     * @param value a {@link LocalDateTime} or the raw number of seconds, taken modulo a day as the reader does.
+     * @return the number of microseconds since midnight.
+     */
+    private static long toMicrosecondsOfDay(Object value) {
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalTime().toNanoOfDay() / NANOSECONDS_IN_MICROSECOND;
+        }
+        return Math.floorMod(Math.round(((Number) value).doubleValue() * MICROSECONDS_IN_SECOND),
+                SECONDS_IN_DAY * MICROSECONDS_IN_SECOND);
+    }
+
+    /**
+     * Compresses the data of a block with raw deflate, without the zlib header and checksum, as the deflate codec
+     * of the specification requires.
+     *
+     * @param data  the data of the block.
+     * @param level the deflate compression level.
+     * @return the compressed data.
+     */
+    private static BlockBuffer deflate(BlockBuffer data, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data.bytes, 0, data.length);
+            deflater.finish();
+            BlockBuffer result = new BlockBuffer(data.length / 2 + 64);
+            while (!deflater.finished()) {
+                if (result.length == result.bytes.length) {
+                    result.bytes = Arrays.copyOf(result.bytes, result.bytes.length * 2);
+                }
+                result.length += deflater.deflate(result.bytes, result.length, result.bytes.length - result.length);
+            }
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Builds the JSON form of the schema of the records.
+     *
+     * @param name    the name of the record.
+     * @param columns the columns.
+     * @param kinds   the kinds of the columns.
+     * @return the schema.
+     */
+    private static String buildSchema(String name, List<Column> columns, DatabaseColumnType[] kinds) {
+        StringBuilder json = new StringBuilder("{\"type\":\"record\",\"name\":\"").append(toAvroName(name))
+                .append("\",\"fields\":[");
+        Set<String> names = new HashSet<String>();
+        for (int i = 0; i < kinds.length; i++) {
+            Column column = columns.get(i);
+            String fieldName = toAvroName(column.getName());
+            for (int suffix = 1; !names.add(fieldName); suffix++) {
+                fieldName = toAvroName(column.getName()) + "_" + suffix;
+            }
+            json.append(i == 0 ? "" : ",").append("{\"name\":\"").append(fieldName).append("\",\"type\":[\"null\",")
+                    .append(getType(kinds[i])).append("],\"default\":null");
+            String label = column.getLabel();
+            if (label != null && !label.trim().isEmpty()) {
+                appendJsonString(json.append(",\"doc\":"), label);
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Returns the JSON form of the Avro type of a kind of column.
+     *
+     * @param kind the kind of the column.
+     * @return the type.
+     */
+    private static String getType(DatabaseColumnType kind) {
+        switch (kind) {
+            case INT:
+                return "\"int\"";
+            case DATE:
+                return "{\"type\":\"int\",\"logicalType\":\"date\"}";
+            case DATETIME:
+                return "{\"type\":\"long\",\"logicalType\":\"timestamp-micros\"}";
+            case TIME:
+                return "{\"type\":\"long\",\"logicalType\":\"time-micros\"}";
+            case VARCHAR:
+                return "\"string\"";
+            case NUMERIC:
+            default:
+                return "\"double\"";
+        }
+    }
+
+    /**
+     * Converts a name into a valid Avro name: the characters other than ASCII letters, digits and underscores
+     * are replaced by underscores, and names starting with a digit are prefixed with an underscore.
+     *
+     * @param name the name of the column or of the file.
+     * @return the Avro name.
+     */
+    static String toAvroName(String name) {
+        StringBuilder result = new StringBuilder(name == null ? 0 : name.length() + 1);
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                boolean valid = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+                result.append(valid ? c : '_');
+            }
+        }
+        if (result.length() == 0 || Character.isDigit(result.charAt(0))) {
+            result.insert(0, '_');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Appends a string to a JSON document, quoted and escaped.
+     *
+     * @param json  the JSON document.
+     * @param value the string.
+     */
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * A growing array of bytes with the Avro binary encoding of the primitive types.
+     */
+    private static final class BlockBuffer {
+        /**
+         * The array holding the bytes.
+         */
+        private byte[] bytes;
+
+        /**
+         * The number of bytes written.
+         */
+        private int length;
+
+        /**
+         * Creates an empty buffer.
+         *
+         * @param capacity the initial capacity of the buffer.
+         */
+        BlockBuffer(int capacity) {
+            bytes = new byte[Math.max(capacity, SYNC_LENGTH)];
+        }
+
+        /**
+         * Makes room for more bytes.
+         *
+         * @param count the number of bytes to write.
+         */
+        private void ensureCapacity(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param source the array holding the bytes.
+         * @param offset the offset of the bytes.
+         * @param count  the number of bytes.
+         */
+        void write(byte[] source, int offset, int count) {
+            ensureCapacity(count);
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+
+        /**
+         * Writes an int or a long as a zig-zag variable-length integer.
+         *
+         * @param value the value.
+         */
+        void writeLong(long value) {
+            ensureCapacity(NUMBER_SIZE + 1);
+            long n = (value << 1) ^ (value >> (Long.SIZE - 1));
+            while ((n & ~VARINT_MASK) != 0) {
+                bytes[length++] = (byte) (n & VARINT_MASK | VARINT_CONTINUATION);
+                n >>>= 7;
+            }
+            bytes[length++] = (byte) n;
+        }
+
+        /**
+         * Writes a double as its 8 IEEE 754 bytes in little-endian order.
+         *
+         * @param value the value.
+         */
+        void writeDouble(double value) {
+            ensureCapacity(Long.BYTES);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < Long.BYTES; i++) {
+                bytes[length++] = (byte) (bits >>> (i * Byte.SIZE));
+            }
+        }
+
+        /**
+         * Writes a string as its length followed by its UTF-8 bytes. ASCII strings are written without an
+         * intermediate array.
+         *
+         * @param value the value.
+         */
+        void writeString(String value) {
+            int count = value.length();
+            for (int i = 0; i < count; i++) {
+                if (value.charAt(i) > MAX_ASCII) {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    writeLong(utf8.length);
+                    write(utf8, 0, utf8.length);
+                    return;
+                }
+            }
+            writeLong(count);
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                bytes[length++] = (byte) value.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link AvroDataWriterImpl}.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for {@link AvroDataWriterImpl#out} variable.
+         */
+        private final OutputStream outputStream;
+
+        /**
+         * Builder variable for {@link AvroDataWriterImpl#columns} variable.
+         */
+        private final List<Column> columns;
+
+        /**
+         * Default value for the name of the record.
+         */
+        private String name = "sas7bdat";
+
+        /**
+         * Default value for {@link AvroDataWriterImpl#codec} variable.
+         */
+        private String codec = DEFLATE_CODEC;
+
+        /**
+         * Default value for {@link AvroDataWriterImpl#level} variable.
+         */
+        private int level = OutputCompression.DEFAULT_LEVEL;
+
+        /**
+         * Default value for the number of uncompressed bytes of a block.
+         */
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+
+        /**
+         * Default value for the number of threads encoding the blocks.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Creates a builder of a writer of a container file.
+         *
+         * @param outputStream the stream to write the container file to.
+         * @param columns      the columns of the rows.
+         */
+        public Builder(OutputStream outputStream, List<Column> columns) {
+            this.outputStream = outputStream;
+            this.columns = columns;
+        }
+
+        /**
+         * The function to specify builders name variable.
+         *
+         * @param val value to be set, the name of the record, converted into a valid Avro name.
+         * @return result builder.
+         */
+        public Builder name(String val) {
+            name = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders codec variable.
+         *
+         * @param val value to be set: {@link #NULL_CODEC} or {@link #DEFLATE_CODEC}.
+         * @return result builder.
+         */
+        public Builder codec(String val) {
+            codec = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders level variable.
+         *
+         * @param val value to be set, from 1 (fastest) to 9 (best).
+         * @return result builder.
+         */
+        public Builder level(int val) {
+            level = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders blockSize variable.
+         *
+         * @param val value to be set, the number of uncompressed bytes of a block, estimated from the lengths of
+         *            the columns.
+         * @return result builder.
+         */
+        public Builder blockSize(int val) {
+            blockSize = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders threads variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        /**
+         * Create {@link AvroDataWriterImpl} using specified params, and writes the header of the container file.
+         *
+         * @return built writer.
+         * @throws IOException if the header can not be written.
+         */
+        public AvroDataWriterImpl build() throws IOException {
+            if (outputStream == null || columns == null || columns.isEmpty() || blockSize < 1 || threads < 1) {
+                throw new IllegalArgumentException("A stream, columns, a positive block size and a positive number"
+                        + " of threads are required");
+            }
+            if (codec != null && UNSUPPORTED_CODECS.contains(codec)) {
+                throw new IllegalArgumentException("The Avro codec " + codec + " needs a library parso does not"
+                        + " depend on, use " + DEFLATE_CODEC + " or " + NULL_CODEC);
+            }
+            if (!NULL_CODEC.equals(codec) && !DEFLATE_CODEC.equals(codec)) {
+                throw new IllegalArgumentException("Unsupported Avro codec: " + codec);
+            }
+            if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("The compression level has to be between "
+                        + Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION);
+            }
+            return new AvroDataWriterImpl(this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.epam.parso.impl;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of the BIN compression algorithm which corresponds to the literal "SASYZCR2", the Ross Data
+ * Compression read by {@link BinDecompressor}. Every group of up to 16 items starts with a 16-bit control word whose
+ * bits tell the copied bytes from the commands: runs of 3 to 4114 equal bytes, and patterns of 3 to 271 bytes
+ * repeating bytes found 3 to 4098 bytes earlier in the row, which are looked up in a hash table of 3-byte prefixes.
+ */
+final class BinCompressor implements Compressor {
+    /**
+     * Unambiguous class instance.
+     */
+    static final BinCompressor INSTANCE = new BinCompressor();
+
+    /**
+     * The number of items following a control word.
+     */
+    private static final int ITEMS_PER_CONTROL_WORD = 16;
+
+    /**
+     * The shortest run or pattern encoded as a command.
+     */
+    private static final int MIN_MATCH = 3;
+
+    /**
+     * The longest run encoded in two bytes.
+     */
+    private static final int MAX_SHORT_RUN = 18;
+
+    /**
+     * The longest run encoded in three bytes.
+     */
+    private static final int MAX_LONG_RUN = 0x0F + (255 << 4) + 19;
+
+    /**
+     * The longest pattern encoded in two bytes.
+     */
+    private static final int MAX_SHORT_PATTERN = 15;
+
+    /**
+     * The longest pattern encoded in three bytes.
+     */
+    private static final int MAX_LONG_PATTERN = 255 + 16;
+
+    /**
+     * The largest distance to a pattern.
+     */
+    private static final int MAX_DISTANCE = 0x0F + (255 << 4) + 3;
+
+    /**
+     * The largest number of bits of the hash of a 3-byte prefix.
+     */
+    private static final int MAX_HASH_BITS = 12;
+
+    /**
+     * The smallest number of bits of the hash of a 3-byte prefix.
+     */
+    private static final int MIN_HASH_BITS = 4;
+
+    /**
+     * Empty private constructor for preventing multiple instances.
+     */
+    private BinCompressor() {
+    }
+
+    /**
+     * The function to compress a row with Ross Data Compression.
+     *
+     * @param row    an array of bytes with the row.
+     * @param offset the offset of the row in <code>row</code>.
+     * @param length the length of the row.
+     * @return an array of bytes with control words, commands and copied bytes.
+     */
+    @Override
+    public byte[] compressRow(byte[] row, int offset, int length) {
+        // every item takes at most one byte per byte of the row, plus a control word for every 16 items
+        byte[] result = new byte[length + (length / ITEMS_PER_CONTROL_WORD + 1) * 2 + 2];
+        // a table about as large as the row, so that short rows do not pay for clearing a large one
+        int hashBits = Math.max(MIN_HASH_BITS,
+                Math.min(MAX_HASH_BITS, Integer.SIZE - Integer.numberOfLeadingZeros(length)));
+        int hashShift = Integer.SIZE - hashBits;
+        int[] lastPositions = new int[1 << hashBits];
+        Arrays.fill(lastPositions, -1);
+        int resultLength = 0;
+        int controlPosition = 0;
+        int controlBits = 0;
+        int items = ITEMS_PER_CONTROL_WORD;
+        int i = 0;
+        while (i < length) {
+            if (items == ITEMS_PER_CONTROL_WORD) {
+                writeControlWord(result, controlPosition, controlBits);
+                controlPosition = resultLength;
+                resultLength += 2;
+                controlBits = 0;
+                items = 0;
+            }
+            int bit = 0x8000 >>> items;
+            items++;
+
+            byte value = row[offset + i];
+            int run = 1;
+            while (i + run < length && row[offset + i + run] == value && run < MAX_LONG_RUN) {
+                run++;
+            }
+            if (run >= MIN_MATCH) {
+                controlBits |= bit;
+                if (run <= MAX_SHORT_RUN) {
+                    result[resultLength++] = (byte) (run - MIN_MATCH);
+                } else {
+                    int count = run - 19;
+                    result[resultLength++] = (byte) (0x10 | (count & 0x0F));
+                    result[resultLength++] = (byte) (count >> 4);
+                }
+                result[resultLength++] = value;
+                i += run;
+                continue;
+            }
+
+            int distance = 0;
+            int match = 0;
+            if (i + MIN_MATCH <= length) {
+                int hash = hash(row, offset + i, hashShift);
+                int candidate = lastPositions[hash];
+                lastPositions[hash] = i;
+                distance = i - candidate;
+                if (candidate >= 0 && distance >= MIN_MATCH && distance <= MAX_DISTANCE) {
+                    int limit = Math.min(Math.min(length - i, MAX_LONG_PATTERN), distance);
+                    while (match < limit && row[offset + candidate + match] == row[offset + i + match]) {
+                        match++;
+                    }
+                }
+            }
+            if (match >= MIN_MATCH) {
+                controlBits |= bit;
+                int encodedDistance = distance - MIN_MATCH;
+                if (match <= MAX_SHORT_PATTERN) {
+                    result[resultLength++] = (byte) ((match << 4) | (encodedDistance & 0x0F));
+                    result[resultLength++] = (byte) (encodedDistance >> 4);
+                } else {
+                    result[resultLength++] = (byte) (0x20 | (encodedDistance & 0x0F));
+                    result[resultLength++] = (byte) (encodedDistance >> 4);
+                    result[resultLength++] = (byte) (match - 16);
+                }
+                for (int j = 1; j < match && i + j + MIN_MATCH <= length; j++) {
+                    lastPositions[hash(row, offset + i + j, hashShift)] = i + j;
+                }
+                i += match;
+            } else {
+                result[resultLength++] = value;
+                i++;
+            }
+        }
+        writeControlWord(result, controlPosition, controlBits);
+        return Arrays.copyOf(result, resultLength);
+    }
+
+    /**
+     * Writes a control word, most significant byte first.
+     *
+     * @param result   the compressed row.
+     * @param position the offset of the control word.
+     * @param bits     the bits of the items, 1 for commands.
+     */
+    private static void writeControlWord(byte[] result, int position, int bits) {
+        result[position] = (byte) (bits >> 8);
+        result[position + 1] = (byte) bits;
+    }
+
+    /**
+     * Hashes the 3 bytes at an offset.
+     *
+     * @param row    the row.
+     * @param offset the offset of the first byte.
+     * @param shift  the number of bits of an int besides the bits of the hash.
+     * @return the hash.
+     */
+    private static int hash(byte[] row, int offset, int shift) {
+        int key = (row[offset] & 0xFF) << 16 | (row[offset + 1] & 0xFF) << 8 | row[offset + 2] & 0xFF;
+        return (key * 0x9E3779B1) >>> shift;
+    }
+}
@@ -0,0 +1,159 @@
+package com.epam.parso.impl;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Implementation of the CHAR compression algorithm which corresponds to the literal "SASYZCRL", the run-length
+ * encoding read by {@link CharDecompressor}. Runs of spaces, zeros and '@' take one control byte up to 17 bytes and
+ * two up to 4112 bytes, runs of other bytes take two bytes up to 18 bytes and three up to 273 bytes, and the bytes
+ * between the runs are copied after a control byte giving their count.
+ */
+final class CharCompressor implements Compressor {
+    /**
+     * Unambiguous class instance.
+     */
+    static final CharCompressor INSTANCE = new CharCompressor();
+
+    /**
+     * The longest copy introduced by one control byte.
+     */
+    private static final int MAX_SHORT_COPY = 64;
+
+    /**
+     * The longest copy introduced by two control bytes.
+     */
+    private static final int MAX_LONG_COPY = 64 + 0x3F * 256 + 255;
+
+    /**
+     * The longest run of spaces, zeros or '@' encoded in one byte.
+     */
+    private static final int MAX_SHORT_SPECIAL_RUN = 17;
+
+    /**
+     * The longest run of spaces, zeros or '@' encoded in two bytes.
+     */
+    private static final int MAX_LONG_SPECIAL_RUN = 0x0F * 256 + 255 + 17;
+
+    /**
+     * The shortest run of other bytes worth encoding.
+     */
+    private static final int MIN_RUN = 3;
+
+    /**
+     * The longest run of other bytes encoded in two bytes.
+     */
+    private static final int MAX_SHORT_RUN = 18;
+
+    /**
+     * The longest run of other bytes encoded in three bytes, with a zero low nibble in the control byte.
+     */
+    private static final int MAX_LONG_RUN = 255 + 18;
+
+    /**
+     * Empty private constructor for preventing multiple instances.
+     */
+    private CharCompressor() {
+    }
+
+    /**
+     * The function to compress a row with run-length encoding.
+     *
+     * @param row    an array of bytes with the row.
+     * @param offset the offset of the row in <code>row</code>.
+     * @param length the length of the row.
+     * @return an array of bytes with control bytes and data bytes.
+     */
+    @Override
+    public byte[] compressRow(byte[] row, int offset, int length) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 16);
+        int end = offset + length;
+        int literalStart = offset;
+        int i = offset;
+        while (i < end) {
+            byte value = row[i];
+            int run = 1;
+            while (i + run < end && row[i + run] == value && run < MAX_LONG_SPECIAL_RUN) {
+                run++;
+            }
+            boolean special = value == ' ' || value == 0 || value == '@';
+            if (special && run >= 2 || run >= MIN_RUN) {
+                writeLiteral(result, row, literalStart, i);
+                if (special) {
+                    run = writeSpecialRun(result, value, run);
+                } else {
+                    run = writeRun(result, value, run);
+                }
+                i += run;
+                literalStart = i;
+            } else {
+                i += run;
+            }
+        }
+        writeLiteral(result, row, literalStart, end);
+        return result.toByteArray();
+    }
+
+    /**
+     * Writes the bytes between two runs.
+     *
+     * @param result the compressed row.
+     * @param row    the row.
+     * @param start  the offset of the first byte to copy.
+     * @param end    the offset after the last byte to copy.
+     */
+    private static void writeLiteral(ByteArrayOutputStream result, byte[] row, int start, int end) {
+        int position = start;
+        while (position < end) {
+            int count = Math.min(end - position, MAX_LONG_COPY);
+            if (count <= MAX_SHORT_COPY) {
+                result.write(0x80 + count - 1);
+            } else {
+                result.write((count - MAX_SHORT_COPY) >> 8);
+                result.write((count - MAX_SHORT_COPY) & 0xFF);
+            }
+            result.write(row, position, count);
+            position += count;
+        }
+    }
+
+    /**
+     * Writes a run of spaces, zeros or '@'.
+     *
+     * @param result the compressed row.
+     * @param value  the repeated byte.
+     * @param run    the length of the run, at least 2.
+     * @return the number of bytes encoded.
+     */
+    private static int writeSpecialRun(ByteArrayOutputStream result, byte value, int run) {
+        int shortCode = value == ' ' ? 0xE0 : value == 0 ? 0xF0 : 0xD0;
+        if (run <= MAX_SHORT_SPECIAL_RUN) {
+            result.write(shortCode | (run - 2));
+        } else {
+            int count = run - MAX_SHORT_SPECIAL_RUN;
+            result.write((shortCode - 0x80) | (count >> 8));
+            result.write(count & 0xFF);
+        }
+        return run;
+    }
+
+    /**
+     * Writes a run of another byte.
+     *
+     * @param result the compressed row.
+     * @param value  the repeated byte.
+     * @param run    the length of the run, at least 3.
+     * @return the number of bytes encoded, at most {@link #MAX_LONG_RUN}.
+     */
+    private static int writeRun(ByteArrayOutputStream result, byte value, int run) {
+        if (run <= MAX_SHORT_RUN) {
+            result.write(0xC0 | (run - MIN_RUN));
+            result.write(value);
+            return run;
+        }
+        int count = Math.min(run, MAX_LONG_RUN);
+        result.write(0x40);
+        result.write(count - MAX_SHORT_RUN);
+        result.write(value);
+        return count;
+    }
+}
@@ -0,0 +1,244 @@
+package com.epam.parso.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The decoded values of one column for a range of consecutive rows, stored in a direct (off-heap) buffer.
+ * Numeric columns hold one double per row, with NaN for missing values; dates and times keep their raw
+ * SAS value, as returned by {@link SasFileReaderImpl#readNextRaw()}. Character columns hold an offset table
+ * followed by the trimmed bytes of the values, a missing or blank value has no bytes. Chunks are immutable
+ * and can be read by several threads.
+ */
+public final class ColumnChunk {
+    /**
+     * The number of bytes of a numeric value.
+     */
+    private static final int DOUBLE_BYTES = 8;
+
+    /**
+     * The number of bytes of an offset in the offset table of character values.
+     */
+    private static final int OFFSET_BYTES = 4;
+
+    /**
+     * The index of the first row of the chunk in the file.
+     */
+    private final long firstRow;
+
+    /**
+     * The number of rows.
+     */
+    private final int rowCount;
+
+    /**
+     * True for a numeric column, false for a character column.
+     */
+    private final boolean numeric;
+
+    /**
+     * The encoding of the character values.
+     */
+    private final String encoding;
+
+    /**
+     * The values, in a direct buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a chunk from its buffer.
+     *
+     * @param firstRow the index of the first row of the chunk in the file.
+     * @param rowCount the number of rows.
+     * @param numeric  true for a numeric column.
+     * @param encoding the encoding of the character values.
+     * @param buffer   the values.
+     */
+    private ColumnChunk(long firstRow, int rowCount, boolean numeric, String encoding, ByteBuffer buffer) {
+        this.firstRow = firstRow;
+        this.rowCount = rowCount;
+        this.numeric = numeric;
+        this.encoding = encoding;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Copies the raw values of a numeric column to a new direct buffer.
+     *
+     * @param firstRow the index of the first row of the chunk in the file.
+     * @param values   the values, instances of {@link Number} or null, as returned by
+     *                 {@link SasFileReaderImpl#readNextRaw()}.
+     * @return the chunk.
+     */
+    static ColumnChunk ofNumbers(long firstRow, List<Object> values) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(values.size() * DOUBLE_BYTES);
+        for (Object value : values) {
+            buffer.putDouble(value == null ? Double.NaN : ((Number) value).doubleValue());
+        }
+        ((Buffer) buffer).flip();
+        return new ColumnChunk(firstRow, values.size(), true, null, buffer);
+    }
+
+    /**
+     * Copies the values of a character column to a new direct buffer.
+     *
+     * @param firstRow the index of the first row of the chunk in the file.
+     * @param values   the trimmed bytes of the values or null, as returned by a reader with byte output.
+     * @param encoding the encoding of the values.
+     * @return the chunk.
+     */
+    static ColumnChunk ofBytes(long firstRow, List<Object> values, String encoding) {
+        int length = 0;
+        for (Object value : values) {
+            length += value == null ? 0 : ((byte[]) value).length;
+        }
+        int tableLength = (values.size() + 1) * OFFSET_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(tableLength + length);
+        int offset = tableLength;
+        buffer.putInt(offset);
+        for (Object value : values) {
+            offset += value == null ? 0 : ((byte[]) value).length;
+            buffer.putInt(offset);
+        }
+        for (Object value : values) {
+            if (value != null) {
+                buffer.put((byte[]) value);
+            }
+        }
+        ((Buffer) buffer).flip();
+        return new ColumnChunk(firstRow, values.size(), false, encoding, buffer);
+    }
+
+    /**
+     * Wraps a buffer holding the values in the layout of the chunks, without copying it.
+     *
+     * @param firstRow the index of the first row of the chunk in the file.
+     * @param rowCount the number of rows.
+     * @param numeric  true for a numeric column.
+     * @param encoding the encoding of the character values.
+     * @param buffer   the values, from its position to its limit.
+     * @return the chunk.
+     */
+    static ColumnChunk wrap(long firstRow, int rowCount, boolean numeric, String encoding, ByteBuffer buffer) {
+        return new ColumnChunk(firstRow, rowCount, numeric, encoding, buffer.slice());
+    }
+
+    /**
+     * @return a read-only view of the values, in the layout read by {@link #wrap}
+     */
+    ByteBuffer getBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the index of the first row of the chunk in the file
+     */
+    public long getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return true for a numeric column, false for a character column
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * @return the number of off-heap bytes holding the values
+     */
+    public int getSizeInBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * The function to check whether a value is missing.
+     *
+     * @param row the index of the row in the chunk.
+     * @return true for a missing number or a missing or blank character value.
+     */
+    public boolean isNull(int row) {
+        if (numeric) {
+            return Double.isNaN(getDouble(row));
+        }
+        return getLength(row) == 0;
+    }
+
+    /**
+     * The function to get a numeric value.
+     *
+     * @param row the index of the row in the chunk.
+     * @return the raw value, NaN if it is missing.
+     */
+    public double getDouble(int row) {
+        return buffer.getDouble(row * DOUBLE_BYTES);
+    }
+
+    /**
+     * The function to get the bytes of a character value.
+     *
+     * @param row the index of the row in the chunk.
+     * @return the trimmed bytes, or null if the value is missing or blank.
+     */
+    public byte[] getBytes(int row) {
+        int length = getLength(row);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        int offset = buffer.getInt(row * OFFSET_BYTES);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Copies the bytes of a character value.
+     *
+     * @param row    the index of the row in the chunk.
+     * @param target the array to copy the bytes to.
+     * @param offset the offset in the array.
+     * @return the number of bytes copied, 0 if the value is missing or blank.
+     */
+    int copyBytes(int row, byte[] target, int offset) {
+        int start = buffer.getInt(row * OFFSET_BYTES);
+        int length = buffer.getInt((row + 1) * OFFSET_BYTES) - start;
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(start);
+        source.get(target, offset, length);
+        return length;
+    }
+
+    /**
+     * The function to get a character value decoded with the encoding of the file.
+     *
+     * @param row the index of the row in the chunk.
+     * @return the value, or null if it is missing or blank.
+     * @throws UnsupportedEncodingException if the encoding of the file is not supported.
+     */
+    public String getString(int row) throws UnsupportedEncodingException {
+        byte[] bytes = getBytes(row);
+        return bytes == null ? null : new String(bytes, encoding);
+    }
+
+    /**
+     * The function to get the length of a character value.
+     *
+     * @param row the index of the row in the chunk.
+     * @return the number of bytes of the value.
+     */
+    private int getLength(int row) {
+        return buffer.getInt((row + 1) * OFFSET_BYTES) - buffer.getInt(row * OFFSET_BYTES);
+    }
+}
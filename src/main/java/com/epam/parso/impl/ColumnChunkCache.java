@@ -0,0 +1,609 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.epam.parso.Column;
+
+/**
+ * A process-wide cache of decoded column chunks, so that readers of the same .sas7bdat file, such as repeated
+ * queries of a dashboard, do not decompress and decode its pages again. A chunk holds the values of one column for
+ * the rows of a range of pages and is kept off-heap in a {@link ColumnChunk}, under a budget of bytes with least
+ * recently used eviction. Chunks are keyed by the path, the size and the modification time of the file, so a
+ * rewritten file is never served from the cache. A chunk covers a fixed range of pages, so a miss seeks straight to
+ * its pages, and the missing columns of a chunk are read together, decoding only them. Readers walking the chunks in
+ * order, such as the SQL engine with {@code SqlEngine.setColumnCache}, only read the chunks they reach, so a LIMIT
+ * stops the reading early. The cache serves the SQL engine only: {@link SasFileReaderImpl} and the exporters read
+ * the files directly, since they decode every column of every row once.
+ */
+public class ColumnChunkCache {
+    /**
+     * The system property setting the budget of the shared cache, in bytes.
+     */
+    public static final String CAPACITY_PROPERTY = "parso.columnChunkCache.bytes";
+
+    /**
+     * The default budget of the shared cache, in bytes.
+     */
+    public static final long DEFAULT_CAPACITY = 256L * 1024 * 1024;
+
+    /**
+     * The default number of pages whose rows form a chunk.
+     */
+    public static final int DEFAULT_PAGES_PER_CHUNK = 64;
+
+    /**
+     * The budget of the chunks, in bytes.
+     */
+    private final long capacity;
+
+    /**
+     * The number of pages whose rows form a chunk.
+     */
+    private final int pagesPerChunk;
+
+    /**
+     * The chunks, from the least to the most recently used.
+     */
+    private final LinkedHashMap<ChunkKey, ColumnChunk> chunks = new LinkedHashMap<ChunkKey, ColumnChunk>(16,
+            0.75f, true);
+
+    /**
+     * The chunk positions of the read files, by path.
+     */
+    private final Map<Path, FileIndex> indexes = new HashMap<Path, FileIndex>();
+
+    /**
+     * The number of bytes of the cached chunks.
+     */
+    private long size;
+
+    /**
+     * The number of chunks found in the cache.
+     */
+    private long hits;
+
+    /**
+     * The number of chunks read from the files.
+     */
+    private long misses;
+
+    /**
+     * The number of chunks evicted from the cache.
+     */
+    private long evictions;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity      the budget of the chunks, in bytes.
+     * @param pagesPerChunk the number of pages whose rows form a chunk.
+     */
+    public ColumnChunkCache(long capacity, int pagesPerChunk) {
+        if (capacity < 0 || pagesPerChunk <= 0) {
+            throw new IllegalArgumentException("Invalid cache capacity or chunk size");
+        }
+        this.capacity = capacity;
+        this.pagesPerChunk = pagesPerChunk;
+    }
+
+    /**
+     * The function to get the cache shared by the process, with the budget of the {@link #CAPACITY_PROPERTY}
+     * system property, {@link #DEFAULT_CAPACITY} by default.
+     *
+     * @return the shared cache.
+     */
+    public static ColumnChunkCache getShared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * The function to get the number of chunks of a file, the number of its pages divided by the pages of a chunk.
+     *
+     * @param file the .sas7bdat file.
+     * @return the number of chunks, at least 1.
+     * @throws IOException if the metadata of the file can not be read.
+     */
+    public int getChunkCount(Path file) throws IOException {
+        return getIndex(FileKey.of(file)).chunkCount;
+    }
+
+    /**
+     * The function to get the values of some columns for the rows of a chunk of a file, from the cache or read
+     * from the pages of the chunk. The missing columns are read together in one pass over the pages, decoding only
+     * them, so a query reading chunk after chunk reads only the pages of the chunks it reaches. The returned chunks
+     * stay valid after they are evicted.
+     *
+     * @param file    the .sas7bdat file.
+     * @param chunk   the index of the chunk, from 0 to {@link #getChunkCount(Path)} excluded.
+     * @param columns the indexes of the columns, from 0.
+     * @return the chunks of the columns, in the order of the indexes.
+     * @throws IOException if the file can not be read.
+     */
+    public ColumnChunk[] getChunk(Path file, int chunk, int... columns) throws IOException {
+        FileKey fileKey = FileKey.of(file);
+        FileIndex index = getIndex(fileKey);
+        if (chunk < 0 || chunk >= index.chunkCount) {
+            throw new IndexOutOfBoundsException("Chunk " + chunk + " of " + index.chunkCount);
+        }
+        for (int column : columns) {
+            if (column < 0 || column >= index.numeric.length) {
+                throw new IndexOutOfBoundsException("Column " + column + " of " + index.numeric.length);
+            }
+        }
+        if (getFirstRow(index, chunk) < 0) {
+            int known = chunk;
+            while (getFirstRow(index, known) < 0) {
+                known--;
+            }
+            for (int previous = known; previous < chunk; previous++) {
+                getChunk(file, previous, columns);
+            }
+        }
+        ColumnChunk[] result = new ColumnChunk[columns.length];
+        boolean complete = true;
+        synchronized (this) {
+            for (int i = 0; i < columns.length; i++) {
+                result[i] = chunks.get(new ChunkKey(fileKey, chunk, columns[i]));
+                if (result[i] == null) {
+                    misses++;
+                    complete = false;
+                } else {
+                    hits++;
+                }
+            }
+        }
+        if (!complete) {
+            readChunk(fileKey, index, chunk, columns, result);
+        }
+        return result;
+    }
+
+    /**
+     * The function to get the chunks of a file as a {@link ColumnChunkSource}, read through this cache.
+     *
+     * @param file the .sas7bdat file.
+     * @return the source of the chunks of the file.
+     */
+    public ColumnChunkSource getSource(final Path file) {
+        return new ColumnChunkSource() {
+            @Override
+            public int getChunkCount() throws IOException {
+                return ColumnChunkCache.this.getChunkCount(file);
+            }
+
+            @Override
+            public ColumnChunk[] getChunk(int chunk, int... columns) throws IOException {
+                return ColumnChunkCache.this.getChunk(file, chunk, columns);
+            }
+        };
+    }
+
+    /**
+     * The function to get the values of a column of a file, from the cache or read from the missing chunks.
+     * The cached chunks are taken first, so reading the missing ones does not evict them. The returned chunks stay
+     * valid after they are evicted.
+     *
+     * @param file   the .sas7bdat file.
+     * @param column the index of the column, from 0.
+     * @return the chunks of the column, in the order of the rows.
+     * @throws IOException if the file can not be read.
+     */
+    public List<ColumnChunk> getColumn(Path file, int column) throws IOException {
+        FileKey fileKey = FileKey.of(file);
+        ColumnChunk[] result = new ColumnChunk[getIndex(fileKey).chunkCount];
+        synchronized (this) {
+            for (int chunk = 0; chunk < result.length; chunk++) {
+                result[chunk] = chunks.get(new ChunkKey(fileKey, chunk, column));
+                if (result[chunk] != null) {
+                    hits++;
+                }
+            }
+        }
+        for (int chunk = 0; chunk < result.length; chunk++) {
+            if (result[chunk] == null) {
+                result[chunk] = getChunk(file, chunk, column)[0];
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Removes the chunks and the positions of a file, to be called when it is known to be rewritten.
+     *
+     * @param file the .sas7bdat file.
+     */
+    public synchronized void invalidate(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        indexes.remove(path);
+        for (Iterator<Map.Entry<ChunkKey, ColumnChunk>> i = chunks.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<ChunkKey, ColumnChunk> entry = i.next();
+            if (entry.getKey().fileKey.path.equals(path)) {
+                size -= entry.getValue().getSizeInBytes();
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every chunk and position.
+     */
+    public synchronized void clear() {
+        chunks.clear();
+        indexes.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the budget of the chunks, in bytes
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of off-heap bytes of the cached chunks
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of chunks found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of chunks read from the files
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of chunks evicted from the cache
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * The function to get the index of the current version of a file, reading its metadata if it was not read
+     * before, and dropping the chunks of an older version.
+     *
+     * @param fileKey the identity of the file.
+     * @return the index.
+     * @throws IOException if the metadata of the file can not be read.
+     */
+    private FileIndex getIndex(FileKey fileKey) throws IOException {
+        synchronized (this) {
+            FileIndex index = indexes.get(fileKey.path);
+            if (index != null && index.fileKey.equals(fileKey)) {
+                return index;
+            }
+            if (index != null) {
+                invalidate(fileKey.path);
+            }
+        }
+        SasFileReaderImpl reader;
+        try (InputStream is = new MappedFileInputStream(fileKey.path)) {
+            reader = SasFileReaderImpl.metadataReader(is);
+        }
+        List<Column> columns = reader.getColumns();
+        boolean[] numeric = new boolean[columns.size()];
+        for (int i = 0; i < numeric.length; i++) {
+            numeric[i] = columns.get(i).getType() == Number.class;
+        }
+        long pageCount = reader.getSasFileProperties().getPageCount();
+        int chunkCount = (int) Math.max(1, (pageCount + pagesPerChunk - 1) / pagesPerChunk);
+        FileIndex index = new FileIndex(fileKey, chunkCount, numeric, reader.getSasFileProperties().getEncoding());
+        synchronized (this) {
+            FileIndex current = indexes.get(fileKey.path);
+            if (current != null && current.fileKey.equals(fileKey)) {
+                return current;
+            }
+            indexes.put(fileKey.path, index);
+            return index;
+        }
+    }
+
+    /**
+     * The function to get the index of the first row of a chunk.
+     *
+     * @param index the index of the file.
+     * @param chunk the index of the chunk, or the number of chunks for the number of rows.
+     * @return the index of the row, -1 if the chunk before was not read yet.
+     */
+    private synchronized long getFirstRow(FileIndex index, int chunk) {
+        return index.firstRows[chunk];
+    }
+
+    /**
+     * Reads the columns of a chunk missing from the cache in one pass over its pages, decoding only them.
+     *
+     * @param fileKey the identity of the file.
+     * @param index   the index of the file.
+     * @param chunk   the index of the chunk.
+     * @param columns the indexes of the columns.
+     * @param result  the chunks of the columns, null for the missing ones, which are filled in.
+     * @throws IOException if the file can not be read or was changed.
+     */
+    private void readChunk(FileKey fileKey, FileIndex index, int chunk, int[] columns, ColumnChunk[] result)
+            throws IOException {
+        int[] missing = new int[columns.length];
+        int missingCount = 0;
+        for (int i = 0; i < columns.length; i++) {
+            if (result[i] == null) {
+                missing[missingCount++] = columns[i];
+            }
+        }
+        missing = Arrays.copyOf(missing, missingCount);
+        List<List<Object>> values = new ArrayList<List<Object>>(missingCount);
+        for (int i = 0; i < missingCount; i++) {
+            values.add(new ArrayList<Object>());
+        }
+        long endPage = chunk == index.chunkCount - 1 ? Long.MAX_VALUE : (long) (chunk + 1) * pagesPerChunk;
+        int rowCount = 0;
+        try (InputStream is = new MappedFileInputStream(fileKey.path)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is, true);
+            reader.setProjection(missing);
+            reader.seekToPage((long) chunk * pagesPerChunk);
+            while (endPage == Long.MAX_VALUE || reader.getPosition().getPageIndex() < endPage) {
+                Object[] row = reader.readNextRaw();
+                if (row == null) {
+                    break;
+                }
+                for (int i = 0; i < missingCount; i++) {
+                    values.get(i).add(row[missing[i]]);
+                }
+                rowCount++;
+            }
+        }
+        synchronized (this) {
+            long firstRow = index.firstRows[chunk];
+            long nextRow = index.firstRows[chunk + 1];
+            if (nextRow >= 0 && nextRow != firstRow + rowCount) {
+                throw new IOException("The file " + fileKey.path + " does not match its cached index");
+            }
+            index.firstRows[chunk + 1] = firstRow + rowCount;
+            for (int i = 0, j = 0; i < columns.length; i++) {
+                if (result[i] == null) {
+                    result[i] = index.numeric[columns[i]] ? ColumnChunk.ofNumbers(firstRow, values.get(j))
+                            : ColumnChunk.ofBytes(firstRow, values.get(j), index.encoding);
+                    put(new ChunkKey(fileKey, chunk, columns[i]), result[i]);
+                    j++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a chunk and evicts the least recently used ones over the budget. Chunks larger than the budget are
+     * not cached.
+     *
+     * @param key   the key of the chunk.
+     * @param chunk the chunk.
+     */
+    private void put(ChunkKey key, ColumnChunk chunk) {
+        if (chunk.getSizeInBytes() > capacity) {
+            return;
+        }
+        ColumnChunk previous = chunks.put(key, chunk);
+        if (previous != null) {
+            size -= previous.getSizeInBytes();
+        }
+        size += chunk.getSizeInBytes();
+        for (Iterator<ColumnChunk> i = chunks.values().iterator(); size > capacity && i.hasNext();) {
+            size -= i.next().getSizeInBytes();
+            i.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * The holder of the shared cache, created on first use.
+     */
+    private static final class SharedHolder {
+        /**
+         * The shared cache.
+         */
+        private static final ColumnChunkCache INSTANCE = new ColumnChunkCache(
+                Long.getLong(CAPACITY_PROPERTY, DEFAULT_CAPACITY), DEFAULT_PAGES_PER_CHUNK);
+
+        /**
+         * The holder is not instantiated.
+         */
+        private SharedHolder() {
+        }
+    }
+
+    /**
+     * The identity of a version of a file: its path, size and modification time.
+     */
+    private static final class FileKey {
+        /**
+         * The absolute path of the file.
+         */
+        private final Path path;
+
+        /**
+         * The size of the file.
+         */
+        private final long size;
+
+        /**
+         * The modification time of the file, in milliseconds.
+         */
+        private final long mtime;
+
+        /**
+         * Creates the identity of a file.
+         *
+         * @param path  the absolute path of the file.
+         * @param size  the size of the file.
+         * @param mtime the modification time of the file.
+         */
+        private FileKey(Path path, long size, long mtime) {
+            this.path = path;
+            this.size = size;
+            this.mtime = mtime;
+        }
+
+        /**
+         * The function to get the identity of the current version of a file.
+         *
+         * @param file the file.
+         * @return the identity.
+         * @throws IOException if the attributes of the file can not be read.
+         */
+        private static FileKey of(Path file) throws IOException {
+            Path path = file.toAbsolutePath().normalize();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileKey(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        /**
+         * The function to compare keys.
+         *
+         * @param o the other key.
+         * @return true if the keys are equal.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileKey)) {
+                return false;
+            }
+            FileKey other = (FileKey) o;
+            return path.equals(other.path) && size == other.size && mtime == other.mtime;
+        }
+
+        /**
+         * The function to hash the key.
+         *
+         * @return the hash code.
+         */
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + Long.valueOf(size).hashCode()) * 31 + Long.valueOf(mtime).hashCode();
+        }
+    }
+
+    /**
+     * The key of a chunk: the file, the index of the chunk and the column.
+     */
+    private static final class ChunkKey {
+        /**
+         * The identity of the file.
+         */
+        private final FileKey fileKey;
+
+        /**
+         * The index of the chunk in the file.
+         */
+        private final int chunk;
+
+        /**
+         * The index of the column.
+         */
+        private final int column;
+
+        /**
+         * Creates the key of a chunk.
+         *
+         * @param fileKey the identity of the file.
+         * @param chunk   the index of the chunk in the file.
+         * @param column  the index of the column.
+         */
+        private ChunkKey(FileKey fileKey, int chunk, int column) {
+            this.fileKey = fileKey;
+            this.chunk = chunk;
+            this.column = column;
+        }
+
+        /**
+         * The function to compare keys.
+         *
+         * @param o the other key.
+         * @return true if the keys are equal.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ChunkKey)) {
+                return false;
+            }
+            ChunkKey other = (ChunkKey) o;
+            return chunk == other.chunk && column == other.column && fileKey.equals(other.fileKey);
+        }
+
+        /**
+         * The function to hash the key.
+         *
+         * @return the hash code.
+         */
+        @Override
+        public int hashCode() {
+            return (fileKey.hashCode() * 31 + chunk) * 31 + column;
+        }
+    }
+
+    /**
+     * The layout of the chunks of a file: their number, the types of the columns and the first row of every chunk
+     * read so far.
+     */
+    private static final class FileIndex {
+        /**
+         * The identity of the file.
+         */
+        private final FileKey fileKey;
+
+        /**
+         * The number of chunks of the file.
+         */
+        private final int chunkCount;
+
+        /**
+         * Whether a column is numeric, by column index.
+         */
+        private final boolean[] numeric;
+
+        /**
+         * The encoding of the file.
+         */
+        private final String encoding;
+
+        /**
+         * The index of the first row of every chunk, and the number of rows at the end, -1 until the chunk before
+         * is read. Guarded by the cache.
+         */
+        private final long[] firstRows;
+
+        /**
+         * Creates the index of a file.
+         *
+         * @param fileKey    the identity of the file.
+         * @param chunkCount the number of chunks of the file.
+         * @param numeric    whether a column is numeric, by column index.
+         * @param encoding   the encoding of the file.
+         */
+        private FileIndex(FileKey fileKey, int chunkCount, boolean[] numeric, String encoding) {
+            this.fileKey = fileKey;
+            this.chunkCount = chunkCount;
+            this.numeric = numeric;
+            this.encoding = encoding;
+            firstRows = new long[chunkCount + 1];
+            Arrays.fill(firstRows, 1, firstRows.length, -1);
+        }
+    }
+}
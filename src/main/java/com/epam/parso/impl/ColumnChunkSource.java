@@ -0,0 +1,29 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+
+/**
+ * The values of the rows of a file as {@link ColumnChunk}s: the rows are split into chunks, the same for every
+ * column, and the chunks of several columns are fetched together, so the readers working on columns go chunk after
+ * chunk without decoding rows. {@link ColumnarSnapshot} maps them from its snapshot, and
+ * {@link ColumnChunkCache#getSource(java.nio.file.Path)} reads them from the cache or from the file.
+ */
+public interface ColumnChunkSource {
+    /**
+     * The function to get the number of chunks of every column.
+     *
+     * @return the number of chunks.
+     * @throws IOException if the metadata of the file can not be read.
+     */
+    int getChunkCount() throws IOException;
+
+    /**
+     * The function to get the values of some columns for the rows of a chunk.
+     *
+     * @param chunk   the index of the chunk, from 0 to {@link #getChunkCount()} excluded.
+     * @param columns the indexes of the columns, from 0.
+     * @return the chunks of the columns, in the order of the indexes.
+     * @throws IOException if the values can not be read.
+     */
+    ColumnChunk[] getChunk(int chunk, int... columns) throws IOException;
+}
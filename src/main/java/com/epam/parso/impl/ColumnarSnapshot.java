@@ -0,0 +1,602 @@
+package com.epam.parso.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileProperties;
+import com.epam.parso.SasFileReader;
+
+/**
+ * A columnar copy of a .sas7bdat file, written next to it and mapped to read it again without decompressing the
+ * pages and decoding the rows. Every column is one contiguous region of chunks in the layout of {@link ColumnChunk}:
+ * the raw doubles of the numeric columns, NaN for missing values, and an offset table followed by the trimmed bytes
+ * of the character columns, a missing value having no bytes. A footer holds the metadata of the file, its columns,
+ * the chunks of every column and the size and modification time of the file, and the snapshot is rewritten by
+ * {@link #open(Path)} when they no longer match.
+ * <p>
+ * {@link #getColumn(int)} and {@link #getChunk(int, int...)} return chunks reading the mapped snapshot without
+ * copying it, so the readers working on columns, such as the SQL engine, read the snapshot as a
+ * {@link ColumnChunkSource}. The rows are read through {@link SasFileReader} with the values and types the file
+ * reader returns, converted straight from the chunks by a converter chosen once per column from its format.
+ */
+public final class ColumnarSnapshot implements SasFileReader, ColumnChunkSource {
+    /**
+     * The suffix added to the name of a file to name its snapshot.
+     */
+    public static final String SUFFIX = ".columnar";
+
+    /**
+     * The magic number starting and ending a snapshot.
+     */
+    static final byte[] MAGIC = {'P', 'A', 'R', 'S', 'O', 'C', 'O', 'L'};
+
+    /**
+     * The version of the layout of the snapshots.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The length of the header, the magic number and the version, aligned to 8 bytes.
+     */
+    static final int HEADER_LENGTH = 16;
+
+    /**
+     * The length of the trailer, the offset of the footer and the magic number.
+     */
+    static final int TRAILER_LENGTH = 16;
+
+    /**
+     * The logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ColumnarSnapshot.class);
+
+    /**
+     * The metadata of the source.
+     */
+    private final SasFileProperties properties;
+
+    /**
+     * The columns of the source.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The chunks of every column.
+     */
+    private final List<List<ColumnChunk>> chunks;
+
+    /**
+     * The number of rows of every chunk but the last one.
+     */
+    private final int chunkRows;
+
+    /**
+     * The conversion of every column converting dates, as the kinds of {@link RowDecoder#getKind}.
+     */
+    private final char[] kinds;
+
+    /**
+     * The conversion of every column without converting dates.
+     */
+    private final char[] rawKinds;
+
+    /**
+     * The charset of the character values, null if it is not supported.
+     */
+    private final Charset charset;
+
+    /**
+     * The bytes of the character value being converted, as long as the longest character column.
+     */
+    private final byte[] value;
+
+    /**
+     * The chunks of the next row, by column.
+     */
+    private final ColumnChunk[] current;
+
+    /**
+     * The index of the chunks of {@link #current}, -1 before the first row.
+     */
+    private int currentChunk = -1;
+
+    /**
+     * The index of the next row to read.
+     */
+    private long nextRow;
+
+    /**
+     * Maps a snapshot.
+     *
+     * @param properties the metadata of the source.
+     * @param columns    the columns of the source.
+     * @param chunks     the chunks of every column.
+     * @param chunkRows  the number of rows of every chunk but the last one.
+     */
+    private ColumnarSnapshot(SasFileProperties properties, List<Column> columns, List<List<ColumnChunk>> chunks,
+                             int chunkRows) {
+        this.properties = properties;
+        this.columns = Collections.unmodifiableList(columns);
+        this.chunks = chunks;
+        this.chunkRows = chunkRows;
+        kinds = new char[columns.size()];
+        rawKinds = new char[columns.size()];
+        int longest = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            Column column = columns.get(i);
+            kinds[i] = RowDecoder.getKind(column, column.getLength(), false);
+            rawKinds[i] = RowDecoder.getKind(column, column.getLength(), true);
+            if (column.getType() != Number.class) {
+                longest = Math.max(longest, column.getLength());
+            }
+        }
+        charset = RowDecoder.getCharset(properties.getEncoding());
+        value = new byte[longest];
+        current = new ColumnChunk[columns.size()];
+    }
+
+    /**
+     * The function to get the path of the snapshot of a file.
+     *
+     * @param source the .sas7bdat file.
+     * @return the path of its snapshot, in the same directory.
+     */
+    public static Path getSnapshotPath(Path source) {
+        Path absolute = source.toAbsolutePath();
+        return absolute.resolveSibling(absolute.getFileName().toString() + SUFFIX);
+    }
+
+    /**
+     * Maps the snapshot of a file, after writing it if it is missing, unreadable or older than the file.
+     *
+     * @param source the .sas7bdat file.
+     * @return the snapshot.
+     * @throws IOException if the file can not be read or the snapshot can not be written.
+     */
+    public static ColumnarSnapshot open(Path source) throws IOException {
+        Path snapshot = getSnapshotPath(source);
+        try {
+            ColumnarSnapshot result = map(snapshot, source);
+            if (result != null) {
+                return result;
+            }
+            LOGGER.debug("The snapshot {} is older than its file, rewriting it", snapshot);
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("Writing the snapshot {}", snapshot);
+        } catch (IOException e) {
+            LOGGER.warn("Can not read the snapshot " + snapshot + ", rewriting it", e);
+        }
+        return create(source);
+    }
+
+    /**
+     * Writes the snapshot of a file, replacing any previous one, and maps it.
+     *
+     * @param source the .sas7bdat file.
+     * @return the snapshot.
+     * @throws IOException if the file can not be read, the snapshot can not be written or the file changed while
+     *                     it was read.
+     */
+    public static ColumnarSnapshot create(Path source) throws IOException {
+        Path snapshot = getSnapshotPath(source);
+        ColumnarSnapshotWriter.write(source, snapshot);
+        ColumnarSnapshot result = map(snapshot, source);
+        if (result == null) {
+            throw new IOException("The file " + source + " changed after its snapshot was written");
+        }
+        return result;
+    }
+
+    /**
+     * The function to check whether the snapshot of a file exists and matches the current version of the file.
+     *
+     * @param source the .sas7bdat file.
+     * @return true if {@link #open(Path)} would map the snapshot without rewriting it.
+     * @throws IOException if the attributes of the file can not be read.
+     */
+    public static boolean isCurrent(Path source) throws IOException {
+        Path snapshot = getSnapshotPath(source);
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            DataInputStream footer = readFooter(channel);
+            return matches(footer, source);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a snapshot if it matches the current version of its file.
+     *
+     * @param snapshot the snapshot.
+     * @param source   the .sas7bdat file.
+     * @return the snapshot, or null if the file changed since it was written.
+     * @throws IOException if the snapshot can not be read or is not valid.
+     */
+    private static ColumnarSnapshot map(Path snapshot, Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            DataInputStream footer = readFooter(channel);
+            if (!matches(footer, source)) {
+                return null;
+            }
+            SasFileProperties properties = readProperties(footer);
+            int chunkRows = footer.readInt();
+            int columnCount = footer.readInt();
+            List<Column> columns = new ArrayList<Column>(columnCount);
+            List<List<ColumnChunk>> chunks = new ArrayList<List<ColumnChunk>>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                int id = footer.readInt();
+                String name = readString(footer);
+                String label = readString(footer);
+                String format = readString(footer);
+                boolean numeric = footer.readBoolean();
+                columns.add(new Column(id, name, label, format, numeric ? Number.class : String.class,
+                        footer.readInt()));
+                int chunkCount = footer.readInt();
+                long[] offsets = new long[chunkCount];
+                long[] lengths = new long[chunkCount];
+                for (int chunk = 0; chunk < chunkCount; chunk++) {
+                    offsets[chunk] = footer.readLong();
+                    lengths[chunk] = footer.readLong();
+                }
+                chunks.add(mapColumn(channel, offsets, lengths, chunkRows, properties.getRowCount(), numeric,
+                        properties.getEncoding()));
+            }
+            return new ColumnarSnapshot(properties, columns, chunks, chunkRows);
+        }
+    }
+
+    /**
+     * Maps the chunks of a column, grouping consecutive chunks in mappings of at most 2 GB.
+     *
+     * @param channel   the channel of the snapshot.
+     * @param offsets   the offsets of the chunks.
+     * @param lengths   the lengths of the chunks.
+     * @param chunkRows the number of rows of every chunk but the last one.
+     * @param rowCount  the number of rows.
+     * @param numeric   true for a numeric column.
+     * @param encoding  the encoding of the character values.
+     * @return the chunks.
+     * @throws IOException if the snapshot can not be mapped.
+     */
+    private static List<ColumnChunk> mapColumn(FileChannel channel, long[] offsets, long[] lengths, int chunkRows,
+                                               long rowCount, boolean numeric, String encoding) throws IOException {
+        List<ColumnChunk> result = new ArrayList<ColumnChunk>(offsets.length);
+        MappedByteBuffer mapping = null;
+        long mappingOffset = 0;
+        for (int chunk = 0; chunk < offsets.length; chunk++) {
+            if (offsets[chunk] < 0 || lengths[chunk] < 0 || offsets[chunk] + lengths[chunk] > channel.size()) {
+                throw new IOException("A chunk is outside of the snapshot");
+            }
+            if (mapping == null || offsets[chunk] + lengths[chunk] - mappingOffset > mapping.capacity()) {
+                long end = offsets[chunk];
+                for (int next = chunk; next < offsets.length
+                        && offsets[next] + lengths[next] - offsets[chunk] <= Integer.MAX_VALUE; next++) {
+                    end = offsets[next] + lengths[next];
+                }
+                if (end - offsets[chunk] < lengths[chunk]) {
+                    throw new IOException("A chunk is larger than 2 GB");
+                }
+                mappingOffset = offsets[chunk];
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappingOffset, end - mappingOffset);
+            }
+            ByteBuffer buffer = mapping.duplicate();
+            ((Buffer) buffer).position((int) (offsets[chunk] - mappingOffset));
+            ((Buffer) buffer).limit((int) (offsets[chunk] - mappingOffset + lengths[chunk]));
+            long firstRow = (long) chunk * chunkRows;
+            int rows = (int) Math.max(0, Math.min(chunkRows, rowCount - firstRow));
+            result.add(ColumnChunk.wrap(firstRow, rows, numeric, encoding, buffer));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Reads the footer of a snapshot after checking its header and trailer.
+     *
+     * @param channel the channel of the snapshot.
+     * @return the footer.
+     * @throws IOException if the snapshot can not be read or is not valid.
+     */
+    private static DataInputStream readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+            throw new IOException("The snapshot is truncated");
+        }
+        ByteBuffer header = readFully(channel, 0, HEADER_LENGTH);
+        ByteBuffer trailer = readFully(channel, size - TRAILER_LENGTH, TRAILER_LENGTH);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        int version = header.getInt();
+        long footerOffset = trailer.getLong();
+        byte[] endMagic = new byte[MAGIC.length];
+        trailer.get(endMagic);
+        if (!Arrays.equals(magic, MAGIC) || !Arrays.equals(endMagic, MAGIC) || version != VERSION
+                || footerOffset < HEADER_LENGTH || footerOffset > size - TRAILER_LENGTH
+                || size - TRAILER_LENGTH - footerOffset > Integer.MAX_VALUE) {
+            throw new IOException("Not a snapshot of version " + VERSION);
+        }
+        ByteBuffer footer = readFully(channel, footerOffset, (int) (size - TRAILER_LENGTH - footerOffset));
+        return new DataInputStream(new ByteArrayInputStream(footer.array()));
+    }
+
+    /**
+     * Reads bytes of a channel.
+     *
+     * @param channel  the channel.
+     * @param position the offset of the bytes.
+     * @param length   the number of bytes.
+     * @return the bytes, in a buffer positioned at its beginning.
+     * @throws IOException if the channel can not be read or ends before.
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The snapshot is truncated");
+            }
+        }
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    /**
+     * The function to compare the identity of the source recorded in a footer with the current file.
+     *
+     * @param footer the footer, positioned at its beginning.
+     * @param source the .sas7bdat file.
+     * @return true if the file has the recorded size and modification time.
+     * @throws IOException if the footer or the attributes of the file can not be read.
+     */
+    private static boolean matches(DataInputStream footer, Path source) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        long size = footer.readLong();
+        long modified = footer.readLong();
+        return size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Reads the metadata of the source from a footer.
+     *
+     * @param footer the footer, positioned after the identity of the source.
+     * @return the metadata.
+     * @throws IOException if the footer can not be read.
+     */
+    private static SasFileProperties readProperties(DataInputStream footer) throws IOException {
+        SasFileProperties properties = new SasFileProperties();
+        properties.setName(readString(footer));
+        properties.setFileType(readString(footer));
+        properties.setDateCreated(readDate(footer));
+        properties.setDateModified(readDate(footer));
+        properties.setSasRelease(readString(footer));
+        properties.setServerType(readString(footer));
+        properties.setOsName(readString(footer));
+        properties.setOsType(readString(footer));
+        properties.setEndianness(footer.readInt());
+        properties.setEncoding(readString(footer));
+        properties.setSessionEncoding(readString(footer));
+        properties.setU64(footer.readBoolean());
+        properties.setCompressionMethod(readString(footer));
+        properties.setHeaderLength(footer.readInt());
+        properties.setPageLength(footer.readInt());
+        properties.setPageCount(footer.readLong());
+        properties.setRowLength(footer.readLong());
+        properties.setRowCount(footer.readLong());
+        properties.setMixPageRowCount(footer.readLong());
+        return properties;
+    }
+
+    /**
+     * Reads a string which may be null.
+     *
+     * @param footer the footer.
+     * @return the string.
+     * @throws IOException if the footer can not be read.
+     */
+    private static String readString(DataInputStream footer) throws IOException {
+        return footer.readBoolean() ? footer.readUTF() : null;
+    }
+
+    /**
+     * Reads a date which may be null.
+     *
+     * @param footer the footer.
+     * @return the date.
+     * @throws IOException if the footer can not be read.
+     */
+    private static Date readDate(DataInputStream footer) throws IOException {
+        return footer.readBoolean() ? new Date(footer.readLong()) : null;
+    }
+
+    /**
+     * The function to get the values of a column, reading the mapped snapshot without copying it.
+     *
+     * @param column the index of the column, from 0.
+     * @return the chunks of the column, in the order of the rows.
+     */
+    public List<ColumnChunk> getColumn(int column) {
+        if (column < 0 || column >= columns.size()) {
+            throw new IndexOutOfBoundsException("Column " + column + " of " + columns.size());
+        }
+        return chunks.get(column);
+    }
+
+    /**
+     * The function to get the number of chunks of every column.
+     *
+     * @return the number of chunks.
+     */
+    @Override
+    public int getChunkCount() {
+        return columns.isEmpty() ? 0 : chunks.get(0).size();
+    }
+
+    /**
+     * The function to get the values of some columns for the rows of a chunk, reading the mapped snapshot without
+     * copying it.
+     *
+     * @param chunk   the index of the chunk, from 0 to {@link #getChunkCount()} excluded.
+     * @param columns the indexes of the columns, from 0.
+     * @return the chunks of the columns, in the order of the indexes.
+     */
+    @Override
+    public ColumnChunk[] getChunk(int chunk, int... columns) {
+        ColumnChunk[] result = new ColumnChunk[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            result[i] = getColumn(columns[i]).get(chunk);
+        }
+        return result;
+    }
+
+    /**
+     * The function to get the {@link Column} list of the source.
+     *
+     * @return a list of columns.
+     */
+    @Override
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * The function to get the metadata of the source, with the number of rows of the snapshot.
+     *
+     * @return the metadata.
+     */
+    @Override
+    public SasFileProperties getSasFileProperties() {
+        return properties;
+    }
+
+    /**
+     * Reads the remaining rows.
+     *
+     * @return an array of array objects whose elements can be objects of the following classes: double, long,
+     * int, String, Date, LocalDateTime depending on the column they are in.
+     */
+    @Override
+    public Object[][] readAll() {
+        return readAll(false);
+    }
+
+    /**
+     * Reads the remaining rows without converting numbers to date objects.
+     *
+     * @return an array of array objects whose elements can be objects of the following classes: double, long,
+     * int, String depending on the column they are in.
+     */
+    @Override
+    public Object[][] readAllRaw() {
+        return readAll(true);
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return an array of objects whose elements can be objects of the following classes: double, long, int,
+     * String, Date, LocalDateTime depending on the column they are in, or null after the last row.
+     */
+    @Override
+    public Object[] readNext() {
+        return read(false);
+    }
+
+    /**
+     * Reads the next row without converting numbers to date objects.
+     *
+     * @return an array of objects whose elements can be objects of the following classes: double, long, int,
+     * String depending on the column they are in, or null after the last row.
+     */
+    @Override
+    public Object[] readNextRaw() {
+        return read(true);
+    }
+
+    /**
+     * Reads the remaining rows.
+     *
+     * @param raw true if dates and datetimes are returned as numbers.
+     * @return the rows.
+     */
+    private Object[][] readAll(boolean raw) {
+        long remaining = properties.getRowCount() - nextRow;
+        if (remaining > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The snapshot has " + remaining + " rows, more than an array can hold, "
+                    + "read it with readNext");
+        }
+        Object[][] result = new Object[(int) remaining][];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = read(raw);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the values of the next row from the chunks, with the conversions of the file reader.
+     *
+     * @param raw true if dates and datetimes are returned as numbers.
+     * @return the row, or null after the last row.
+     */
+    private Object[] read(boolean raw) {
+        if (nextRow >= properties.getRowCount()) {
+            return null;
+        }
+        int chunk = (int) (nextRow / chunkRows);
+        int index = (int) (nextRow % chunkRows);
+        if (chunk != currentChunk) {
+            for (int i = 0; i < current.length; i++) {
+                current[i] = chunks.get(i).get(chunk);
+            }
+            currentChunk = chunk;
+        }
+        char[] columnKinds = raw ? rawKinds : kinds;
+        Object[] result = new Object[columnKinds.length];
+        for (int i = 0; i < columnKinds.length; i++) {
+            switch (columnKinds[i]) {
+                case 's':
+                    int length = current[i].copyBytes(index, value, 0);
+                    result[i] = length == 0 ? null
+                            : RowDecoder.decodeString(value, 0, length, properties.getEncoding(), charset);
+                    break;
+                case 'h':
+                    result[i] = (int) current[i].getDouble(index);
+                    break;
+                case 'd':
+                    result[i] = current[i].getDouble(index);
+                    break;
+                case 't':
+                    result[i] = RowDecoder.toDateTime(current[i].getDouble(index));
+                    break;
+                case 'a':
+                    result[i] = RowDecoder.toDate(current[i].getDouble(index));
+                    break;
+                default:
+                    result[i] = RowDecoder.toNumber(current[i].getDouble(index));
+                    break;
+            }
+        }
+        nextRow++;
+        return result;
+    }
+}
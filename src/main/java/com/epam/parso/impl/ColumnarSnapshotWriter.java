@@ -0,0 +1,393 @@
+package com.epam.parso.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileProperties;
+
+/**
+ * Converts a .sas7bdat file to a {@link ColumnarSnapshot}. The file is read once, in chunks of rows: the numeric
+ * columns are written straight to their regions, whose sizes are known from the row count, and the character
+ * columns are spooled to a temporary file and appended after them, so that every column ends up in one contiguous
+ * region without holding the file in memory. The snapshot is written under a temporary name and moved over the
+ * previous one, so readers never see a partial snapshot.
+ */
+final class ColumnarSnapshotWriter {
+    /**
+     * The number of bytes of the rows of the source buffered for one chunk.
+     */
+    private static final long CHUNK_SOURCE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * The largest number of rows of a chunk.
+     */
+    private static final int MAX_CHUNK_ROWS = 65536;
+
+    /**
+     * The number of bytes of a numeric value.
+     */
+    private static final int DOUBLE_BYTES = 8;
+
+    /**
+     * The writer is not instantiated.
+     */
+    private ColumnarSnapshotWriter() {
+    }
+
+    /**
+     * Writes the snapshot of a file next to it.
+     *
+     * @param source   the .sas7bdat file.
+     * @param snapshot the snapshot file to write.
+     * @throws IOException if the file can not be read, the snapshot can not be written or the file changed while
+     *                     it was read.
+     */
+    static void write(Path source, Path snapshot) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        Path directory = snapshot.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+        Path spool = Files.createTempFile(directory, snapshot.getFileName().toString(), ".spool");
+        try {
+            try (InputStream is = new ReadPlanner().plan(source, 0).open(source);
+                 FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                 FileChannel spoolChannel = FileChannel.open(spool, StandardOpenOption.READ,
+                         StandardOpenOption.WRITE)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is, true);
+                new Conversion(reader, out, spoolChannel).run(attributes);
+            }
+            BasicFileAttributes after = Files.readAttributes(source, BasicFileAttributes.class);
+            if (after.size() != attributes.size()
+                    || after.lastModifiedTime().toMillis() != attributes.lastModifiedTime().toMillis()) {
+                throw new IOException("The file " + source + " changed while its snapshot was written");
+            }
+            try {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * The conversion of one file.
+     */
+    private static final class Conversion {
+        /**
+         * The reader of the file, with byte output.
+         */
+        private final SasFileReaderImpl reader;
+
+        /**
+         * The snapshot being written.
+         */
+        private final FileChannel out;
+
+        /**
+         * The spool of the chunks of the character columns.
+         */
+        private final FileChannel spool;
+
+        /**
+         * The metadata of the file.
+         */
+        private final SasFileProperties properties;
+
+        /**
+         * The columns of the file.
+         */
+        private final List<Column> columns;
+
+        /**
+         * The number of rows of a chunk.
+         */
+        private final int chunkRows;
+
+        /**
+         * The offset of the region of every column in the snapshot.
+         */
+        private final long[] regionOffsets;
+
+        /**
+         * The offsets of the chunks of every column, in the snapshot for numeric columns and in the spool for
+         * character columns until they are appended.
+         */
+        private final List<List<Long>> chunkOffsets = new ArrayList<List<Long>>();
+
+        /**
+         * The lengths of the chunks of every column.
+         */
+        private final List<List<Long>> chunkLengths = new ArrayList<List<Long>>();
+
+        /**
+         * Prepares the conversion of a file.
+         *
+         * @param reader the reader of the file, with byte output.
+         * @param out    the snapshot being written.
+         * @param spool  the spool of the chunks of the character columns.
+         */
+        private Conversion(SasFileReaderImpl reader, FileChannel out, FileChannel spool) {
+            this.reader = reader;
+            this.out = out;
+            this.spool = spool;
+            properties = reader.getSasFileProperties();
+            columns = reader.getColumns();
+            chunkRows = (int) Math.max(1, Math.min(MAX_CHUNK_ROWS,
+                    CHUNK_SOURCE_BYTES / Math.max(1, properties.getRowLength())));
+            regionOffsets = new long[columns.size()];
+            long offset = ColumnarSnapshot.HEADER_LENGTH;
+            for (int i = 0; i < columns.size(); i++) {
+                chunkOffsets.add(new ArrayList<Long>());
+                chunkLengths.add(new ArrayList<Long>());
+                if (isNumeric(i)) {
+                    regionOffsets[i] = offset;
+                    offset += properties.getRowCount() * DOUBLE_BYTES;
+                }
+            }
+        }
+
+        /**
+         * Reads the rows and writes the regions, the footer and the header.
+         *
+         * @param attributes the attributes of the file when the conversion started.
+         * @throws IOException if the file can not be read or the snapshot can not be written.
+         */
+        private void run(BasicFileAttributes attributes) throws IOException {
+            List<List<Object>> values = new ArrayList<List<Object>>(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                values.add(new ArrayList<Object>(chunkRows));
+            }
+            long firstRow = 0;
+            long rowCount = 0;
+            for (Object[] row = reader.readNextRaw(); row != null; row = reader.readNextRaw()) {
+                for (int i = 0; i < row.length; i++) {
+                    values.get(i).add(row[i]);
+                }
+                rowCount++;
+                if (rowCount - firstRow == chunkRows) {
+                    writeChunk(firstRow, values);
+                    firstRow = rowCount;
+                }
+            }
+            if (rowCount > firstRow || rowCount == 0) {
+                writeChunk(firstRow, values);
+            }
+            if (rowCount != properties.getRowCount()) {
+                throw new IOException("Read " + rowCount + " rows, the metadata has " + properties.getRowCount());
+            }
+
+            long position = ColumnarSnapshot.HEADER_LENGTH + rowCount * DOUBLE_BYTES * countNumericColumns();
+            for (int i = 0; i < columns.size(); i++) {
+                if (isNumeric(i)) {
+                    continue;
+                }
+                regionOffsets[i] = position;
+                List<Long> offsets = chunkOffsets.get(i);
+                for (int chunk = 0; chunk < offsets.size(); chunk++) {
+                    long spoolOffset = offsets.get(chunk);
+                    long length = chunkLengths.get(i).get(chunk);
+                    long copied = 0;
+                    while (copied < length) {
+                        copied += spool.transferTo(spoolOffset + copied, length - copied,
+                                out.position(position + copied));
+                    }
+                    offsets.set(chunk, position);
+                    position += align(length);
+                }
+            }
+
+            ByteBuffer footer = ByteBuffer.wrap(buildFooter(attributes, rowCount));
+            writeFully(footer, position);
+            ByteBuffer trailer = ByteBuffer.allocate(ColumnarSnapshot.TRAILER_LENGTH);
+            trailer.putLong(position).put(ColumnarSnapshot.MAGIC);
+            ((Buffer) trailer).flip();
+            writeFully(trailer, position + footer.capacity());
+            ByteBuffer header = ByteBuffer.allocate(ColumnarSnapshot.HEADER_LENGTH);
+            header.put(ColumnarSnapshot.MAGIC).putInt(ColumnarSnapshot.VERSION);
+            ((Buffer) header).rewind();
+            writeFully(header, 0);
+            out.force(false);
+        }
+
+        /**
+         * Writes the chunk of every column and clears the values.
+         *
+         * @param firstRow the index of the first row of the chunk.
+         * @param values   the values of the rows of the chunk, by column.
+         * @throws IOException if the snapshot can not be written.
+         */
+        private void writeChunk(long firstRow, List<List<Object>> values) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                List<Object> columnValues = values.get(i);
+                if (isNumeric(i)) {
+                    ColumnChunk chunk = ColumnChunk.ofNumbers(firstRow, columnValues);
+                    long offset = regionOffsets[i] + firstRow * DOUBLE_BYTES;
+                    writeFully(chunk.getBuffer(), offset);
+                    chunkOffsets.get(i).add(offset);
+                    chunkLengths.get(i).add((long) chunk.getSizeInBytes());
+                } else {
+                    ColumnChunk chunk = ColumnChunk.ofBytes(firstRow, columnValues, properties.getEncoding());
+                    long offset = spool.size();
+                    ByteBuffer buffer = chunk.getBuffer();
+                    while (buffer.hasRemaining()) {
+                        spool.write(buffer, offset + buffer.position());
+                    }
+                    chunkOffsets.get(i).add(offset);
+                    chunkLengths.get(i).add((long) chunk.getSizeInBytes());
+                    long padding = align(chunk.getSizeInBytes()) - chunk.getSizeInBytes();
+                    if (padding > 0) {
+                        spool.write(ByteBuffer.allocate((int) padding), offset + chunk.getSizeInBytes());
+                    }
+                }
+                columnValues.clear();
+            }
+        }
+
+        /**
+         * Builds the footer: the identity of the source, its metadata, its columns and the chunks of every column.
+         *
+         * @param attributes the attributes of the source.
+         * @param rowCount   the number of rows.
+         * @return the footer.
+         * @throws IOException never, the footer is written to memory.
+         */
+        private byte[] buildFooter(BasicFileAttributes attributes, long rowCount) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeLong(attributes.size());
+            data.writeLong(attributes.lastModifiedTime().toMillis());
+
+            writeString(data, properties.getName());
+            writeString(data, properties.getFileType());
+            writeDate(data, properties.getDateCreated());
+            writeDate(data, properties.getDateModified());
+            writeString(data, properties.getSasRelease());
+            writeString(data, properties.getServerType());
+            writeString(data, properties.getOsName());
+            writeString(data, properties.getOsType());
+            data.writeInt(properties.getEndianness());
+            writeString(data, properties.getEncoding());
+            writeString(data, properties.getSessionEncoding());
+            data.writeBoolean(properties.isU64());
+            writeString(data, properties.getCompressionMethod());
+            data.writeInt(properties.getHeaderLength());
+            data.writeInt(properties.getPageLength());
+            data.writeLong(properties.getPageCount());
+            data.writeLong(properties.getRowLength());
+            data.writeLong(rowCount);
+            data.writeLong(properties.getMixPageRowCount());
+
+            data.writeInt(chunkRows);
+            data.writeInt(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                data.writeInt(column.getId());
+                writeString(data, column.getName());
+                writeString(data, column.getLabel());
+                writeString(data, column.getFormat());
+                data.writeBoolean(isNumeric(i));
+                data.writeInt(column.getLength());
+                List<Long> offsets = chunkOffsets.get(i);
+                data.writeInt(offsets.size());
+                for (int chunk = 0; chunk < offsets.size(); chunk++) {
+                    data.writeLong(offsets.get(chunk));
+                    data.writeLong(chunkLengths.get(i).get(chunk));
+                }
+            }
+            data.flush();
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Writes a buffer at an offset of the snapshot.
+         *
+         * @param buffer   the buffer.
+         * @param position the offset in the snapshot.
+         * @throws IOException if the snapshot can not be written.
+         */
+        private void writeFully(ByteBuffer buffer, long position) throws IOException {
+            long offset = position;
+            while (buffer.hasRemaining()) {
+                offset += out.write(buffer, offset);
+            }
+        }
+
+        /**
+         * The function to check the type of a column.
+         *
+         * @param column the index of the column.
+         * @return true for a numeric column.
+         */
+        private boolean isNumeric(int column) {
+            return columns.get(column).getType() == Number.class;
+        }
+
+        /**
+         * @return the number of numeric columns
+         */
+        private int countNumericColumns() {
+            int count = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                if (isNumeric(i)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The function to align a length to 8 bytes.
+     *
+     * @param length the length.
+     * @return the aligned length.
+     */
+    private static long align(long length) {
+        return (length + DOUBLE_BYTES - 1) / DOUBLE_BYTES * DOUBLE_BYTES;
+    }
+
+    /**
+     * Writes a string which may be null.
+     *
+     * @param data  the output.
+     * @param value the string.
+     * @throws IOException if the output can not be written.
+     */
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    /**
+     * Writes a date which may be null.
+     *
+     * @param data  the output.
+     * @param value the date.
+     * @throws IOException if the output can not be written.
+     */
+    private static void writeDate(DataOutputStream data, Date value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeLong(value.getTime());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.epam.parso.impl;
+
+/**
+ * Interface which should be implemented in all data compressors, the inverse of {@link Decompressor}.
+ */
+interface Compressor {
+
+    /**
+     * The function to compress the data of a row. The result is decompressed by the {@link Decompressor} of the same
+     * compression literal.
+     *
+     * @param row    an array of bytes with the row.
+     * @param offset the offset of the row in <code>row</code>.
+     * @param length the length of the row.
+     * @return an array of bytes with control bytes and data bytes, which can be longer than the row.
+     */
+    byte[] compressRow(byte[] row, int offset, int length);
+}
@@ -0,0 +1,73 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that counts the number of bytes written through it.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    /**
+     * The number of bytes written so far.
+     */
+    private long count;
+
+    /**
+     * Creates a stream counting the bytes written to the given stream.
+     *
+     * @param out the stream to write to.
+     */
+    public CountingOutputStream(OutputStream out) {
+        this(out, 0);
+    }
+
+    /**
+     * Creates a stream counting the bytes written to the given stream, starting from an initial count. Used when
+     * the underlying stream appends to existing data.
+     *
+     * @param out          the stream to write to.
+     * @param initialCount the number of bytes considered already written.
+     */
+    public CountingOutputStream(OutputStream out, long initialCount) {
+        super(out);
+        this.count = initialCount;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+
+    /**
+     * The function to get {@link CountingOutputStream#count}.
+     *
+     * @return the number of bytes written so far.
+     */
+    public long getCount() {
+        return count;
+    }
+}
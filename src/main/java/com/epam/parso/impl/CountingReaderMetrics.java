@@ -0,0 +1,259 @@
+package com.epam.parso.impl;
+
+import static com.epam.parso.impl.SasFileConstants.PAGE_AMD_TYPE;
+import static com.epam.parso.impl.SasFileConstants.PAGE_DATA_TYPE;
+import static com.epam.parso.impl.SasFileConstants.PAGE_META_TYPE;
+import static com.epam.parso.impl.SasFileConstants.PAGE_MIX_TYPE;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.epam.parso.ReaderMetrics;
+
+/**
+ * {@link ReaderMetrics} counting pages, bytes and rows and summing the time spent in every phase, with
+ * {@link LongAdder} counters so that several readers converting in parallel can share an instance.
+ * The counters are exposed as a map for metrics libraries, as a JMX MXBean and as a text summary.
+ */
+public class CountingReaderMetrics implements ReaderMetrics, CountingReaderMetricsMXBean {
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_IN_MILLISECOND = 1e6;
+
+    /**
+     * The number of metadata pages read.
+     */
+    private final LongAdder metaPages = new LongAdder();
+
+    /**
+     * The number of data pages read.
+     */
+    private final LongAdder dataPages = new LongAdder();
+
+    /**
+     * The number of mixed metadata and data pages read.
+     */
+    private final LongAdder mixPages = new LongAdder();
+
+    /**
+     * The number of amendment pages read.
+     */
+    private final LongAdder amdPages = new LongAdder();
+
+    /**
+     * The number of pages of other types read.
+     */
+    private final LongAdder otherPages = new LongAdder();
+
+    /**
+     * The number of page bytes read.
+     */
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * The number of rows decoded.
+     */
+    private final LongAdder rowsDecoded = new LongAdder();
+
+    /**
+     * The number of rows written.
+     */
+    private final LongAdder rowsWritten = new LongAdder();
+
+    /**
+     * The nanoseconds spent reading pages.
+     */
+    private final LongAdder ioNanos = new LongAdder();
+
+    /**
+     * The nanoseconds spent decompressing rows.
+     */
+    private final LongAdder decompressionNanos = new LongAdder();
+
+    /**
+     * The nanoseconds spent decoding cells.
+     */
+    private final LongAdder decodingNanos = new LongAdder();
+
+    /**
+     * The nanoseconds spent formatting and writing rows.
+     */
+    private final LongAdder writingNanos = new LongAdder();
+
+    /**
+     * The decompression counters by compression method.
+     */
+    private final ConcurrentMap<String, Decompression> decompressions = new ConcurrentHashMap<String, Decompression>();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void pageRead(int pageType, int bytes, long nanos) {
+        switch (pageType) {
+            case PAGE_META_TYPE:
+                metaPages.increment();
+                break;
+            case PAGE_DATA_TYPE:
+                dataPages.increment();
+                break;
+            case PAGE_MIX_TYPE:
+                mixPages.increment();
+                break;
+            case PAGE_AMD_TYPE:
+                amdPages.increment();
+                break;
+            default:
+                otherPages.increment();
+                break;
+        }
+        bytesRead.add(bytes);
+        ioNanos.add(nanos);
+    }
+
+    @Override
+    public void rowDecompressed(String compressionMethod, int compressedBytes, int rowBytes, long nanos) {
+        Decompression decompression = decompressions.get(compressionMethod);
+        if (decompression == null) {
+            decompressions.putIfAbsent(compressionMethod, new Decompression());
+            decompression = decompressions.get(compressionMethod);
+        }
+        decompression.rows.increment();
+        decompression.compressedBytes.add(compressedBytes);
+        decompression.rowBytes.add(rowBytes);
+        decompressionNanos.add(nanos);
+    }
+
+    @Override
+    public void rowDecoded(long nanos) {
+        rowsDecoded.increment();
+        decodingNanos.add(nanos);
+    }
+
+    @Override
+    public void rowWritten(long nanos) {
+        rowsWritten.increment();
+        writingNanos.add(nanos);
+    }
+
+    /**
+     * The function to get the current values of the counters. The names are pages.meta, pages.data, pages.mix,
+     * pages.amd, pages.other, bytes.read, rows.decoded, rows.decompressed, rows.written, nanos.io,
+     * nanos.decompression, nanos.decoding and nanos.writing, followed by rows, compressed_bytes and bytes
+     * under decompression.&lt;method&gt; for every compression method seen.
+     *
+     * @return the counters by name, in a stable order.
+     */
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        counters.put("pages.meta", metaPages.sum());
+        counters.put("pages.data", dataPages.sum());
+        counters.put("pages.mix", mixPages.sum());
+        counters.put("pages.amd", amdPages.sum());
+        counters.put("pages.other", otherPages.sum());
+        counters.put("bytes.read", bytesRead.sum());
+        counters.put("rows.decoded", rowsDecoded.sum());
+        long rowsDecompressed = 0;
+        for (Decompression decompression : decompressions.values()) {
+            rowsDecompressed += decompression.rows.sum();
+        }
+        counters.put("rows.decompressed", rowsDecompressed);
+        counters.put("rows.written", rowsWritten.sum());
+        counters.put("nanos.io", ioNanos.sum());
+        counters.put("nanos.decompression", decompressionNanos.sum());
+        counters.put("nanos.decoding", decodingNanos.sum());
+        counters.put("nanos.writing", writingNanos.sum());
+        for (Map.Entry<String, Decompression> entry : new TreeMap<String, Decompression>(decompressions).entrySet()) {
+            String prefix = "decompression." + entry.getKey() + ".";
+            counters.put(prefix + "rows", entry.getValue().rows.sum());
+            counters.put(prefix + "compressed_bytes", entry.getValue().compressedBytes.sum());
+            counters.put(prefix + "bytes", entry.getValue().rowBytes.sum());
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Double> getCompressionRatios() {
+        Map<String, Double> ratios = new TreeMap<String, Double>();
+        for (Map.Entry<String, Decompression> entry : decompressions.entrySet()) {
+            long compressedBytes = entry.getValue().compressedBytes.sum();
+            if (compressedBytes > 0) {
+                ratios.put(entry.getKey(), (double) entry.getValue().rowBytes.sum() / compressedBytes);
+            }
+        }
+        return ratios;
+    }
+
+    /**
+     * Registers the counters in the platform MBean server.
+     *
+     * @param name the value of the name key of the object name, identifying the conversion.
+     * @return the object name the counters are registered with.
+     * @throws JMException if the counters can not be registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.epam.parso:type=ReaderMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * The function to format the counters for people: the pages by type, the rows, the milliseconds spent in
+     * every phase and the compression ratio of every compression method.
+     *
+     * @return the summary, one line per group of counters.
+     */
+    public String getSummary() {
+        Map<String, Long> counters = getCounters();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Pages read: %d meta, %d data, %d mix, %d amd, %d other, %d bytes%n",
+                counters.get("pages.meta"), counters.get("pages.data"), counters.get("pages.mix"),
+                counters.get("pages.amd"), counters.get("pages.other"), counters.get("bytes.read")));
+        sb.append(String.format(Locale.ROOT, "Rows: %d decoded, %d decompressed, %d written%n",
+                counters.get("rows.decoded"), counters.get("rows.decompressed"), counters.get("rows.written")));
+        sb.append(String.format(Locale.ROOT,
+                "Time: %.1f ms I/O, %.1f ms decompression, %.1f ms decoding, %.1f ms formatting and writing%n",
+                counters.get("nanos.io") / NANOS_IN_MILLISECOND,
+                counters.get("nanos.decompression") / NANOS_IN_MILLISECOND,
+                counters.get("nanos.decoding") / NANOS_IN_MILLISECOND,
+                counters.get("nanos.writing") / NANOS_IN_MILLISECOND));
+        for (Map.Entry<String, Double> entry : getCompressionRatios().entrySet()) {
+            sb.append(String.format(Locale.ROOT, "Compression %s: %d rows, ratio %.2f%n", entry.getKey(),
+                    counters.get("decompression." + entry.getKey() + ".rows"), entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The decompression counters of a compression method.
+     */
+    private static final class Decompression {
+        /**
+         * The number of rows decompressed.
+         */
+        private final LongAdder rows = new LongAdder();
+
+        /**
+         * The number of compressed bytes.
+         */
+        private final LongAdder compressedBytes = new LongAdder();
+
+        /**
+         * The number of decompressed bytes.
+         */
+        private final LongAdder rowBytes = new LongAdder();
+    }
+}
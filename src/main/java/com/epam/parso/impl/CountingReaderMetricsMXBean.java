@@ -0,0 +1,19 @@
+package com.epam.parso.impl;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link CountingReaderMetrics}, for monitoring agents and metrics libraries reading
+ * JMX attributes.
+ */
+public interface CountingReaderMetricsMXBean {
+    /**
+     * @return the counters by name, see {@link CountingReaderMetrics#getCounters()}
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return the ratio of decompressed to compressed row bytes by compression method
+     */
+    Map<String, Double> getCompressionRatios();
+}
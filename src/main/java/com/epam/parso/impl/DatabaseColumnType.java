@@ -0,0 +1,84 @@
+package com.epam.parso.impl;
+
+import static com.epam.parso.impl.SasFileConstants.DATETIME_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.DATE_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.TIME_FORMATS;
+
+import java.util.regex.Pattern;
+
+import com.epam.parso.Column;
+
+/**
+ * An enumeration of the kinds of database columns a .sas7bdat file column is
+ * exported to. The kind is derived from the column metadata only: the type,
+ * the length and the format of the column.
+ */
+public enum DatabaseColumnType {
+    /**
+     * Numeric columns of at most 2 bytes.
+     */
+    INT,
+    /**
+     * Numeric columns without a format or with a format which is not a date or time format.
+     */
+    NUMERIC,
+    /**
+     * Numeric columns with a datetime format, the values are seconds since 1960-01-01.
+     */
+    DATETIME,
+    /**
+     * Numeric columns with a time format, the values are seconds since midnight.
+     */
+    TIME,
+    /**
+     * Numeric columns with a date format, the values are days since 1960-01-01.
+     */
+    DATE,
+    /**
+     * Character columns.
+     */
+    VARCHAR;
+
+    /**
+     * Returns the kind of database column the given .sas7bdat file column is exported to.
+     * @param c The .sas7bdat file column.
+     * @return The kind of the database column.
+     */
+    public static DatabaseColumnType of(Column c) {
+        if (!Number.class.equals(c.getType())) {
+            return VARCHAR;
+        }
+        if (c.getLength() <= 2) {
+            return INT;
+        }
+        String format = c.getFormat();
+        if (format == null || format.trim().isEmpty()) {
+            return NUMERIC;
+        }
+        if (matchesAny(DATETIME_FORMATS, format)) {
+            return DATETIME;
+        }
+        if (matchesAny(TIME_FORMATS, format)) {
+            return TIME;
+        }
+        if (matchesAny(DATE_FORMATS, format)) {
+            return DATE;
+        }
+        return NUMERIC;
+    }
+
+    /**
+     * Checks whether a column format matches any of the given patterns.
+     * @param patterns The format patterns.
+     * @param format The column format.
+     * @return true if one of the patterns matches the format.
+     */
+    private static boolean matchesAny(Pattern[] patterns, String format) {
+        for (Pattern p : patterns) {
+            if (p.matcher(format).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -10,15 +10,26 @@ public enum DatabaseDialect {
     /**
      * Default dialect: the MYSQL dialect.
      */
-    DEFAULT("\\N", "`", "int", "decimal", "(18,6)",  "varchar", "date", "time", "datetime"),
+    DEFAULT("\\N", "`", "int", "decimal", "(18,6)",  "varchar", "date", "time", "datetime", "double"),
     /**
      * MySQL dialect: \N as NULL string.
      */
-    MYSQL("\\N", "`", "int", "decimal", "(18,6)", "varchar", "date", "time", "datetime"),
+    MYSQL("\\N", "`", "int", "decimal", "(18,6)", "varchar", "date", "time", "datetime", "double"),
     /**
      * PostgreSQL dialect: \N as NULL string.
      */
-    POSTGRESQL("\\N", "\"", "integer", "numeric", "(18,6)", "varchar", "date", "time", "timestamp");
+    POSTGRESQL("\\N", "\"", "integer", "numeric", "(18,6)", "varchar", "date", "time", "timestamp",
+            "double precision");
+
+    /**
+     * The 2 byte integer type, the same in all dialects.
+     */
+    private static final String SMALLINT_TYPE = "smallint";
+
+    /**
+     * The 8 byte integer type, the same in all dialects.
+     */
+    private static final String BIGINT_TYPE = "bigint";
 
     /**
      * The string representing the NULL value in the dialect.
@@ -65,6 +76,11 @@ public enum DatabaseDialect {
      */
     private String dateTimeType;
 
+    /**
+     * The double precision floating point type used by the database.
+     */
+    private String doubleType;
+
     /**
      * Creates a new DatabaseDialect using the given NULL string.
      * @param nullString The NULL value in the dialect.
@@ -76,11 +92,12 @@ public enum DatabaseDialect {
      * @param dateType The date type used by the dialect.
      * @param timeType The time type used by the dialect.
      * @param dateTimeType The datetime type used by the dialect.
+     * @param doubleType The double precision floating point type used by the dialect.
      */
     private DatabaseDialect(String nullString, String escapeString,
             String intType, String numericType, String defaultPrecision,
             String varcharType, String dateType, String timeType,
-            String dateTimeType) {
+            String dateTimeType, String doubleType) {
         this.nullString = nullString;
         this.escapeString = escapeString;
         this.intType = intType;
@@ -90,6 +107,7 @@ public enum DatabaseDialect {
         this.dateType = dateType;
         this.timeType = timeType;
         this.dateTimeType = dateTimeType;
+        this.doubleType = doubleType;
     }
 
     /**
@@ -116,6 +134,22 @@ public enum DatabaseDialect {
         return intType;
     }
 
+    /**
+     * Gets the 2 byte integer type used by the dialect.
+     * @return The smallint type used by the database.
+     */
+    public String getSmallintType() {
+        return SMALLINT_TYPE;
+    }
+
+    /**
+     * Gets the 8 byte integer type used by the dialect.
+     * @return The bigint type used by the database.
+     */
+    public String getBigintType() {
+        return BIGINT_TYPE;
+    }
+
     /**
      * Gets the numeric type used by the dialect.
      * @return The numeric type used by the database.
@@ -164,4 +198,12 @@ public enum DatabaseDialect {
         return dateTimeType;
     }
 
+    /**
+     * Gets the double precision floating point type used by the dialect.
+     * @return The double type used by the database.
+     */
+    public String getDoubleType() {
+        return doubleType;
+    }
+
 }
@@ -0,0 +1,884 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.epam.parso.Column;
+import com.epam.parso.JsonLinesDataWriter;
+
+/**
+ * This is a class to export the sas7bdat file data as JSON Lines, encoding the rows straight into bytes instead of
+ * going through a general purpose JSON library:
+ * <ul>
+ * <li>the quoted and escaped key of every column is encoded once, with the comma or brace before it;</li>
+ * <li>integers are written digit by digit, doubles with the fewest decimals reading back as the same double, and
+ * NaN and infinite doubles as null;</li>
+ * <li>dates are written as "yyyy-MM-dd", datetimes as "yyyy-MM-ddTHH:mm:ss" and times as "HH:mm:ss", with the
+ * fraction of the second when there is one, computed without creating objects;</li>
+ * <li>strings are escaped and encoded in UTF-8 character by character, and byte arrays of printable ASCII
+ * characters are copied as they are.</li>
+ * </ul>
+ * The rows are encoded into a reusable buffer of about {@link Builder#bufferSize(int)} bytes, which is written to
+ * the stream when it is full. With more than one thread, blocks of rows filling a buffer are encoded on a thread pool
+ * while the next rows are read, and written in the order of the rows; the arrays of the rows are then kept until
+ * their block is encoded and must not be changed after {@link #writeRow(Object[])}. Both converted rows and raw rows
+ * (see {@link SasFileReaderImpl#readNextRaw()}) are accepted.
+ */
+public final class JsonLinesDataWriterImpl implements JsonLinesDataWriter {
+    /**
+     * The default number of bytes of the buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The number of blocks waiting to be encoded or written per thread.
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    /**
+     * The estimated number of bytes of an encoded number or date.
+     */
+    private static final int VALUE_SIZE = 12;
+
+    /**
+     * The largest number of decimals of a double written without an exponent.
+     */
+    private static final int MAX_DECIMALS = 9;
+
+    /**
+     * The largest double written as an integer, beyond it doubles are not exact integers any more.
+     */
+    private static final double MAX_INTEGER = 1L << 53;
+
+    /**
+     * The powers of ten up to {@link #MAX_DECIMALS}.
+     */
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L};
+
+    /**
+     * The bytes of the JSON null.
+     */
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    /**
+     * The hexadecimal digits of the escaped control characters.
+     */
+    private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd',
+            'e', 'f'};
+
+    /**
+     * The number of days between 1960-01-01, the SAS epoch, and 1970-01-01, the Java epoch.
+     */
+    private static final long SAS_TO_JAVA_DAYS = 3653;
+
+    /**
+     * The number of days between 0000-03-01 and 1970-01-01, the start of the computation of the dates.
+     */
+    private static final long DAYS_0000_TO_1970 = 719468;
+
+    /**
+     * The number of days in 400 years.
+     */
+    private static final long DAYS_PER_ERA = 146097;
+
+    /**
+     * The number of seconds in a day.
+     */
+    private static final long SECONDS_IN_DAY = 86400;
+
+    /**
+     * The number of seconds in an hour.
+     */
+    private static final int SECONDS_IN_HOUR = 3600;
+
+    /**
+     * The number of seconds in a minute.
+     */
+    private static final int SECONDS_IN_MINUTE = 60;
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final long MILLISECONDS_IN_DAY = 86400000L;
+
+    /**
+     * The number of microseconds in a second.
+     */
+    private static final long MICROSECONDS_IN_SECOND = 1000000;
+
+    /**
+     * The number of nanoseconds in a microsecond.
+     */
+    private static final int NANOSECONDS_IN_MICROSECOND = 1000;
+
+    /**
+     * The number of digits of the fraction of a second, in nanoseconds.
+     */
+    private static final int NANOSECOND_DIGITS = 9;
+
+    /**
+     * The largest number of seconds of a raw datetime or time, beyond it the microseconds overflow a long.
+     */
+    private static final double MAX_RAW_SECONDS = 1e12;
+
+    /**
+     * The largest year written with 4 digits.
+     */
+    private static final int MAX_4_DIGIT_YEAR = 9999;
+
+    /**
+     * The stream to write the lines to.
+     */
+    private final OutputStream out;
+
+    /**
+     * The columns in the order of the values of a row.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The kinds of the columns.
+     */
+    private final DatabaseColumnType[] kinds;
+
+    /**
+     * The quoted keys of the columns, preceded by the brace starting the object or the comma separating the
+     * members, and followed by the colon.
+     */
+    private final byte[][] keys;
+
+    /**
+     * The number of bytes written to the stream at once.
+     */
+    private final int bufferSize;
+
+    /**
+     * The number of rows in a block encoded by a thread.
+     */
+    private final int blockRows;
+
+    /**
+     * The threads encoding the blocks, or null if the rows are encoded by the calling thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The largest number of blocks waiting to be encoded or written.
+     */
+    private final int maxPendingBlocks;
+
+    /**
+     * The blocks being encoded, in the order of the rows.
+     */
+    private final Deque<Future<Block>> pendingBlocks = new ArrayDeque<Future<Block>>();
+
+    /**
+     * The written blocks, reused for the next rows.
+     */
+    private final Deque<Block> freeBlocks = new ArrayDeque<Block>();
+
+    /**
+     * The block being filled.
+     */
+    private Block block;
+
+    /**
+     * The number of rows written.
+     */
+    private long rowCount;
+
+    /**
+     * True after {@link #close()}.
+     */
+    private boolean closed;
+
+    /**
+     * Encodes the keys of the columns and starts the threads encoding the blocks.
+     *
+     * @param builder the builder holding the settings of the writer.
+     */
+    private JsonLinesDataWriterImpl(Builder builder) {
+        out = builder.outputStream;
+        columns = Collections.unmodifiableList(new ArrayList<Column>(builder.columns));
+        kinds = new DatabaseColumnType[columns.size()];
+        keys = new byte[columns.size()][];
+        long rowSize = 2;
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = DatabaseColumnType.of(columns.get(i));
+            JsonBuffer key = new JsonBuffer(columns.get(i).getName().length() + 4);
+            key.write((byte) (i == 0 ? '{' : ','));
+            key.writeString(columns.get(i).getName());
+            key.write((byte) ':');
+            keys[i] = Arrays.copyOf(key.bytes, key.length);
+            rowSize += keys[i].length + (kinds[i] == DatabaseColumnType.VARCHAR ? columns.get(i).getLength() + 2
+                    : VALUE_SIZE);
+        }
+        bufferSize = builder.bufferSize;
+        blockRows = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bufferSize / rowSize));
+        if (builder.threads > 1) {
+            executor = Executors.newFixedThreadPool(builder.threads);
+            maxPendingBlocks = builder.threads * BLOCKS_PER_THREAD;
+        } else {
+            executor = null;
+            maxPendingBlocks = 0;
+        }
+        block = new Block(bufferSize);
+    }
+
+    /**
+     * @return the columns in the order of the values of a row
+     */
+    @Override
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * The method to export a row from sas7bdat file (stored as an object of the {@link SasFileReaderImpl} class)
+     * as a JSON object on its own line. The row is encoded into the buffer, or added to the block being filled with
+     * more than one thread.
+     *
+     * @param row the Objects arrays that stores data from the sas7bdat file, in the order of the columns.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeRow(Object[] row) throws IOException {
+        if (closed) {
+            throw new IOException("The writer is closed");
+        }
+        if (row == null || row.length < columns.size()) {
+            throw new IllegalArgumentException("A row has to have " + columns.size() + " values");
+        }
+        if (executor == null) {
+            encodeRow(block.buffer, row);
+            if (block.buffer.length >= bufferSize) {
+                out.write(block.buffer.bytes, 0, block.buffer.length);
+                block.buffer.length = 0;
+            }
+        } else {
+            block.rows.add(row);
+            if (block.rows.size() == blockRows) {
+                submitBlock();
+            }
+        }
+        rowCount++;
+    }
+
+    /**
+     * The method to export a parsed sas7bdat file (stored as an object of the {@link SasFileReaderImpl} class)
+     * as JSON objects, one per line.
+     *
+     * @param rows the Objects arrays array that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeRowsArray(Object[][] rows) throws IOException {
+        for (Object[] currentRow : rows) {
+            if (currentRow != null) {
+                writeRow(currentRow);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The method to output the buffered rows and to flush the stream, and to stop the threads encoding the
+     * blocks. The stream is not closed.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (executor == null) {
+                out.write(block.buffer.bytes, 0, block.buffer.length);
+                block.buffer.length = 0;
+            } else {
+                if (!block.rows.isEmpty()) {
+                    submitBlock();
+                }
+                while (!pendingBlocks.isEmpty()) {
+                    writeFirstPendingBlock();
+                }
+            }
+            out.flush();
+        } finally {
+            for (Future<Block> future : pendingBlocks) {
+                future.cancel(true);
+            }
+            pendingBlocks.clear();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Submits the block of rows to encode, after writing the oldest blocks if too many are pending.
+     *
+     * @throws IOException if the stream can not be written or a block can not be encoded.
+     */
+    private void submitBlock() throws IOException {
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeFirstPendingBlock();
+        }
+        final Block rows = block;
+        pendingBlocks.addLast(executor.submit(new Callable<Block>() {
+            @Override
+            public Block call() throws IOException {
+                for (Object[] row : rows.rows) {
+                    encodeRow(rows.buffer, row);
+                }
+                return rows;
+            }
+        }));
+        block = freeBlocks.isEmpty() ? new Block(bufferSize) : freeBlocks.pollFirst();
+    }
+
+    /**
+     * Waits for the oldest encoded block, writes it to the stream and keeps it for the next rows.
+     *
+     * @throws IOException if the stream can not be written or a block can not be encoded.
+     */
+    private void writeFirstPendingBlock() throws IOException {
+        Block encoded;
+        try {
+            encoded = pendingBlocks.pollFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the rows");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Can not encode the rows", e.getCause());
+        }
+        out.write(encoded.buffer.bytes, 0, encoded.buffer.length);
+        encoded.buffer.length = 0;
+        encoded.rows.clear();
+        freeBlocks.addLast(encoded);
+    }
+
+    /**
+     * Encodes a row as a JSON object followed by a line feed.
+     *
+     * @param buffer the buffer to write to.
+     * @param row    the values of the row.
+     * @throws IOException if a character value can not be decoded.
+     */
+    private void encodeRow(JsonBuffer buffer, Object[] row) throws IOException {
+        for (int i = 0; i < keys.length; i++) {
+            buffer.write(keys[i], 0, keys[i].length);
+            writeValue(buffer, kinds[i], row[i]);
+        }
+        if (keys.length == 0) {
+            buffer.write((byte) '{');
+        }
+        buffer.write((byte) '}');
+        buffer.write((byte) '\n');
+    }
+
+    /**
+     * Writes a value: numbers of date, datetime and time columns of raw rows are written as dates, datetimes and
+     * times, and the other values after their type.
+     *
+     * @param buffer the buffer to write to.
+     * @param kind   the kind of the column.
+     * @param value  the value read from the sas7bdat file, can be null.
+     * @throws IOException if a character value can not be decoded.
+     */
+    private static void writeValue(JsonBuffer buffer, DatabaseColumnType kind, Object value) throws IOException {
+        if (value == null) {
+            buffer.write(NULL, 0, NULL.length);
+        } else if (value instanceof String) {
+            buffer.writeString((String) value);
+        } else if (value instanceof byte[]) {
+            buffer.writeBytes((byte[]) value);
+        } else if (value instanceof Date) {
+            buffer.write((byte) '"');
+            buffer.writeDate(Math.floorDiv(((Date) value).getTime(), MILLISECONDS_IN_DAY));
+            buffer.write((byte) '"');
+        } else if (value instanceof LocalDateTime) {
+            buffer.writeDateTime((LocalDateTime) value, kind == DatabaseColumnType.TIME);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            boolean seconds = kind == DatabaseColumnType.DATETIME || kind == DatabaseColumnType.TIME;
+            if (Double.isNaN(number) || Double.isInfinite(number) || seconds && Math.abs(number) > MAX_RAW_SECONDS) {
+                buffer.write(NULL, 0, NULL.length);
+            } else if (seconds || kind == DatabaseColumnType.DATE) {
+                buffer.writeRawDateTime(number, kind);
+            } else {
+                buffer.writeDouble(number);
+            }
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            buffer.writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            buffer.writeAscii(value.toString());
+        } else {
+            buffer.writeString(value.toString());
+        }
+    }
+
+    /**
+     * The rows of a block and the buffer they are encoded into.
+     */
+    private static final class Block {
+        /**
+         * The rows of the block, empty without threads.
+         */
+        private final List<Object[]> rows = new ArrayList<Object[]>();
+
+        /**
+         * The buffer the rows are encoded into.
+         */
+        private final JsonBuffer buffer;
+
+        /**
+         * Creates an empty block.
+         *
+         * @param capacity the initial capacity of the buffer.
+         */
+        Block(int capacity) {
+            buffer = new JsonBuffer(capacity);
+        }
+    }
+
+    /**
+     * A growing array of bytes with the JSON encoding of the values.
+     */
+    private static final class JsonBuffer {
+        /**
+         * The array holding the bytes.
+         */
+        private byte[] bytes;
+
+        /**
+         * The number of bytes written.
+         */
+        private int length;
+
+        /**
+         * The digits of a number being written, in reverse order.
+         */
+        private final byte[] digits = new byte[20];
+
+        /**
+         * Creates an empty buffer.
+         *
+         * @param capacity the initial capacity of the buffer.
+         */
+        JsonBuffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        /**
+         * Makes room for more bytes.
+         *
+         * @param count the number of bytes to write.
+         */
+        private void ensureCapacity(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+
+        /**
+         * Writes a byte.
+         *
+         * @param value the byte.
+         */
+        void write(byte value) {
+            ensureCapacity(1);
+            bytes[length++] = value;
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param source the array holding the bytes.
+         * @param offset the offset of the bytes.
+         * @param count  the number of bytes.
+         */
+        void write(byte[] source, int offset, int count) {
+            ensureCapacity(count);
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+
+        /**
+         * Writes a string of ASCII characters as it is.
+         *
+         * @param value the string.
+         */
+        void writeAscii(String value) {
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                bytes[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        /**
+         * Writes a quoted string: quotes, backslashes and control characters are escaped, and the other characters
+         * are encoded in UTF-8. Unpaired surrogates are written as '?', as {@link String#getBytes} does.
+         *
+         * @param value the string.
+         */
+        void writeString(String value) {
+            int count = value.length();
+            ensureCapacity(count * 6 + 2);
+            bytes[length++] = '"';
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+                if (c >= ' ' && c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        bytes[length++] = '\\';
+                    }
+                    bytes[length++] = (byte) c;
+                } else if (c < ' ') {
+                    writeControl(c);
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | c >> 6);
+                    bytes[length++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < count
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xE0 | c >> 12);
+                    bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            bytes[length++] = '"';
+        }
+
+        /**
+         * Writes an escaped control character, with its short escape if it has one.
+         *
+         * @param c the control character.
+         */
+        private void writeControl(char c) {
+            bytes[length++] = '\\';
+            switch (c) {
+                case '\n':
+                    bytes[length++] = 'n';
+                    break;
+                case '\r':
+                    bytes[length++] = 'r';
+                    break;
+                case '\t':
+                    bytes[length++] = 't';
+                    break;
+                default:
+                    bytes[length++] = 'u';
+                    bytes[length++] = '0';
+                    bytes[length++] = '0';
+                    bytes[length++] = HEX_DIGITS[c >> 4];
+                    bytes[length++] = HEX_DIGITS[c & 0xF];
+                    break;
+            }
+        }
+
+        /**
+         * Writes the bytes of a character value as a quoted string. Printable ASCII bytes without quotes and
+         * backslashes are copied as they are, other values are decoded the way {@link CSVDataWriterImpl} does.
+         *
+         * @param value the bytes of the value.
+         * @throws IOException if the bytes can not be decoded.
+         */
+        void writeBytes(byte[] value) throws IOException {
+            for (byte b : value) {
+                if (b < ' ' || b == '"' || b == '\\') {
+                    writeString(new String(value, CSVDataWriterImpl.ENCODING));
+                    return;
+                }
+            }
+            ensureCapacity(value.length + 2);
+            bytes[length++] = '"';
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+            bytes[length++] = '"';
+        }
+
+        /**
+         * Writes an integer digit by digit.
+         *
+         * @param value the integer.
+         */
+        void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii(Long.toString(value));
+                return;
+            }
+            ensureCapacity(digits.length);
+            long rest = value;
+            if (rest < 0) {
+                bytes[length++] = '-';
+                rest = -rest;
+            }
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + rest % 10);
+                rest /= 10;
+            } while (rest != 0);
+            while (count > 0) {
+                bytes[length++] = digits[--count];
+            }
+        }
+
+        /**
+         * Writes an unsigned integer with leading zeros.
+         *
+         * @param value the integer.
+         * @param width the number of digits.
+         */
+        private void writePadded(long value, int width) {
+            ensureCapacity(width);
+            long rest = value;
+            for (int i = width - 1; i >= 0; i--) {
+                bytes[length + i] = (byte) ('0' + rest % 10);
+                rest /= 10;
+            }
+            length += width;
+        }
+
+        /**
+         * Writes a finite double with the fewest decimals, up to {@link #MAX_DECIMALS}, that read back as the same
+         * double: the decimal digits m of a scale k are exact when the division of m by 10^k, which is correctly
+         * rounded, gives the double back. Other doubles are written with {@link Double#toString(double)}.
+         *
+         * @param value the double.
+         */
+        void writeDouble(double value) {
+            if (Math.abs(value) < MAX_INTEGER && value == (long) value) {
+                writeLong((long) value);
+                return;
+            }
+            for (int scale = 1; scale <= MAX_DECIMALS; scale++) {
+                double scaled = value * POWERS_OF_TEN[scale];
+                if (Math.abs(scaled) >= MAX_INTEGER) {
+                    break;
+                }
+                long mantissa = Math.round(scaled);
+                if (mantissa / (double) POWERS_OF_TEN[scale] == value) {
+                    long abs = Math.abs(mantissa);
+                    if (mantissa < 0) {
+                        write((byte) '-');
+                    }
+                    writeLong(abs / POWERS_OF_TEN[scale]);
+                    write((byte) '.');
+                    writePadded(abs % POWERS_OF_TEN[scale], scale);
+                    return;
+                }
+            }
+            writeAscii(Double.toString(value));
+        }
+
+        /**
+         * Writes a date without quotes, converting the days to the proleptic Gregorian calendar with the
+         * computation of the days from civil by H. Hinnant.
+         *
+         * @param epochDay the number of days since 1970-01-01.
+         */
+        void writeDate(long epochDay) {
+            long days = epochDay + DAYS_0000_TO_1970;
+            long era = Math.floorDiv(days, DAYS_PER_ERA);
+            long dayOfEra = days - era * DAYS_PER_ERA;
+            long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+            long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            long shiftedMonth = (5 * dayOfYear + 2) / 153;
+            long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+            long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+            writeDate(yearOfEra + era * 400 + (month <= 2 ? 1 : 0), month, day);
+        }
+
+        /**
+         * Writes a date without quotes.
+         *
+         * @param year  the year.
+         * @param month the month, from 1 to 12.
+         * @param day   the day of the month.
+         */
+        private void writeDate(long year, long month, long day) {
+            if (year < 0) {
+                write((byte) '-');
+            } else if (year > MAX_4_DIGIT_YEAR) {
+                write((byte) '+');
+            }
+            writePadded(Math.abs(year), Math.max(4, Long.toString(Math.abs(year)).length()));
+            write((byte) '-');
+            writePadded(month, 2);
+            write((byte) '-');
+            writePadded(day, 2);
+        }
+
+        /**
+         * Writes a time of day without quotes, with the fraction of the second without its trailing zeros.
+         *
+         * @param secondOfDay the seconds since midnight.
+         * @param nanosecond  the nanoseconds of the second.
+         */
+        private void writeTime(long secondOfDay, long nanosecond) {
+            writePadded(secondOfDay / SECONDS_IN_HOUR, 2);
+            write((byte) ':');
+            writePadded(secondOfDay / SECONDS_IN_MINUTE % SECONDS_IN_MINUTE, 2);
+            write((byte) ':');
+            writePadded(secondOfDay % SECONDS_IN_MINUTE, 2);
+            if (nanosecond != 0) {
+                int width = NANOSECOND_DIGITS;
+                long fraction = nanosecond;
+                while (fraction % 10 == 0) {
+                    fraction /= 10;
+                    width--;
+                }
+                write((byte) '.');
+                writePadded(fraction, width);
+            }
+        }
+
+        /**
+         * Writes a quoted datetime, or the time of a datetime for time columns.
+         *
+         * @param value    the datetime.
+         * @param timeOnly true to write only the time of day.
+         */
+        void writeDateTime(LocalDateTime value, boolean timeOnly) {
+            write((byte) '"');
+            if (!timeOnly) {
+                writeDate(value.getYear(), value.getMonthValue(), value.getDayOfMonth());
+                write((byte) 'T');
+            }
+            writeTime(value.getHour() * SECONDS_IN_HOUR + value.getMinute() * SECONDS_IN_MINUTE + value.getSecond(),
+                    value.getNano());
+            write((byte) '"');
+        }
+
+        /**
+         * Writes the quoted date, datetime or time of a raw value, rounded to the microsecond.
+         *
+         * @param value the days or seconds since 1960-01-01, or the seconds since midnight.
+         * @param kind  the kind of the column.
+         */
+        void writeRawDateTime(double value, DatabaseColumnType kind) {
+            write((byte) '"');
+            if (kind == DatabaseColumnType.DATE) {
+                writeDate((long) Math.floor(value) - SAS_TO_JAVA_DAYS);
+            } else {
+                long microseconds = Math.round(value * MICROSECONDS_IN_SECOND);
+                long seconds = Math.floorDiv(microseconds, MICROSECONDS_IN_SECOND);
+                long nanosecond = Math.floorMod(microseconds, MICROSECONDS_IN_SECOND) * NANOSECONDS_IN_MICROSECOND;
+                if (kind == DatabaseColumnType.DATETIME) {
+                    writeDate(Math.floorDiv(seconds, SECONDS_IN_DAY) - SAS_TO_JAVA_DAYS);
+                    write((byte) 'T');
+                }
+                writeTime(Math.floorMod(seconds, SECONDS_IN_DAY), nanosecond);
+            }
+            write((byte) '"');
+        }
+    }
+
+    /**
+     * Builder for {@link JsonLinesDataWriterImpl}.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for {@link JsonLinesDataWriterImpl#out} variable.
+         */
+        private final OutputStream outputStream;
+
+        /**
+         * Builder variable for {@link JsonLinesDataWriterImpl#columns} variable.
+         */
+        private final List<Column> columns;
+
+        /**
+         * Default value for {@link JsonLinesDataWriterImpl#bufferSize} variable.
+         */
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+        /**
+         * Default value for the number of threads encoding the rows, 1 to encode them on the calling thread.
+         */
+        private int threads = 1;
+
+        /**
+         * Creates a builder of a writer of JSON Lines.
+         *
+         * @param outputStream the stream to write the lines to.
+         * @param columns      the columns of the rows.
+         */
+        public Builder(OutputStream outputStream, List<Column> columns) {
+            this.outputStream = outputStream;
+            this.columns = columns;
+        }
+
+        /**
+         * The function to specify builders bufferSize variable.
+         *
+         * @param val value to be set, the number of bytes written to the stream at once.
+         * @return result builder.
+         */
+        public Builder bufferSize(int val) {
+            bufferSize = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders threads variable.
+         *
+         * @param val value to be set, more than 1 to encode blocks of rows concurrently.
+         * @return result builder.
+         */
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        /**
+         * Create {@link JsonLinesDataWriterImpl} using specified params.
+         *
+         * @return built writer.
+         */
+        public JsonLinesDataWriterImpl build() {
+            if (outputStream == null || columns == null || bufferSize < 1 || threads < 1) {
+                throw new IllegalArgumentException("A stream, columns, a positive buffer size and a positive number"
+                        + " of threads are required");
+            }
+            return new JsonLinesDataWriterImpl(this);
+        }
+    }
+}
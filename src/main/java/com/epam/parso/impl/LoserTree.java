@@ -0,0 +1,113 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A tournament tree merging sorted runs: every inner node holds the run that lost the match played there, and the
+ * root holds the overall winner, the run whose current record has the smallest key. After the winner moves to its
+ * next record only the matches on the path from its leaf to the root are replayed, one key comparison per level.
+ * Equal keys are won by the run of the smaller index, so the merge is stable if the runs are in input order.
+ */
+final class LoserTree {
+
+    /**
+     * The runs.
+     */
+    private final SortRun[] runs;
+
+    /**
+     * Whether a run has no more records.
+     */
+    private final boolean[] exhausted;
+
+    /**
+     * The number of bytes of a key at the start of a record.
+     */
+    private final int keyLength;
+
+    /**
+     * The loser of the match of every inner node, the winner at index 0.
+     */
+    private final int[] losers;
+
+    /**
+     * Creates the tree of runs and moves every run to its first record.
+     *
+     * @param runs      the runs.
+     * @param keyLength the number of bytes of a key at the start of a record.
+     * @throws IOException if reading a run is impossible.
+     */
+    LoserTree(List<SortRun> runs, int keyLength) throws IOException {
+        this.runs = runs.toArray(new SortRun[runs.size()]);
+        this.keyLength = keyLength;
+        int count = this.runs.length;
+        exhausted = new boolean[count];
+        losers = new int[Math.max(1, count)];
+        for (int i = 0; i < count; i++) {
+            exhausted[i] = !this.runs[i].next();
+        }
+        if (count == 0) {
+            return;
+        }
+        int[] winners = new int[2 * count];
+        for (int i = 0; i < count; i++) {
+            winners[count + i] = i;
+        }
+        for (int node = count - 1; node > 0; node--) {
+            int first = winners[2 * node];
+            int second = winners[2 * node + 1];
+            if (wins(second, first)) {
+                winners[node] = second;
+                losers[node] = first;
+            } else {
+                winners[node] = first;
+                losers[node] = second;
+            }
+        }
+        losers[0] = count == 1 ? 0 : winners[1];
+    }
+
+    /**
+     * The function to get the run holding the smallest record.
+     *
+     * @return the run, or null if all the runs are exhausted.
+     */
+    SortRun peek() {
+        return runs.length == 0 || exhausted[losers[0]] ? null : runs[losers[0]];
+    }
+
+    /**
+     * Moves the winning run to its next record and replays its matches.
+     *
+     * @throws IOException if reading the run is impossible.
+     */
+    void advance() throws IOException {
+        int winner = losers[0];
+        exhausted[winner] = !runs[winner].next();
+        for (int node = (winner + runs.length) >>> 1; node > 0; node >>>= 1) {
+            if (wins(losers[node], winner)) {
+                int loser = winner;
+                winner = losers[node];
+                losers[node] = loser;
+            }
+        }
+        losers[0] = winner;
+    }
+
+    /**
+     * The function to play a match.
+     *
+     * @param first  the index of a run.
+     * @param second the index of the other run.
+     * @return true if the current record of the first run comes before the one of the second run.
+     */
+    private boolean wins(int first, int second) {
+        if (exhausted[first] || exhausted[second]) {
+            return !exhausted[first];
+        }
+        int comparison = SortKey.compare(runs[first].getSource(), runs[first].getOffset(), runs[second].getSource(),
+                runs[second].getOffset(), keyLength);
+        return comparison < 0 || comparison == 0 && first < second;
+    }
+}
@@ -0,0 +1,200 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An input stream over a memory-mapped file of any size. A single {@link MappedByteBuffer} can not exceed 2 GB, so
+ * the file is mapped in windows which slide forward as the stream is read, and {@link #skip(long)} moves the
+ * position without reading, which makes seeking in large .sas7bdat files cheap:
+ * <pre>
+ * SasFileReaderImpl reader = new SasFileReaderImpl(new MappedFileInputStream(path));
+ * </pre>
+ * The mapped windows are released by the garbage collector.
+ */
+public final class MappedFileInputStream extends InputStream {
+    /**
+     * The default size of the mapped windows, in bytes.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The size of the file.
+     */
+    private final long size;
+
+    /**
+     * The size of the mapped windows.
+     */
+    private final int windowSize;
+
+    /**
+     * The mapped window, null before the first read.
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * The offset in the file of the mapped window.
+     */
+    private long windowStart;
+
+    /**
+     * The offset in the file of the next byte to read.
+     */
+    private long position;
+
+    /**
+     * Opens a file with the default window size.
+     *
+     * @param file the file.
+     * @throws IOException if the file can not be opened.
+     */
+    public MappedFileInputStream(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a file.
+     *
+     * @param file       the file.
+     * @param windowSize the size of the mapped windows, in bytes.
+     * @throws IOException if the file can not be opened.
+     */
+    public MappedFileInputStream(Path file, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return the offset in the file of the next byte to read
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Moves to an offset in the file, backward or forward.
+     *
+     * @param newPosition the offset in the file of the next byte to read.
+     */
+    public void seek(long newPosition) {
+        if (newPosition < 0 || newPosition > size) {
+            throw new IllegalArgumentException("Position " + newPosition + " outside of the file of " + size
+                    + " bytes");
+        }
+        position = newPosition;
+    }
+
+    /**
+     * @return the size of the file
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return the byte, or -1 at the end of the file.
+     * @throws IOException if the file can not be mapped.
+     */
+    @Override
+    public int read() throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        MappedByteBuffer buffer = mapPosition();
+        position++;
+        return buffer.get((int) (position - 1 - windowStart)) & 0xFF;
+    }
+
+    /**
+     * Reads bytes, across windows if needed.
+     *
+     * @param b   the buffer.
+     * @param off the offset in the buffer.
+     * @param len the number of bytes to read.
+     * @return the number of bytes read, or -1 at the end of the file.
+     * @throws IOException if the file can not be mapped.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        int read = 0;
+        while (read < len && position < size) {
+            MappedByteBuffer buffer = mapPosition();
+            int offsetInWindow = (int) (position - windowStart);
+            int count = Math.min(len - read, buffer.limit() - offsetInWindow);
+            ((Buffer) buffer).position(offsetInWindow);
+            buffer.get(b, off + read, count);
+            read += count;
+            position += count;
+        }
+        return read;
+    }
+
+    /**
+     * Moves the position forward without mapping the skipped bytes.
+     *
+     * @param n the number of bytes to skip.
+     * @return the number of bytes skipped, less than n at the end of the file.
+     */
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, size - position));
+        position += skipped;
+        return skipped;
+    }
+
+    /**
+     * @return the number of bytes left in the file, at most {@link Integer#MAX_VALUE}
+     */
+    @Override
+    public int available() {
+        return (int) Math.min(size - position, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Closes the file. The mapped window is released by the garbage collector.
+     *
+     * @throws IOException if the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Maps the window holding the next byte, unless it is already mapped.
+     *
+     * @return the mapped window.
+     * @throws IOException if the file can not be mapped.
+     */
+    private MappedByteBuffer mapPosition() throws IOException {
+        if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - position));
+        }
+        return window;
+    }
+}
@@ -0,0 +1,41 @@
+package com.epam.parso.impl;
+
+import com.epam.parso.ReaderMetrics;
+
+/**
+ * The default {@link ReaderMetrics} which collects nothing. It reports itself disabled, so the parser and the
+ * writers skip the timing calls entirely.
+ */
+public final class NoopReaderMetrics implements ReaderMetrics {
+    /**
+     * The only instance.
+     */
+    public static final NoopReaderMetrics INSTANCE = new NoopReaderMetrics();
+
+    /**
+     * Private constructor, use {@link NoopReaderMetrics#INSTANCE}.
+     */
+    private NoopReaderMetrics() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void pageRead(int pageType, int bytes, long nanos) {
+    }
+
+    @Override
+    public void rowDecompressed(String compressionMethod, int compressedBytes, int rowBytes, long nanos) {
+    }
+
+    @Override
+    public void rowDecoded(long nanos) {
+    }
+
+    @Override
+    public void rowWritten(long nanos) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An enumeration of the compression methods supported for exported files.
+ */
+public enum OutputCompression {
+    /**
+     * No compression, the data is written as is.
+     */
+    NONE("none", ""),
+    /**
+     * Parallel gzip compression, see {@link ParallelGzipOutputStream}.
+     */
+    GZIP("gzip", ".gz");
+
+    /**
+     * The default compression level.
+     */
+    public static final int DEFAULT_LEVEL = 6;
+
+    /**
+     * The name of the compression method used on the command line.
+     */
+    private final String name;
+
+    /**
+     * The extension appended to the names of compressed files.
+     */
+    private final String fileExtension;
+
+    /**
+     * Creates a new OutputCompression.
+     *
+     * @param name          the name of the compression method.
+     * @param fileExtension the extension of the compressed files.
+     */
+    OutputCompression(String name, String fileExtension) {
+        this.name = name;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Gets the name of the compression method.
+     *
+     * @return the name of the compression method.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the extension appended to the names of the compressed files.
+     *
+     * @return the file extension including the dot, or an empty string.
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Wraps an output stream into a compressing stream.
+     *
+     * @param out     the stream to write the compressed data to.
+     * @param level   the compression level.
+     * @param threads the number of compression threads.
+     * @return the compressing stream, or <code>out</code> if no compression is used.
+     * @throws IOException if the compressing stream can not be created.
+     */
+    public OutputStream wrap(OutputStream out, int level, int threads) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new ParallelGzipOutputStream(out, level, threads);
+            case NONE:
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Returns the compression method with the given name.
+     *
+     * @param name the name of the compression method, case insensitive.
+     * @return the compression method.
+     */
+    public static OutputCompression fromName(String name) {
+        for (OutputCompression compression : values()) {
+            if (compression.name.equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported compression: " + name);
+    }
+}
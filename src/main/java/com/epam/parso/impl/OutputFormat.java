@@ -0,0 +1,62 @@
+package com.epam.parso.impl;
+
+/**
+ * An enumeration of the formats of exported files.
+ */
+public enum OutputFormat {
+    /**
+     * Comma separated values, see {@link CSVDataWriterImpl}.
+     */
+    CSV(".csv", "CSV"),
+    /**
+     * The PostgreSQL binary COPY format, see {@link PostgreSQLBinaryDataWriterImpl}.
+     */
+    POSTGRESQL_BINARY(".bin", "PostgreSQL binary COPY data"),
+    /**
+     * An Avro object container file, see {@link AvroDataWriterImpl}.
+     */
+    AVRO(".avro", "Avro"),
+    /**
+     * JSON Lines, one object per row, see {@link JsonLinesDataWriterImpl}.
+     */
+    JSON_LINES(".jsonl", "JSON Lines");
+
+    /**
+     * The extension of the exported files.
+     */
+    private final String fileExtension;
+
+    /**
+     * The name of the format shown to the user.
+     */
+    private final String description;
+
+    /**
+     * Creates a new OutputFormat.
+     *
+     * @param fileExtension the extension of the exported files.
+     * @param description   the name of the format shown to the user.
+     */
+    OutputFormat(String fileExtension, String description) {
+        this.fileExtension = fileExtension;
+        this.description = description;
+    }
+
+    /**
+     * Gets the extension of the exported files, before the extension of the compression.
+     *
+     * @return the file extension including the dot.
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Gets the name of the format shown to the user.
+     *
+     * @return the name of the format.
+     */
+    public String getDescription() {
+        return description;
+    }
+}
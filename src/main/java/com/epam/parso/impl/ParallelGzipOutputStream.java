@@ -0,0 +1,341 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that gzip-compresses its input in parallel, the way pigz does. The input is cut into blocks
+ * of {@link ParallelGzipOutputStream#blockSize} bytes, every block is deflated on a thread pool into a complete
+ * gzip member, and the members are written to the underlying stream in input order. A concatenation of gzip
+ * members is a valid gzip file (RFC 1952, section 2.2), so the output can be read by gunzip or
+ * {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * {@link ParallelGzipOutputStream#flush()} does not cut a block: the CSV writers flush after every row and
+ * cutting a block on each of them would destroy the compression ratio.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    /**
+     * The default size of an uncompressed block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /**
+     * The gzip magic number and the deflate method byte, followed by empty flags, mtime, extra flags and
+     * the "unknown" OS byte.
+     */
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    /**
+     * The length of the gzip member trailer (CRC32 and ISIZE).
+     */
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    /**
+     * The number of in-flight blocks allowed per compression thread, bounds the memory used by the stream.
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    /**
+     * The stream the compressed members are written to.
+     */
+    private final OutputStream out;
+
+    /**
+     * The deflate compression level.
+     */
+    private final int level;
+
+    /**
+     * The size of the uncompressed blocks.
+     */
+    private final int blockSize;
+
+    /**
+     * The executor compressing the blocks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * True if the executor was created by this stream and must be shut down on close.
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * The maximal number of blocks submitted but not yet written.
+     */
+    private final int maxPendingBlocks;
+
+    /**
+     * The compressed members which are not written yet, in input order.
+     */
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+
+    /**
+     * The block being filled.
+     */
+    private byte[] block;
+
+    /**
+     * The number of bytes in {@link ParallelGzipOutputStream#block}.
+     */
+    private int blockPosition;
+
+    /**
+     * True if a block was submitted for compression, so the output holds at least one gzip member.
+     */
+    private boolean blockSubmitted;
+
+    /**
+     * True if the stream is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a stream which compresses with the given level on a pool of the given number of threads.
+     *
+     * @param out     the stream to write the compressed data to.
+     * @param level   the deflate compression level, from 1 (fastest) to 9 (best).
+     * @param threads the number of compression threads.
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int threads) {
+        this(out, level, DEFAULT_BLOCK_SIZE, Executors.newFixedThreadPool(threads), threads, true);
+    }
+
+    /**
+     * Creates a stream which compresses blocks of the given size on a caller-provided executor.
+     * The executor is not shut down when the stream is closed.
+     *
+     * @param out         the stream to write the compressed data to.
+     * @param level       the deflate compression level, from 1 (fastest) to 9 (best).
+     * @param blockSize   the size of the uncompressed blocks.
+     * @param executor    the executor to compress the blocks on.
+     * @param parallelism the number of threads of the executor that may be used by this stream.
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int blockSize, ExecutorService executor,
+                                    int parallelism) {
+        this(out, level, blockSize, executor, parallelism, false);
+    }
+
+    /**
+     * The constructor that defines all parameters of the stream.
+     *
+     * @param out         the stream to write the compressed data to.
+     * @param level       the deflate compression level.
+     * @param blockSize   the size of the uncompressed blocks.
+     * @param executor    the executor to compress the blocks on.
+     * @param parallelism the number of threads of the executor that may be used by this stream.
+     * @param ownExecutor true if the executor must be shut down on close.
+     */
+    private ParallelGzipOutputStream(OutputStream out, int level, int blockSize, ExecutorService executor,
+                                     int parallelism, boolean ownExecutor) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Unsupported gzip compression level: " + level);
+        }
+        if (blockSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Block size and parallelism must be positive");
+        }
+        this.out = out;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.maxPendingBlocks = parallelism * BLOCKS_PER_THREAD;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockPosition++] = (byte) b;
+        if (blockPosition == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int chunk = Math.min(len, blockSize - blockPosition);
+            System.arraycopy(b, off, block, blockPosition, chunk);
+            blockPosition += chunk;
+            off += chunk;
+            len -= chunk;
+            if (blockPosition == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the members that are already compressed and flushes the underlying stream. The block being filled
+     * is kept open.
+     *
+     * @throws IOException if writing to the underlying stream is impossible.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peekFirst().isDone()) {
+            writeFirstPendingBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Compresses the remaining data, writes all members and closes the underlying stream. A stream closed without
+     * any data written gets an empty member: a zero-length file is not valid gzip, gunzip rejects it.
+     *
+     * @throws IOException if writing to the underlying stream is impossible.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (blockPosition > 0 || !blockSubmitted) {
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeFirstPendingBlock();
+            }
+            out.flush();
+        } finally {
+            closed = true;
+            for (Future<byte[]> future : pendingBlocks) {
+                future.cancel(true);
+            }
+            pendingBlocks.clear();
+            if (ownExecutor) {
+                executor.shutdownNow();
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Submits the current block for compression and starts a new one. Blocks the caller while the maximal
+     * number of blocks is already in flight.
+     *
+     * @throws IOException if writing to the underlying stream is impossible.
+     */
+    private void submitBlock() throws IOException {
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeFirstPendingBlock();
+        }
+        final byte[] data = block;
+        final int length = blockPosition;
+        final int compressionLevel = level;
+        pendingBlocks.addLast(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return compressMember(data, length, compressionLevel);
+            }
+        }));
+        block = new byte[blockSize];
+        blockPosition = 0;
+        blockSubmitted = true;
+    }
+
+    /**
+     * Waits for the oldest pending member and writes it to the underlying stream.
+     *
+     * @throws IOException if the compression failed or writing to the underlying stream is impossible.
+     */
+    private void writeFirstPendingBlock() throws IOException {
+        Future<byte[]> future = pendingBlocks.pollFirst();
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for gzip compression");
+        } catch (ExecutionException e) {
+            throw new IOException("gzip compression failed", e.getCause());
+        }
+    }
+
+    /**
+     * Checks that the stream is not closed.
+     *
+     * @throws IOException if the stream is closed.
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Compresses a block of data into a complete gzip member.
+     *
+     * @param data   the array containing the block.
+     * @param length the number of bytes of the block.
+     * @param level  the deflate compression level.
+     * @return the gzip member.
+     */
+    static byte[] compressMember(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] result = new byte[GZIP_HEADER.length + length + length / 16 + 64 + GZIP_TRAILER_LENGTH];
+            System.arraycopy(GZIP_HEADER, 0, result, 0, GZIP_HEADER.length);
+            int position = GZIP_HEADER.length;
+            while (!deflater.finished()) {
+                if (position == result.length - GZIP_TRAILER_LENGTH) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                position += deflater.deflate(result, position, result.length - GZIP_TRAILER_LENGTH - position);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            writeIntLittleEndian(result, position, (int) crc.getValue());
+            writeIntLittleEndian(result, position + 4, length);
+            return Arrays.copyOf(result, position + GZIP_TRAILER_LENGTH);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes an int into an array in the little-endian order used by gzip.
+     *
+     * @param array  the array to write to.
+     * @param offset the offset to write at.
+     * @param value  the value to write.
+     */
+    private static void writeIntLittleEndian(byte[] array, int offset, int value) {
+        array[offset] = (byte) value;
+        array[offset + 1] = (byte) (value >>> 8);
+        array[offset + 2] = (byte) (value >>> 16);
+        array[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -45,4 +45,8 @@ interface ParserMessageConstants {
      * Debug info. Column format.
      */
     String COLUMN_FORMAT = "Column format: {}";
+    /**
+     * Error string if a file is asked to be read from a page before the current page.
+     */
+    String SEEK_BACKWARD = "Can not seek to a page before the current page.";
 }
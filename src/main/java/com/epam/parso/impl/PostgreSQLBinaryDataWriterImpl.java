@@ -0,0 +1,450 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso.impl;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.epam.parso.Column;
+import com.epam.parso.PostgreSQLBinaryDataWriter;
+
+/**
+ * This is a class to export the sas7bdat file data into the binary format of the PostgreSQL
+ * {@code COPY table FROM STDIN (FORMAT binary)} command. Numbers, dates and timestamps are written in the
+ * internal representation of PostgreSQL, so the server does not have to parse their text form and doubles are
+ * not rounded by formatting. Character values are written in UTF-8, the client encoding of the COPY session
+ * has to be UTF8. The data is written in network byte order.
+ */
+public class PostgreSQLBinaryDataWriterImpl implements PostgreSQLBinaryDataWriter {
+    /**
+     * The signature that starts the binary COPY data.
+     */
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    /**
+     * The field length that marks a NULL value.
+     */
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * The tuple field count that marks the end of the data.
+     */
+    private static final short TRAILER = -1;
+
+    /**
+     * The number of days between 1960-01-01, the SAS epoch, and 2000-01-01, the PostgreSQL epoch.
+     */
+    private static final long SAS_TO_POSTGRESQL_DAYS = 14610;
+
+    /**
+     * The number of days between 1970-01-01, the Java epoch, and 2000-01-01, the PostgreSQL epoch.
+     */
+    private static final long JAVA_TO_POSTGRESQL_DAYS = 10957;
+
+    /**
+     * The number of seconds in a day.
+     */
+    private static final long SECONDS_IN_DAY = 86400;
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final long MILLISECONDS_IN_DAY = SECONDS_IN_DAY * 1000;
+
+    /**
+     * The number of microseconds in a second.
+     */
+    private static final long MICROSECONDS_IN_SECOND = 1000000;
+
+    /**
+     * The number of nanoseconds in a microsecond.
+     */
+    private static final int NANOSECONDS_IN_MICROSECOND = 1000;
+
+    /**
+     * The base of the digits of the PostgreSQL numeric binary format.
+     */
+    private static final int NUMERIC_DIGITS_PER_GROUP = 4;
+
+    /**
+     * The sign of positive numeric values.
+     */
+    private static final short NUMERIC_POSITIVE = 0x0000;
+
+    /**
+     * The sign of negative numeric values.
+     */
+    private static final short NUMERIC_NEGATIVE = 0x4000;
+
+    /**
+     * The size of the fixed part of a numeric value: the digit count, the weight, the sign and the scale.
+     */
+    private static final int NUMERIC_HEADER_LENGTH = 8;
+
+    /**
+     * The length of int2 values.
+     */
+    private static final int INT2_LENGTH = 2;
+
+    /**
+     * The length of int4 values.
+     */
+    private static final int INT4_LENGTH = 4;
+
+    /**
+     * The length of int8, float8, time and timestamp values.
+     */
+    private static final int INT8_LENGTH = 8;
+
+    /**
+     * The stream to write the binary COPY data to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The PostgreSQL types of the columns, derived from the columns if not given.
+     */
+    private List<PostgreSQLBinaryType> types;
+
+    /**
+     * True if the types of the columns are derived from the columns passed to {@link #writeRow(List, Object[])}.
+     */
+    private final boolean derivedTypes;
+
+    /**
+     * The constructor that defines the stream to write to. The PostgreSQL types of the columns are the types of
+     * the schema written by the PostgreSQL schema exporter, see {@link PostgreSQLBinaryType#of(Column)}.
+     *
+     * @param outputStream the stream to write the binary COPY data to.
+     */
+    public PostgreSQLBinaryDataWriterImpl(OutputStream outputStream) {
+        this.out = new DataOutputStream(outputStream);
+        this.derivedTypes = true;
+    }
+
+    /**
+     * The constructor that defines the stream to write to and the PostgreSQL types of the columns of the table.
+     *
+     * @param outputStream the stream to write the binary COPY data to.
+     * @param types        the PostgreSQL types of the columns of the table, in the order of the columns.
+     */
+    public PostgreSQLBinaryDataWriterImpl(OutputStream outputStream, List<PostgreSQLBinaryType> types) {
+        this.out = new DataOutputStream(outputStream);
+        this.types = Collections.unmodifiableList(new ArrayList<PostgreSQLBinaryType>(types));
+        this.derivedTypes = false;
+    }
+
+    /**
+     * The method to output the signature, the flags and the header extension that start the binary COPY data.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeHeader() throws IOException {
+        out.write(SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    /**
+     * The method to export a row from sas7bdat file (stored as an object of the {@link SasFileReaderImpl} class)
+     * as a binary COPY tuple. Both converted rows and raw rows (see {@link SasFileReaderImpl#readNextRaw()}) are
+     * accepted.
+     *
+     * @param columns the {@link Column} class variables list that stores columns description from the sas7bdat file.
+     * @param row     the Objects arrays that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeRow(List<Column> columns, Object[] row) throws IOException {
+        if (row == null) {
+            return;
+        }
+        List<PostgreSQLBinaryType> columnTypes = getTypes(columns);
+        out.writeShort(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            writeValue(columnTypes.get(i), row[i]);
+        }
+    }
+
+    /**
+     * The method to export a parsed sas7bdat file (stored as an object of the {@link SasFileReaderImpl} class)
+     * as binary COPY tuples.
+     *
+     * @param columns the {@link Column} class variables list that stores columns description from the sas7bdat file.
+     * @param rows    the Objects arrays array that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeRowsArray(List<Column> columns, Object[][] rows) throws IOException {
+        for (Object[] currentRow : rows) {
+            if (currentRow != null) {
+                writeRow(columns, currentRow);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The method to output the trailer that ends the binary COPY data and to flush the stream.
+     *
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    @Override
+    public void writeTrailer() throws IOException {
+        out.writeShort(TRAILER);
+        out.flush();
+    }
+
+    /**
+     * Returns the PostgreSQL types of the columns, deriving them from the columns if they were not given.
+     *
+     * @param columns the columns of the rows.
+     * @return the PostgreSQL types of the columns.
+     */
+    private List<PostgreSQLBinaryType> getTypes(List<Column> columns) {
+        if (derivedTypes && (types == null || types.size() != columns.size())) {
+            List<PostgreSQLBinaryType> columnTypes = new ArrayList<PostgreSQLBinaryType>(columns.size());
+            for (Column column : columns) {
+                columnTypes.add(PostgreSQLBinaryType.of(column));
+            }
+            types = columnTypes;
+        }
+        if (types.size() != columns.size()) {
+            throw new IllegalArgumentException("The number of PostgreSQL types " + types.size()
+                    + " does not match the number of columns " + columns.size());
+        }
+        return types;
+    }
+
+    /**
+     * Writes a field of a tuple: the length of the value followed by its binary representation.
+     *
+     * @param type  the PostgreSQL type of the column.
+     * @param value the value read from the sas7bdat file, can be null.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    private void writeValue(PostgreSQLBinaryType type, Object value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        switch (type) {
+            case INT2:
+                if (isFinite(value)) {
+                    out.writeInt(INT2_LENGTH);
+                    out.writeShort(((Number) value).shortValue());
+                } else {
+                    out.writeInt(NULL_LENGTH);
+                }
+                break;
+            case INT4:
+                if (isFinite(value)) {
+                    out.writeInt(INT4_LENGTH);
+                    out.writeInt(((Number) value).intValue());
+                } else {
+                    out.writeInt(NULL_LENGTH);
+                }
+                break;
+            case INT8:
+                if (isFinite(value)) {
+                    out.writeInt(INT8_LENGTH);
+                    out.writeLong(((Number) value).longValue());
+                } else {
+                    out.writeInt(NULL_LENGTH);
+                }
+                break;
+            case FLOAT8:
+                out.writeInt(INT8_LENGTH);
+                out.writeDouble(((Number) value).doubleValue());
+                break;
+            case NUMERIC:
+                if (isFinite(value)) {
+                    writeNumeric(toBigDecimal((Number) value));
+                } else {
+                    out.writeInt(NULL_LENGTH);
+                }
+                break;
+            case DATE:
+                out.writeInt(INT4_LENGTH);
+                out.writeInt((int) toPostgreSQLDays(value));
+                break;
+            case TIME:
+                out.writeInt(INT8_LENGTH);
+                out.writeLong(toMicrosecondsOfDay(value));
+                break;
+            case TIMESTAMP:
+                out.writeInt(INT8_LENGTH);
+                out.writeLong(toPostgreSQLMicroseconds(value));
+                break;
+            case TEXT:
+            default:
+                byte[] bytes = toText(value).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+        }
+    }
+
+    /**
+     * Checks whether a number can be written as an integer or a numeric value. Infinities are written as NULL,
+     * PostgreSQL numeric columns do not store them.
+     *
+     * @param value the number.
+     * @return true if the value is not an infinite or NaN double.
+     */
+    private static boolean isFinite(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return !Double.isInfinite(d) && !Double.isNaN(d);
+        }
+        return true;
+    }
+
+    /**
+     * Converts a number to its decimal value. Doubles are converted to their shortest decimal representation,
+     * which reads back as the same double.
+     *
+     * @param value the number.
+     * @return the decimal value.
+     */
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    /**
+     * Writes a numeric field: the length, the number of base 10000 digits, the weight of the first digit, the sign,
+     * the display scale and the digits.
+     *
+     * @param value the decimal value.
+     * @throws IOException appears if the output into stream is impossible.
+     */
+    private void writeNumeric(BigDecimal value) throws IOException {
+        BigDecimal abs = value.abs();
+        int scale = Math.max(abs.scale(), 0);
+        String digits = abs.setScale(scale).unscaledValue().toString();
+        int integerLength = digits.length() - scale;
+        StringBuilder padded = new StringBuilder();
+        int leadingZeros = integerLength > 0
+                ? (NUMERIC_DIGITS_PER_GROUP - integerLength % NUMERIC_DIGITS_PER_GROUP) % NUMERIC_DIGITS_PER_GROUP
+                : -integerLength;
+        for (int i = 0; i < leadingZeros; i++) {
+            padded.append('0');
+        }
+        padded.append(digits);
+        while (padded.length() % NUMERIC_DIGITS_PER_GROUP != 0) {
+            padded.append('0');
+        }
+        int integerGroups = integerLength > 0 ? (integerLength + leadingZeros) / NUMERIC_DIGITS_PER_GROUP : 0;
+        short[] groups = new short[padded.length() / NUMERIC_DIGITS_PER_GROUP];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = Short.parseShort(padded.substring(i * NUMERIC_DIGITS_PER_GROUP,
+                    (i + 1) * NUMERIC_DIGITS_PER_GROUP));
+        }
+        int first = 0;
+        while (first < groups.length && groups[first] == 0) {
+            first++;
+        }
+        int last = groups.length;
+        while (last > first && groups[last - 1] == 0) {
+            last--;
+        }
+        int weight = first < last ? integerGroups - 1 - first : 0;
+        short sign = first < last && value.signum() < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE;
+        out.writeInt(NUMERIC_HEADER_LENGTH + 2 * (last - first));
+        out.writeShort(last - first);
+        out.writeShort(weight);
+        out.writeShort(sign);
+        out.writeShort(scale);
+        for (int i = first; i < last; i++) {
+            out.writeShort(groups[i]);
+        }
+    }
+
+    /**
+     * Converts a date value to the number of days since 2000-01-01.
+     *
+     * @param value a {@link Date} or the raw number of days since 1960-01-01.
+     * @return the number of days since 2000-01-01.
+     */
+    private static long toPostgreSQLDays(Object value) {
+        if (value instanceof Date) {
+            return Math.floorDiv(((Date) value).getTime(), MILLISECONDS_IN_DAY) - JAVA_TO_POSTGRESQL_DAYS;
+        }
+        return (long) Math.floor(((Number) value).doubleValue()) - SAS_TO_POSTGRESQL_DAYS;
+    }
+
+    /**
+     * Converts a time value to the number of microseconds since midnight.
+     *
+     * @param value a {@link LocalDateTime} or the raw number of seconds since midnight.
+     * @return the number of microseconds since midnight.
+     */
+    private static long toMicrosecondsOfDay(Object value) {
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalTime().toNanoOfDay() / NANOSECONDS_IN_MICROSECOND;
+        }
+        return Math.round(((Number) value).doubleValue() * MICROSECONDS_IN_SECOND);
+    }
+
+    /**
+     * Converts a datetime value to the number of microseconds since 2000-01-01 00:00:00.
+     *
+     * @param value a {@link LocalDateTime} in UTC or the raw number of seconds since 1960-01-01 00:00:00.
+     * @return the number of microseconds since 2000-01-01 00:00:00.
+     */
+    private static long toPostgreSQLMicroseconds(Object value) {
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return (dateTime.toEpochSecond(ZoneOffset.UTC) - JAVA_TO_POSTGRESQL_DAYS * SECONDS_IN_DAY)
+                    * MICROSECONDS_IN_SECOND + dateTime.getNano() / NANOSECONDS_IN_MICROSECOND;
+        }
+        return Math.round(((Number) value).doubleValue() * MICROSECONDS_IN_SECOND)
+                - SAS_TO_POSTGRESQL_DAYS * SECONDS_IN_DAY * MICROSECONDS_IN_SECOND;
+    }
+
+    /**
+     * Converts a character value to a string, decoding byte arrays the way {@link CSVDataWriterImpl} does.
+     *
+     * @param value a string or the bytes of the value.
+     * @return the string.
+     * @throws IOException if the bytes can not be decoded.
+     */
+    private static String toText(Object value) throws IOException {
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, CSVDataWriterImpl.ENCODING);
+        }
+        return String.valueOf(value);
+    }
+}
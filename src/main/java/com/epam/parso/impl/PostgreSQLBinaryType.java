@@ -0,0 +1,91 @@
+package com.epam.parso.impl;
+
+import com.epam.parso.Column;
+
+/**
+ * An enumeration of the PostgreSQL column types the {@link PostgreSQLBinaryDataWriterImpl} writes in
+ * binary COPY format, with the name of the type in PostgreSQL.
+ */
+public enum PostgreSQLBinaryType {
+    /**
+     * 2 byte integers.
+     */
+    INT2("smallint"),
+    /**
+     * 4 byte integers.
+     */
+    INT4("integer"),
+    /**
+     * 8 byte integers.
+     */
+    INT8("bigint"),
+    /**
+     * 8 byte floating point numbers.
+     */
+    FLOAT8("double precision"),
+    /**
+     * Arbitrary precision numbers.
+     */
+    NUMERIC("numeric"),
+    /**
+     * Dates, written as days since 2000-01-01.
+     */
+    DATE("date"),
+    /**
+     * Times of day, written as microseconds since midnight.
+     */
+    TIME("time"),
+    /**
+     * Timestamps without time zone, written as microseconds since 2000-01-01 00:00:00.
+     */
+    TIMESTAMP("timestamp"),
+    /**
+     * Character strings, written in UTF-8.
+     */
+    TEXT("text");
+
+    /**
+     * The name of the type in PostgreSQL.
+     */
+    private final String typeName;
+
+    /**
+     * Creates a type with its PostgreSQL name.
+     * @param typeName The name of the type in PostgreSQL.
+     */
+    PostgreSQLBinaryType(String typeName) {
+        this.typeName = typeName;
+    }
+
+    /**
+     * The function to get {@link PostgreSQLBinaryType#typeName}.
+     * @return the name of the type in PostgreSQL.
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Returns the type of the PostgreSQL column a .sas7bdat file column is exported to, consistently with
+     * the column types of the schema written by the PostgreSQL schema exporter.
+     * @param c The .sas7bdat file column.
+     * @return The PostgreSQL binary type of the column.
+     */
+    public static PostgreSQLBinaryType of(Column c) {
+        switch (DatabaseColumnType.of(c)) {
+            case INT:
+                return INT4;
+            case DATETIME:
+                return TIMESTAMP;
+            case TIME:
+                return TIME;
+            case DATE:
+                return DATE;
+            case VARCHAR:
+                return TEXT;
+            case NUMERIC:
+            default:
+                return NUMERIC;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.epam.parso.impl;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * The way to read a .sas7bdat file chosen by {@link ReadPlanner}: the stream to open, its buffer sizes and the
+ * number of such files to read at once. {@link #toString()} describes the decision and its reason for logging.
+ */
+public final class ReadPlan {
+    /**
+     * The ways to read the bytes of a file.
+     */
+    public enum Strategy {
+        /**
+         * A {@link BufferedInputStream} reading ahead {@link ReadPlan#getBufferSize()} bytes.
+         */
+        STREAM,
+
+        /**
+         * A {@link MappedFileInputStream} mapping windows of {@link ReadPlan#getWindowSize()} bytes.
+         */
+        MAPPED
+    }
+
+    /**
+     * The way to read the bytes of the file.
+     */
+    private final Strategy strategy;
+
+    /**
+     * The size of the buffer of the {@link Strategy#STREAM} strategy.
+     */
+    private final int bufferSize;
+
+    /**
+     * The size of the mapped windows of the {@link Strategy#MAPPED} strategy.
+     */
+    private final int windowSize;
+
+    /**
+     * The number of files with this layout to read at once.
+     */
+    private final int parallelism;
+
+    /**
+     * The reason of the decision.
+     */
+    private final String reason;
+
+    /**
+     * Creates a plan.
+     *
+     * @param strategy    the way to read the bytes of the file.
+     * @param bufferSize  the size of the buffer of the stream strategy.
+     * @param windowSize  the size of the mapped windows of the mapped strategy.
+     * @param parallelism the number of files with this layout to read at once.
+     * @param reason      the reason of the decision.
+     */
+    public ReadPlan(Strategy strategy, int bufferSize, int windowSize, int parallelism, String reason) {
+        if (strategy == null || bufferSize <= 0 || windowSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("A strategy and positive sizes and parallelism are required");
+        }
+        this.strategy = strategy;
+        this.bufferSize = bufferSize;
+        this.windowSize = windowSize;
+        this.parallelism = parallelism;
+        this.reason = reason;
+    }
+
+    /**
+     * @return the way to read the bytes of the file
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return the size of the buffer of the stream strategy, in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the size of the mapped windows of the mapped strategy, in bytes
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the number of files with this layout to read at once
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the reason of the decision
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Opens a file the planned way.
+     *
+     * @param file the .sas7bdat file.
+     * @return the stream of the file, to be closed by the caller.
+     * @throws IOException if the file can not be opened.
+     */
+    public InputStream open(Path file) throws IOException {
+        if (strategy == Strategy.MAPPED) {
+            return new MappedFileInputStream(file, windowSize);
+        }
+        return new BufferedInputStream(new FileInputStream(file.toFile()), bufferSize);
+    }
+
+    /**
+     * @return the decision and its reason, for logging
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(strategy.name());
+        if (strategy == Strategy.MAPPED) {
+            result.append(" window=").append(windowSize);
+        } else {
+            result.append(" buffer=").append(bufferSize);
+        }
+        return result.append(" parallelism=").append(parallelism).append(" (").append(reason).append(')').toString();
+    }
+}
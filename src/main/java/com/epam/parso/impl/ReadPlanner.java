@@ -0,0 +1,173 @@
+package com.epam.parso.impl;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.epam.parso.SasFileProperties;
+
+/**
+ * Chooses how to read a .sas7bdat file from its layout and the resources of the machine, instead of choosing the
+ * stream, the buffer sizes and the number of concurrent readers by hand for every job:
+ * <ul>
+ * <li>small files, compressed files and files on a 32-bit JVM are read with a buffered stream of a few pages,
+ * large uncompressed files are mapped;</li>
+ * <li>compressed files and files of narrow columns are bound by the decoding and read by as many readers as there
+ * are cores, other files are bound by the disk and read by at most {@link #IO_BOUND_PARALLELISM} readers;</li>
+ * <li>the readers are limited to a quarter of the heap, counting the pages, the buffers and the rows in flight.</li>
+ * </ul>
+ * parso decodes every column of a row, so the projection only counts in the memory held by the rows in flight.
+ */
+public final class ReadPlanner {
+    /**
+     * The smallest file mapped, in bytes. Smaller files are read as fast from the page cache with a buffered stream
+     * and do not pay for the mapping.
+     */
+    public static final long MAPPED_MIN_FILE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * The number of concurrent readers of files bound by the disk rather than by the decoding.
+     */
+    public static final int IO_BOUND_PARALLELISM = 4;
+
+    /**
+     * The number of pages read ahead by the buffered stream.
+     */
+    private static final int PAGES_PER_BUFFER = 8;
+
+    /**
+     * The smallest buffer of the stream, in bytes.
+     */
+    private static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The largest buffer of the stream, in bytes.
+     */
+    private static final int MAX_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The average column width, in bytes, under which decoding the row costs more than reading it.
+     */
+    private static final long NARROW_COLUMN_LENGTH = 16;
+
+    /**
+     * The number of decoded rows a reader holds at once, in its batches and queues.
+     */
+    private static final long ROWS_IN_FLIGHT = 4096;
+
+    /**
+     * The memory of a decoded value besides its content, in bytes.
+     */
+    private static final long VALUE_OVERHEAD = 24;
+
+    /**
+     * The share of the heap the readers may use is one divided by this value.
+     */
+    private static final long HEAP_SHARE_DIVISOR = 4;
+
+    /**
+     * The number of available cores.
+     */
+    private final int cores;
+
+    /**
+     * The maximum heap size, in bytes.
+     */
+    private final long maxMemory;
+
+    /**
+     * False when files can not be mapped, on a 32-bit JVM.
+     */
+    private final boolean mappingAllowed;
+
+    /**
+     * Creates a planner for the cores and the heap of the running JVM.
+     */
+    public ReadPlanner() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory(),
+                !"32".equals(System.getProperty("sun.arch.data.model")));
+    }
+
+    /**
+     * Creates a planner for given resources.
+     *
+     * @param cores          the number of available cores.
+     * @param maxMemory      the maximum heap size, in bytes.
+     * @param mappingAllowed false when files can not be mapped.
+     */
+    public ReadPlanner(int cores, long maxMemory, boolean mappingAllowed) {
+        if (cores < 1 || maxMemory < 1) {
+            throw new IllegalArgumentException("The cores and the memory have to be positive");
+        }
+        this.cores = cores;
+        this.maxMemory = maxMemory;
+        this.mappingAllowed = mappingAllowed;
+    }
+
+    /**
+     * Plans the reading of a file from its metadata.
+     *
+     * @param file             the .sas7bdat file.
+     * @param projectedColumns the number of columns kept from every row, 0 for all of them.
+     * @return the plan.
+     * @throws IOException if the metadata of the file can not be read.
+     */
+    public ReadPlan plan(Path file, int projectedColumns) throws IOException {
+        SasFileProperties properties;
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+            properties = SasFileReaderImpl.metadataReader(is).getSasFileProperties();
+        }
+        return plan(properties, Files.size(file), projectedColumns);
+    }
+
+    /**
+     * Plans the reading of a file.
+     *
+     * @param properties       the metadata of the file.
+     * @param fileSize         the size of the file, in bytes.
+     * @param projectedColumns the number of columns kept from every row, 0 for all of them.
+     * @return the plan.
+     */
+    public ReadPlan plan(SasFileProperties properties, long fileSize, int projectedColumns) {
+        long pageLength = Math.max(1, properties.getPageLength());
+        long columns = Math.max(1, properties.getColumnsCount());
+        long projected = projectedColumns <= 0 ? columns : Math.min(projectedColumns, columns);
+        boolean compressed = properties.getCompressionMethod() != null;
+
+        int bufferSize = (int) Math.max(1, Math.min(Math.max(MIN_BUFFER_SIZE,
+                Math.min(MAX_BUFFER_SIZE, pageLength * PAGES_PER_BUFFER)), fileSize));
+        int windowSize = (int) Math.max(1, Math.min(MappedFileInputStream.DEFAULT_WINDOW_SIZE, fileSize));
+
+        ReadPlan.Strategy strategy;
+        String reason;
+        if (!mappingAllowed) {
+            strategy = ReadPlan.Strategy.STREAM;
+            reason = "mapping not allowed";
+        } else if (fileSize < MAPPED_MIN_FILE_SIZE) {
+            strategy = ReadPlan.Strategy.STREAM;
+            reason = "small file";
+        } else if (compressed) {
+            strategy = ReadPlan.Strategy.STREAM;
+            reason = "compressed pages";
+        } else {
+            strategy = ReadPlan.Strategy.MAPPED;
+            reason = "large uncompressed file";
+        }
+
+        boolean decodingBound = compressed || properties.getRowLength() < columns * NARROW_COLUMN_LENGTH;
+        int cpuLimit = decodingBound ? cores : Math.min(cores, IO_BOUND_PARALLELISM);
+        long rowMemory = projected * VALUE_OVERHEAD + 2 * properties.getRowLength() * projected / columns;
+        long readerMemory = 2 * pageLength + ROWS_IN_FLIGHT * rowMemory
+                + (strategy == ReadPlan.Strategy.STREAM ? bufferSize : 0);
+        long memoryLimit = maxMemory / HEAP_SHARE_DIVISOR / readerMemory;
+        int parallelism = (int) Math.max(1, Math.min(cpuLimit, memoryLimit));
+        reason += decodingBound ? ", bound by decoding" : ", bound by reading";
+        if (memoryLimit < cpuLimit) {
+            reason += ", limited by memory";
+        }
+        return new ReadPlan(strategy, bufferSize, windowSize, parallelism, reason);
+    }
+}
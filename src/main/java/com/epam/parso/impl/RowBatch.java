@@ -0,0 +1,204 @@
+package com.epam.parso.impl;
+
+import static com.epam.parso.impl.SasFileConstants.EPSILON;
+import static com.epam.parso.impl.SasFileConstants.NAN_EPSILON;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.epam.parso.Column;
+
+/**
+ * A batch of rows of a {@link SasFileReaderImpl} held as the bytes stored in the file, decompressed but not decoded,
+ * for the readers working on columns: the values of a column are decoded straight from the bytes into a primitive
+ * array, without boxing the cells of the rows, and only the rows asked for are decoded into objects. The bytes are
+ * kept in one array reused by the next batches.
+ */
+public final class RowBatch {
+    /**
+     * The reader of the rows.
+     */
+    private final SasFileReaderImpl reader;
+
+    /**
+     * The number of bytes of a row.
+     */
+    private final int rowLength;
+
+    /**
+     * The bytes of the rows of the batch.
+     */
+    private final byte[] rows;
+
+    /**
+     * The maximum number of rows of the batch.
+     */
+    private final int capacity;
+
+    /**
+     * True if the numbers of the file are big-endian.
+     */
+    private final boolean bigEndian;
+
+    /**
+     * The name of the encoding of the strings.
+     */
+    private final String encoding;
+
+    /**
+     * The charset of the strings, null if it is not supported.
+     */
+    private final Charset charset;
+
+    /**
+     * The offsets of the columns in a row.
+     */
+    private final int[] offsets;
+
+    /**
+     * The widths of the columns, 0 for the columns without data.
+     */
+    private final int[] widths;
+
+    /**
+     * The types of the columns.
+     */
+    private final DatabaseColumnType[] types;
+
+    /**
+     * The number of rows in the batch.
+     */
+    private int size;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param reader   the reader of the rows.
+     * @param capacity the maximum number of rows of the batch, at least 1.
+     */
+    public RowBatch(SasFileReaderImpl reader, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity has to be positive: " + capacity);
+        }
+        this.reader = reader;
+        this.capacity = capacity;
+        rowLength = (int) reader.getSasFileProperties().getRowLength();
+        rows = new byte[capacity * rowLength];
+        bigEndian = reader.getSasFileProperties().getEndianness() == 0;
+        encoding = reader.getSasFileProperties().getEncoding();
+        charset = RowDecoder.getCharset(encoding);
+        List<Column> columns = reader.getColumns();
+        List<Long> columnOffsets = reader.getColumnOffsets();
+        List<Integer> columnLengths = reader.getColumnLengths();
+        offsets = new int[columns.size()];
+        widths = new int[columns.size()];
+        types = new DatabaseColumnType[columns.size()];
+        for (int i = 0; i < columns.size() && columnLengths.get(i) != 0; i++) {
+            offsets[i] = columnOffsets.get(i).intValue();
+            widths[i] = columnLengths.get(i);
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            types[i] = DatabaseColumnType.of(columns.get(i));
+        }
+    }
+
+    /**
+     * The function to get the maximum number of rows of the batch.
+     *
+     * @return the maximum number of rows.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The function to get the number of rows in the batch.
+     *
+     * @return the number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replaces the rows of the batch by the next rows of the reader, up to a number of rows or a page.
+     *
+     * @param count   the maximum number of rows to read, at most {@link #capacity()}.
+     * @param endPage the index of the first page not to read, or {@link Long#MAX_VALUE} to read up to the last row.
+     * @return the number of rows read, less than the count only if there are no more rows before the page.
+     * @throws IOException if reading the file is impossible.
+     */
+    public int read(int count, long endPage) throws IOException {
+        int wanted = Math.min(count, capacity);
+        size = 0;
+        while (size < wanted && (endPage == Long.MAX_VALUE || reader.getPosition().getPageIndex() < endPage)
+                && reader.readNextBytes(rows, size * rowLength)) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Decodes the values of a numeric column of the rows of the batch: the dates in days and the datetimes and
+     * times in seconds since 1960-01-01, the other numbers as {@link SasFileReaderImpl#readNext()} returns them,
+     * and NaN for the missing values.
+     *
+     * @param column the index of the column.
+     * @param target the array receiving {@link #size()} values.
+     */
+    public void readNumbers(int column, double[] target) {
+        int width = widths[column];
+        int offset = offsets[column];
+        if (width == 0) {
+            for (int i = 0; i < size; i++) {
+                target[i] = Double.NaN;
+            }
+        } else if (width <= 2) {
+            for (int i = 0; i < size; i++) {
+                target[i] = RowDecoder.readShort(rows, i * rowLength + offset, width, bigEndian);
+            }
+        } else if (types[column] == DatabaseColumnType.NUMERIC || types[column] == DatabaseColumnType.INT) {
+            for (int i = 0; i < size; i++) {
+                double value = RowDecoder.readDouble(rows, i * rowLength + offset, width, bigEndian);
+                long whole = Math.round(value);
+                if (value < NAN_EPSILON && value > 0) {
+                    target[i] = Double.NaN;
+                } else {
+                    target[i] = Math.abs(value - whole) < EPSILON ? whole : value;
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                target[i] = RowDecoder.readDouble(rows, i * rowLength + offset, width, bigEndian);
+            }
+        }
+    }
+
+    /**
+     * Decodes the values of a character column of the rows of the batch, trimmed of trailing spaces, tabulations
+     * and zeros, and null for the missing values.
+     *
+     * @param column the index of the column.
+     * @param target the array receiving {@link #size()} values.
+     */
+    public void readStrings(int column, String[] target) {
+        int width = widths[column];
+        int offset = offsets[column];
+        for (int i = 0; i < size; i++) {
+            target[i] = width == 0 ? null
+                    : (String) RowDecoder.decodeString(rows, i * rowLength + offset, width, encoding, charset);
+        }
+    }
+
+    /**
+     * Decodes a row of the batch as {@link SasFileReaderImpl#readNext()} returns it, with the projection of the
+     * reader.
+     *
+     * @param row the index of the row in the batch.
+     * @return the values of the row.
+     */
+    public Object[] decodeRow(int row) {
+        return reader.decodeRow(rows, row * rowLength, false);
+    }
+}
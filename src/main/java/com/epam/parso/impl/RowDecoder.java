@@ -0,0 +1,506 @@
+package com.epam.parso.impl;
+
+import static com.epam.parso.impl.SasFileConstants.DATETIME_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.DATE_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.EPSILON;
+import static com.epam.parso.impl.SasFileConstants.HOURS_IN_DAY;
+import static com.epam.parso.impl.SasFileConstants.MILLISECONDS_IN_SECONDS;
+import static com.epam.parso.impl.SasFileConstants.MINUTES_IN_HOUR;
+import static com.epam.parso.impl.SasFileConstants.NANOSECONDS_IN_MILLISECOND;
+import static com.epam.parso.impl.SasFileConstants.NAN_EPSILON;
+import static com.epam.parso.impl.SasFileConstants.SECONDS_IN_MINUTE;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_DAYS_DIFFERENCE;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_SECONDS_DIFFERENCE;
+import static com.epam.parso.impl.SasFileConstants.TIME_FORMATS;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.Column;
+
+/**
+ * A row decoder specialized for the layout of a file: the kind of every cell (short, number, double, date, datetime,
+ * bytes or string) is resolved once from the column type, width and format, and the columns are grouped by kind, so
+ * decoding a row runs one loop per kind over the offsets and widths of its columns. Every loop calls the static
+ * decoding function of its kind, a call site with a single target, instead of matching the formats or branching on
+ * the flags of the parser for every cell. Decoders are shared by all the files with the same layout signature and
+ * produce the same values as {@link SasFileParser} does without them.
+ */
+final class RowDecoder {
+    /**
+     * Object for writing logs.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowDecoder.class);
+
+    /**
+     * The number of decoders kept for the most recently read layouts.
+     */
+    private static final int MAX_CACHED_DECODERS = 256;
+
+    /**
+     * The number of bytes of a double.
+     */
+    private static final int BYTES_IN_DOUBLE = 8;
+
+    /**
+     * The number of bits in a byte.
+     */
+    private static final int BITS_IN_BYTE = 8;
+
+    /**
+     * The mask of the bits of a byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * The kinds of cells, in the order of the groups of columns.
+     */
+    private static final String KINDS = "hndtas";
+
+    /**
+     * The decoders by layout signature, from the least to the most recently used.
+     */
+    private static final Map<String, RowDecoder> DECODERS = new LinkedHashMap<String, RowDecoder>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The function to evict the least recently used decoder over the limit.
+         *
+         * @param eldest the least recently used decoder.
+         * @return true if there are more decoders than the limit.
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RowDecoder> eldest) {
+            return size() > MAX_CACHED_DECODERS;
+        }
+    };
+
+    /**
+     * The number of columns of the rows.
+     */
+    private final int columnCount;
+
+    /**
+     * True if the numbers of the file are big-endian.
+     */
+    private final boolean bigEndian;
+
+    /**
+     * The name of the encoding of the strings, null to return the bytes.
+     */
+    private final String encoding;
+
+    /**
+     * The charset of the strings, null if it is not supported or the bytes are returned.
+     */
+    private final Charset charset;
+
+    /**
+     * The offsets of the columns in a row.
+     */
+    private final int[] offsets;
+
+    /**
+     * The widths of the columns.
+     */
+    private final int[] widths;
+
+    /**
+     * The indexes of the columns of the numbers of 2 bytes or less.
+     */
+    private final int[] shortColumns;
+
+    /**
+     * The indexes of the columns of the numbers.
+     */
+    private final int[] numberColumns;
+
+    /**
+     * The indexes of the columns of the formatted numbers read without conversion to dates.
+     */
+    private final int[] doubleColumns;
+
+    /**
+     * The indexes of the columns of the datetimes and times.
+     */
+    private final int[] dateTimeColumns;
+
+    /**
+     * The indexes of the columns of the dates.
+     */
+    private final int[] dateColumns;
+
+    /**
+     * The indexes of the character columns.
+     */
+    private final int[] stringColumns;
+
+    /**
+     * Creates a row decoder.
+     *
+     * @param kinds     the kinds of the columns, 0 for the columns left null.
+     * @param offsets   the offsets of the columns in a row.
+     * @param widths    the widths of the columns.
+     * @param bigEndian true if the numbers of the file are big-endian.
+     * @param encoding  the encoding of the strings, null for bytes.
+     */
+    private RowDecoder(char[] kinds, int[] offsets, int[] widths, boolean bigEndian, String encoding) {
+        this.columnCount = kinds.length;
+        this.offsets = offsets;
+        this.widths = widths;
+        this.bigEndian = bigEndian;
+        this.encoding = encoding;
+        this.charset = encoding == null ? null : getCharset(encoding);
+        int[][] groups = new int[KINDS.length()][];
+        for (int group = 0; group < groups.length; group++) {
+            int count = 0;
+            for (char kind : kinds) {
+                if (kind == KINDS.charAt(group)) {
+                    count++;
+                }
+            }
+            groups[group] = new int[count];
+            count = 0;
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] == KINDS.charAt(group)) {
+                    groups[group][count++] = i;
+                }
+            }
+        }
+        shortColumns = groups[KINDS.indexOf('h')];
+        numberColumns = groups[KINDS.indexOf('n')];
+        doubleColumns = groups[KINDS.indexOf('d')];
+        dateTimeColumns = groups[KINDS.indexOf('t')];
+        dateColumns = groups[KINDS.indexOf('a')];
+        stringColumns = groups[KINDS.indexOf('s')];
+    }
+
+    /**
+     * The function to get the decoder of a layout, created on the first use of its signature.
+     *
+     * @param columns    the columns of the file.
+     * @param offsets    the offsets of the columns in a row.
+     * @param lengths    the widths of the columns in a row.
+     * @param bigEndian  true if the numbers of the file are big-endian.
+     * @param encoding   the encoding of the strings.
+     * @param byteOutput true if strings are returned as bytes.
+     * @param raw        true if dates and datetimes are returned as numbers.
+     * @param projection the columns to decode, null for all of them; the other columns are left null.
+     * @return the decoder.
+     */
+    static RowDecoder forLayout(List<Column> columns, List<Long> offsets, List<Integer> lengths, boolean bigEndian,
+                                String encoding, boolean byteOutput, boolean raw, boolean[] projection) {
+        char[] kinds = new char[columns.size()];
+        int[] cellOffsets = new int[columns.size()];
+        int[] cellWidths = new int[columns.size()];
+        StringBuilder signature = new StringBuilder();
+        signature.append(bigEndian).append('|').append(encoding).append('|').append(byteOutput).append('|')
+                .append(raw).append('|').append(columns.size());
+        int columnCount = 0;
+        while (columnCount < columns.size() && lengths.get(columnCount) != 0) {
+            if (projection == null || columnCount < projection.length && projection[columnCount]) {
+                kinds[columnCount] = getKind(columns.get(columnCount), lengths.get(columnCount), raw);
+            }
+            cellOffsets[columnCount] = offsets.get(columnCount).intValue();
+            cellWidths[columnCount] = lengths.get(columnCount);
+            signature.append('|').append(kinds[columnCount] == 0 ? '-' : kinds[columnCount])
+                    .append(offsets.get(columnCount)).append(':').append(lengths.get(columnCount));
+            columnCount++;
+        }
+        String key = signature.toString();
+        synchronized (DECODERS) {
+            RowDecoder decoder = DECODERS.get(key);
+            if (decoder == null) {
+                decoder = new RowDecoder(kinds, cellOffsets, cellWidths, bigEndian, byteOutput ? null : encoding);
+                DECODERS.put(key, decoder);
+            }
+            return decoder;
+        }
+    }
+
+    /**
+     * The function to decode a row.
+     *
+     * @param source the bytes holding the row.
+     * @param offset the offset of the row in the source.
+     * @return the values of the row.
+     */
+    Object[] decode(byte[] source, int offset) {
+        Object[] row = new Object[columnCount];
+        for (int column : numberColumns) {
+            row[column] = decodeNumber(source, offset + offsets[column], widths[column], bigEndian);
+        }
+        for (int column : stringColumns) {
+            row[column] = decodeString(source, offset + offsets[column], widths[column], encoding, charset);
+        }
+        for (int column : shortColumns) {
+            row[column] = decodeShort(source, offset + offsets[column], widths[column], bigEndian);
+        }
+        for (int column : doubleColumns) {
+            row[column] = readDouble(source, offset + offsets[column], widths[column], bigEndian);
+        }
+        for (int column : dateTimeColumns) {
+            row[column] = decodeDateTime(source, offset + offsets[column], widths[column], bigEndian);
+        }
+        for (int column : dateColumns) {
+            row[column] = decodeDate(source, offset + offsets[column], widths[column], bigEndian);
+        }
+        return row;
+    }
+
+    /**
+     * The function to resolve how a column is decoded, the same way {@link SasFileParser} does for every cell.
+     *
+     * @param column the column.
+     * @param length the width of the column.
+     * @param raw    true if dates and datetimes are returned as numbers.
+     * @return 'h' for shorts, 'n' for numbers, 'd' for raw doubles, 't' for datetimes and times, 'a' for dates
+     * and 's' for strings.
+     */
+    static char getKind(Column column, int length, boolean raw) {
+        if (column.getType() != Number.class) {
+            return 's';
+        }
+        if (length <= 2) {
+            return 'h';
+        }
+        String format = column.getFormat();
+        if (format.isEmpty()) {
+            return 'n';
+        }
+        if (raw) {
+            return 'd';
+        }
+        if (matchesAny(DATETIME_FORMATS, format) || matchesAny(TIME_FORMATS, format)) {
+            return 't';
+        }
+        if (matchesAny(DATE_FORMATS, format)) {
+            return 'a';
+        }
+        return 'n';
+    }
+
+    /**
+     * The function to check a format against patterns.
+     *
+     * @param patterns the patterns.
+     * @param format   the format of a column.
+     * @return true if a pattern matches the whole format.
+     */
+    private static boolean matchesAny(Pattern[] patterns, String format) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(format).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The function to read a number of up to 8 bytes stored with its most significant bytes, as in
+     * {@link SasFileParser}.
+     *
+     * @param source    the bytes holding the number.
+     * @param offset    the offset of the number.
+     * @param width     the number of bytes of the number.
+     * @param bigEndian true if the number is big-endian.
+     * @return the number.
+     */
+    static double readDouble(byte[] source, int offset, int width, boolean bigEndian) {
+        int length = Math.min(width, BYTES_IN_DOUBLE);
+        long bits = 0;
+        if (bigEndian) {
+            for (int i = 0; i < length; i++) {
+                bits |= (long) (source[offset + i] & BYTE_MASK) << (BITS_IN_BYTE * (BYTES_IN_DOUBLE - 1 - i));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                bits |= (long) (source[offset + i] & BYTE_MASK) << (BITS_IN_BYTE * (BYTES_IN_DOUBLE - length + i));
+            }
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * The function to look up a charset without failing on unknown names, which are reported for every string as
+     * in {@link SasFileParser}.
+     *
+     * @param encoding the name of the encoding.
+     * @return the charset, or null if it is not supported.
+     */
+    static Charset getCharset(String encoding) {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The function to decode a number of 2 bytes or less, returned as an int value.
+     *
+     * @param source    the bytes holding the number.
+     * @param offset    the offset of the number.
+     * @param width     the number of bytes of the number.
+     * @param bigEndian true if the number is big-endian.
+     * @return the number.
+     */
+    private static Object decodeShort(byte[] source, int offset, int width, boolean bigEndian) {
+        return readShort(source, offset, width, bigEndian);
+    }
+
+    /**
+     * The function to read a number of 2 bytes or less, as in {@link SasFileParser}.
+     *
+     * @param source    the bytes holding the number.
+     * @param offset    the offset of the number.
+     * @param width     the number of bytes of the number.
+     * @param bigEndian true if the number is big-endian.
+     * @return the number.
+     */
+    static int readShort(byte[] source, int offset, int width, boolean bigEndian) {
+        if (width < 2) {
+            throw new BufferUnderflowException();
+        }
+        int first = source[offset] & BYTE_MASK;
+        int second = source[offset + 1] & BYTE_MASK;
+        return (short) (bigEndian ? first << BITS_IN_BYTE | second : second << BITS_IN_BYTE | first);
+    }
+
+    /**
+     * The function to decode a number, returned as a long value when it is whole and as a double value otherwise.
+     *
+     * @param source    the bytes holding the number.
+     * @param offset    the offset of the number.
+     * @param width     the number of bytes of the number.
+     * @param bigEndian true if the number is big-endian.
+     * @return the number, or null if it is missing.
+     */
+    private static Object decodeNumber(byte[] source, int offset, int width, boolean bigEndian) {
+        return toNumber(readDouble(source, offset, width, bigEndian));
+    }
+
+    /**
+     * The function to convert a decoded number of a column without a date format, as {@link SasFileParser} does.
+     *
+     * @param resultDouble the number.
+     * @return a long value when the number is whole, a double value otherwise, or null if it is missing.
+     */
+    static Object toNumber(double resultDouble) {
+        if (Double.isNaN(resultDouble) || (resultDouble < NAN_EPSILON && resultDouble > 0)) {
+            return null;
+        }
+        long resultLong = Math.round(resultDouble);
+        if (Math.abs(resultDouble - resultLong) >= EPSILON) {
+            return resultDouble;
+        } else {
+            return resultLong;
+        }
+    }
+
+    /**
+     * The function to decode a datetime or a time, stored as seconds from 01/01/1960.
+     *
+     * @param source    the bytes holding the number.
+     * @param offset    the offset of the number.
+     * @param width     the number of bytes of the number.
+     * @param bigEndian true if the number is big-endian.
+     * @return the datetime, or null if it is missing.
+     */
+    private static Object decodeDateTime(byte[] source, int offset, int width, boolean bigEndian) {
+        return toDateTime(readDouble(source, offset, width, bigEndian));
+    }
+
+    /**
+     * The function to convert a decoded number of a datetime or time column.
+     *
+     * @param doubleSeconds the seconds from 01/01/1960.
+     * @return the datetime, or null if it is missing.
+     */
+    static Object toDateTime(double doubleSeconds) {
+        if (Double.isNaN(doubleSeconds)) {
+            return null;
+        }
+        double secondsSinceEpoch = doubleSeconds - START_DATES_SECONDS_DIFFERENCE;
+        int nanoseconds;
+        if (doubleSeconds >= 0) {
+            nanoseconds = (int) ((doubleSeconds - (long) doubleSeconds) * MILLISECONDS_IN_SECONDS
+                    * NANOSECONDS_IN_MILLISECOND);
+        } else {
+            nanoseconds = (int) ((1.0 - (doubleSeconds - (long) doubleSeconds)) * MILLISECONDS_IN_SECONDS
+                    * NANOSECONDS_IN_MILLISECOND);
+        }
+        return LocalDateTime.ofEpochSecond((long) secondsSinceEpoch, nanoseconds, ZoneOffset.UTC);
+    }
+
+    /**
+     * The function to decode a date, stored as days from 01/01/1960.
+     *
+     * @param source    the bytes holding the number.
+     * @param offset    the offset of the number.
+     * @param width     the number of bytes of the number.
+     * @param bigEndian true if the number is big-endian.
+     * @return the date, or null if it is missing.
+     */
+    private static Object decodeDate(byte[] source, int offset, int width, boolean bigEndian) {
+        return toDate(readDouble(source, offset, width, bigEndian));
+    }
+
+    /**
+     * The function to convert a decoded number of a date column.
+     *
+     * @param doubleDays the days from 01/01/1960.
+     * @return the date, or null if it is missing.
+     */
+    static Object toDate(double doubleDays) {
+        return Double.isNaN(doubleDays) ? null : new Date((long) ((doubleDays - START_DATES_DAYS_DIFFERENCE)
+                * SECONDS_IN_MINUTE * MINUTES_IN_HOUR * HOURS_IN_DAY * MILLISECONDS_IN_SECONDS));
+    }
+
+    /**
+     * The function to decode a character value, trimmed of trailing spaces, tabulations and zeros.
+     *
+     * @param source   the bytes holding the value.
+     * @param offset   the offset of the value.
+     * @param width    the width of the column.
+     * @param encoding the name of the encoding of the strings, null to return the bytes.
+     * @param charset  the charset of the strings, null if it is not supported or the bytes are returned.
+     * @return the string or the bytes, or null if the value is empty.
+     */
+    static Object decodeString(byte[] source, int offset, int width, String encoding, Charset charset) {
+        int end;
+        for (end = offset + width; end > offset; end--) {
+            byte b = source[end - 1];
+            if (b != ' ' && b != '\0' && b != '\t') {
+                break;
+            }
+        }
+        if (end == offset) {
+            return null;
+        }
+        if (encoding == null) {
+            return Arrays.copyOfRange(source, offset, end);
+        }
+        if (charset != null) {
+            return new String(source, offset, end - offset, charset);
+        }
+        try {
+            return new String(source, offset, end - offset, encoding);
+        } catch (UnsupportedEncodingException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+    }
+}
@@ -660,6 +660,11 @@ public interface SasFileConstants {
      */
     int PAGE_MIX_TYPE = 512;
 
+    /**
+     * The page type storing the amendment of the data set, whose rows are not read.
+     */
+    int PAGE_AMD_TYPE = 1024;
+
     /**
      * The sas7bdat file stores the array of subheader pointers (
      * {@link SasFileParser.SubheaderPointer}) at this offset (adding
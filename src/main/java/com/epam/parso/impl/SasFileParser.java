@@ -23,6 +23,7 @@ import static com.epam.parso.impl.ParserMessageConstants.FILE_NOT_VALID;
 import static com.epam.parso.impl.ParserMessageConstants.NO_SUPPORTED_COMPRESSION_LITERAL;
 import static com.epam.parso.impl.ParserMessageConstants.NULL_COMPRESSION_LITERAL;
 import static com.epam.parso.impl.ParserMessageConstants.PAGE_TYPE;
+import static com.epam.parso.impl.ParserMessageConstants.SEEK_BACKWARD;
 import static com.epam.parso.impl.ParserMessageConstants.SUBHEADER_COUNT;
 import static com.epam.parso.impl.ParserMessageConstants.SUBHEADER_PROCESS_FUNCTION_NAME;
 import static com.epam.parso.impl.ParserMessageConstants.UNKNOWN_SUBHEADER_SIGNATURE;
@@ -52,7 +53,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.epam.parso.Column;
+import com.epam.parso.ReaderMetrics;
 import com.epam.parso.SasFileProperties;
+import com.epam.parso.impl.jfr.DecompressionEvent;
+import com.epam.parso.impl.jfr.FileOpenEvent;
+import com.epam.parso.impl.jfr.JfrSupport;
+import com.epam.parso.impl.jfr.PageReadEvent;
 
 /**
  * This is a class that parses sas7bdat files. When parsing a sas7bdat file, to interact with the library,
@@ -104,6 +110,11 @@ public final class SasFileParser {
         LITERALS_TO_DECOMPRESSOR.put(COMPRESS_BIN_IDENTIFYING_STRING, BinDecompressor.INSTANCE);
     }
 
+    /**
+     * The system property disabling the {@link RowDecoder} specialized for the layout of the files when "false".
+     */
+    public static final String SPECIALIZED_DECODERS_PROPERTY = "parso.specializedDecoders";
+
     /**
      * The input stream through which the sas7bdat is read.
      */
@@ -112,6 +123,40 @@ public final class SasFileParser {
      * The flag of data output in binary or string format.
      */
     private final Boolean byteOutput;
+    /**
+     * The flag of reading only the metadata. If set, the page cache is released after the metadata pages and no
+     * rows are read.
+     */
+    private final Boolean metadataOnly;
+    /**
+     * The flag of decoding rows with a {@link RowDecoder} specialized for the layout of the file.
+     */
+    private final Boolean specializedDecoders;
+    /**
+     * The columns decoded in the rows, null for all of them.
+     */
+    private boolean[] projection;
+    /**
+     * The decoder of the rows for the layout of the file, created with the first row.
+     */
+    private RowDecoder rowDecoder;
+    /**
+     * The decoder of the raw rows for the layout of the file, created with the first raw row.
+     */
+    private RowDecoder rawRowDecoder;
+    /**
+     * The listener of the pages and rows read.
+     */
+    private final ReaderMetrics metrics;
+    /**
+     * True if {@link SasFileParser#metrics} is enabled and the timings have to be measured.
+     */
+    private final boolean metricsEnabled;
+    /**
+     * The flight recorder event of the compressed rows of the current page, null if no row was decompressed
+     * since the page was read or the JDK Flight Recorder API is not available.
+     */
+    private DecompressionEvent decompressionEvent;
     /**
      * The list of current page data subheaders.
      */
@@ -177,7 +222,7 @@ public final class SasFileParser {
     /**
      * The index of the current byte when reading the file.
      */
-    private int currentFilePosition;
+    private long currentFilePosition;
     /**
      * The index of the current column when reading the file.
      */
@@ -185,11 +230,15 @@ public final class SasFileParser {
     /**
      * The index of the current row when reading the file.
      */
-    private int currentRowInFileIndex;
+    private long currentRowInFileIndex;
     /**
      * The index of the current row when reading the page.
      */
     private int currentRowOnPageIndex;
+    /**
+     * The index of the page in {@link SasFileParser#cachedPage}, counted from the first page after the header.
+     */
+    private long currentPageIndex = -1;
     /**
      * Last read row from sas7bdat file.
      */
@@ -208,6 +257,10 @@ public final class SasFileParser {
         sasFileStream = new DataInputStream(builder.sasFileStream);
         encoding = builder.encoding;
         byteOutput = builder.byteOutput;
+        metadataOnly = builder.metadataOnly;
+        specializedDecoders = builder.specializedDecoders;
+        metrics = builder.metrics;
+        metricsEnabled = metrics.isEnabled();
 
         Map<SubheaderIndexes, ProcessingSubheader> tmpMap = new HashMap<SubheaderIndexes, ProcessingSubheader>();
         tmpMap.put(SubheaderIndexes.ROW_SIZE_SUBHEADER_INDEX, new RowSizeSubheader());
@@ -221,11 +274,25 @@ public final class SasFileParser {
         tmpMap.put(SubheaderIndexes.DATA_SUBHEADER_INDEX, new DataSubheader());
         subheaderIndexToClass = Collections.unmodifiableMap(tmpMap);
 
+        FileOpenEvent fileOpenEvent = null;
+        if (JfrSupport.AVAILABLE) {
+            fileOpenEvent = new FileOpenEvent();
+            fileOpenEvent.begin();
+        }
         try {
             getMetadataFromSasFile();
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
         }
+        if (fileOpenEvent != null) {
+            fileOpenEvent.setProperties(sasFileProperties);
+            fileOpenEvent.commit();
+        }
+        if (metadataOnly) {
+            cachedPage = null;
+            currentPageDataSubheaderPointers.clear();
+            eof = true;
+        }
     }
 
     /**
@@ -250,13 +317,21 @@ public final class SasFileParser {
         processSasFileHeader();
         cachedPage = new byte[sasFileProperties.getPageLength()];
         while (!endOfMetadata) {
+            PageReadEvent pageReadEvent = beginPageReadEvent();
+            long start = metricsEnabled ? System.nanoTime() : 0;
             try {
                 sasFileStream.readFully(cachedPage, 0, sasFileProperties.getPageLength());
             } catch (EOFException ex) {
                 eof = true;
                 break;
             }
+            long nanos = metricsEnabled ? System.nanoTime() - start : 0;
+            currentPageIndex++;
             endOfMetadata = processSasFilePageMeta();
+            if (metricsEnabled) {
+                metrics.pageRead(currentPageType, sasFileProperties.getPageLength(), nanos);
+            }
+            commitPageReadEvent(pageReadEvent);
         }
     }
 
@@ -322,7 +397,7 @@ public final class SasFileParser {
         }
 
         if (sasFileStream != null) {
-            int bytesLeft = sasFileProperties.getHeaderLength() - currentFilePosition;
+            long bytesLeft = sasFileProperties.getHeaderLength() - currentFilePosition;
 
             long actuallySkipped = 0;
             while (actuallySkipped < bytesLeft) {
@@ -498,16 +573,43 @@ public final class SasFileParser {
      * @throws IOException if reading from the {@link SasFileParser#sasFileStream} stream is impossible.
      */
     Object[] readNext(boolean raw) throws IOException {
+        return readNextRow(raw, null, 0) ? Arrays.copyOf(currentRow, currentRow.length) : null;
+    }
+
+    /**
+     * The function to copy the bytes of the next row, decompressed, without decoding them. The row can be decoded
+     * later by {@link #decodeRow(byte[], int, boolean)}.
+     *
+     * @param target the array receiving {@link SasFileProperties#getRowLength()} bytes.
+     * @param offset the offset of the row in the array.
+     * @return false if there are no more rows.
+     * @throws IOException if reading from the {@link SasFileParser#sasFileStream} stream is impossible.
+     */
+    boolean readNextBytes(byte[] target, int offset) throws IOException {
+        return readNextRow(false, target, offset);
+    }
+
+    /**
+     * The function to read the next row, decoded into {@link SasFileParser#currentRow} or copied as bytes.
+     *
+     * @param raw          if true, long values representing dates will not be converted to dates.
+     * @param target       the array receiving the bytes of the row, or null to decode it.
+     * @param targetOffset the offset of the row in the array.
+     * @return false if there are no more rows.
+     * @throws IOException if reading from the {@link SasFileParser#sasFileStream} stream is impossible.
+     */
+    private boolean readNextRow(boolean raw, byte[] target, int targetOffset) throws IOException {
         if (currentRowInFileIndex++ >= sasFileProperties.getRowCount() || eof) {
-            return null;
+            commitDecompressionEvent();
+            return false;
         }
         int bitOffset = sasFileProperties.isU64() ? PAGE_BIT_OFFSET_X64 : PAGE_BIT_OFFSET_X86;
         switch (currentPageType) {
             case PAGE_META_TYPE:
                 SubheaderPointer currentSubheaderPointer =
                         currentPageDataSubheaderPointers.get(currentRowOnPageIndex++);
-                subheaderIndexToClass.get(SubheaderIndexes.DATA_SUBHEADER_INDEX).processSubheader(
-                        currentSubheaderPointer.offset, currentSubheaderPointer.length);
+                processRow(currentSubheaderPointer.offset, currentSubheaderPointer.length, raw, target,
+                        targetOffset);
                 if (currentRowOnPageIndex == currentPageDataSubheaderPointers.size()) {
                     readNextPage();
                     currentRowOnPageIndex = 0;
@@ -518,9 +620,10 @@ public final class SasFileParser {
                         : SUBHEADER_POINTER_LENGTH_X86;
                 int alignCorrection = (bitOffset + SUBHEADER_POINTERS_OFFSET + currentPageSubheadersCount
                         * subheaderPointerLength) % BITS_IN_BYTE;
-                currentRow = processByteArrayWithData(bitOffset + SUBHEADER_POINTERS_OFFSET + alignCorrection
+                processRow(bitOffset + SUBHEADER_POINTERS_OFFSET + alignCorrection
                         + currentPageSubheadersCount * subheaderPointerLength + currentRowOnPageIndex++
-                        * sasFileProperties.getRowLength(), sasFileProperties.getRowLength(), raw);
+                        * sasFileProperties.getRowLength(), sasFileProperties.getRowLength(), raw, target,
+                        targetOffset);
                 if (currentRowOnPageIndex == Math.min(sasFileProperties.getRowCount(),
                         sasFileProperties.getMixPageRowCount())) {
                     readNextPage();
@@ -528,8 +631,9 @@ public final class SasFileParser {
                 }
                 break;
             case PAGE_DATA_TYPE:
-                currentRow = processByteArrayWithData(bitOffset + SUBHEADER_POINTERS_OFFSET + currentRowOnPageIndex++
-                        * sasFileProperties.getRowLength(), sasFileProperties.getRowLength(), raw);
+                processRow(bitOffset + SUBHEADER_POINTERS_OFFSET + currentRowOnPageIndex++
+                        * sasFileProperties.getRowLength(), sasFileProperties.getRowLength(), raw, target,
+                        targetOffset);
                 if (currentRowOnPageIndex == currentPageBlockCount) {
                     readNextPage();
                     currentRowOnPageIndex = 0;
@@ -538,21 +642,45 @@ public final class SasFileParser {
             default:
                 break;
         }
-        return Arrays.copyOf(currentRow, currentRow.length);
+        return true;
+    }
+
+    /**
+     * The function to decode a row into {@link SasFileParser#currentRow} or to copy its bytes.
+     *
+     * @param rowOffset    the offset of the row in cachedPage.
+     * @param rowLength    the length of the row, compressed.
+     * @param raw          if true, long values representing dates will not be converted to dates.
+     * @param target       the array receiving the bytes of the row, or null to decode it.
+     * @param targetOffset the offset of the row in the array.
+     */
+    private void processRow(long rowOffset, long rowLength, boolean raw, byte[] target, int targetOffset) {
+        if (target == null) {
+            currentRow = processByteArrayWithData(rowOffset, rowLength, raw);
+            return;
+        }
+        int length = (int) sasFileProperties.getRowLength();
+        if (sasFileProperties.isCompressed() && rowLength < length) {
+            long start = metricsEnabled ? System.nanoTime() : 0;
+            System.arraycopy(decompressRow(rowOffset, rowLength, start), 0, target, targetOffset, length);
+        } else {
+            System.arraycopy(cachedPage, (int) rowOffset, target, targetOffset, length);
+        }
     }
 
     /**
      * The method to read next page from sas7bdat file and put it into {@link SasFileParser#cachedPage}. If this page
      * has {@link SasFileConstants#PAGE_META_TYPE} type method process it's subheaders. Method skips page with type
      * other than {@link SasFileConstants#PAGE_META_TYPE}, {@link SasFileConstants#PAGE_MIX_TYPE} or
-     * {@link SasFileConstants#PAGE_DATA_TYPE} and reads next.
+     * {@link SasFileConstants#PAGE_DATA_TYPE}, and meta pages without rows, and reads next.
      *
      * @throws IOException if reading from the {@link SasFileParser#sasFileStream} stream is impossible.
      */
     private void readNextPage() throws IOException {
         processNextPage();
         while (currentPageType != PAGE_META_TYPE && currentPageType != PAGE_MIX_TYPE
-                && currentPageType != PAGE_DATA_TYPE) {
+                && currentPageType != PAGE_DATA_TYPE
+                || currentPageType == PAGE_META_TYPE && currentPageDataSubheaderPointers.isEmpty()) {
             if (eof) {
                 return;
             }
@@ -567,15 +695,23 @@ public final class SasFileParser {
     private void processNextPage() throws IOException {
         int bitOffset = sasFileProperties.isU64() ? PAGE_BIT_OFFSET_X64 : PAGE_BIT_OFFSET_X86;
         currentPageDataSubheaderPointers.clear();
+        commitDecompressionEvent();
 
+        PageReadEvent pageReadEvent = beginPageReadEvent();
+        long start = metricsEnabled ? System.nanoTime() : 0;
         try {
             sasFileStream.readFully(cachedPage, 0, sasFileProperties.getPageLength());
         } catch (EOFException ex) {
             eof = true;
             return;
         }
+        currentPageIndex++;
 
         readPageHeader();
+        if (metricsEnabled) {
+            metrics.pageRead(currentPageType, sasFileProperties.getPageLength(), System.nanoTime() - start);
+        }
+        commitPageReadEvent(pageReadEvent);
         if (currentPageType == PAGE_META_TYPE) {
             List<SubheaderPointer> subheaderPointers = new ArrayList<SubheaderPointer>();
             processPageMetadata(bitOffset, subheaderPointers);
@@ -613,21 +749,93 @@ public final class SasFileParser {
      * @return the array of objects storing the data of the row.
      */
     private Object[] processByteArrayWithData(long rowOffset, long rowLength, boolean raw) {
-        Object[] rowElements = new Object[(int) sasFileProperties.getColumnsCount()];
-        byte[] temp, source;
+        Object[] rowElements;
+        byte[] source;
         int offset;
+        long start = metricsEnabled ? System.nanoTime() : 0;
         if (sasFileProperties.isCompressed() && rowLength < sasFileProperties.getRowLength()) {
-            Decompressor decompressor = LITERALS_TO_DECOMPRESSOR.get(sasFileProperties.getCompressionMethod());
-            source = decompressor.decompressRow((int) rowOffset, (int) rowLength,
-                    (int) sasFileProperties.getRowLength(), cachedPage);
+            source = decompressRow(rowOffset, rowLength, start);
             offset = 0;
+            if (metricsEnabled) {
+                start = System.nanoTime();
+            }
         } else {
             source = cachedPage;
             offset = (int) rowOffset;
         }
 
+        rowElements = decodeRow(source, offset, raw);
+        if (metricsEnabled) {
+            metrics.rowDecoded(System.nanoTime() - start);
+        }
+        return rowElements;
+    }
+
+    /**
+     * The function to decompress a row, reporting it to the metrics and to the flight recorder decompression event.
+     *
+     * @param rowOffset the offset of the row in cachedPage.
+     * @param rowLength the length of the row, compressed.
+     * @param start     the time the decompression started if the metrics are enabled.
+     * @return the decompressed bytes of the row.
+     */
+    private byte[] decompressRow(long rowOffset, long rowLength, long start) {
+        boolean recorded = JfrSupport.AVAILABLE && isDecompressionRecorded();
+        long decompressionStart = recorded && !metricsEnabled ? System.nanoTime() : start;
+        int length = (int) sasFileProperties.getRowLength();
+        Decompressor decompressor = LITERALS_TO_DECOMPRESSOR.get(sasFileProperties.getCompressionMethod());
+        byte[] row = decompressor.decompressRow((int) rowOffset, (int) rowLength, length, cachedPage);
+        if (metricsEnabled || recorded) {
+            long decompressed = System.nanoTime();
+            if (metricsEnabled) {
+                metrics.rowDecompressed(sasFileProperties.getCompressionMethod(), (int) rowLength, length,
+                        decompressed - decompressionStart);
+            }
+            if (recorded) {
+                decompressionEvent.addRow((int) rowLength, length, decompressed - decompressionStart);
+                decompressionEvent.end();
+            }
+        }
+        return row;
+    }
+
+    /**
+     * The function to decode the bytes of a row copied by {@link #readNextBytes(byte[], int)}, reported to the
+     * metrics as a decoded row.
+     *
+     * @param source the bytes holding the row.
+     * @param offset the offset of the row in the source.
+     * @param raw    if true, long values representing dates will not be converted to dates.
+     * @return the array of objects storing the data of the row.
+     */
+    Object[] decodeCopiedRow(byte[] source, int offset, boolean raw) {
+        long start = metricsEnabled ? System.nanoTime() : 0;
+        Object[] row = decodeRow(source, offset, raw);
+        if (metricsEnabled) {
+            metrics.rowDecoded(System.nanoTime() - start);
+        }
+        return row;
+    }
+
+    /**
+     * The function to convert the decompressed bytes of a row into an array of objects, one per table cell.
+     *
+     * @param source the bytes holding the row.
+     * @param offset the offset of the row in the source.
+     * @param raw    if true, long values representing dates will not be converted to dates.
+     * @return the array of objects storing the data of the row.
+     */
+    Object[] decodeRow(byte[] source, int offset, boolean raw) {
+        if (specializedDecoders) {
+            return getRowDecoder(raw).decode(source, offset);
+        }
+        byte[] temp;
+        Object[] rowElements = new Object[(int) sasFileProperties.getColumnsCount()];
         for (int currentColumnIndex = 0; currentColumnIndex < sasFileProperties.getColumnsCount()
                 && columnsDataLength.get(currentColumnIndex) != 0; currentColumnIndex++) {
+            if (projection != null && (currentColumnIndex >= projection.length || !projection[currentColumnIndex])) {
+                continue;
+            }
             int length = columnsDataLength.get(currentColumnIndex);
             if (columns.get(currentColumnIndex).getType() == Number.class) {
                 temp = Arrays.copyOfRange(source, offset + (int) (long) columnsDataOffset.get(currentColumnIndex),
@@ -688,10 +896,91 @@ public final class SasFileParser {
                 }
             }
         }
-
         return rowElements;
     }
 
+    /**
+     * The function to restrict the decoding of the rows to some columns, the values of the other columns are null.
+     *
+     * @param projected the columns to decode, by index, or null for all of them.
+     */
+    void setProjection(boolean[] projected) {
+        projection = projected == null ? null : Arrays.copyOf(projected, projected.length);
+        rowDecoder = null;
+        rawRowDecoder = null;
+    }
+
+    /**
+     * The function to get the decoder specialized for the layout of the file, created with the first row.
+     *
+     * @param raw true if dates and datetimes are returned as numbers.
+     * @return the decoder.
+     */
+    private RowDecoder getRowDecoder(boolean raw) {
+        RowDecoder decoder = raw ? rawRowDecoder : rowDecoder;
+        if (decoder == null) {
+            decoder = RowDecoder.forLayout(columns, columnsDataOffset, columnsDataLength,
+                    sasFileProperties.getEndianness() == 0, encoding, byteOutput, raw, projection);
+            if (raw) {
+                rawRowDecoder = decoder;
+            } else {
+                rowDecoder = decoder;
+            }
+        }
+        return decoder;
+    }
+
+    /**
+     * The function to begin the flight recorder event of a page read.
+     *
+     * @return the begun event, or null if the JDK Flight Recorder API is not available.
+     */
+    private PageReadEvent beginPageReadEvent() {
+        if (!JfrSupport.AVAILABLE) {
+            return null;
+        }
+        PageReadEvent event = new PageReadEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * The method to commit the flight recorder event of a page read with the header of the page read.
+     *
+     * @param event the event returned by {@link SasFileParser#beginPageReadEvent()}.
+     */
+    private void commitPageReadEvent(PageReadEvent event) {
+        if (event != null) {
+            event.setPage(currentPageIndex, currentPageType, currentPageBlockCount, currentPageSubheadersCount,
+                    sasFileProperties.getPageLength());
+            event.commit();
+        }
+    }
+
+    /**
+     * The function to begin the flight recorder event of the compressed rows of the current page at its first
+     * compressed row. Only called if the JDK Flight Recorder API is available.
+     *
+     * @return true if the event is enabled and the rows have to be counted.
+     */
+    private boolean isDecompressionRecorded() {
+        if (decompressionEvent == null) {
+            decompressionEvent = new DecompressionEvent(sasFileProperties.getCompressionMethod());
+            decompressionEvent.begin();
+        }
+        return decompressionEvent.isEnabled();
+    }
+
+    /**
+     * The method to commit the flight recorder event of the compressed rows of the current page, if any.
+     */
+    private void commitDecompressionEvent() {
+        if (decompressionEvent != null) {
+            decompressionEvent.commit();
+            decompressionEvent = null;
+        }
+    }
+
     /**
      * The function to read the list of bytes arrays from the sas7bdat file. The array of offsets and the array of
      * lengths serve as input data that define the location and number of bytes the function must read.
@@ -719,7 +1008,7 @@ public final class SasFileParser {
                 } catch (EOFException e) {
                     eof = true;
                 }
-                currentFilePosition = (int) (long) offset[i] + length[i];
+                currentFilePosition = offset[i] + length[i];
                 vars.add(temp);
             }
         } else {
@@ -930,6 +1219,130 @@ public final class SasFileParser {
         }
     }
 
+    /**
+     * The function to get the position of the next row to read. After the last row of a page is read the position
+     * is already on the next page holding rows, with a row index on the page of 0.
+     *
+     * @return the position of the next row.
+     */
+    SasFilePosition getPosition() {
+        return new SasFilePosition(currentPageIndex, currentRowOnPageIndex, currentRowInFileIndex);
+    }
+
+    /**
+     * The method to continue reading at a position returned by {@link SasFileParser#getPosition()} for the same
+     * file. The pages before the position are skipped without being read, which seeks in file input streams.
+     *
+     * @param position the position of the next row to read.
+     * @throws IOException if the position is before the current page or reading the page is impossible.
+     */
+    void seek(SasFilePosition position) throws IOException {
+        if (position.getPageIndex() < currentPageIndex) {
+            throw new IOException(SEEK_BACKWARD);
+        }
+        if (position.getPageIndex() > currentPageIndex) {
+            skipPagesBefore(position.getPageIndex());
+            eof = false;
+            processNextPage();
+            if (eof) {
+                throw new EOFException(EMPTY_INPUT_STREAM);
+            }
+        }
+        currentRowOnPageIndex = position.getRowOnPageIndex();
+        currentRowInFileIndex = position.getRowIndex();
+    }
+
+    /**
+     * The method to continue reading at the first page holding rows at or after a page, for readers of a range of
+     * pages. The pages before it are skipped without being read. Nothing is skipped if the current page is at or
+     * after the page. The row indexes of the positions keep counting the rows read by this parser.
+     *
+     * @param pageIndex the index of the page.
+     * @throws IOException if reading the pages is impossible.
+     */
+    void seekToPage(long pageIndex) throws IOException {
+        if (pageIndex <= currentPageIndex || eof) {
+            return;
+        }
+        try {
+            skipPagesBefore(pageIndex);
+        } catch (EOFException e) {
+            eof = true;
+            return;
+        }
+        readNextPage();
+        currentRowOnPageIndex = 0;
+    }
+
+    /**
+     * The method to skip rows without decompressing or decoding them. The row counts of the pages are taken from
+     * their headers, so a page whose rows are all skipped is only read, and the next row is read from its position
+     * as after {@link SasFileParser#seek(SasFilePosition)}.
+     *
+     * @param count the number of rows to skip.
+     * @return the number of rows skipped, less than the count only if the file ends before.
+     * @throws IOException if reading the pages is impossible.
+     */
+    long skipRows(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && currentRowInFileIndex < sasFileProperties.getRowCount() && !eof) {
+            int pageRows = getCurrentPageRowCount();
+            if (pageRows <= currentRowOnPageIndex) {
+                break;
+            }
+            int step = (int) Math.min(Math.min(count - skipped, pageRows - currentRowOnPageIndex),
+                    sasFileProperties.getRowCount() - currentRowInFileIndex);
+            currentRowOnPageIndex += step;
+            currentRowInFileIndex += step;
+            skipped += step;
+            if (currentRowOnPageIndex == pageRows) {
+                readNextPage();
+                currentRowOnPageIndex = 0;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * The function to get the number of rows of the current page, as {@link SasFileParser#readNext(boolean)} reads
+     * them.
+     *
+     * @return the number of rows, 0 for a page without rows.
+     */
+    private int getCurrentPageRowCount() {
+        switch (currentPageType) {
+            case PAGE_META_TYPE:
+                return currentPageDataSubheaderPointers.size();
+            case PAGE_MIX_TYPE:
+                return (int) Math.min(sasFileProperties.getRowCount(), sasFileProperties.getMixPageRowCount());
+            case PAGE_DATA_TYPE:
+                return currentPageBlockCount;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * The method to skip the pages after the current page and before a page without reading them.
+     *
+     * @param pageIndex the index of the first page not skipped.
+     * @throws IOException if the file ends before the page or skipping is impossible.
+     */
+    private void skipPagesBefore(long pageIndex) throws IOException {
+        long bytesLeft = (pageIndex - currentPageIndex - 1) * sasFileProperties.getPageLength();
+        while (bytesLeft > 0) {
+            long skipped = sasFileStream.skip(bytesLeft);
+            if (skipped <= 0) {
+                if (sasFileStream.read() < 0) {
+                    throw new EOFException(EMPTY_INPUT_STREAM);
+                }
+                skipped = 1;
+            }
+            bytesLeft -= skipped;
+        }
+        currentPageIndex = pageIndex - 1;
+    }
+
     /**
      * Columns getter.
      * @return columns list.
@@ -938,6 +1351,24 @@ public final class SasFileParser {
         return columns;
     }
 
+    /**
+     * The function to get the offsets of the columns in a row.
+     *
+     * @return the offsets, by column index.
+     */
+    List<Long> getColumnsDataOffset() {
+        return columnsDataOffset;
+    }
+
+    /**
+     * The function to get the widths of the columns in a row.
+     *
+     * @return the widths, by column index.
+     */
+    List<Integer> getColumnsDataLength() {
+        return columnsDataLength;
+    }
+
     /**
      * The function to get sasFileParser.
      *
@@ -1031,6 +1462,23 @@ public final class SasFileParser {
          */
         private Boolean byteOutput = false;
 
+        /**
+         * Default value for {@link SasFileParser#metadataOnly} variable.
+         */
+        private Boolean metadataOnly = false;
+
+        /**
+         * Default value for {@link SasFileParser#metrics} variable.
+         */
+        private ReaderMetrics metrics = NoopReaderMetrics.INSTANCE;
+
+        /**
+         * Default value for {@link SasFileParser#specializedDecoders} variable, false when the
+         * {@link SasFileParser#SPECIALIZED_DECODERS_PROPERTY} system property is "false".
+         */
+        private Boolean specializedDecoders = !"false".equalsIgnoreCase(
+                System.getProperty(SPECIALIZED_DECODERS_PROPERTY));
+
         /**
          * The function to specify builders sasFileStream variable.
          *
@@ -1064,6 +1512,39 @@ public final class SasFileParser {
             return this;
         }
 
+        /**
+         * The function to specify builders metadataOnly variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        Builder metadataOnly(Boolean val) {
+            metadataOnly = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders metrics variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        Builder metrics(ReaderMetrics val) {
+            metrics = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders specializedDecoders variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        Builder specializedDecoders(Boolean val) {
+            specializedDecoders = val;
+            return this;
+        }
+
         /**
          * The function to create variable of SasFileParser class using current builder.
          *
@@ -0,0 +1,57 @@
+package com.epam.parso.impl;
+
+/**
+ * The position of the next row read from a .sas7bdat file: the index of its page, counted from the first page
+ * after the header, the index of the row on the page and the index of the row in the file. A position taken
+ * from a {@link SasFileReaderImpl} lets another reader of the same file continue from there with
+ * {@link SasFileReaderImpl#seek(SasFilePosition)}.
+ */
+public final class SasFilePosition {
+    /**
+     * The index of the page.
+     */
+    private final long pageIndex;
+
+    /**
+     * The index of the row on the page.
+     */
+    private final int rowOnPageIndex;
+
+    /**
+     * The index of the row in the file.
+     */
+    private final long rowIndex;
+
+    /**
+     * Creates a position.
+     * @param pageIndex The index of the page, counted from the first page after the header.
+     * @param rowOnPageIndex The index of the row on the page.
+     * @param rowIndex The index of the row in the file.
+     */
+    public SasFilePosition(long pageIndex, int rowOnPageIndex, long rowIndex) {
+        this.pageIndex = pageIndex;
+        this.rowOnPageIndex = rowOnPageIndex;
+        this.rowIndex = rowIndex;
+    }
+
+    /**
+     * @return the index of the page, counted from the first page after the header
+     */
+    public long getPageIndex() {
+        return pageIndex;
+    }
+
+    /**
+     * @return the index of the row on the page
+     */
+    public int getRowOnPageIndex() {
+        return rowOnPageIndex;
+    }
+
+    /**
+     * @return the index of the row in the file, the number of rows read before it
+     */
+    public long getRowIndex() {
+        return rowIndex;
+    }
+}
@@ -17,6 +17,7 @@
 package com.epam.parso.impl;
 
 import com.epam.parso.Column;
+import com.epam.parso.ReaderMetrics;
 import com.epam.parso.SasFileProperties;
 import com.epam.parso.SasFileReader;
 import org.slf4j.Logger;
@@ -36,6 +37,11 @@ public class SasFileReaderImpl implements SasFileReader {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(SasFileReaderImpl.class);
 
+    /**
+     * The largest number of rows {@link SasFileReaderImpl#readAll()} can return in an array.
+     */
+    private static final long MAX_ARRAY_ROWS = Integer.MAX_VALUE - 8;
+
     /**
      * Object for parsing sas7bdat file.
      */
@@ -75,6 +81,131 @@ public class SasFileReaderImpl implements SasFileReader {
         sasFileParser = new SasFileParser.Builder().sasFileStream(inputStream).byteOutput(byteOutput).build();
     }
 
+    /**
+     * Builds an object of the SasFileReaderImpl class from the file contained in the input stream, reporting
+     * the pages and rows read to a metrics listener.
+     * Reads only metadata (properties and column information) of the sas7bdat file.
+     *
+     * @param inputStream - an input stream which should contain a correct sas7bdat file.
+     * @param metrics     - the listener of the pages and rows read.
+     */
+    public SasFileReaderImpl(InputStream inputStream, ReaderMetrics metrics) {
+        sasFileParser = new SasFileParser.Builder().sasFileStream(inputStream).metrics(metrics).build();
+    }
+
+    /**
+     * Builds an object of the SasFileReaderImpl class from the parser.
+     *
+     * @param sasFileParser - the parser of the sas7bdat file.
+     */
+    private SasFileReaderImpl(SasFileParser sasFileParser) {
+        this.sasFileParser = sasFileParser;
+    }
+
+    /**
+     * Builds an object of the SasFileReaderImpl class which reads only metadata (properties and column information)
+     * of the sas7bdat file. Reading stops after the metadata pages and the page cache is released, so the reader
+     * returns no rows and the input stream can be closed right after the call.
+     *
+     * @param inputStream - an input stream which should contain a correct sas7bdat file.
+     * @return the reader of the metadata.
+     */
+    public static SasFileReaderImpl metadataReader(InputStream inputStream) {
+        return new SasFileReaderImpl(new SasFileParser.Builder().sasFileStream(inputStream).metadataOnly(true)
+                .build());
+    }
+
+    /**
+     * Continues reading at the first page holding rows at or after a page, skipping the pages before it without
+     * parsing them. Readers of the same file can read disjoint ranges of pages this way, each one reading rows while
+     * the page of {@link #getPosition()} is before the end of its range. Nothing is skipped if the reader is at or
+     * after the page already, and no row is left if the file ends before it. The row indexes of the positions count
+     * the rows read by this reader.
+     *
+     * @param pageIndex the index of the page, from 0 for the first page after the header.
+     * @throws IOException if reading the pages is impossible.
+     */
+    public void seekToPage(long pageIndex) throws IOException {
+        sasFileParser.seekToPage(pageIndex);
+    }
+
+    /**
+     * Skips rows without decompressing or decoding them, reading only the headers of the pages whose rows are all
+     * skipped, and continues reading after them as {@link #seek(SasFilePosition)} does.
+     *
+     * @param count the number of rows to skip.
+     * @return the number of rows skipped, less than the count only if the file ends before.
+     * @throws IOException if reading the pages is impossible.
+     */
+    public long skipRows(long count) throws IOException {
+        return sasFileParser.skipRows(count);
+    }
+
+    /**
+     * Copies the decompressed bytes of the next row without decoding them, for {@link SortingSasFileReader}.
+     *
+     * @param target the array receiving {@link SasFileProperties#getRowLength()} bytes.
+     * @param offset the offset of the row in the array.
+     * @return false if there are no more rows.
+     * @throws IOException if reading the input stream is impossible.
+     */
+    boolean readNextBytes(byte[] target, int offset) throws IOException {
+        return sasFileParser.readNextBytes(target, offset);
+    }
+
+    /**
+     * Decodes the bytes of a row copied by {@link #readNextBytes(byte[], int)}, reported to the metrics of the reader
+     * as a decoded row.
+     *
+     * @param source the bytes holding the row.
+     * @param offset the offset of the row in the source.
+     * @param raw    true if dates and datetimes are returned as numbers, as by {@link #readNextRaw()}.
+     * @return the values of the row.
+     */
+    Object[] decodeRow(byte[] source, int offset, boolean raw) {
+        return sasFileParser.decodeCopiedRow(source, offset, raw);
+    }
+
+    /**
+     * The function to get the offsets of the columns in the bytes of a row.
+     *
+     * @return the offsets, by column index.
+     */
+    List<Long> getColumnOffsets() {
+        return sasFileParser.getColumnsDataOffset();
+    }
+
+    /**
+     * The function to get the widths of the columns in the bytes of a row.
+     *
+     * @return the widths, by column index.
+     */
+    List<Integer> getColumnLengths() {
+        return sasFileParser.getColumnsDataLength();
+    }
+
+    /**
+     * Restricts the decoding of the next rows to some columns, the values of the other columns are null. The rows
+     * keep one value per column, so the indexes of {@link #getColumns()} still apply, but the character values and
+     * dates of the columns nobody reads are not decoded.
+     *
+     * @param columns the indexes of the columns to decode, or null to decode all of them again.
+     */
+    public void setProjection(int... columns) {
+        if (columns == null) {
+            sasFileParser.setProjection(null);
+            return;
+        }
+        boolean[] projected = new boolean[getColumns().size()];
+        for (int column : columns) {
+            if (column < 0 || column >= projected.length) {
+                throw new IllegalArgumentException("No column with the index " + column);
+            }
+            projected[column] = true;
+        }
+        sasFileParser.setProjection(projected);
+    }
+
     /**
      * The function to get the {@link Column} list from {@link SasFileParser}.
      *
@@ -93,7 +224,7 @@ public class SasFileReaderImpl implements SasFileReader {
      */
     @Override
     public Object[][] readAll() {
-        int rowNum = (int) getSasFileProperties().getRowCount();
+        int rowNum = getArrayRowCount();
         Object[][] result = new Object[rowNum][];
         for (int i = 0; i < rowNum; i++) {
             try {
@@ -119,7 +250,7 @@ public class SasFileReaderImpl implements SasFileReader {
      */
     @Override
     public Object[][] readAllRaw() {
-        int rowNum = (int) getSasFileProperties().getRowCount();
+        int rowNum = getArrayRowCount();
         Object[][] result = new Object[rowNum][];
         for (int i = 0; i < rowNum; i++) {
             try {
@@ -162,6 +293,43 @@ public class SasFileReaderImpl implements SasFileReader {
         return sasFileParser.readNext(true);
     }
 
+    /**
+     * The function to get the number of rows for {@link SasFileReaderImpl#readAll()}. Files with more rows than
+     * an array can hold have to be read with {@link SasFileReaderImpl#readNext()}.
+     *
+     * @return the row count of the file.
+     * @throws IllegalStateException if the rows do not fit in an array.
+     */
+    private int getArrayRowCount() {
+        long rowCount = getSasFileProperties().getRowCount();
+        if (rowCount > MAX_ARRAY_ROWS) {
+            throw new IllegalStateException("The file has " + rowCount + " rows, more than an array can hold, "
+                    + "read it with readNext");
+        }
+        return (int) rowCount;
+    }
+
+    /**
+     * The function to get the position of the next row to read. The position is on a page boundary, with a row
+     * index on the page of 0, right after the last row of a page is read.
+     *
+     * @return the position of the next row.
+     */
+    public SasFilePosition getPosition() {
+        return sasFileParser.getPosition();
+    }
+
+    /**
+     * Continues reading at a position returned by {@link SasFileReaderImpl#getPosition()} for the same file.
+     * The pages before the position are skipped without being parsed, which seeks in file input streams.
+     *
+     * @param position - the position of the next row to read.
+     * @throws IOException if the position is before the current page or reading the page is impossible.
+     */
+    public void seek(SasFilePosition position) throws IOException {
+        sasFileParser.seek(position);
+    }
+
     /**
      * The function to get sas file properties.
      *
@@ -0,0 +1,1232 @@
+package com.epam.parso.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileWriter;
+
+import static com.epam.parso.impl.SasFileConstants.ALIGN_1_CHECKER_VALUE;
+import static com.epam.parso.impl.SasFileConstants.ALIGN_1_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.ALIGN_1_VALUE;
+import static com.epam.parso.impl.SasFileConstants.ALIGN_2_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.ALIGN_2_VALUE;
+import static com.epam.parso.impl.SasFileConstants.BIG_ENDIAN_CHECKER;
+import static com.epam.parso.impl.SasFileConstants.BLOCK_COUNT_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.BYTES_IN_DOUBLE;
+import static com.epam.parso.impl.SasFileConstants.BYTES_IN_INT;
+import static com.epam.parso.impl.SasFileConstants.BYTES_IN_LONG;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_DATA_LENGTH_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_DATA_OFFSET_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_FORMAT_LENGTH_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_FORMAT_OFFSET_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_FORMAT_TEXT_SUBHEADER_INDEX_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_LABEL_LENGTH_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_LABEL_OFFSET_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_LABEL_TEXT_SUBHEADER_INDEX_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_NAME_LENGTH_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_NAME_OFFSET_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_NAME_POINTER_LENGTH;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_NAME_TEXT_SUBHEADER_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COLUMN_TYPE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.COMPRESSED_SUBHEADER_ID;
+import static com.epam.parso.impl.SasFileConstants.COMPRESSED_SUBHEADER_TYPE;
+import static com.epam.parso.impl.SasFileConstants.COMPRESS_BIN_IDENTIFYING_STRING;
+import static com.epam.parso.impl.SasFileConstants.COMPRESS_CHAR_IDENTIFYING_STRING;
+import static com.epam.parso.impl.SasFileConstants.DATASET_LENGTH;
+import static com.epam.parso.impl.SasFileConstants.DATASET_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.DATETIME_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.DATE_CREATED_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.DATE_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.DATE_MODIFIED_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.ENCODING_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.ENDIANNESS_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.FILE_TYPE_LENGTH;
+import static com.epam.parso.impl.SasFileConstants.FILE_TYPE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.HEADER_SIZE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.LITTLE_ENDIAN_CHECKER;
+import static com.epam.parso.impl.SasFileConstants.OS_NAME_LENGTH;
+import static com.epam.parso.impl.SasFileConstants.OS_NAME_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.PAGE_BIT_OFFSET_X64;
+import static com.epam.parso.impl.SasFileConstants.PAGE_BIT_OFFSET_X86;
+import static com.epam.parso.impl.SasFileConstants.PAGE_COUNT_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.PAGE_DATA_TYPE;
+import static com.epam.parso.impl.SasFileConstants.PAGE_META_TYPE;
+import static com.epam.parso.impl.SasFileConstants.PAGE_SIZE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.PAGE_TYPE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.ROW_COUNT_OFFSET_MULTIPLIER;
+import static com.epam.parso.impl.SasFileConstants.ROW_COUNT_ON_MIX_PAGE_OFFSET_MULTIPLIER;
+import static com.epam.parso.impl.SasFileConstants.ROW_LENGTH_OFFSET_MULTIPLIER;
+import static com.epam.parso.impl.SasFileConstants.SAS_CHARACTER_ENCODINGS;
+import static com.epam.parso.impl.SasFileConstants.SAS_RELEASE_LENGTH;
+import static com.epam.parso.impl.SasFileConstants.SAS_RELEASE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.SAS_SERVER_TYPE_LENGTH;
+import static com.epam.parso.impl.SasFileConstants.SAS_SERVER_TYPE_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_DAYS_DIFFERENCE;
+import static com.epam.parso.impl.SasFileConstants.START_DATES_SECONDS_DIFFERENCE;
+import static com.epam.parso.impl.SasFileConstants.SUBHEADER_COUNT_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.SUBHEADER_POINTERS_OFFSET;
+import static com.epam.parso.impl.SasFileConstants.SUBHEADER_POINTER_LENGTH_X64;
+import static com.epam.parso.impl.SasFileConstants.SUBHEADER_POINTER_LENGTH_X86;
+import static com.epam.parso.impl.SasFileConstants.TIME_FORMATS;
+import static com.epam.parso.impl.SasFileConstants.U64_BYTE_CHECKER_VALUE;
+
+/**
+ * A writer of .sas7bdat files, uncompressed or compressed with the CHAR ("SASYZCRL") or BIN ("SASYZCR2") algorithm:
+ * <pre>
+ * try (SasFileWriter writer = new SasFileWriterImpl.Builder(path, columns)
+ *         .compression(SasFileWriterImpl.BIN_COMPRESSION).build()) {
+ *     writer.writeRow(row);
+ * }
+ * </pre>
+ * The metadata is written on meta pages as the subheaders the parser reads (row size, column size, column text,
+ * column name, column attributes and format and label), and is rewritten on closing with the row count. The numeric
+ * columns come first in a row, as SAS lays them out. Uncompressed rows are written on data pages. Compressed rows are
+ * written as data subheaders on meta pages; they are compressed by a pool of threads in blocks of rows covering a few
+ * pages, and a row is kept uncompressed when compressing does not make it shorter. The calling thread still creates,
+ * encodes and packs the rows into pages, taking about as long as an uncompressed write, and the pool needs about 0.7
+ * (CHAR) or 1.3 (BIN) times the CPU time of the calling thread: the compression runs behind it with two cores for
+ * CHAR and three for BIN, and adds its CPU time on a single core.
+ */
+public final class SasFileWriterImpl implements SasFileWriter {
+    /**
+     * The literal of the CHAR (run-length) compression.
+     */
+    public static final String CHAR_COMPRESSION = COMPRESS_CHAR_IDENTIFYING_STRING;
+
+    /**
+     * The literal of the BIN (Ross Data Compression) compression.
+     */
+    public static final String BIN_COMPRESSION = COMPRESS_BIN_IDENTIFYING_STRING;
+
+    /**
+     * The default length of the pages.
+     */
+    public static final int DEFAULT_PAGE_LENGTH = 65536;
+
+    /**
+     * The smallest length of the pages.
+     */
+    private static final int MIN_PAGE_LENGTH = 1024;
+
+    /**
+     * The length of the header of the files of the 32-bit layout.
+     */
+    private static final int HEADER_LENGTH_X86 = 1024;
+
+    /**
+     * The length of the header of the files of the 64-bit layout.
+     */
+    private static final int HEADER_LENGTH_X64 = 8192;
+
+    /**
+     * The magic number starting the header.
+     */
+    private static final byte[] MAGIC_NUMBER = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xC2, (byte) 0xEA,
+        (byte) 0x81, 0x60, (byte) 0xB3, 0x14, 0x11, (byte) 0xCF, (byte) 0xBD, (byte) 0x92, 0x08, 0x00, 0x09,
+        (byte) 0xC7, 0x31, (byte) 0x8C, 0x18, 0x1F, 0x10, 0x11};
+
+    /**
+     * The value at {@link SasFileConstants#ALIGN_1_OFFSET} in the files of the 32-bit layout.
+     */
+    private static final byte X86_CHECKER_VALUE = 0x22;
+
+    /**
+     * The value at {@link SasFileConstants#ALIGN_2_OFFSET} in the files without the first alignment.
+     */
+    private static final byte NO_ALIGN_CHECKER_VALUE = 0x32;
+
+    /**
+     * The signature of the row size subheader.
+     */
+    private static final int ROW_SIZE_SIGNATURE = 0xF7F7F7F7;
+
+    /**
+     * The signature of the column size subheader.
+     */
+    private static final int COLUMN_SIZE_SIGNATURE = 0xF6F6F6F6;
+
+    /**
+     * The signature of the column text subheader.
+     */
+    private static final int COLUMN_TEXT_SIGNATURE = 0xFFFFFFFD;
+
+    /**
+     * The signature of the column name subheader.
+     */
+    private static final int COLUMN_NAME_SIGNATURE = 0xFFFFFFFF;
+
+    /**
+     * The signature of the column attributes subheader.
+     */
+    private static final int COLUMN_ATTRIBUTES_SIGNATURE = 0xFFFFFFFC;
+
+    /**
+     * The signature of the format and label subheader.
+     */
+    private static final int FORMAT_AND_LABEL_SIGNATURE = 0xFFFFFBFE;
+
+    /**
+     * The number of values of the int or long type in the row size subheader.
+     */
+    private static final int ROW_SIZE_VALUES = 16;
+
+    /**
+     * The number of values of the int or long type in the column size subheader.
+     */
+    private static final int COLUMN_SIZE_VALUES = 3;
+
+    /**
+     * The length of the column name and column attributes subheaders besides their vectors, with two values of the
+     * int or long type.
+     */
+    private static final int VECTOR_SUBHEADER_PADDING = 12;
+
+    /**
+     * The length of a column attributes vector besides its offset of the int or long type.
+     */
+    private static final int ATTRIBUTES_VECTOR_LENGTH = 8;
+
+    /**
+     * The length of the format and label subheader besides its three values of the int or long type.
+     */
+    private static final int FORMAT_AND_LABEL_LENGTH = 40;
+
+    /**
+     * The type of the numeric columns in the column attributes subheader.
+     */
+    private static final byte NUMBER_COLUMN_TYPE = 1;
+
+    /**
+     * The type of the character columns in the column attributes subheader.
+     */
+    private static final byte STRING_COLUMN_TYPE = 2;
+
+    /**
+     * The offset of the first text in a column text block, after the length of the block.
+     */
+    private static final int FIRST_TEXT_OFFSET = 4;
+
+    /**
+     * The alignment of the texts in a column text block.
+     */
+    private static final int TEXT_ALIGNMENT = 4;
+
+    /**
+     * The largest column text block, whose offsets are stored as short values.
+     */
+    private static final int MAX_TEXT_BLOCK_LENGTH = Short.MAX_VALUE - TEXT_ALIGNMENT;
+
+    /**
+     * The smallest width of the numeric columns.
+     */
+    private static final int MIN_NUMBER_LENGTH = 3;
+
+    /**
+     * The number of pages of rows compressed by one task.
+     */
+    private static final int PAGES_PER_BLOCK = 16;
+
+    /**
+     * The number of blocks of rows waiting to be compressed or written for every thread.
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final double MILLISECONDS_IN_DAY = 86400000.0;
+
+    /**
+     * The number of milliseconds in a second.
+     */
+    private static final double MILLISECONDS_IN_SECOND = 1000.0;
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOSECONDS_IN_SECOND = 1e9;
+
+    /**
+     * The file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The columns in the order they are given to {@link #writeRow(Object[])}.
+     */
+    private final List<Column> columns;
+
+    /**
+     * The offset of every column in a row.
+     */
+    private final int[] dataOffsets;
+
+    /**
+     * True for the numeric columns holding dates as days since 1960, false for seconds, by column.
+     */
+    private final boolean[] dateColumns;
+
+    /**
+     * The length of a row, a multiple of 8.
+     */
+    private final int rowLength;
+
+    /**
+     * True for the 64-bit layout.
+     */
+    private final boolean u64;
+
+    /**
+     * True for big-endian numbers.
+     */
+    private final boolean bigEndian;
+
+    /**
+     * The length of the pages.
+     */
+    private final int pageLength;
+
+    /**
+     * The compression literal, or null for uncompressed rows.
+     */
+    private final String compression;
+
+    /**
+     * The compressor of the rows, or null for uncompressed rows.
+     */
+    private final Compressor compressor;
+
+    /**
+     * The encoding of the texts.
+     */
+    private final Charset charset;
+
+    /**
+     * The code of the encoding in the header.
+     */
+    private final byte encodingCode;
+
+    /**
+     * The name of the dataset.
+     */
+    private final String name;
+
+    /**
+     * The creation time, in seconds since 1960.
+     */
+    private final double created;
+
+    /**
+     * The length of the values of the int or long type.
+     */
+    private final int intOrLongLength;
+
+    /**
+     * The offset of the page header in every page.
+     */
+    private final int bitOffset;
+
+    /**
+     * The length of a subheader pointer.
+     */
+    private final int pointerLength;
+
+    /**
+     * The number of uncompressed rows on a data page.
+     */
+    private final int rowsPerPage;
+
+    /**
+     * The number of rows compressed by one task.
+     */
+    private final int blockRows;
+
+    /**
+     * The number of meta pages holding the metadata.
+     */
+    private final int metaPageCount;
+
+    /**
+     * The threads compressing the rows, or null for uncompressed rows.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The largest number of blocks of rows waiting to be compressed or written.
+     */
+    private final int maxPendingBlocks;
+
+    /**
+     * The blocks of rows being compressed, in the order of the rows.
+     */
+    private final Deque<Future<List<byte[]>>> pendingBlocks = new ArrayDeque<Future<List<byte[]>>>();
+
+    /**
+     * The page being filled.
+     */
+    private final ByteBuffer page;
+
+    /**
+     * The rows of the block being filled.
+     */
+    private List<byte[]> block;
+
+    /**
+     * The number of rows or data subheaders on the page being filled.
+     */
+    private int pageItems;
+
+    /**
+     * The offset of the last data subheader on the page being filled.
+     */
+    private int pageDataStart;
+
+    /**
+     * The number of pages written after the metadata.
+     */
+    private long dataPageCount;
+
+    /**
+     * The number of rows written.
+     */
+    private long rowCount;
+
+    /**
+     * True after {@link #close()}.
+     */
+    private boolean closed;
+
+    /**
+     * Opens a file and writes the room for its metadata.
+     *
+     * @param builder the builder holding the settings of the writer.
+     * @throws IOException if the file can not be written.
+     */
+    private SasFileWriterImpl(Builder builder) throws IOException {
+        u64 = builder.u64;
+        bigEndian = builder.bigEndian;
+        pageLength = builder.pageLength;
+        compression = builder.compression;
+        compressor = COMPRESS_CHAR_IDENTIFYING_STRING.equals(compression) ? CharCompressor.INSTANCE
+                : COMPRESS_BIN_IDENTIFYING_STRING.equals(compression) ? BinCompressor.INSTANCE : null;
+        charset = Charset.forName(builder.encoding);
+        encodingCode = builder.encodingCode;
+        name = builder.name;
+        created = System.currentTimeMillis() / MILLISECONDS_IN_SECOND + START_DATES_SECONDS_DIFFERENCE;
+        intOrLongLength = u64 ? BYTES_IN_LONG : BYTES_IN_INT;
+        bitOffset = u64 ? PAGE_BIT_OFFSET_X64 : PAGE_BIT_OFFSET_X86;
+        pointerLength = u64 ? SUBHEADER_POINTER_LENGTH_X64 : SUBHEADER_POINTER_LENGTH_X86;
+
+        columns = Collections.unmodifiableList(new ArrayList<Column>(builder.columns));
+        dataOffsets = new int[columns.size()];
+        dateColumns = new boolean[columns.size()];
+        int offset = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                if ((column.getType() == Number.class) == (pass == 0)) {
+                    dataOffsets[i] = offset;
+                    offset += column.getLength();
+                    dateColumns[i] = matchesAny(DATE_FORMATS, column.getFormat());
+                }
+            }
+        }
+        rowLength = (offset + BYTES_IN_LONG - 1) / BYTES_IN_LONG * BYTES_IN_LONG;
+        int rowRoom = pageLength - bitOffset - SUBHEADER_POINTERS_OFFSET - (compressor == null ? 0 : pointerLength);
+        if (rowLength > rowRoom) {
+            throw new IllegalArgumentException("A row of " + rowLength + " bytes does not fit a page of " + pageLength
+                    + " bytes");
+        }
+        rowsPerPage = Math.min(rowRoom / rowLength, Short.MAX_VALUE);
+        blockRows = Math.max(1, PAGES_PER_BLOCK * pageLength / rowLength);
+
+        page = order(ByteBuffer.allocate(pageLength));
+        pageDataStart = pageLength;
+        List<byte[]> metaPages = buildMetaPages();
+        metaPageCount = metaPages.size();
+        channel = FileChannel.open(builder.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeMetadata(metaPages);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (compressor != null) {
+            executor = Executors.newFixedThreadPool(builder.threads);
+            maxPendingBlocks = builder.threads * BLOCKS_PER_THREAD;
+            block = new ArrayList<byte[]>(blockRows);
+        } else {
+            executor = null;
+            maxPendingBlocks = 0;
+        }
+    }
+
+    /**
+     * @return the columns in the order of the values of a row
+     */
+    @Override
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes a row: uncompressed rows go to the current data page, compressed rows to the block of rows compressed
+     * by the next task.
+     *
+     * @param row the values of the row in the order of the columns.
+     * @throws IOException if the file can not be written or a row can not be compressed.
+     */
+    @Override
+    public void writeRow(Object[] row) throws IOException {
+        if (closed) {
+            throw new IOException("The writer is closed");
+        }
+        if (row == null || row.length != columns.size()) {
+            throw new IllegalArgumentException("A row has to have " + columns.size() + " values");
+        }
+        if (compressor == null) {
+            if (pageItems == rowsPerPage) {
+                writePage(PAGE_DATA_TYPE);
+            }
+            encodeRow(row, page.array(), bitOffset + SUBHEADER_POINTERS_OFFSET + pageItems * rowLength);
+            pageItems++;
+        } else {
+            byte[] encoded = new byte[rowLength];
+            encodeRow(row, encoded, 0);
+            block.add(encoded);
+            if (block.size() == blockRows) {
+                submitBlock();
+            }
+        }
+        rowCount++;
+    }
+
+    /**
+     * Writes the remaining rows and the metadata with the row count, and closes the file.
+     *
+     * @throws IOException if the file can not be written or a row can not be compressed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (compressor != null) {
+                if (!block.isEmpty()) {
+                    submitBlock();
+                }
+                while (!pendingBlocks.isEmpty()) {
+                    writeFirstPendingBlock();
+                }
+            }
+            if (pageItems > 0) {
+                writePage(compressor == null ? PAGE_DATA_TYPE : PAGE_META_TYPE);
+            }
+            writeMetadata(buildMetaPages());
+        } finally {
+            for (Future<List<byte[]>> future : pendingBlocks) {
+                future.cancel(true);
+            }
+            pendingBlocks.clear();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Converts the values of a row into its bytes.
+     *
+     * @param row    the values of the row.
+     * @param target the array to write the row to.
+     * @param offset the offset of the row in the array.
+     */
+    private void encodeRow(Object[] row, byte[] target, int offset) {
+        for (int i = 0; i < row.length; i++) {
+            Column column = columns.get(i);
+            int position = offset + dataOffsets[i];
+            int length = column.getLength();
+            if (column.getType() == Number.class) {
+                writeNumber(target, position, length, toDouble(row[i], dateColumns[i], column));
+            } else {
+                byte[] bytes = row[i] == null ? null
+                        : row[i] instanceof byte[] ? (byte[]) row[i] : row[i].toString().getBytes(charset);
+                int count = bytes == null ? 0 : Math.min(bytes.length, length);
+                if (count > 0) {
+                    System.arraycopy(bytes, 0, target, position, count);
+                }
+                Arrays.fill(target, position + count, position + length, (byte) ' ');
+            }
+        }
+    }
+
+    /**
+     * Converts the value of a numeric column into a double.
+     *
+     * @param value  the value: a number, a date, a LocalDateTime or null for a missing value.
+     * @param date   true if the column holds dates as days since 1960, false for seconds.
+     * @param column the column.
+     * @return the double to write.
+     */
+    private static double toDouble(Object value, boolean date, Column column) {
+        if (value == null) {
+            return Double.NaN;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Date) {
+            long millis = ((Date) value).getTime();
+            return date ? millis / MILLISECONDS_IN_DAY + START_DATES_DAYS_DIFFERENCE
+                    : millis / MILLISECONDS_IN_SECOND + START_DATES_SECONDS_DIFFERENCE;
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return dateTime.toEpochSecond(ZoneOffset.UTC) + dateTime.getNano() / NANOSECONDS_IN_SECOND
+                    + START_DATES_SECONDS_DIFFERENCE;
+        }
+        throw new IllegalArgumentException("Unsupported value " + value + " for the numeric column "
+                + column.getName());
+    }
+
+    /**
+     * Writes the most significant bytes of a double, as the parser reads the numeric columns shorter than 8 bytes.
+     *
+     * @param target   the array to write to.
+     * @param position the offset in the array.
+     * @param length   the width of the column.
+     * @param value    the value.
+     */
+    private void writeNumber(byte[] target, int position, int length, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < length; i++) {
+            int shift = bigEndian ? BYTES_IN_DOUBLE - 1 - i : BYTES_IN_DOUBLE - length + i;
+            target[position + i] = (byte) (bits >>> (shift * Byte.SIZE));
+        }
+    }
+
+    /**
+     * Submits the block of rows to compress, after writing the oldest blocks if too many are pending.
+     *
+     * @throws IOException if the file can not be written or a row can not be compressed.
+     */
+    private void submitBlock() throws IOException {
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeFirstPendingBlock();
+        }
+        final List<byte[]> rows = block;
+        pendingBlocks.addLast(executor.submit(new Callable<List<byte[]>>() {
+            @Override
+            public List<byte[]> call() {
+                List<byte[]> result = new ArrayList<byte[]>(rows.size());
+                for (byte[] row : rows) {
+                    byte[] compressed = compressor.compressRow(row, 0, row.length);
+                    result.add(compressed.length < row.length ? compressed : row);
+                }
+                return result;
+            }
+        }));
+        block = new ArrayList<byte[]>(blockRows);
+    }
+
+    /**
+     * Waits for the oldest block of compressed rows and writes its rows as data subheaders.
+     *
+     * @throws IOException if the file can not be written or a row can not be compressed.
+     */
+    private void writeFirstPendingBlock() throws IOException {
+        List<byte[]> rows;
+        try {
+            rows = pendingBlocks.pollFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing the rows");
+        } catch (ExecutionException e) {
+            throw new IOException("Can not compress the rows", e.getCause());
+        }
+        for (byte[] row : rows) {
+            int pointersEnd = bitOffset + SUBHEADER_POINTERS_OFFSET + (pageItems + 1) * pointerLength;
+            if (pageItems == Short.MAX_VALUE || pageDataStart - row.length < pointersEnd) {
+                writePage(PAGE_META_TYPE);
+            }
+            pageDataStart -= row.length;
+            System.arraycopy(row, 0, page.array(), pageDataStart, row.length);
+            int pointer = bitOffset + SUBHEADER_POINTERS_OFFSET + pageItems * pointerLength;
+            putIntOrLong(page, pointer, pageDataStart);
+            putIntOrLong(page, pointer + intOrLongLength, row.length);
+            page.put(pointer + 2 * intOrLongLength, (byte) (row.length < rowLength ? COMPRESSED_SUBHEADER_ID : 0));
+            page.put(pointer + 2 * intOrLongLength + 1, (byte) COMPRESSED_SUBHEADER_TYPE);
+            pageItems++;
+        }
+    }
+
+    /**
+     * Writes the page being filled after the previous one and starts a new one.
+     *
+     * @param type the type of the page.
+     * @throws IOException if the file can not be written.
+     */
+    private void writePage(int type) throws IOException {
+        page.putShort(bitOffset + (int) PAGE_TYPE_OFFSET, (short) type);
+        page.putShort(bitOffset + (int) BLOCK_COUNT_OFFSET, (short) pageItems);
+        page.putShort(bitOffset + (int) SUBHEADER_COUNT_OFFSET, (short) (type == PAGE_DATA_TYPE ? 0 : pageItems));
+        long position = getHeaderLength() + (metaPageCount + dataPageCount) * pageLength;
+        writeFully(ByteBuffer.wrap(page.array()), position);
+        Arrays.fill(page.array(), (byte) 0);
+        dataPageCount++;
+        pageItems = 0;
+        pageDataStart = pageLength;
+    }
+
+    /**
+     * Writes the header and the meta pages at the beginning of the file.
+     *
+     * @param metaPages the meta pages.
+     * @throws IOException if the file can not be written.
+     */
+    private void writeMetadata(List<byte[]> metaPages) throws IOException {
+        writeFully(ByteBuffer.wrap(buildHeader(metaPages.size() + dataPageCount)), 0);
+        for (int i = 0; i < metaPages.size(); i++) {
+            writeFully(ByteBuffer.wrap(metaPages.get(i)), getHeaderLength() + (long) i * pageLength);
+        }
+    }
+
+    /**
+     * Writes a buffer at an offset of the file.
+     *
+     * @param buffer   the buffer.
+     * @param position the offset in the file.
+     * @throws IOException if the file can not be written.
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * @return the length of the header
+     */
+    private int getHeaderLength() {
+        return u64 ? HEADER_LENGTH_X64 : HEADER_LENGTH_X86;
+    }
+
+    /**
+     * Sets the byte order of the file to a buffer.
+     *
+     * @param buffer the buffer.
+     * @return the buffer.
+     */
+    private ByteBuffer order(ByteBuffer buffer) {
+        return buffer.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Builds the header of the file.
+     *
+     * @param pageCount the number of pages of the file.
+     * @return the header.
+     */
+    private byte[] buildHeader(long pageCount) {
+        int align1 = u64 ? ALIGN_1_VALUE : 0;
+        int totalAlign = align1 + (u64 ? ALIGN_2_VALUE : 0);
+        byte[] header = new byte[getHeaderLength()];
+        ByteBuffer buffer = order(ByteBuffer.wrap(header));
+        System.arraycopy(MAGIC_NUMBER, 0, header, 0, MAGIC_NUMBER.length);
+        header[(int) ALIGN_1_OFFSET] = u64 ? (byte) U64_BYTE_CHECKER_VALUE : X86_CHECKER_VALUE;
+        header[(int) ALIGN_2_OFFSET] = u64 ? (byte) ALIGN_1_CHECKER_VALUE : NO_ALIGN_CHECKER_VALUE;
+        header[(int) ENDIANNESS_OFFSET] = (byte) (bigEndian ? BIG_ENDIAN_CHECKER : LITTLE_ENDIAN_CHECKER);
+        header[(int) ENCODING_OFFSET] = encodingCode;
+        putText(header, (int) DATASET_OFFSET, DATASET_LENGTH, name);
+        putText(header, (int) FILE_TYPE_OFFSET, FILE_TYPE_LENGTH, "DATA");
+        buffer.putDouble((int) DATE_CREATED_OFFSET + align1, created);
+        buffer.putDouble((int) DATE_MODIFIED_OFFSET + align1, created);
+        buffer.putInt((int) HEADER_SIZE_OFFSET + align1, header.length);
+        buffer.putInt((int) PAGE_SIZE_OFFSET + align1, pageLength);
+        if (u64) {
+            buffer.putLong((int) PAGE_COUNT_OFFSET + align1, pageCount);
+        } else {
+            buffer.putInt((int) PAGE_COUNT_OFFSET + align1, (int) pageCount);
+        }
+        putText(header, (int) SAS_RELEASE_OFFSET + totalAlign, SAS_RELEASE_LENGTH, "9.0401M0");
+        putText(header, (int) SAS_SERVER_TYPE_OFFSET + totalAlign, SAS_SERVER_TYPE_LENGTH, u64 ? "X64_7PRO" : "XP_PRO");
+        putText(header, (int) OS_NAME_OFFSET + totalAlign, OS_NAME_LENGTH, "parso");
+        return header;
+    }
+
+    /**
+     * Writes a text padded with spaces.
+     *
+     * @param target the array to write to.
+     * @param offset the offset in the array.
+     * @param length the length of the field.
+     * @param text   the text, truncated to the field.
+     */
+    private void putText(byte[] target, int offset, int length, String text) {
+        byte[] bytes = text.getBytes(charset);
+        Arrays.fill(target, offset, offset + length, (byte) ' ');
+        System.arraycopy(bytes, 0, target, offset, Math.min(bytes.length, length));
+    }
+
+    /**
+     * Builds the meta pages holding the metadata subheaders, with the current row count.
+     *
+     * @return the meta pages.
+     */
+    private List<byte[]> buildMetaPages() {
+        int maxSubheaderLength = pageLength - bitOffset - SUBHEADER_POINTERS_OFFSET - pointerLength;
+        List<byte[]> subheaders = new ArrayList<byte[]>();
+
+        ByteBuffer rowSize = subheader(ROW_SIZE_SIGNATURE, ROW_SIZE_VALUES * intOrLongLength);
+        putIntOrLong(rowSize, ROW_LENGTH_OFFSET_MULTIPLIER * intOrLongLength, rowLength);
+        putIntOrLong(rowSize, ROW_COUNT_OFFSET_MULTIPLIER * intOrLongLength, rowCount);
+        putIntOrLong(rowSize, ROW_COUNT_ON_MIX_PAGE_OFFSET_MULTIPLIER * intOrLongLength,
+                compressor == null ? rowsPerPage : 0);
+        subheaders.add(rowSize.array());
+
+        ByteBuffer columnSize = subheader(COLUMN_SIZE_SIGNATURE, COLUMN_SIZE_VALUES * intOrLongLength);
+        putIntOrLong(columnSize, intOrLongLength, columns.size());
+        subheaders.add(columnSize.array());
+
+        TextBlocks texts = new TextBlocks(Math.min(MAX_TEXT_BLOCK_LENGTH, maxSubheaderLength - intOrLongLength));
+        if (compression != null) {
+            texts.add(compression);
+        }
+        int[][] nameRefs = new int[columns.size()][];
+        int[][] formatRefs = new int[columns.size()][];
+        int[][] labelRefs = new int[columns.size()][];
+        for (int i = 0; i < columns.size(); i++) {
+            nameRefs[i] = texts.add(columns.get(i).getName());
+            formatRefs[i] = texts.add(columns.get(i).getFormat());
+            labelRefs[i] = texts.add(columns.get(i).getLabel());
+        }
+        for (TextBlock textBlock : texts.blocks) {
+            ByteBuffer text = subheader(COLUMN_TEXT_SIGNATURE, intOrLongLength + textBlock.length);
+            text.putShort(intOrLongLength, (short) textBlock.length);
+            System.arraycopy(textBlock.bytes, FIRST_TEXT_OFFSET, text.array(), intOrLongLength + FIRST_TEXT_OFFSET,
+                    textBlock.length - FIRST_TEXT_OFFSET);
+            subheaders.add(text.array());
+        }
+
+        int vectorsRoom = maxSubheaderLength - 2 * intOrLongLength - VECTOR_SUBHEADER_PADDING;
+        int namesPerSubheader = vectorsRoom / COLUMN_NAME_POINTER_LENGTH;
+        for (int first = 0; first < columns.size(); first += namesPerSubheader) {
+            int count = Math.min(namesPerSubheader, columns.size() - first);
+            ByteBuffer names = subheader(COLUMN_NAME_SIGNATURE, 2 * intOrLongLength + VECTOR_SUBHEADER_PADDING
+                    + count * COLUMN_NAME_POINTER_LENGTH);
+            for (int i = 0; i < count; i++) {
+                int pointer = intOrLongLength + COLUMN_NAME_POINTER_LENGTH * (i + 1);
+                putTextRef(names, pointer + (int) COLUMN_NAME_TEXT_SUBHEADER_OFFSET,
+                        pointer + (int) COLUMN_NAME_OFFSET_OFFSET, pointer + (int) COLUMN_NAME_LENGTH_OFFSET,
+                        nameRefs[first + i]);
+            }
+            subheaders.add(names.array());
+        }
+
+        int vectorLength = intOrLongLength + ATTRIBUTES_VECTOR_LENGTH;
+        int attributesPerSubheader = vectorsRoom / vectorLength;
+        for (int first = 0; first < columns.size(); first += attributesPerSubheader) {
+            int count = Math.min(attributesPerSubheader, columns.size() - first);
+            ByteBuffer attributes = subheader(COLUMN_ATTRIBUTES_SIGNATURE, 2 * intOrLongLength
+                    + VECTOR_SUBHEADER_PADDING + count * vectorLength);
+            for (int i = 0; i < count; i++) {
+                Column column = columns.get(first + i);
+                int vector = i * vectorLength;
+                putIntOrLong(attributes, intOrLongLength + (int) COLUMN_DATA_OFFSET_OFFSET + vector,
+                        dataOffsets[first + i]);
+                attributes.putInt(2 * intOrLongLength + (int) COLUMN_DATA_LENGTH_OFFSET + vector, column.getLength());
+                attributes.put(2 * intOrLongLength + (int) COLUMN_TYPE_OFFSET + vector,
+                        column.getType() == Number.class ? NUMBER_COLUMN_TYPE : STRING_COLUMN_TYPE);
+            }
+            subheaders.add(attributes.array());
+        }
+
+        int base = 3 * intOrLongLength;
+        for (int i = 0; i < columns.size(); i++) {
+            ByteBuffer formatAndLabel = subheader(FORMAT_AND_LABEL_SIGNATURE, base + FORMAT_AND_LABEL_LENGTH);
+            putTextRef(formatAndLabel, base + (int) COLUMN_FORMAT_TEXT_SUBHEADER_INDEX_OFFSET,
+                    base + (int) COLUMN_FORMAT_OFFSET_OFFSET, base + (int) COLUMN_FORMAT_LENGTH_OFFSET, formatRefs[i]);
+            putTextRef(formatAndLabel, base + (int) COLUMN_LABEL_TEXT_SUBHEADER_INDEX_OFFSET,
+                    base + (int) COLUMN_LABEL_OFFSET_OFFSET, base + (int) COLUMN_LABEL_LENGTH_OFFSET, labelRefs[i]);
+            subheaders.add(formatAndLabel.array());
+        }
+        return packSubheaders(subheaders);
+    }
+
+    /**
+     * Lays out subheaders on meta pages: the pointers from the beginning of a page and the subheaders, aligned to 8
+     * bytes, from its end.
+     *
+     * @param subheaders the subheaders, in the order the parser has to read them.
+     * @return the meta pages.
+     */
+    private List<byte[]> packSubheaders(List<byte[]> subheaders) {
+        List<byte[]> pages = new ArrayList<byte[]>();
+        ByteBuffer metaPage = null;
+        int count = 0;
+        int dataStart = 0;
+        for (byte[] subheader : subheaders) {
+            int pointersEnd = bitOffset + SUBHEADER_POINTERS_OFFSET + (count + 1) * pointerLength;
+            if (metaPage == null || (dataStart - subheader.length) / BYTES_IN_LONG * BYTES_IN_LONG < pointersEnd) {
+                metaPage = order(ByteBuffer.wrap(new byte[pageLength]));
+                metaPage.putShort(bitOffset + (int) PAGE_TYPE_OFFSET, (short) PAGE_META_TYPE);
+                pages.add(metaPage.array());
+                count = 0;
+                dataStart = pageLength;
+            }
+            dataStart = (dataStart - subheader.length) / BYTES_IN_LONG * BYTES_IN_LONG;
+            System.arraycopy(subheader, 0, metaPage.array(), dataStart, subheader.length);
+            int pointer = bitOffset + SUBHEADER_POINTERS_OFFSET + count * pointerLength;
+            putIntOrLong(metaPage, pointer, dataStart);
+            putIntOrLong(metaPage, pointer + intOrLongLength, subheader.length);
+            count++;
+            metaPage.putShort(bitOffset + (int) BLOCK_COUNT_OFFSET, (short) count);
+            metaPage.putShort(bitOffset + (int) SUBHEADER_COUNT_OFFSET, (short) count);
+        }
+        return pages;
+    }
+
+    /**
+     * Creates a subheader starting with its signature.
+     *
+     * @param signature the signature.
+     * @param length    the length of the subheader.
+     * @return the buffer of the subheader.
+     */
+    private ByteBuffer subheader(int signature, int length) {
+        ByteBuffer buffer = order(ByteBuffer.wrap(new byte[length]));
+        putIntOrLong(buffer, 0, signature);
+        return buffer;
+    }
+
+    /**
+     * Writes a value of the int or long type, depending on the layout.
+     *
+     * @param buffer the buffer.
+     * @param offset the offset in the buffer.
+     * @param value  the value.
+     */
+    private void putIntOrLong(ByteBuffer buffer, int offset, long value) {
+        if (u64) {
+            buffer.putLong(offset, value);
+        } else {
+            buffer.putInt(offset, (int) value);
+        }
+    }
+
+    /**
+     * Writes a reference to a text of a column text subheader.
+     *
+     * @param buffer       the buffer of the subheader.
+     * @param indexOffset  the offset of the index of the column text subheader.
+     * @param offsetOffset the offset of the offset of the text.
+     * @param lengthOffset the offset of the length of the text.
+     * @param ref          the index of the column text subheader, the offset and the length of the text.
+     */
+    private static void putTextRef(ByteBuffer buffer, int indexOffset, int offsetOffset, int lengthOffset, int[] ref) {
+        buffer.putShort(indexOffset, (short) ref[0]);
+        buffer.putShort(offsetOffset, (short) ref[1]);
+        buffer.putShort(lengthOffset, (short) ref[2]);
+    }
+
+    /**
+     * The function to check whether a format matches one of the patterns.
+     *
+     * @param patterns the patterns.
+     * @param format   the format.
+     * @return true if one of the patterns matches.
+     */
+    private static boolean matchesAny(Pattern[] patterns, String format) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(format).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A column text block being filled.
+     */
+    private static final class TextBlock {
+        /**
+         * The bytes of the block, the first ones taken by its length.
+         */
+        private final byte[] bytes;
+
+        /**
+         * The length of the block, a multiple of {@link #TEXT_ALIGNMENT}.
+         */
+        private int length = FIRST_TEXT_OFFSET;
+
+        /**
+         * Creates an empty block.
+         *
+         * @param capacity the largest length of the block.
+         */
+        private TextBlock(int capacity) {
+            bytes = new byte[capacity];
+        }
+    }
+
+    /**
+     * The texts of the column text subheaders, referenced by block index, offset in the block and length.
+     */
+    private final class TextBlocks {
+        /**
+         * The largest length of a block.
+         */
+        private final int capacity;
+
+        /**
+         * The blocks.
+         */
+        private final List<TextBlock> blocks = new ArrayList<TextBlock>();
+
+        /**
+         * Creates the texts.
+         *
+         * @param capacity the largest length of a block.
+         */
+        private TextBlocks(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Adds a text to the last block, or to a new one if it does not fit.
+         *
+         * @param text the text.
+         * @return the index of the block, the offset and the length of the text.
+         */
+        private int[] add(String text) {
+            byte[] bytes = text.getBytes(charset);
+            int padded = (bytes.length + TEXT_ALIGNMENT - 1) / TEXT_ALIGNMENT * TEXT_ALIGNMENT;
+            if (FIRST_TEXT_OFFSET + padded > capacity) {
+                throw new IllegalArgumentException("The text does not fit a page: " + text);
+            }
+            if (blocks.isEmpty() || blocks.get(blocks.size() - 1).length + padded > capacity) {
+                blocks.add(new TextBlock(capacity));
+            }
+            TextBlock textBlock = blocks.get(blocks.size() - 1);
+            int offset = textBlock.length;
+            System.arraycopy(bytes, 0, textBlock.bytes, offset, bytes.length);
+            textBlock.length += padded;
+            return new int[]{blocks.size() - 1, bytes.length == 0 ? 0 : offset, bytes.length};
+        }
+    }
+
+    /**
+     * Builder for {@link SasFileWriterImpl}.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for the file to write.
+         */
+        private final Path file;
+
+        /**
+         * Builder variable for {@link SasFileWriterImpl#columns} variable.
+         */
+        private final List<Column> columns;
+
+        /**
+         * Default value for {@link SasFileWriterImpl#u64} variable.
+         */
+        private boolean u64 = true;
+
+        /**
+         * Default value for {@link SasFileWriterImpl#bigEndian} variable.
+         */
+        private boolean bigEndian;
+
+        /**
+         * Default value for {@link SasFileWriterImpl#pageLength} variable.
+         */
+        private int pageLength = DEFAULT_PAGE_LENGTH;
+
+        /**
+         * Default value for {@link SasFileWriterImpl#compression} variable.
+         */
+        private String compression;
+
+        /**
+         * Default value for the number of threads compressing the rows.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Default value for {@link SasFileWriterImpl#name} variable.
+         */
+        private String name;
+
+        /**
+         * Default value for the encoding of the texts.
+         */
+        private String encoding = "UTF-8";
+
+        /**
+         * The code of the encoding, set by {@link #build()}.
+         */
+        private byte encodingCode;
+
+        /**
+         * Creates a builder of a writer of a file.
+         *
+         * @param file    the .sas7bdat file to write.
+         * @param columns the columns: numeric columns of 3 to 8 bytes and character columns.
+         */
+        public Builder(Path file, List<Column> columns) {
+            this.file = file;
+            this.columns = columns;
+            String fileName = file.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            name = dot > 0 ? fileName.substring(0, dot) : fileName;
+        }
+
+        /**
+         * The function to specify builders u64 variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder u64(boolean val) {
+            u64 = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders bigEndian variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder bigEndian(boolean val) {
+            bigEndian = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders pageLength variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder pageLength(int val) {
+            pageLength = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders compression variable.
+         *
+         * @param val value to be set: {@link #CHAR_COMPRESSION}, {@link #BIN_COMPRESSION} or null.
+         * @return result builder.
+         */
+        public Builder compression(String val) {
+            compression = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders threads variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders name variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder name(String val) {
+            name = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders encoding variable.
+         *
+         * @param val value to be set, one of the encodings of {@link SasFileConstants#SAS_CHARACTER_ENCODINGS}.
+         * @return result builder.
+         */
+        public Builder encoding(String val) {
+            encoding = val;
+            return this;
+        }
+
+        /**
+         * Create {@link SasFileWriterImpl} using specified params, and opens the file.
+         *
+         * @return built writer.
+         * @throws IOException if the file can not be written.
+         */
+        public SasFileWriterImpl build() throws IOException {
+            if (columns == null || columns.isEmpty() || pageLength < MIN_PAGE_LENGTH || threads < 1) {
+                throw new IllegalArgumentException("Columns, a page of at least " + MIN_PAGE_LENGTH
+                        + " bytes and a positive number of threads are required");
+            }
+            if (compression != null && !COMPRESS_CHAR_IDENTIFYING_STRING.equals(compression)
+                    && !COMPRESS_BIN_IDENTIFYING_STRING.equals(compression)) {
+                throw new IllegalArgumentException("Unsupported compression: " + compression);
+            }
+            for (Column column : columns) {
+                boolean number = column.getType() == Number.class;
+                if (number && (column.getLength() < MIN_NUMBER_LENGTH || column.getLength() > BYTES_IN_DOUBLE)
+                        || !number && (column.getLength() < 1 || column.getLength() > Short.MAX_VALUE)) {
+                    throw new IllegalArgumentException("Invalid length " + column.getLength() + " of the column "
+                            + column.getName());
+                }
+            }
+            Byte code = null;
+            for (Map.Entry<Byte, String> entry : SAS_CHARACTER_ENCODINGS.entrySet()) {
+                if (entry.getValue().equalsIgnoreCase(encoding)) {
+                    code = entry.getKey();
+                }
+            }
+            if (code == null) {
+                throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+            }
+            encodingCode = code;
+            return new SasFileWriterImpl(this);
+        }
+    }
+}
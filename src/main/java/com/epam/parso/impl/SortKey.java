@@ -0,0 +1,226 @@
+package com.epam.parso.impl;
+
+import static com.epam.parso.impl.SasFileConstants.NAN_EPSILON;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.epam.parso.Column;
+
+/**
+ * The sort order of {@link SortingSasFileReader}: a list of columns, each ascending or descending. The key of a row is
+ * extracted from the bytes of the row as they are stored in the file, before any decoding, into a normalized form
+ * whose unsigned bytes compare in the sort order:
+ * <ul>
+ * <li>a number takes 9 bytes, 0 and 8 zeros if it is missing, or 1 and the bits of the double with the sign bit
+ * flipped, and all the bits flipped for negative numbers, so they compare as unsigned big-endian integers;</li>
+ * <li>a string takes the width of its column, its bytes in the encoding of the file with the trailing blanks
+ * replaced by zeros, so a missing or blank string is the smallest one and a string is smaller than its
+ * extensions.</li>
+ * </ul>
+ * The missing values come first. The bytes of the descending columns are inverted, so their missing values come last.
+ */
+final class SortKey {
+
+    /**
+     * The number of bytes of the key of a number.
+     */
+    private static final int NUMBER_BYTES = 9;
+
+    /**
+     * The number of bytes of a long.
+     */
+    private static final int LONG_BYTES = 8;
+
+    /**
+     * The number of bits in a byte.
+     */
+    private static final int BITS_IN_BYTE = 8;
+
+    /**
+     * The mask of the bits of a byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * The offsets of the sort columns in a row.
+     */
+    private final int[] offsets;
+
+    /**
+     * The widths of the sort columns in a row.
+     */
+    private final int[] widths;
+
+    /**
+     * Whether a sort column is numeric.
+     */
+    private final boolean[] numeric;
+
+    /**
+     * Whether a sort column is in descending order.
+     */
+    private final boolean[] descending;
+
+    /**
+     * True if the numbers of the file are big-endian.
+     */
+    private final boolean bigEndian;
+
+    /**
+     * The number of bytes of a key.
+     */
+    private final int length;
+
+    /**
+     * Creates the sort order of a file.
+     *
+     * @param columns   the columns of the file.
+     * @param offsets   the offsets of the columns in a row.
+     * @param widths    the widths of the columns in a row.
+     * @param bigEndian true if the numbers of the file are big-endian.
+     * @param orderBy   the names of the sort columns separated by commas, each optionally followed by ASC or DESC.
+     * @throws IllegalArgumentException if the order is empty or names a column the file does not have.
+     */
+    SortKey(List<Column> columns, List<Long> offsets, List<Integer> widths, boolean bigEndian, String orderBy) {
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = columns.size() - 1; i >= 0; i--) {
+            indexes.put(columns.get(i).getName().toLowerCase(Locale.ROOT), i);
+        }
+        String[] items = orderBy.split(",");
+        this.offsets = new int[items.length];
+        this.widths = new int[items.length];
+        numeric = new boolean[items.length];
+        descending = new boolean[items.length];
+        this.bigEndian = bigEndian;
+        int keyLength = 0;
+        for (int k = 0; k < items.length; k++) {
+            String[] words = items[k].trim().split("\\s+");
+            if (words[0].isEmpty() || words.length > 2 || words.length == 2
+                    && !words[1].equalsIgnoreCase("ASC") && !words[1].equalsIgnoreCase("DESC")) {
+                throw new IllegalArgumentException("Expected a column name optionally followed by ASC or DESC, found '"
+                        + items[k].trim() + "' in the sort order " + orderBy);
+            }
+            Integer column = indexes.get(words[0].toLowerCase(Locale.ROOT));
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown column: " + words[0]);
+            }
+            this.offsets[k] = offsets.get(column).intValue();
+            this.widths[k] = widths.get(column);
+            numeric[k] = columns.get(column).getType() == Number.class;
+            descending[k] = words.length == 2 && words[1].equalsIgnoreCase("DESC");
+            keyLength += numeric[k] ? NUMBER_BYTES : this.widths[k];
+        }
+        length = keyLength;
+    }
+
+    /**
+     * The function to get the number of bytes of a key.
+     *
+     * @return the number of bytes.
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Extracts the key of a row.
+     *
+     * @param row       the bytes holding the row, decompressed.
+     * @param rowOffset the offset of the row.
+     * @param key       the array receiving the key.
+     * @param keyOffset the offset of the key.
+     */
+    void extract(byte[] row, int rowOffset, byte[] key, int keyOffset) {
+        int position = keyOffset;
+        for (int k = 0; k < offsets.length; k++) {
+            int start = position;
+            int offset = rowOffset + offsets[k];
+            if (numeric[k]) {
+                double value = widths[k] <= 2 ? readShort(row, offset, widths[k])
+                        : RowDecoder.readDouble(row, offset, widths[k], bigEndian);
+                if (Double.isNaN(value) || value > 0 && value < NAN_EPSILON) {
+                    Arrays.fill(key, position, position + NUMBER_BYTES, (byte) 0);
+                } else {
+                    long bits = Double.doubleToLongBits(value + 0.0);
+                    bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+                    key[position] = 1;
+                    for (int i = 0; i < LONG_BYTES; i++) {
+                        key[position + 1 + i] = (byte) (bits >>> (BITS_IN_BYTE * (LONG_BYTES - 1 - i)));
+                    }
+                }
+                position += NUMBER_BYTES;
+            } else {
+                int end = offset + widths[k];
+                while (end > offset && (row[end - 1] == ' ' || row[end - 1] == '\0' || row[end - 1] == '\t')) {
+                    end--;
+                }
+                System.arraycopy(row, offset, key, position, end - offset);
+                Arrays.fill(key, position + end - offset, position + widths[k], (byte) 0);
+                position += widths[k];
+            }
+            if (descending[k]) {
+                for (int i = start; i < position; i++) {
+                    key[i] = (byte) ~key[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The function to read a number of one or two bytes, as {@link RowDecoder} does.
+     *
+     * @param row    the bytes holding the row.
+     * @param offset the offset of the number.
+     * @param width  the number of bytes of the number.
+     * @return the number.
+     */
+    private double readShort(byte[] row, int offset, int width) {
+        if (width < 2) {
+            return row[offset];
+        }
+        int first = row[offset] & BYTE_MASK;
+        int second = row[offset + 1] & BYTE_MASK;
+        return (short) (bigEndian ? first << BITS_IN_BYTE | second : second << BITS_IN_BYTE | first);
+    }
+
+    /**
+     * The function to get the first 8 bytes of a key as a long comparing like the key, shorter keys are padded
+     * with zeros.
+     *
+     * @param key    the bytes holding the key.
+     * @param offset the offset of the key.
+     * @param length the number of bytes of the key.
+     * @return the prefix, to compare with {@link Long#compare(long, long)}.
+     */
+    static long prefix(byte[] key, int offset, int length) {
+        long prefix = 0;
+        for (int i = 0; i < LONG_BYTES; i++) {
+            prefix = prefix << BITS_IN_BYTE | (i < length ? key[offset + i] & BYTE_MASK : 0);
+        }
+        return prefix ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * The function to compare two keys as unsigned bytes.
+     *
+     * @param first        the bytes holding the first key.
+     * @param firstOffset  the offset of the first key.
+     * @param second       the bytes holding the second key.
+     * @param secondOffset the offset of the second key.
+     * @param length       the number of bytes of the keys.
+     * @return a negative number, zero or a positive number as the first key is smaller, equal or greater.
+     */
+    static int compare(byte[] first, int firstOffset, byte[] second, int secondOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            int difference = (first[firstOffset + i] & BYTE_MASK) - (second[secondOffset + i] & BYTE_MASK);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+}
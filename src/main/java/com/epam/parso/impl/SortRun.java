@@ -0,0 +1,195 @@
+package com.epam.parso.impl;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A sorted run of {@link SortingSasFileReader}: records of a fixed length, each one the key of a row followed by the
+ * bytes of the row, read in order one at a time. The current record is at {@link #getOffset()} of
+ * {@link #getSource()}.
+ */
+abstract class SortRun implements Closeable {
+
+    /**
+     * The size of the buffer of a run read from a file.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false if the run has no more records.
+     * @throws IOException if reading the run is impossible.
+     */
+    abstract boolean next() throws IOException;
+
+    /**
+     * The function to get the bytes holding the current record.
+     *
+     * @return the bytes.
+     */
+    abstract byte[] getSource();
+
+    /**
+     * The function to get the offset of the current record.
+     *
+     * @return the offset.
+     */
+    abstract int getOffset();
+
+    /**
+     * A run sorted in memory: the records in the order they were read and the sorted order of their indexes.
+     */
+    static final class MemoryRun extends SortRun {
+        /**
+         * The records.
+         */
+        private byte[] records;
+
+        /**
+         * The indexes of the records, sorted.
+         */
+        private int[] order;
+
+        /**
+         * The number of records.
+         */
+        private final int count;
+
+        /**
+         * The length of a record.
+         */
+        private final int recordLength;
+
+        /**
+         * The number of records read.
+         */
+        private int read;
+
+        /**
+         * The offset of the current record.
+         */
+        private int offset;
+
+        /**
+         * Creates a run of records sorted in memory.
+         *
+         * @param records      the records.
+         * @param order        the indexes of the records, sorted.
+         * @param count        the number of records.
+         * @param recordLength the length of a record.
+         */
+        MemoryRun(byte[] records, int[] order, int count, int recordLength) {
+            this.records = records;
+            this.order = order;
+            this.count = count;
+            this.recordLength = recordLength;
+        }
+
+        @Override
+        boolean next() {
+            if (read == count) {
+                return false;
+            }
+            offset = order[read++] * recordLength;
+            return true;
+        }
+
+        @Override
+        byte[] getSource() {
+            return records;
+        }
+
+        @Override
+        int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public void close() {
+            records = null;
+            order = null;
+        }
+    }
+
+    /**
+     * A run written to a temporary file, deleted when the run is closed.
+     */
+    static final class FileRun extends SortRun {
+        /**
+         * The file.
+         */
+        private final Path file;
+
+        /**
+         * The number of records.
+         */
+        private final long count;
+
+        /**
+         * The current record.
+         */
+        private final byte[] record;
+
+        /**
+         * The stream reading the file, opened with the first record.
+         */
+        private DataInputStream in;
+
+        /**
+         * The number of records read.
+         */
+        private long read;
+
+        /**
+         * Creates a run of the records written to a file.
+         *
+         * @param file         the file.
+         * @param count        the number of records.
+         * @param recordLength the length of a record.
+         */
+        FileRun(Path file, long count, int recordLength) {
+            this.file = file;
+            this.count = count;
+            record = new byte[recordLength];
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (read == count) {
+                return false;
+            }
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            }
+            in.readFully(record);
+            read++;
+            return true;
+        }
+
+        @Override
+        byte[] getSource() {
+            return record;
+        }
+
+        @Override
+        int getOffset() {
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
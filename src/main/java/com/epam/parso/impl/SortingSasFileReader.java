@@ -0,0 +1,633 @@
+package com.epam.parso.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.parso.Column;
+import com.epam.parso.ReaderMetrics;
+import com.epam.parso.SasFileProperties;
+import com.epam.parso.SasFileReader;
+
+/**
+ * A reader returning the rows of a sas7bdat file sorted by some of its columns, with a bounded amount of memory, so
+ * any writer fed by a {@link SasFileReader} can write sorted output. The rows are sorted by an external merge sort:
+ * <ol>
+ * <li>the pages of the file are split into ranges read by parallel threads; every row is copied as the bytes stored
+ * in the file, decompressed but not decoded, after its {@link SortKey}, a normalized key extracted from the bytes of
+ * the sort columns;</li>
+ * <li>every thread sorts its records by key when its share of the memory budget is full and writes them to a
+ * temporary file as a sorted run; its last records stay in memory as the last run;</li>
+ * <li>the runs are merged by a {@link LoserTree}, in several passes if there are more than {@link #MAX_FAN_IN},
+ * and only the rows of the merged records are decoded, when they are read.</li>
+ * </ol>
+ * The sort is stable, the rows of equal keys keep the order of the file. The rows are sorted by the first call
+ * reading them; {@link #close()} deletes the temporary files.
+ */
+public final class SortingSasFileReader implements SasFileReader, Closeable {
+    /**
+     * The default number of bytes of records held in memory.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    /**
+     * The largest number of runs merged at once.
+     */
+    static final int MAX_FAN_IN = 64;
+
+    /**
+     * Object for writing logs.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortingSasFileReader.class);
+
+    /**
+     * The number of bytes held per record besides the record: its index, a copy of the index while sorting and the
+     * prefix of its key.
+     */
+    private static final int RECORD_OVERHEAD = 16;
+
+    /**
+     * The largest number of bytes of the records held by a thread at once.
+     */
+    private static final int MAX_BUFFER_BYTES = Integer.MAX_VALUE - 8;
+
+    /**
+     * The number of records a thread allocates first, growing up to its share of the memory budget.
+     */
+    private static final int INITIAL_RECORDS = 1024;
+
+    /**
+     * The number of records sorted by insertion before merging.
+     */
+    private static final int INSERTION_SORT_RECORDS = 16;
+
+    /**
+     * The size of the buffer of a run written to a file.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The number of bytes of the prefix of a key compared as a long.
+     */
+    private static final int PREFIX_BYTES = 8;
+
+    /**
+     * The sas7bdat file.
+     */
+    private final Path file;
+
+    /**
+     * The reader of the metadata of the file, decoding the sorted rows.
+     */
+    private final SasFileReaderImpl metadata;
+
+    /**
+     * The sort order.
+     */
+    private final SortKey sortKey;
+
+    /**
+     * The number of bytes of records held in memory.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The directory of the runs, or null for the default temporary directory.
+     */
+    private final Path tempDirectory;
+
+    /**
+     * The number of threads generating the runs.
+     */
+    private final int threads;
+
+    /**
+     * The listener of the pages read, the rows decompressed while generating the runs and the rows decoded.
+     */
+    private final ReaderMetrics metrics;
+
+    /**
+     * The number of bytes of a key.
+     */
+    private final int keyLength;
+
+    /**
+     * The number of bytes of a record, a key followed by a row.
+     */
+    private final int recordLength;
+
+    /**
+     * The sorted runs, in the order of the rows of the file.
+     */
+    private List<SortRun> runs = new ArrayList<SortRun>();
+
+    /**
+     * The tree merging the runs, null until the rows are sorted.
+     */
+    private LoserTree tree;
+
+    /**
+     * Creates a reader with the settings of a builder and reads the metadata of the file.
+     *
+     * @param builder the builder.
+     * @throws IOException if reading the metadata is impossible.
+     */
+    private SortingSasFileReader(Builder builder) throws IOException {
+        file = builder.file;
+        memoryBudget = builder.memoryBudget;
+        tempDirectory = builder.tempDirectory;
+        threads = builder.threads;
+        metrics = builder.metrics;
+        try (InputStream is = new FileInputStream(file.toFile())) {
+            metadata = SasFileReaderImpl.metadataReader(is);
+        }
+        sortKey = new SortKey(metadata.getColumns(), metadata.getColumnOffsets(), metadata.getColumnLengths(),
+                metadata.getSasFileProperties().getEndianness() == 0, builder.orderBy);
+        keyLength = sortKey.getLength();
+        recordLength = keyLength + (int) metadata.getSasFileProperties().getRowLength();
+    }
+
+    @Override
+    public List<Column> getColumns() {
+        return metadata.getColumns();
+    }
+
+    @Override
+    public SasFileProperties getSasFileProperties() {
+        return metadata.getSasFileProperties();
+    }
+
+    @Override
+    public Object[] readNext() throws IOException {
+        return next(false);
+    }
+
+    @Override
+    public Object[] readNextRaw() throws IOException {
+        return next(true);
+    }
+
+    @Override
+    public Object[][] readAll() {
+        return readAll(false);
+    }
+
+    @Override
+    public Object[][] readAllRaw() {
+        return readAll(true);
+    }
+
+    /**
+     * Deletes the temporary files of the runs. No row can be read afterwards.
+     *
+     * @throws IOException if deleting a file is impossible.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (SortRun run : runs) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs = new ArrayList<SortRun>();
+        tree = new LoserTree(runs, keyLength);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads the remaining rows.
+     *
+     * @param raw true if dates and datetimes are returned as numbers.
+     * @return the rows.
+     */
+    private Object[][] readAll(boolean raw) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        try {
+            for (Object[] row = next(raw); row != null; row = next(raw)) {
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("I/O exception, skipping the rest of the file. Rows read: " + rows.size(), e);
+            }
+        }
+        return rows.toArray(new Object[rows.size()][]);
+    }
+
+    /**
+     * Reads the next row in the sort order, sorting the rows first if they are not sorted yet.
+     *
+     * @param raw true if dates and datetimes are returned as numbers.
+     * @return the row, or null if there are no more rows.
+     * @throws IOException if reading the file or the runs is impossible.
+     */
+    private Object[] next(boolean raw) throws IOException {
+        if (tree == null) {
+            sort();
+        }
+        SortRun winner = tree.peek();
+        if (winner == null) {
+            return null;
+        }
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Object[] row = metadata.decodeRow(winner.getSource(), winner.getOffset() + keyLength, raw);
+        if (metrics.isEnabled()) {
+            metrics.rowDecoded(System.nanoTime() - start);
+        }
+        tree.advance();
+        return row;
+    }
+
+    /**
+     * Generates the runs and merges them down to at most {@link #MAX_FAN_IN}.
+     *
+     * @throws IOException if reading the file or writing the runs is impossible.
+     */
+    private void sort() throws IOException {
+        try {
+            generateRuns();
+            while (runs.size() > MAX_FAN_IN) {
+                mergeRuns();
+            }
+            tree = new LoserTree(runs, keyLength);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Generates the runs of ranges of pages read by parallel threads.
+     *
+     * @throws IOException if reading the file or writing the runs is impossible.
+     */
+    private void generateRuns() throws IOException {
+        long pageCount = getSasFileProperties().getPageCount();
+        int ranges = (int) Math.max(1, Math.min(threads, pageCount));
+        final long budget = Math.max(1, memoryBudget / ranges);
+        ExecutorService executor = Executors.newFixedThreadPool(ranges);
+        try {
+            List<Future<List<SortRun>>> futures = new ArrayList<Future<List<SortRun>>>(ranges);
+            for (int range = 0; range < ranges; range++) {
+                final long start = pageCount * range / ranges;
+                final long end = range == ranges - 1 ? Long.MAX_VALUE : pageCount * (range + 1) / ranges;
+                futures.add(executor.submit(new Callable<List<SortRun>>() {
+                    @Override
+                    public List<SortRun> call() throws IOException {
+                        return generateRuns(start, end, budget);
+                    }
+                }));
+            }
+            IOException failure = null;
+            for (Future<List<SortRun>> future : futures) {
+                try {
+                    runs.addAll(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new IOException("Interrupted while sorting " + file, e);
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                : new IOException("Can not sort " + file, e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates the runs of a range of pages.
+     *
+     * @param startPage the index of the first page.
+     * @param endPage   the index of the first page not to read, or {@link Long#MAX_VALUE} to read all the rows.
+     * @param budget    the number of bytes of records held in memory.
+     * @return the runs, in the order of the rows.
+     * @throws IOException if reading the file or writing the runs is impossible.
+     */
+    private List<SortRun> generateRuns(long startPage, long endPage, long budget) throws IOException {
+        List<SortRun> result = new ArrayList<SortRun>();
+        int capacity = (int) Math.max(1, Math.min(budget / (recordLength + RECORD_OVERHEAD),
+                MAX_BUFFER_BYTES / recordLength));
+        byte[] records = new byte[Math.min(capacity, INITIAL_RECORDS) * recordLength];
+        int count = 0;
+        try (InputStream is = new FileInputStream(file.toFile())) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is, metrics);
+            reader.seekToPage(startPage);
+            while (endPage == Long.MAX_VALUE || reader.getPosition().getPageIndex() < endPage) {
+                if (count == capacity) {
+                    result.add(writeRun(records, sortRecords(records, count), count));
+                    count = 0;
+                } else if ((count + 1) * recordLength > records.length) {
+                    records = Arrays.copyOf(records, (int) Math.min(capacity, 2L * count) * recordLength);
+                }
+                int offset = count * recordLength;
+                if (!reader.readNextBytes(records, offset + keyLength)) {
+                    break;
+                }
+                sortKey.extract(records, offset + keyLength, records, offset);
+                count++;
+            }
+            if (count > 0) {
+                result.add(new SortRun.MemoryRun(records, sortRecords(records, count), count, recordLength));
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            for (SortRun run : result) {
+                run.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Merges groups of {@link #MAX_FAN_IN} consecutive runs into runs written to files.
+     *
+     * @throws IOException if reading or writing the runs is impossible.
+     */
+    private void mergeRuns() throws IOException {
+        List<SortRun> merged = new ArrayList<SortRun>();
+        try {
+            for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                List<SortRun> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path run = createRunFile();
+                long count = 0;
+                try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE)) {
+                    LoserTree groupTree = new LoserTree(group, keyLength);
+                    for (SortRun winner = groupTree.peek(); winner != null; winner = groupTree.peek()) {
+                        os.write(winner.getSource(), winner.getOffset(), recordLength);
+                        count++;
+                        groupTree.advance();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(run);
+                    throw e;
+                }
+                merged.add(new SortRun.FileRun(run, count, recordLength));
+                for (SortRun source : group) {
+                    source.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (SortRun run : merged) {
+                if (!runs.contains(run)) {
+                    run.close();
+                }
+            }
+            throw e;
+        }
+        runs = merged;
+    }
+
+    /**
+     * Writes sorted records to a new temporary file.
+     *
+     * @param records the records.
+     * @param order   the indexes of the records, sorted.
+     * @param count   the number of records.
+     * @return the run.
+     * @throws IOException if writing the file is impossible.
+     */
+    private SortRun writeRun(byte[] records, int[] order, int count) throws IOException {
+        Path run = createRunFile();
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE)) {
+            for (int i = 0; i < count; i++) {
+                os.write(records, order[i] * recordLength, recordLength);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(run);
+            throw e;
+        }
+        return new SortRun.FileRun(run, count, recordLength);
+    }
+
+    /**
+     * Creates an empty temporary file for a run.
+     *
+     * @return the file.
+     * @throws IOException if the file can not be created.
+     */
+    private Path createRunFile() throws IOException {
+        return tempDirectory == null ? Files.createTempFile("parso-sort", ".run")
+                : Files.createTempFile(tempDirectory, "parso-sort", ".run");
+    }
+
+    /**
+     * Sorts records by key with a stable merge sort of their indexes, comparing the first 8 bytes of the keys as
+     * longs first.
+     *
+     * @param records the records.
+     * @param count   the number of records.
+     * @return the indexes of the records, sorted.
+     */
+    private int[] sortRecords(byte[] records, int count) {
+        long[] prefixes = new long[count];
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            prefixes[i] = SortKey.prefix(records, i * recordLength, keyLength);
+        }
+        mergeSort(records, prefixes, order, order.clone(), 0, count);
+        return order;
+    }
+
+    /**
+     * Sorts a range of indexes of records.
+     *
+     * @param records  the records.
+     * @param prefixes the prefixes of the keys of the records.
+     * @param order    the indexes to sort.
+     * @param buffer   a copy of the indexes of the range.
+     * @param from     the start of the range.
+     * @param to       the end of the range, exclusive.
+     */
+    private void mergeSort(byte[] records, long[] prefixes, int[] order, int[] buffer, int from, int to) {
+        if (to - from <= INSERTION_SORT_RECORDS) {
+            for (int i = from + 1; i < to; i++) {
+                int record = order[i];
+                int j = i;
+                while (j > from && compareRecords(records, prefixes, order[j - 1], record) > 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = record;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(records, prefixes, buffer, order, from, middle);
+        mergeSort(records, prefixes, buffer, order, middle, to);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || left < middle && compareRecords(records, prefixes, buffer[left], buffer[right]) <= 0) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * The function to compare the keys of two records.
+     *
+     * @param records  the records.
+     * @param prefixes the prefixes of the keys of the records.
+     * @param first    the index of the first record.
+     * @param second   the index of the second record.
+     * @return a negative number, zero or a positive number as the first key is smaller, equal or greater.
+     */
+    private int compareRecords(byte[] records, long[] prefixes, int first, int second) {
+        int comparison = Long.compare(prefixes[first], prefixes[second]);
+        if (comparison != 0 || keyLength <= PREFIX_BYTES) {
+            return comparison;
+        }
+        return SortKey.compare(records, first * recordLength + PREFIX_BYTES, records,
+                second * recordLength + PREFIX_BYTES, keyLength - PREFIX_BYTES);
+    }
+
+    /**
+     * SortingSasFileReader builder.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for {@link SortingSasFileReader#file} variable.
+         */
+        private final Path file;
+
+        /**
+         * The sort order.
+         */
+        private String orderBy;
+
+        /**
+         * Default value for {@link SortingSasFileReader#memoryBudget} variable.
+         */
+        private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+        /**
+         * Default value for {@link SortingSasFileReader#tempDirectory} variable.
+         */
+        private Path tempDirectory;
+
+        /**
+         * Default value for {@link SortingSasFileReader#threads} variable.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Default value for {@link SortingSasFileReader#metrics} variable.
+         */
+        private ReaderMetrics metrics = NoopReaderMetrics.INSTANCE;
+
+        /**
+         * Creates a builder of a reader of a file.
+         *
+         * @param file the sas7bdat file.
+         */
+        public Builder(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * The function to specify builders orderBy variable.
+         *
+         * @param val value to be set, the names of the sort columns separated by commas, each optionally followed
+         *            by ASC or DESC, such as {@code "subject_id, visit_date DESC"}; the names ignore case.
+         * @return result builder.
+         */
+        public Builder orderBy(String val) {
+            orderBy = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders memoryBudget variable.
+         *
+         * @param val value to be set, the number of bytes of records held in memory, shared by the threads.
+         * @return result builder.
+         */
+        public Builder memoryBudget(long val) {
+            memoryBudget = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders tempDirectory variable.
+         *
+         * @param val value to be set, the directory of the runs, or null for the default temporary directory.
+         * @return result builder.
+         */
+        public Builder tempDirectory(Path val) {
+            tempDirectory = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders threads variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders metrics variable.
+         *
+         * @param val value to be set, the listener of the pages read, the rows decompressed and the rows decoded;
+         *            it is shared by the threads generating the runs.
+         * @return result builder.
+         */
+        public Builder metrics(ReaderMetrics val) {
+            metrics = val;
+            return this;
+        }
+
+        /**
+         * Create {@link SortingSasFileReader} using specified params, and reads the metadata of the file.
+         *
+         * @return built reader.
+         * @throws IOException if the metadata can not be read.
+         */
+        public SortingSasFileReader build() throws IOException {
+            if (file == null || orderBy == null || memoryBudget < 1 || threads < 1 || metrics == null) {
+                throw new IllegalArgumentException("A file, a sort order, a positive memory budget, a positive"
+                        + " number of threads and metrics are required");
+            }
+            return new SortingSasFileReader(this);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso.impl;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.epam.parso.CSVDataWriter;
+import com.epam.parso.Column;
+
+/**
+ * A CSV data writer that splits its output into several files, so that the parts can be loaded into a database
+ * by parallel sessions. The writer rolls over to a new part, named <code>part-00000.csv</code>,
+ * <code>part-00001.csv</code> and so on, after a given number of rows or uncompressed bytes. When the writer is
+ * closed, a manifest listing the parts with their row and byte counts is written next to them.
+ * <p>
+ * If the header is not written to every part, it is only written to the first one, so that the concatenation
+ * of the parts equals the unsplit CSV file.
+ */
+public class SplittingCSVDataWriterImpl implements CSVDataWriter, Closeable {
+    /**
+     * The name of the manifest file.
+     */
+    public static final String MANIFEST_FILE_NAME = "manifest.csv";
+
+    /**
+     * The size of the character buffer in front of every part.
+     */
+    private static final int WRITER_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The directory the parts are written to.
+     */
+    private final Path directory;
+
+    /**
+     * The prefix of the part file names.
+     */
+    private final String prefix;
+
+    /**
+     * The maximal number of rows in a part, or 0 for no limit.
+     */
+    private final long maxRows;
+
+    /**
+     * The maximal number of uncompressed bytes in a part, or 0 for no limit.
+     */
+    private final long maxBytes;
+
+    /**
+     * True if every part starts with the column names.
+     */
+    private final boolean headerPerPart;
+
+    /**
+     * The database dialect used to write NULL values, or null for plain CSV.
+     */
+    private final DatabaseDialect dialect;
+
+    /**
+     * The compression applied to the parts.
+     */
+    private final OutputCompression compression;
+
+    /**
+     * The compression level.
+     */
+    private final int compressionLevel;
+
+    /**
+     * The number of compression threads per part.
+     */
+    private final int compressionThreads;
+
+    /**
+     * The parts written so far, including the current one.
+     */
+    private final List<Part> parts = new ArrayList<Part>();
+
+    /**
+     * The columns whose names are written as the header, or null if no header was requested.
+     */
+    private List<Column> headerColumns;
+
+    /**
+     * The writer of the current part.
+     */
+    private Writer currentWriter;
+
+    /**
+     * The counter of uncompressed bytes of the current part.
+     */
+    private CountingOutputStream currentCounter;
+
+    /**
+     * The CSV writer of the current part.
+     */
+    private CSVDataWriter currentDataWriter;
+
+    /**
+     * Builds a writer from the builder settings.
+     *
+     * @param builder the container with the writer settings.
+     */
+    private SplittingCSVDataWriterImpl(Builder builder) {
+        directory = builder.directory;
+        prefix = builder.prefix;
+        maxRows = builder.maxRows;
+        maxBytes = builder.maxBytes;
+        headerPerPart = builder.headerPerPart;
+        dialect = builder.dialect;
+        compression = builder.compression;
+        compressionLevel = builder.compressionLevel;
+        compressionThreads = builder.compressionThreads;
+    }
+
+    /**
+     * The method to export a row, rolling over to a new part if the current one is full.
+     *
+     * @param columns the {@link Column} class variables list that stores columns description from the sas7bdat file.
+     * @param row     the Objects arrays that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into writer is impossible.
+     */
+    @Override
+    public void writeRow(List<Column> columns, Object[] row) throws IOException {
+        if (row == null) {
+            return;
+        }
+        if (currentDataWriter == null || isCurrentPartFull()) {
+            startNextPart();
+        }
+        currentDataWriter.writeRow(columns, row);
+        Part part = parts.get(parts.size() - 1);
+        part.rows++;
+        part.bytes = currentCounter.getCount();
+    }
+
+    /**
+     * The method to export rows, rolling over to new parts when needed.
+     *
+     * @param columns the {@link Column} class variables list that stores columns description from the sas7bdat file.
+     * @param rows    the Objects arrays array that stores data from the sas7bdat file.
+     * @throws IOException appears if the output into writer is impossible.
+     */
+    @Override
+    public void writeRowsArray(List<Column> columns, Object[][] rows) throws IOException {
+        for (Object[] currentRow : rows) {
+            if (currentRow != null) {
+                writeRow(columns, currentRow);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The method to output the column names. They are written to the first part, and to every following part
+     * if the writer was built with {@link Builder#headerPerPart(boolean)}.
+     *
+     * @param columns the list of column names.
+     * @throws IOException appears if the output into writer is impossible.
+     */
+    @Override
+    public void writeColumnNames(List<Column> columns) throws IOException {
+        headerColumns = columns;
+        if (currentDataWriter == null) {
+            startNextPart();
+        } else {
+            currentDataWriter.writeColumnNames(columns);
+        }
+    }
+
+    /**
+     * Closes the current part and writes the manifest.
+     *
+     * @throws IOException if writing the part or the manifest is impossible.
+     */
+    @Override
+    public void close() throws IOException {
+        if (currentWriter != null) {
+            closeCurrentPart();
+        }
+        writeManifest();
+    }
+
+    /**
+     * The function to get the names and row counts of the parts written so far.
+     *
+     * @return the list of parts.
+     */
+    public List<Part> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * Checks whether the current part reached one of the limits.
+     *
+     * @return true if the next row must go to a new part.
+     */
+    private boolean isCurrentPartFull() {
+        Part part = parts.get(parts.size() - 1);
+        return part.rows > 0 && ((maxRows > 0 && part.rows >= maxRows) || (maxBytes > 0 && part.bytes >= maxBytes));
+    }
+
+    /**
+     * Closes the current part, if any, and opens the next one.
+     *
+     * @throws IOException if the part file can not be opened.
+     */
+    private void startNextPart() throws IOException {
+        if (currentWriter != null) {
+            closeCurrentPart();
+        }
+        String fileName = String.format("%s-%05d.csv%s", prefix, parts.size(), compression.getFileExtension());
+        currentCounter = new CountingOutputStream(compression.wrap(
+                new FileOutputStream(directory.resolve(fileName).toFile()), compressionLevel, compressionThreads));
+        currentWriter = new BufferedWriter(new OutputStreamWriter(currentCounter, StandardCharsets.UTF_8),
+                WRITER_BUFFER_SIZE);
+        currentDataWriter = dialect == null ? new CSVDataWriterImpl(currentWriter)
+                : new DialectAwareCSVDataWriterImpl(currentWriter, dialect);
+        parts.add(new Part(fileName));
+        if (headerColumns != null && (headerPerPart || parts.size() == 1)) {
+            currentDataWriter.writeColumnNames(headerColumns);
+            currentWriter.flush();
+            parts.get(parts.size() - 1).bytes = currentCounter.getCount();
+        }
+    }
+
+    /**
+     * Flushes and closes the current part.
+     *
+     * @throws IOException if writing the part is impossible.
+     */
+    private void closeCurrentPart() throws IOException {
+        currentWriter.flush();
+        parts.get(parts.size() - 1).bytes = currentCounter.getCount();
+        currentWriter.close();
+        currentWriter = null;
+        currentDataWriter = null;
+    }
+
+    /**
+     * Writes the manifest listing every part with its row and byte counts.
+     *
+     * @throws IOException if writing the manifest is impossible.
+     */
+    private void writeManifest() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(MANIFEST_FILE_NAME), StandardCharsets.UTF_8)) {
+            writer.write("part,rows,bytes\n");
+            for (Part part : parts) {
+                writer.write(part.fileName + "," + part.rows + "," + part.bytes + "\n");
+            }
+        }
+    }
+
+    /**
+     * A part of the split output.
+     */
+    public static final class Part {
+        /**
+         * The file name of the part, relative to the output directory.
+         */
+        private final String fileName;
+
+        /**
+         * The number of rows in the part.
+         */
+        private long rows;
+
+        /**
+         * The number of uncompressed bytes in the part.
+         */
+        private long bytes;
+
+        /**
+         * Creates an empty part.
+         *
+         * @param fileName the file name of the part.
+         */
+        Part(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * The function to get {@link Part#fileName}.
+         *
+         * @return the file name of the part, relative to the output directory.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * The function to get {@link Part#rows}.
+         *
+         * @return the number of rows in the part.
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * The function to get {@link Part#bytes}.
+         *
+         * @return the number of uncompressed bytes in the part.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * SplittingCSVDataWriterImpl builder class made using builder pattern.
+     */
+    public static class Builder {
+        /**
+         * Builder variable for {@link SplittingCSVDataWriterImpl#directory} variable.
+         */
+        private final Path directory;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#prefix} variable.
+         */
+        private String prefix = "part";
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#maxRows} variable.
+         */
+        private long maxRows;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#maxBytes} variable.
+         */
+        private long maxBytes;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#headerPerPart} variable.
+         */
+        private boolean headerPerPart;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#dialect} variable.
+         */
+        private DatabaseDialect dialect;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#compression} variable.
+         */
+        private OutputCompression compression = OutputCompression.NONE;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#compressionLevel} variable.
+         */
+        private int compressionLevel = OutputCompression.DEFAULT_LEVEL;
+
+        /**
+         * Default value for {@link SplittingCSVDataWriterImpl#compressionThreads} variable.
+         */
+        private int compressionThreads = 1;
+
+        /**
+         * Creates a builder of a writer that writes its parts to the given directory.
+         *
+         * @param directory the existing directory to write the parts and the manifest to.
+         */
+        public Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * The function to specify builders prefix variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder prefix(String val) {
+            prefix = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders maxRows variable.
+         *
+         * @param val value to be set, 0 means no limit.
+         * @return result builder.
+         */
+        public Builder maxRows(long val) {
+            maxRows = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders maxBytes variable.
+         *
+         * @param val value to be set, 0 means no limit.
+         * @return result builder.
+         */
+        public Builder maxBytes(long val) {
+            maxBytes = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders headerPerPart variable.
+         *
+         * @param val value to be set.
+         * @return result builder.
+         */
+        public Builder headerPerPart(boolean val) {
+            headerPerPart = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders dialect variable.
+         *
+         * @param val value to be set, null means plain CSV.
+         * @return result builder.
+         */
+        public Builder dialect(DatabaseDialect val) {
+            dialect = val;
+            return this;
+        }
+
+        /**
+         * The function to specify builders compression variables.
+         *
+         * @param val     the compression to apply to the parts.
+         * @param level   the compression level.
+         * @param threads the number of compression threads per part.
+         * @return result builder.
+         */
+        public Builder compression(OutputCompression val, int level, int threads) {
+            compression = val;
+            compressionLevel = level;
+            compressionThreads = threads;
+            return this;
+        }
+
+        /**
+         * The function to create variable of SplittingCSVDataWriterImpl class using current builder.
+         *
+         * @return newly built SplittingCSVDataWriterImpl
+         */
+        public SplittingCSVDataWriterImpl build() {
+            return new SplittingCSVDataWriterImpl(this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.epam.parso.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Decompressing the compressed rows of a page, one event per page. The span starts at the decompression of the
+ * first compressed row of the page and ends after the decompression of the last one, so it also covers the time
+ * the rows were consumed in between; {@link #decompressionNanos} is the time spent in the decompressor alone.
+ * The span depends on the consumer, so the event has no default threshold.
+ */
+@Name("com.epam.parso.Decompression")
+@Label("SAS Row Decompression")
+@Category("Parso")
+@Description("Decompressing and decoding the compressed rows of a page")
+public final class DecompressionEvent extends jdk.jfr.Event {
+    /**
+     * The compression literal, SASYZCRL or SASYZCR2.
+     */
+    @Label("Compression")
+    private String compression;
+
+    /**
+     * The number of rows decompressed.
+     */
+    @Label("Rows")
+    private long rows;
+
+    /**
+     * The number of compressed bytes.
+     */
+    @Label("Compressed Bytes")
+    @DataAmount
+    private long compressedBytes;
+
+    /**
+     * The number of decompressed bytes.
+     */
+    @Label("Bytes")
+    @DataAmount
+    private long bytes;
+
+    /**
+     * The time spent in the decompressor, the rest of the span is spent decoding and consuming the rows.
+     */
+    @Label("Decompression Time")
+    @Timespan
+    private long decompressionNanos;
+
+    /**
+     * Creates an event for the rows of a page.
+     *
+     * @param compression the compression literal of the file.
+     */
+    public DecompressionEvent(String compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * The method to count a decompressed row.
+     *
+     * @param rowCompressedBytes the number of compressed bytes of the row.
+     * @param rowBytes           the number of bytes of the decompressed row.
+     * @param nanos              the time spent in the decompressor.
+     */
+    public void addRow(int rowCompressedBytes, int rowBytes, long nanos) {
+        rows++;
+        compressedBytes += rowCompressedBytes;
+        bytes += rowBytes;
+        decompressionNanos += nanos;
+    }
+}
@@ -0,0 +1,46 @@
+package com.epam.parso.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Converting a .sas7bdat file, from its first row to the complete output.
+ */
+@Name("com.epam.parso.Export")
+@Label("Parso Export")
+@Category("Parso")
+@Description("Converting the rows of a .sas7bdat file to an output file")
+public final class ExportEvent extends jdk.jfr.Event {
+    /**
+     * The output file or directory.
+     */
+    @Label("Output")
+    private String output;
+
+    /**
+     * The output format.
+     */
+    @Label("Format")
+    private String format;
+
+    /**
+     * The number of rows written.
+     */
+    @Label("Rows")
+    private long rows;
+
+    /**
+     * The function to set the fields.
+     *
+     * @param output the output file or directory.
+     * @param format the output format.
+     * @param rows   the number of rows written.
+     */
+    public void setExport(String output, String format, long rows) {
+        this.output = output;
+        this.format = format;
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,69 @@
+package com.epam.parso.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import com.epam.parso.SasFileProperties;
+
+/**
+ * Opening a .sas7bdat file: reading its header and its metadata pages.
+ */
+@Name("com.epam.parso.FileOpen")
+@Label("SAS File Open")
+@Category("Parso")
+@Description("Reading the header and the metadata pages of a .sas7bdat file")
+public final class FileOpenEvent extends jdk.jfr.Event {
+    /**
+     * The name of the data set.
+     */
+    @Label("Data Set")
+    private String dataSet;
+
+    /**
+     * The number of columns.
+     */
+    @Label("Column Count")
+    private long columnCount;
+
+    /**
+     * The number of rows.
+     */
+    @Label("Row Count")
+    private long rowCount;
+
+    /**
+     * The length of a page.
+     */
+    @Label("Page Size")
+    @DataAmount
+    private int pageLength;
+
+    /**
+     * The number of pages.
+     */
+    @Label("Page Count")
+    private long pageCount;
+
+    /**
+     * The compression literal, empty for uncompressed files.
+     */
+    @Label("Compression")
+    private String compression;
+
+    /**
+     * The function to set the fields from the metadata read.
+     *
+     * @param properties the metadata of the file.
+     */
+    public void setProperties(SasFileProperties properties) {
+        dataSet = properties.getName();
+        columnCount = properties.getColumnsCount();
+        rowCount = properties.getRowCount();
+        pageLength = properties.getPageLength();
+        pageCount = properties.getPageCount();
+        compression = properties.isCompressed() ? properties.getCompressionMethod() : "";
+    }
+}
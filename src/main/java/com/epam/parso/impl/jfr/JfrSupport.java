@@ -0,0 +1,46 @@
+package com.epam.parso.impl.jfr;
+
+import java.io.OutputStream;
+
+/**
+ * Detects whether the running JVM has the JDK Flight Recorder API. The parser and the exporters create the
+ * events of this package only when {@link JfrSupport#AVAILABLE} is true, so the event classes, which extend
+ * {@code jdk.jfr.Event}, are never loaded on JVMs without it. Whether an event is recorded, and above which
+ * duration, is then decided by the JFR settings of the recording.
+ */
+public final class JfrSupport {
+    /**
+     * True if the JDK Flight Recorder API is available.
+     */
+    public static final boolean AVAILABLE = isFlightRecorderPresent();
+
+    /**
+     * Private constructor.
+     */
+    private JfrSupport() {
+    }
+
+    /**
+     * Wraps an output stream so that its writes and flushes are recorded as {@link OutputWriteEvent} events.
+     *
+     * @param out the stream to wrap.
+     * @return the recording stream, or the given stream if the JDK Flight Recorder API is not available.
+     */
+    public static OutputStream wrap(OutputStream out) {
+        return AVAILABLE ? new RecordingOutputStream(out) : out;
+    }
+
+    /**
+     * Checks whether the jdk.jfr.Event class can be loaded.
+     *
+     * @return true if the JDK Flight Recorder API is available.
+     */
+    private static boolean isFlightRecorderPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
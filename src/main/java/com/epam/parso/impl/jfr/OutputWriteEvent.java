@@ -0,0 +1,42 @@
+package com.epam.parso.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Writing a buffer or flushing the output of a conversion. Recorded above a threshold of 20 ms by default.
+ */
+@Name("com.epam.parso.OutputWrite")
+@Label("Parso Output Write")
+@Category("Parso")
+@Description("Writing a buffer to the output of a conversion or flushing it")
+@Threshold("20 ms")
+public final class OutputWriteEvent extends jdk.jfr.Event {
+    /**
+     * The number of bytes written, 0 for a flush.
+     */
+    @Label("Bytes")
+    @DataAmount
+    private long bytes;
+
+    /**
+     * True for a flush.
+     */
+    @Label("Flush")
+    private boolean flush;
+
+    /**
+     * The function to set the fields.
+     *
+     * @param bytes the number of bytes written, 0 for a flush.
+     * @param flush true for a flush.
+     */
+    public void setWrite(long bytes, boolean flush) {
+        this.bytes = bytes;
+        this.flush = flush;
+    }
+}
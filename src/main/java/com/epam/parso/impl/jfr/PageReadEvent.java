@@ -0,0 +1,67 @@
+package com.epam.parso.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Reading a page of a .sas7bdat file from the input stream and parsing its header. Recorded above a threshold
+ * of 20 ms by default, set {@code com.epam.parso.PageRead#threshold} to see every page.
+ */
+@Name("com.epam.parso.PageRead")
+@Label("SAS Page Read")
+@Category("Parso")
+@Description("Reading a page of a .sas7bdat file")
+@Threshold("20 ms")
+public final class PageReadEvent extends jdk.jfr.Event {
+    /**
+     * The index of the page, counted from the first page after the header.
+     */
+    @Label("Page Index")
+    private long pageIndex;
+
+    /**
+     * The type of the page.
+     */
+    @Label("Page Type")
+    private int pageType;
+
+    /**
+     * The number of blocks on the page.
+     */
+    @Label("Block Count")
+    private int blockCount;
+
+    /**
+     * The number of subheaders on the page.
+     */
+    @Label("Subheader Count")
+    private int subheaderCount;
+
+    /**
+     * The number of bytes read.
+     */
+    @Label("Bytes")
+    @DataAmount
+    private int bytes;
+
+    /**
+     * The function to set the fields from the page header.
+     *
+     * @param pageIndex      the index of the page.
+     * @param pageType       the type of the page.
+     * @param blockCount     the number of blocks on the page.
+     * @param subheaderCount the number of subheaders on the page.
+     * @param bytes          the number of bytes read.
+     */
+    public void setPage(long pageIndex, int pageType, int blockCount, int subheaderCount, int bytes) {
+        this.pageIndex = pageIndex;
+        this.pageType = pageType;
+        this.blockCount = blockCount;
+        this.subheaderCount = subheaderCount;
+        this.bytes = bytes;
+    }
+}
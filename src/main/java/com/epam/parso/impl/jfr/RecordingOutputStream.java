@@ -0,0 +1,68 @@
+package com.epam.parso.impl.jfr;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import jdk.jfr.EventType;
+
+/**
+ * An output stream recording its block writes and flushes as {@link OutputWriteEvent} events. Placed under the
+ * buffers of the exporters, so one event covers a buffer written to the file. Nothing is instrumented while no
+ * recording enables the event, and writers flushing after every row, such as the CSV writers, do not record an
+ * event per row: only writes of at least {@link #MIN_RECORDED_BYTES} bytes are recorded, and a flush only after
+ * that many bytes were written since the last recorded flush.
+ */
+final class RecordingOutputStream extends FilterOutputStream {
+    /**
+     * The smallest number of bytes of a recorded write, or written between two recorded flushes.
+     */
+    static final int MIN_RECORDED_BYTES = 1 << 13;
+
+    /**
+     * The type of the recorded events, telling whether a recording enables them.
+     */
+    private static final EventType EVENT_TYPE = EventType.getEventType(OutputWriteEvent.class);
+
+    /**
+     * The number of bytes written since the last recorded flush.
+     */
+    private long unflushedBytes;
+
+    /**
+     * Creates a stream recording the writes to the given stream.
+     *
+     * @param out the stream to write to.
+     */
+    RecordingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        unflushedBytes += len;
+        if (len < MIN_RECORDED_BYTES || !EVENT_TYPE.isEnabled()) {
+            out.write(b, off, len);
+            return;
+        }
+        OutputWriteEvent event = new OutputWriteEvent();
+        event.begin();
+        out.write(b, off, len);
+        event.setWrite(len, false);
+        event.commit();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (unflushedBytes < MIN_RECORDED_BYTES || !EVENT_TYPE.isEnabled()) {
+            out.flush();
+            return;
+        }
+        unflushedBytes = 0;
+        OutputWriteEvent event = new OutputWriteEvent();
+        event.begin();
+        out.flush();
+        event.setWrite(0, true);
+        event.commit();
+    }
+}
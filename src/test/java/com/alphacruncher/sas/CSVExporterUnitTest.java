@@ -0,0 +1,283 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.alphacruncher.sas;
+
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.DatabaseDialect;
+import com.epam.parso.impl.OutputFormat;
+import com.epam.parso.impl.PostgreSQLBinaryDataWriterImpl;
+import com.epam.parso.impl.SasFilePosition;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CSVExporterUnitTest {
+    private static final String FILE_NAME = "mix_data_misc";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCheckpointedExportMatchesPlainExport() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path plain = temporaryFolder.getRoot().toPath().resolve("plain.csv");
+        Path checkpointed = temporaryFolder.getRoot().toPath().resolve("checkpointed.csv");
+        Path checkpoint = temporaryFolder.getRoot().toPath().resolve("checkpoint.csv");
+        CSVExporter exporter = new CSVExporter();
+        long rows = exporter.export(input, plain);
+        exporter.setCheckpointFile(checkpoint);
+        exporter.setCheckpointPages(10);
+
+        assertThat(exporter.export(input, checkpointed)).isEqualTo(rows);
+        assertThat(Files.readAllBytes(checkpointed)).isEqualTo(Files.readAllBytes(plain));
+        assertThat(Files.exists(checkpoint)).isFalse();
+    }
+
+    @Test
+    public void testResumeCsv() throws IOException {
+        testResume(false);
+    }
+
+    @Test
+    public void testResumePostgreSQLBinary() throws IOException {
+        testResume(true);
+    }
+
+    @Test
+    public void testAvroExport() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path csv = temporaryFolder.getRoot().toPath().resolve("plain.csv");
+        Path avro = temporaryFolder.getRoot().toPath().resolve("plain.avro");
+        CSVExporter exporter = new CSVExporter();
+        long rows = exporter.export(input, csv);
+        exporter.setOutputFormat(OutputFormat.AVRO);
+        exporter.setAvroBlockSize(4096);
+
+        assertThat(exporter.export(input, avro)).isEqualTo(rows);
+        byte[] bytes = Files.readAllBytes(avro);
+        assertThat(Arrays.copyOf(bytes, 4)).isEqualTo(new byte[]{'O', 'b', 'j', 1});
+        assertThat(new String(bytes, StandardCharsets.ISO_8859_1)).contains("{\"type\":\"record\",\"name\":\"plain\"");
+        exporter.setCheckpointFile(temporaryFolder.getRoot().toPath().resolve("checkpoint.csv"));
+        try {
+            exporter.export(input, avro);
+            throw new AssertionError("Checkpoints are not supported for Avro outputs");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage()).contains("Checkpoints");
+        }
+    }
+
+    @Test
+    public void testJsonLinesExport() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path jsonl = temporaryFolder.getRoot().toPath().resolve("plain.jsonl");
+        CSVExporter exporter = new CSVExporter();
+        exporter.setOutputFormat(OutputFormat.JSON_LINES);
+        exporter.setThreads(2);
+
+        long rows = exporter.export(input, jsonl);
+        List<String> lines = Files.readAllLines(jsonl, StandardCharsets.UTF_8);
+        assertThat((long) lines.size()).isEqualTo(rows);
+        for (String line : lines) {
+            assertThat(line).startsWith("{\"").endsWith("}");
+        }
+    }
+
+    @Test
+    public void testSortedExport() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path output = temporaryFolder.getRoot().toPath().resolve("sorted.csv");
+        Path runs = temporaryFolder.newFolder("runs").toPath();
+        CSVExporter exporter = new CSVExporter();
+        exporter.setThreads(2);
+        exporter.setSortMemoryBudget(100000);
+        exporter.setTempDirectory(runs);
+        String column;
+        try (InputStream is = Files.newInputStream(input)) {
+            column = new SasFileReaderImpl(is).getColumns().get(0).getName();
+        }
+        exporter.setOrderBy(column + " DESC");
+
+        long rows = exporter.export(input, output);
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertThat((long) lines.size()).isEqualTo(rows + 1);
+        assertThat(runs.toFile().list()).isEmpty();
+        for (int i = 2; i < lines.size(); i++) {
+            double previous = Double.parseDouble(lines.get(i - 1).split(",")[0]);
+            assertThat(Double.parseDouble(lines.get(i).split(",")[0])).isLessThanOrEqualTo(previous);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSortedExportWithCheckpoints() throws IOException {
+        CSVExporter exporter = new CSVExporter();
+        exporter.setOrderBy("x");
+        exporter.setCheckpointFile(temporaryFolder.getRoot().toPath().resolve("checkpoint.csv"));
+        exporter.export(copy(FILE_NAME), temporaryFolder.getRoot().toPath().resolve("out.csv"));
+    }
+
+    @Test
+    public void testMismatchingCheckpointRestarts() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path output = temporaryFolder.getRoot().toPath().resolve("out.csv");
+        Path checkpoint = temporaryFolder.getRoot().toPath().resolve("checkpoint.csv");
+        CSVExporter exporter = new CSVExporter();
+        exporter.export(input, output);
+        byte[] expected = Files.readAllBytes(output);
+        new ExportCheckpoint(Files.size(input) + 1, Files.getLastModifiedTime(input).toMillis(), -1,
+                exporter.getOutputSettings(), new SasFilePosition(50, 0, 3000), 10).write(checkpoint);
+
+        exporter.setCheckpointFile(checkpoint);
+        exporter.export(input, output);
+        assertThat(Files.readAllBytes(output)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testReplacedInputRestarts() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path output = temporaryFolder.getRoot().toPath().resolve("out.csv");
+        Path checkpoint = temporaryFolder.getRoot().toPath().resolve("checkpoint.csv");
+        CSVExporter exporter = new CSVExporter();
+        exporter.export(input, output);
+        byte[] expected = Files.readAllBytes(output);
+        interrupt(input, output, checkpoint, exporter);
+
+        Files.setLastModifiedTime(input, FileTime.fromMillis(Files.getLastModifiedTime(input).toMillis() + 60000));
+        exporter.setCheckpointFile(checkpoint);
+        exporter.export(input, output);
+        assertThat(Files.readAllBytes(output)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testChangedDialectRestarts() throws IOException {
+        Path input = copy(FILE_NAME);
+        Path output = temporaryFolder.getRoot().toPath().resolve("out.csv");
+        Path checkpoint = temporaryFolder.getRoot().toPath().resolve("checkpoint.csv");
+        CSVExporter exporter = new CSVExporter();
+        interrupt(input, output, checkpoint, exporter);
+
+        exporter.setDialect(DatabaseDialect.POSTGRESQL);
+        exporter.setCheckpointFile(checkpoint);
+        exporter.export(input, output);
+        byte[] restarted = Files.readAllBytes(output);
+        exporter.setCheckpointFile(null);
+        exporter.export(input, output);
+        assertThat(restarted).isEqualTo(Files.readAllBytes(output));
+    }
+
+    // Garbles every byte of the output before the checkpoint, so only a restarted conversion gets it right.
+    private static void interrupt(Path input, Path output, Path checkpoint, CSVExporter exporter)
+            throws IOException {
+        SasFilePosition position = pageBoundary(input, 5000);
+        byte[] interrupted = new byte[prefix(input, position.getRowIndex(), false).length];
+        Arrays.fill(interrupted, (byte) 'x');
+        Files.write(output, interrupted);
+        try (InputStream is = Files.newInputStream(input)) {
+            ExportCheckpoint.of(input, new SasFileReaderImpl(is).getSasFileProperties(),
+                    exporter.getOutputSettings(), position, interrupted.length).write(checkpoint);
+        }
+    }
+
+    private void testResume(boolean postgreSQLBinary) throws IOException {
+        Path input = copy(FILE_NAME);
+        Path output = temporaryFolder.getRoot().toPath().resolve("out");
+        Path checkpoint = temporaryFolder.getRoot().toPath().resolve("checkpoint.csv");
+        CSVExporter exporter = new CSVExporter();
+        exporter.setOutputFormat(postgreSQLBinary ? OutputFormat.POSTGRESQL_BINARY : OutputFormat.CSV);
+        exporter.export(input, output);
+        byte[] expected = Files.readAllBytes(output);
+
+        SasFilePosition position = pageBoundary(input, 5000);
+        int offset = prefix(input, position.getRowIndex(), postgreSQLBinary).length;
+        byte[] interrupted = Arrays.copyOf(expected, offset + 777);
+        Arrays.fill(interrupted, offset, interrupted.length, (byte) 'x');
+        Files.write(output, interrupted);
+        try (InputStream is = Files.newInputStream(input)) {
+            ExportCheckpoint.of(input, new SasFileReaderImpl(is).getSasFileProperties(),
+                    exporter.getOutputSettings(), position, offset).write(checkpoint);
+        }
+
+        exporter.setCheckpointFile(checkpoint);
+        assertThat(exporter.export(input, output)).isEqualTo(12288);
+        assertThat(Files.readAllBytes(output)).isEqualTo(expected);
+        assertThat(Files.exists(checkpoint)).isFalse();
+    }
+
+    private static SasFilePosition pageBoundary(Path input, int minRows) throws IOException {
+        try (InputStream is = Files.newInputStream(input)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            for (int rows = 1; reader.readNext() != null; rows++) {
+                SasFilePosition position = reader.getPosition();
+                if (rows >= minRows && position.getRowOnPageIndex() == 0) {
+                    return position;
+                }
+            }
+        }
+        throw new IllegalStateException("No page boundary after " + minRows + " rows");
+    }
+
+    private static byte[] prefix(Path input, long rows, boolean postgreSQLBinary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream is = Files.newInputStream(input)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            if (postgreSQLBinary) {
+                PostgreSQLBinaryDataWriterImpl writer = new PostgreSQLBinaryDataWriterImpl(bytes);
+                writer.writeHeader();
+                for (long i = 0; i < rows; i++) {
+                    writer.writeRow(reader.getColumns(), reader.readNext());
+                }
+            } else {
+                Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+                CSVDataWriterImpl csvDataWriter = new CSVDataWriterImpl(writer);
+                csvDataWriter.writeColumnNames(reader.getColumns());
+                for (long i = 0; i < rows; i++) {
+                    csvDataWriter.writeRow(reader.getColumns(), reader.readNext());
+                }
+                writer.flush();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private Path copy(String fileName) throws IOException {
+        Path target = temporaryFolder.getRoot().toPath().resolve(fileName + ".sas7bdat");
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+        return target;
+    }
+}
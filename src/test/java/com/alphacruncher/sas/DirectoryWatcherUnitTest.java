@@ -0,0 +1,95 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.alphacruncher.sas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DirectoryWatcherUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHeaderCompleteness() throws IOException {
+        Path file = temporaryFolder.newFolder().toPath().resolve("m.sas7bdat");
+        copy("mix_data_misc", file);
+        long size = Files.size(file);
+        assertThat(DirectoryWatcher.isHeaderComplete(file, size)).isTrue();
+
+        byte[] content = Files.readAllBytes(file);
+        try (OutputStream os = Files.newOutputStream(file)) {
+            os.write(content, 0, content.length / 2);
+        }
+        assertThat(DirectoryWatcher.isHeaderComplete(file, Files.size(file))).isFalse();
+    }
+
+    @Test(timeout = 30000)
+    public void testWrittenFilesAreConverted() throws Exception {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path output = temporaryFolder.newFolder("output").toPath();
+        copy("doubles", source.resolve("a.sas7bdat"));
+        IncrementalConverter converter = new IncrementalConverter(new CSVExporter(), source, output);
+        final DirectoryWatcher watcher = new DirectoryWatcher(converter, source, 2, 60000);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watcher.run();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        thread.start();
+        try {
+            waitFor(output.resolve("a.csv"));
+            copy("all_rand_normal", source.resolve("b.sas7bdat"));
+            waitFor(output.resolve("b.csv"));
+        } finally {
+            watcher.close();
+            thread.join();
+        }
+        assertThat(converter.convert().getUnchanged()).hasSize(2);
+    }
+
+    private static void waitFor(Path path) throws InterruptedException {
+        while (!Files.exists(path)) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static void copy(String fileName, Path target) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.alphacruncher.sas;
+
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.OutputCompression;
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.SasFileReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IncrementalConverterUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyChangedFilesAreConverted() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path output = temporaryFolder.newFolder("output").toPath();
+        copy("all_rand_normal", source.resolve("a.sas7bdat"));
+        copy("doubles", source.resolve("b.sas7bdat"));
+        copy("int_only", source.resolve("c.sas7bdat"));
+        IncrementalConverter converter = new IncrementalConverter(new CSVExporter(), source, output);
+        converter.setJobs(2);
+
+        IncrementalConverter.Summary summary = converter.convert();
+        assertThat(summary.getConverted()).isEqualTo(Arrays.asList("a.sas7bdat", "b.sas7bdat", "c.sas7bdat"));
+        assertThat(read(output.resolve("b.csv"))).isEqualTo(csv("doubles"));
+        List<String> manifest = Files.readAllLines(output.resolve(IncrementalConverter.MANIFEST_FILE_NAME),
+                StandardCharsets.UTF_8);
+        assertThat(manifest).hasSize(4);
+        assertThat(manifest.get(2)).startsWith("\"b.sas7bdat\",\"" + Files.size(source.resolve("b.sas7bdat")));
+        assertThat(output.toFile().list()).hasSize(4);
+
+        summary = converter.convert();
+        assertThat(summary.getConverted()).isEmpty();
+        assertThat(summary.getUnchanged()).hasSize(3);
+
+        Files.setLastModifiedTime(source.resolve("a.sas7bdat"), FileTime.fromMillis(System.currentTimeMillis()
+                + 60000));
+        copy("mix_data_misc", source.resolve("b.sas7bdat"));
+        Files.delete(source.resolve("c.sas7bdat"));
+        summary = converter.convert();
+        assertThat(summary.getUnchanged()).isEqualTo(Arrays.asList("a.sas7bdat"));
+        assertThat(summary.getConverted()).isEqualTo(Arrays.asList("b.sas7bdat"));
+        assertThat(summary.getDeleted()).isEqualTo(Arrays.asList("c.sas7bdat"));
+        assertThat(read(output.resolve("b.csv"))).isEqualTo(csv("mix_data_misc"));
+        assertThat(Files.exists(output.resolve("c.csv"))).isFalse();
+        assertThat(output.toFile().list()).hasSize(3);
+
+        summary = converter.convert();
+        assertThat(summary.getUnchanged()).hasSize(2);
+        assertThat(summary.getConverted()).isEmpty();
+    }
+
+    @Test
+    public void testSplitOutputsAreReplaced() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path output = temporaryFolder.newFolder("output").toPath();
+        copy("mix_data_misc", source.resolve("m.sas7bdat"));
+        CSVExporter exporter = new CSVExporter();
+        exporter.setMaxRowsPerPart(5000);
+        IncrementalConverter converter = new IncrementalConverter(exporter, source, output);
+
+        converter.convert();
+        assertThat(new File(output.toFile(), "m").list()).hasSize(4);
+        copy("all_rand_normal", source.resolve("m.sas7bdat"));
+        assertThat(converter.convert().getConverted()).hasSize(1);
+        assertThat(new File(output.toFile(), "m").list()).hasSize(2);
+        assertThat(output.toFile().list()).hasSize(2);
+    }
+
+    @Test
+    public void testOutputsOfChangedNamesAreRemoved() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path output = temporaryFolder.newFolder("output").toPath();
+        copy("doubles", source.resolve("d.sas7bdat"));
+        CSVExporter exporter = new CSVExporter();
+        IncrementalConverter converter = new IncrementalConverter(exporter, source, output);
+        converter.convert();
+        assertThat(Files.exists(output.resolve("d.csv"))).isTrue();
+
+        exporter.setCompression(OutputCompression.GZIP);
+        assertThat(converter.convert().getConverted()).hasSize(1);
+        assertThat(Files.exists(output.resolve("d.csv"))).isFalse();
+        assertThat(Files.exists(output.resolve("d.csv.gz"))).isTrue();
+
+        exporter.setCompression(OutputCompression.NONE);
+        Files.setLastModifiedTime(source.resolve("d.sas7bdat"), FileTime.fromMillis(System.currentTimeMillis()
+                + 60000));
+        assertThat(converter.convertIfChanged(source.resolve("d.sas7bdat"))).isTrue();
+        assertThat(Files.exists(output.resolve("d.csv.gz"))).isFalse();
+        assertThat(read(output.resolve("d.csv"))).isEqualTo(csv("doubles"));
+        assertThat(output.toFile().list()).hasSize(2);
+    }
+
+    private static void copy(String fileName, Path target) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static String csv(String fileName) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            SasFileReader reader = new SasFileReaderImpl(is);
+            StringWriter writer = new StringWriter();
+            CSVDataWriterImpl csvDataWriter = new CSVDataWriterImpl(writer);
+            csvDataWriter.writeColumnNames(reader.getColumns());
+            csvDataWriter.writeRowsArray(reader.getColumns(), reader.readAll());
+            return writer.toString();
+        } finally {
+            is.close();
+        }
+    }
+}
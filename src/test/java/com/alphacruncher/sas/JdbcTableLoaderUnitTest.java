@@ -0,0 +1,230 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.alphacruncher.sas;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileReader;
+import com.epam.parso.impl.DatabaseDialect;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JdbcTableLoaderUnitTest {
+    private static final String FILE_NAME = "sas7bdat//mix_data_misc.sas7bdat";
+
+    @Test
+    public void testInsertStatement() throws IOException {
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            List<Column> columns = new SasFileReaderImpl(is).getColumns().subList(0, 2);
+            JdbcTableLoader loader = new JdbcTableLoader.Builder(new FakeDatabase(-1).dataSource(), "t")
+                    .dialect(DatabaseDialect.POSTGRESQL).schema("s").build();
+            assertThat(loader.getInsertStatement(columns)).isEqualTo("INSERT INTO \"s\".\"t\" (\""
+                    + columns.get(0).getName() + "\", \"" + columns.get(1).getName() + "\") VALUES (?, ?)");
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testParallelBatchedLoad() throws IOException, SQLException {
+        FakeDatabase database = new FakeDatabase(-1);
+        JdbcTableLoader loader = new JdbcTableLoader.Builder(database.dataSource(), "mix_data_misc")
+                .batchSize(500).commitRows(2000).connections(3).build();
+        long rows;
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            rows = loader.load(new SasFileReaderImpl(is));
+        } finally {
+            is.close();
+        }
+
+        List<String> expected = expectedRows();
+        assertThat(rows).isEqualTo(expected.size());
+        List<String> committed = new ArrayList<String>(database.committed);
+        Collections.sort(committed);
+        assertThat(committed).isEqualTo(expected);
+        assertThat(database.connections.get()).isEqualTo(3);
+        assertThat(database.maxBatchSize.get()).isEqualTo(500);
+        assertThat(database.commits.get()).isGreaterThanOrEqualTo(expected.size() / 2000);
+    }
+
+    @Test
+    public void testFailedBatchRollsBackAndThrows() throws IOException, SQLException {
+        FakeDatabase database = new FakeDatabase(5);
+        JdbcTableLoader loader = new JdbcTableLoader.Builder(database.dataSource(), "mix_data_misc")
+                .batchSize(100).commitRows(1000000).connections(2).build();
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            loader.load(new SasFileReaderImpl(is));
+            throw new AssertionError("The load should fail");
+        } catch (JdbcTableLoader.PartialLoadException e) {
+            assertThat(e.getCause().getMessage()).isEqualTo("batch failed");
+            assertThat(e.getCommittedRows()).isEqualTo(0);
+        } finally {
+            is.close();
+        }
+        assertThat(database.committed).isEmpty();
+        assertThat(database.rollbacks.get()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void testFailureReportsCommittedRows() throws IOException, SQLException {
+        FakeDatabase database = new FakeDatabase(12);
+        JdbcTableLoader loader = new JdbcTableLoader.Builder(database.dataSource(), "mix_data_misc")
+                .batchSize(100).commitRows(200).connections(2).build();
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            loader.load(new SasFileReaderImpl(is));
+            throw new AssertionError("The load should fail");
+        } catch (JdbcTableLoader.PartialLoadException e) {
+            assertThat(e.getCause().getMessage()).isEqualTo("batch failed");
+            assertThat(e.getCommittedRows()).isGreaterThan(0);
+            assertThat(e.getCommittedRows()).isEqualTo(database.committed.size());
+        } finally {
+            is.close();
+        }
+    }
+
+    private static List<String> expectedRows() throws IOException {
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            SasFileReader reader = new SasFileReaderImpl(is);
+            List<String> rows = new ArrayList<String>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                Object[] bound = new Object[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] instanceof Double) {
+                        bound[i] = BigDecimal.valueOf((Double) row[i]);
+                    } else if (row[i] instanceof Long) {
+                        bound[i] = BigDecimal.valueOf((Long) row[i]);
+                    } else {
+                        bound[i] = row[i];
+                    }
+                }
+                rows.add(Arrays.toString(bound));
+            }
+            Collections.sort(rows);
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * A JDBC data source built from dynamic proxies, which keeps the rows of committed transactions.
+     */
+    private static class FakeDatabase {
+        private final int failingBatch;
+        private final List<String> committed = Collections.synchronizedList(new ArrayList<String>());
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger batches = new AtomicInteger();
+        private final AtomicInteger maxBatchSize = new AtomicInteger();
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        FakeDatabase(int failingBatch) {
+            this.failingBatch = failingBatch;
+        }
+
+        DataSource dataSource() {
+            return proxy(DataSource.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("getConnection")) {
+                        connections.incrementAndGet();
+                        return connection();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private Connection connection() {
+            final List<String> pending = new ArrayList<String>();
+            return proxy(Connection.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("prepareStatement")) {
+                        return statement(pending);
+                    } else if (method.getName().equals("commit")) {
+                        commits.incrementAndGet();
+                        committed.addAll(pending);
+                        pending.clear();
+                    } else if (method.getName().equals("rollback")) {
+                        rollbacks.incrementAndGet();
+                        pending.clear();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private PreparedStatement statement(final List<String> pending) {
+            final Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+            final List<String> batch = new ArrayList<String>();
+            return proxy(PreparedStatement.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                    String name = method.getName();
+                    if (name.equals("setNull")) {
+                        parameters.put((Integer) args[0], null);
+                    } else if (name.startsWith("set")) {
+                        parameters.put((Integer) args[0], args[1]);
+                    } else if (name.equals("addBatch")) {
+                        batch.add(Arrays.toString(parameters.values().toArray()));
+                        parameters.clear();
+                    } else if (name.equals("executeBatch")) {
+                        if (batches.incrementAndGet() == failingBatch) {
+                            throw new SQLException("batch failed");
+                        }
+                        synchronized (maxBatchSize) {
+                            maxBatchSize.set(Math.max(maxBatchSize.get(), batch.size()));
+                        }
+                        pending.addAll(batch);
+                        int[] counts = new int[batch.size()];
+                        batch.clear();
+                        return counts;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(JdbcTableLoaderUnitTest.class.getClassLoader(),
+                    new Class<?>[]{type}, handler);
+        }
+    }
+}
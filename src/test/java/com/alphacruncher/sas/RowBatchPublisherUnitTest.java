@@ -0,0 +1,210 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+
+package com.alphacruncher.sas;
+
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RowBatchPublisherUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDemandIsHonoured() throws Exception {
+        Path file = copy("mix_data_misc");
+        List<Object[]> expected = readRows("mix_data_misc");
+        RowBatchPublisher publisher = new RowBatchPublisher.Builder(file, executor).batchSize(1000).build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        Thread.sleep(100);
+        assertThat(subscriber.batches).isEmpty();
+        subscriber.subscription.request(2);
+        Thread.sleep(200);
+        assertThat(subscriber.batches).hasSize(2);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.terminated.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.completed).isTrue();
+        assertRows(subscriber, expected);
+    }
+
+    @Test
+    public void testRequestFromOnNext() throws Exception {
+        Path file = copy("doubles");
+        List<Object[]> expected = readRows("doubles");
+        RowBatchPublisher publisher = new RowBatchPublisher.Builder(file, executor).batchSize(3).build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        assertThat(subscriber.terminated.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.batches.get(0)).hasSize(3);
+        assertRows(subscriber, expected);
+    }
+
+    @Test
+    public void testCancelReleasesTheFile() throws Exception {
+        File fileDescriptors = new File("/proc/self/fd");
+        Assume.assumeTrue(fileDescriptors.isDirectory());
+        Path file = copy("mix_data_misc");
+        RowBatchPublisher publisher = new RowBatchPublisher.Builder(file, executor).batchSize(10).build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        Thread.sleep(200);
+        assertThat(isOpen(fileDescriptors, file)).isTrue();
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.batches).hasSize(1);
+        assertThat(subscriber.terminated.getCount()).isEqualTo(1);
+        assertThat(isOpen(fileDescriptors, file)).isFalse();
+    }
+
+    @Test
+    public void testInvalidRequest() throws Exception {
+        Path file = copy("doubles");
+        RowBatchPublisher publisher = new RowBatchPublisher.Builder(file, executor).build();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertThat(subscriber.terminated.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(subscriber.batches).isEmpty();
+    }
+
+    private static void assertRows(RecordingSubscriber subscriber, List<Object[]> expected) {
+        List<Object[]> actual = new ArrayList<Object[]>();
+        for (List<Object[]> batch : subscriber.batches) {
+            actual.addAll(batch);
+        }
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isEqualTo(expected.get(i));
+        }
+    }
+
+    private static boolean isOpen(File fileDescriptors, Path file) throws IOException {
+        File[] links = fileDescriptors.listFiles();
+        if (links != null) {
+            for (File link : links) {
+                try {
+                    if (Files.readSymbolicLink(link.toPath()).equals(file)) {
+                        return true;
+                    }
+                } catch (IOException e) {
+                    continue;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Path copy(String fileName) throws IOException {
+        Path target = temporaryFolder.newFile(fileName + ".sas7bdat").toPath().toRealPath();
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+        return target;
+    }
+
+    private static List<Object[]> readRows(String fileName) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+
+    private static final class RecordingSubscriber implements RowBatchPublisher.Subscriber {
+        private final int requestOnNext;
+        private final List<List<Object[]>> batches = Collections.synchronizedList(new ArrayList<List<Object[]>>());
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile RowBatchPublisher.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private RecordingSubscriber(int requestOnNext) {
+            this.requestOnNext = requestOnNext;
+        }
+
+        @Override
+        public void onSubscribe(RowBatchPublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(List<Object[]> rows) {
+            batches.add(rows);
+            if (requestOnNext > 0) {
+                subscription.request(requestOnNext);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+
+package com.alphacruncher.sas;
+
+import com.epam.parso.SasFileGenerator;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SasDatasetUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testOrderedRowsOfAllFiles() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        copy("mix_data_misc", directory.resolve("claims_2019_02.sas7bdat"));
+        copy("mix_data_misc", directory.resolve("claims_2019_01.sas7bdat"));
+        copy("mix_data_misc", directory.resolve("claims_2019_03.sas7bdat"));
+        Files.write(directory.resolve("notes.txt"), new byte[]{1});
+        List<Object[]> rows = readRows("mix_data_misc");
+
+        SasDataset dataset = new SasDataset.Builder(directory.toString()).threads(2).batchSize(100).build();
+        assertThat(dataset.getFiles()).hasSize(3);
+        assertThat(dataset.getFiles().get(0).getFileName().toString()).isEqualTo("claims_2019_01.sas7bdat");
+        assertThat(dataset.getRowCount()).isEqualTo(3 * rows.size());
+        assertThat(dataset.getRowOffset(2)).isEqualTo(2 * rows.size());
+        assertThat(dataset.getFileIndex(rows.size() - 1)).isEqualTo(0);
+        assertThat(dataset.getFileIndex(rows.size())).isEqualTo(1);
+        assertThat(dataset.getColumns()).hasSize(rows.get(0).length);
+
+        try (SasDataset.DatasetReader reader = dataset.open()) {
+            for (int i = 0; i < 3 * rows.size(); i++) {
+                assertThat(reader.readNext()).isEqualTo(rows.get(i % rows.size()));
+                assertThat((Object) reader.getCurrentFile()).isEqualTo(dataset.getFiles().get(i / rows.size()));
+            }
+            assertThat(reader.readNext()).isNull();
+        }
+    }
+
+    @Test
+    public void testUnorderedRowsAndGlob() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        copy("doubles", directory.resolve("part_1.sas7bdat"));
+        copy("doubles", directory.resolve("part_2.sas7bdat"));
+        copy("doubles", directory.resolve("other.sas7bdat"));
+        List<Object[]> rows = readRows("doubles");
+
+        SasDataset dataset = new SasDataset.Builder(directory + "/part_*.sas7bdat").ordered(false).threads(2)
+                .batchSize(3).queueCapacity(1).build();
+        assertThat(dataset.getFiles()).hasSize(2);
+        List<String> expected = new ArrayList<String>();
+        for (Object[] row : rows) {
+            expected.add(Arrays.toString(row));
+            expected.add(Arrays.toString(row));
+        }
+        List<String> actual = new ArrayList<String>();
+        try (SasDataset.DatasetReader reader = dataset.open()) {
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                actual.add(Arrays.toString(row));
+            }
+        }
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testOpenAtRow() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        copy("doubles", directory.resolve("a.sas7bdat"));
+        copy("doubles", directory.resolve("b.sas7bdat"));
+        List<Object[]> rows = readRows("doubles");
+        SasDataset dataset = new SasDataset.Builder(directory.toString()).ordered(false).build();
+
+        long firstRow = rows.size() + 2;
+        try (SasDataset.DatasetReader reader = dataset.open(firstRow)) {
+            for (int i = 2; i < rows.size(); i++) {
+                assertThat(reader.readNext()).isEqualTo(rows.get(i));
+            }
+            assertThat(reader.readNext()).isNull();
+        }
+        try (SasDataset.DatasetReader reader = dataset.open(dataset.getRowCount())) {
+            assertThat(reader.readNext()).isNull();
+        }
+    }
+
+    @Test
+    public void testClosingStopsReading() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        for (int i = 0; i < 4; i++) {
+            copy("mix_data_misc", directory.resolve("part_" + i + ".sas7bdat"));
+        }
+        SasDataset dataset = new SasDataset.Builder(directory.toString()).threads(4).batchSize(10)
+                .queueCapacity(1).build();
+        SasDataset.DatasetReader reader = dataset.open();
+        assertThat(reader.readNext()).isNotNull();
+        reader.close();
+    }
+
+    @Test
+    public void testIncompatibleSchemas() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        copy("doubles", directory.resolve("a.sas7bdat"));
+        copy("mix_data_misc", directory.resolve("b.sas7bdat"));
+        try {
+            new SasDataset.Builder(directory.toString()).build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("b.sas7bdat");
+        }
+    }
+
+    @Test
+    public void testDifferentFormatsAreIncompatible() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        new SasFileGenerator.Builder().rowCount(10).numberColumn("day", "DATE9.").build()
+                .write(directory.resolve("a.sas7bdat"));
+        new SasFileGenerator.Builder().rowCount(10).numberColumn("day", "BEST12.").build()
+                .write(directory.resolve("b.sas7bdat"));
+        try {
+            new SasDataset.Builder(directory.toString()).build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("b.sas7bdat").contains("day");
+        }
+    }
+
+    @Test
+    public void testThreadsLimitedByReadPlans() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        copy("doubles", directory.resolve("a.sas7bdat"));
+        copy("doubles", directory.resolve("b.sas7bdat"));
+        SasDataset dataset = new SasDataset.Builder(directory.toString()).threads(1000).build();
+        int parallelism = Math.min(dataset.getReadPlan(0).getParallelism(), dataset.getReadPlan(1).getParallelism());
+        assertThat(dataset.getThreads()).isEqualTo(parallelism);
+        assertThat(new SasDataset.Builder(directory.toString()).threads(1).build().getThreads()).isEqualTo(1);
+    }
+
+    @Test
+    public void testProjectedColumns() throws IOException {
+        Path directory = temporaryFolder.newFolder("claims").toPath();
+        copy("mix_data_misc", directory.resolve("a.sas7bdat"));
+        copy("mix_data_misc", directory.resolve("b.sas7bdat"));
+        List<Object[]> rows = readRows("mix_data_misc");
+        SasDataset all = new SasDataset.Builder(directory.toString()).build();
+        String name = all.getColumns().get(2).getName();
+
+        SasDataset dataset = new SasDataset.Builder(directory.toString()).columns(name.toLowerCase()).build();
+        try (SasDataset.DatasetReader reader = dataset.open()) {
+            for (int i = 0; i < 2 * rows.size(); i++) {
+                Object[] row = reader.readNext();
+                assertThat(row[2]).isEqualTo(rows.get(i % rows.size())[2]);
+                assertThat(row[0]).isNull();
+            }
+            assertThat(reader.readNext()).isNull();
+        }
+        try {
+            new SasDataset.Builder(directory.toString()).columns("no_such_column").build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("no_such_column");
+        }
+    }
+
+    private static void copy(String fileName, Path target) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+    }
+
+    private static List<Object[]> readRows(String fileName) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+}
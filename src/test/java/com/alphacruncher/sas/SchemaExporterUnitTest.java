@@ -0,0 +1,160 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.alphacruncher.sas;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileReader;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SchemaExporterUnitTest {
+    private static final String[] FILE_NAMES = {"mix_data_misc", "all_rand_normal", "doubles", "int_only",
+            "mix_and_missing", "mix_data_with_longchar", "only_datetime", "extend_yes"};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMetadataReaderReadsNoRows() throws IOException {
+        InputStream full = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        InputStream metadata = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        try {
+            List<Column> columns = new SasFileReaderImpl(full).getColumns();
+            SasFileReader reader = SasFileReaderImpl.metadataReader(metadata);
+            assertThat(reader.getColumns()).hasSize(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                assertThat(reader.getColumns().get(i).getName()).isEqualTo(columns.get(i).getName());
+                assertThat(reader.getColumns().get(i).getFormat()).isEqualTo(columns.get(i).getFormat());
+                assertThat(reader.getColumns().get(i).getLength()).isEqualTo(columns.get(i).getLength());
+            }
+            assertThat(reader.getSasFileProperties().getRowCount()).isGreaterThan(0);
+            assertThat(reader.readNext()).isNull();
+        } finally {
+            full.close();
+            metadata.close();
+        }
+    }
+
+    @Test
+    public void testNarrowestInferredTypes() {
+        SchemaExporter exporter = SchemaExporter.getExporterForDialect(SchemaExporter.DIALECT_POSTGRES, "s",
+                SchemaExporter.ENGINE_INNODB, SchemaExporter.CHARSET_LATIN1, SchemaExporter.COLLATION_LATIN1_BIN);
+        Column number = new Column(1, "n", "", "", Number.class, 8);
+        Column string = new Column(2, "s", "", "", String.class, 200);
+
+        assertThat(exporter.getDatabaseType(number, profile(true, 1.0, -32768.0, 32767L))).isEqualTo("smallint");
+        assertThat(exporter.getDatabaseType(number, profile(true, 40000.0, null))).isEqualTo("integer");
+        assertThat(exporter.getDatabaseType(number, profile(true, 1e12, 3L))).isEqualTo("bigint");
+        assertThat(exporter.getDatabaseType(number, profile(true, 123.45, -1.5, 7L))).isEqualTo("numeric(5,2)");
+        assertThat(exporter.getDatabaseType(number, profile(true, 0.1234567890123, 123456.0)))
+                .isEqualTo("double precision");
+        assertThat(exporter.getDatabaseType(string, profile(true, "ab ", "abc", null))).isEqualTo("varchar(3)");
+        assertThat(exporter.getDatabaseType(string, profile(true, (Object) null))).isEqualTo("varchar(200)");
+        assertThat(exporter.getDatabaseType(string, profile(true, "  ab", "c\t\0 "))).isEqualTo("varchar(4)");
+        assertThat(exporter.getDatabaseType(number, null)).isEqualTo("numeric(18,6)");
+
+        Column integer = new Column(3, "i", "", "", Number.class, 2);
+        assertThat(exporter.getDatabaseType(number, profile(false, 1.0, 7L))).isEqualTo("double precision");
+        assertThat(exporter.getDatabaseType(number, profile(false, 123.45))).isEqualTo("double precision");
+        assertThat(exporter.getDatabaseType(integer, profile(false, 1.0, 7L))).isEqualTo("integer");
+        assertThat(exporter.getDatabaseType(integer, profile(false, 1e12))).isEqualTo("bigint");
+        assertThat(exporter.getDatabaseType(integer, profile(false, 1.5))).isEqualTo("double precision");
+        assertThat(exporter.getDatabaseType(string, profile(false, "ab"))).isEqualTo("varchar(200)");
+
+        assertThat(exporter.getNullConstraint(profile(true, 1.0))).isEqualTo(" NOT NULL");
+        assertThat(exporter.getNullConstraint(profile(true, 1.0, null))).isEqualTo(" NULL DEFAULT NULL");
+        assertThat(exporter.getNullConstraint(profile(false, 1.0))).isEqualTo(" NULL DEFAULT NULL");
+    }
+
+    @Test
+    public void testInferredTypesFromData() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        InputStream is = getResourceAsStream("sas7bdat//int_only.sas7bdat");
+        try {
+            Files.copy(is, new File(folder, "int_only.sas7bdat").toPath());
+        } finally {
+            is.close();
+        }
+        SchemaExporter exporter = SchemaExporter.getExporterForDialect(SchemaExporter.DIALECT_MYSQL, "s",
+                SchemaExporter.ENGINE_INNODB, SchemaExporter.CHARSET_LATIN1, SchemaExporter.COLLATION_LATIN1_BIN);
+        StringWriter metadataOnly = new StringWriter();
+        exporter.exportSchema(folder.getPath(), metadataOnly, 2);
+        exporter.setProfiler(new ColumnProfiler(0));
+        StringWriter inferred = new StringWriter();
+        exporter.exportSchema(folder.getPath(), inferred, 2);
+
+        assertThat(metadataOnly.toString()).contains("decimal(18,6)");
+        assertThat(inferred.toString()).excludes("decimal(18,6)");
+        assertThat(inferred.toString()).contains("int");
+    }
+
+    private static ColumnProfile profile(boolean complete, Object... values) {
+        ColumnProfile profile = new ColumnProfile();
+        for (Object value : values) {
+            profile.add(value);
+        }
+        profile.setComplete(complete);
+        return profile;
+    }
+
+    @Test
+    public void testParallelExportIsInFileOrder() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        for (String fileName : FILE_NAMES) {
+            InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+            try {
+                Files.copy(is, new File(folder, fileName + ".sas7bdat").toPath());
+            } finally {
+                is.close();
+            }
+        }
+        SchemaExporter exporter = SchemaExporter.getExporterForDialect(SchemaExporter.DIALECT_POSTGRES, "s",
+                SchemaExporter.ENGINE_INNODB, SchemaExporter.CHARSET_LATIN1, SchemaExporter.COLLATION_LATIN1_BIN);
+
+        StringWriter sequential = new StringWriter();
+        exporter.exportSchema(folder.getPath(), sequential, 1);
+        StringWriter parallel = new StringWriter();
+        exporter.exportSchema(folder.getPath(), parallel, 4);
+        StringBuffer buffer = new StringBuffer();
+        exporter.exportSchema(folder.getPath(), buffer);
+
+        assertThat(parallel.toString()).isEqualTo(sequential.toString());
+        assertThat(buffer.toString()).isEqualTo(sequential.toString());
+        String script = sequential.toString();
+        assertThat(script).startsWith("CREATE DATABASE \"s\"");
+        int previous = -1;
+        for (String fileName : new String[]{"all_rand_normal", "doubles", "extend_yes", "int_only",
+                "mix_and_missing", "mix_data_misc", "mix_data_with_longchar", "only_datetime"}) {
+            int index = script.indexOf("CREATE TABLE \"" + fileName + "\"");
+            assertThat(index).isGreaterThan(previous);
+            previous = index;
+        }
+    }
+}
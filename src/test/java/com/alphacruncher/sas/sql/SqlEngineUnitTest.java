@@ -0,0 +1,404 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.alphacruncher.sas.sql;
+
+import com.epam.parso.Column;
+import com.epam.parso.SasFileGenerator;
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.ColumnChunkCache;
+import com.epam.parso.impl.ColumnarSnapshot;
+import com.epam.parso.impl.DatabaseColumnType;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Delta.delta;
+import static org.junit.Assert.fail;
+
+public class SqlEngineUnitTest {
+    private static final int ROWS = 3000;
+    private static final int AMOUNT = 0;
+    private static final int DAY = 1;
+    private static final int STAMP = 2;
+    private static final int NAME = 3;
+    private static final int CODE = 4;
+    private static final double DAY_1990 = 10958;
+    private static final double DAY_2001 = 14976;
+    private static final double STAMP_1965 = 1827 * 86400.0 + 43200;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SasFileGenerator generator;
+    private Path file;
+
+    private interface RowPredicate {
+        boolean test(Object[] row);
+    }
+
+    @Before
+    public void writeFile() throws IOException {
+        generator = new SasFileGenerator.Builder().rowCount(ROWS).missingRate(0.2).pageLength(4096)
+                .numberColumn("amount", "").numberColumn("day", "DATE").numberColumn("stamp", "DATETIME")
+                .stringColumn("name", 6).stringColumn("code", 2).build();
+        file = temporaryFolder.newFile("claims.sas7bdat").toPath();
+        generator.write(file);
+    }
+
+    @Test
+    public void testParse() {
+        SqlQuery query = SqlQuery.parse("select Name, \"code\" from '/data/claims.sas7bdat' where not amount < 1 "
+                + "limit 5;");
+        assertThat(query.getColumns()).containsExactly("Name", "code");
+        assertThat(query.getFrom()).isEqualTo("/data/claims.sas7bdat");
+        assertThat(query.getLimit()).isEqualTo(5L);
+        assertThat(SqlQuery.parse("SELECT * FROM claims.sas7bdat").getLimit()).isEqualTo(SqlQuery.NO_LIMIT);
+        assertThat(SqlQuery.parse("SELECT * FROM claims.sas7bdat").getColumns()).isEmpty();
+        assertThat(query.isAggregate()).isFalse();
+        SqlQuery grouped = SqlQuery.parse("SELECT code AS c, count(*), AVG(amount) FROM f GROUP BY Code, name");
+        assertThat(grouped.isAggregate()).isTrue();
+        assertThat(grouped.getColumns()).containsExactly("code");
+        assertThat(grouped.getGroupBy()).containsExactly("Code", "name");
+        assertThat(SqlQuery.parse("SELECT MAX(amount) FROM f").isAggregate()).isTrue();
+        for (String invalid : new String[]{"SELECT FROM f", "SELECT a FROM 'f", "SELECT a FROM f WHERE a = NULL",
+                "SELECT a FROM f WHERE a =", "SELECT a FROM f LIMIT -1", "SELECT a FROM f WHERE (a > 1",
+                "SELECT a FROM f WHERE DATE 'x' < a", "SELECT a FROM f extra", "SELECT * FROM f GROUP BY a",
+                "SELECT a, COUNT(*) FROM f", "SELECT a FROM f GROUP BY b", "SELECT FOO(a) FROM f",
+                "SELECT SUM(*) FROM f", "SELECT COUNT(a FROM f", "SELECT a FROM f GROUP a"}) {
+            try {
+                SqlQuery.parse(invalid);
+                fail(invalid);
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).isNotEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void testFiltersMatchTheRows() throws IOException {
+        assertQuery("SELECT name, amount FROM f WHERE amount > 1000 AND NOT (code LIKE 'A%' OR name IS NULL)",
+                new int[]{NAME, AMOUNT}, Long.MAX_VALUE, new RowPredicate() {
+                    @Override
+                    public boolean test(Object[] row) {
+                        return row[AMOUNT] != null && (Double) row[AMOUNT] > 1000 && row[CODE] != null
+                                && !((String) row[CODE]).startsWith("A") && row[NAME] != null;
+                    }
+                });
+        assertQuery("SELECT * FROM f WHERE day BETWEEN DATE '1990-01-01' AND DATE '2000-12-31' "
+                        + "OR stamp < TIMESTAMP '1965-01-01 12:00:00'",
+                new int[]{AMOUNT, DAY, STAMP, NAME, CODE}, Long.MAX_VALUE, new RowPredicate() {
+                    @Override
+                    public boolean test(Object[] row) {
+                        return row[DAY] != null && (Double) row[DAY] >= DAY_1990 && (Double) row[DAY] < DAY_2001
+                                || row[STAMP] != null && (Double) row[STAMP] < STAMP_1965;
+                    }
+                });
+        assertQuery("SELECT code, Amount FROM f WHERE code IN ('AB', 'x') OR amount NOT IN (0, 1.5) "
+                        + "AND amount NOT BETWEEN -1000 AND 1000 LIMIT 50",
+                new int[]{CODE, AMOUNT}, 50, new RowPredicate() {
+                    @Override
+                    public boolean test(Object[] row) {
+                        Double amount = (Double) row[AMOUNT];
+                        return "AB".equals(row[CODE]) || "x".equals(row[CODE])
+                                || amount != null && (amount < -1000 || amount > 1000);
+                    }
+                });
+        assertQuery("SELECT amount FROM f WHERE NOT NOT NOT (amount <= 0 AND name >= 'M') LIMIT 0",
+                new int[]{AMOUNT}, 0, null);
+        assertQuery("SELECT stamp FROM f WHERE NOT (amount <= 0 AND name >= 'M')", new int[]{STAMP},
+                Long.MAX_VALUE, new RowPredicate() {
+                    @Override
+                    public boolean test(Object[] row) {
+                        return row[AMOUNT] != null && (Double) row[AMOUNT] > 0
+                                || row[NAME] != null && ((String) row[NAME]).compareTo("M") < 0;
+                    }
+                });
+        assertQuery("SELECT day, code FROM f LIMIT 7", new int[]{DAY, CODE}, 7, null);
+    }
+
+    @Test
+    public void testInvalidColumns() throws IOException {
+        for (String invalid : new String[]{"SELECT missing FROM f", "SELECT * FROM f WHERE name > 5",
+                "SELECT * FROM f WHERE amount = 'a'", "SELECT * FROM f WHERE day < TIME '10:00:00'",
+                "SELECT * FROM f WHERE amount LIKE '1%'", "SELECT SUM(name) FROM f",
+                "SELECT MIN(code), code FROM f GROUP BY missing"}) {
+            try (InputStream is = Files.newInputStream(file)) {
+                new SqlEngine().execute(SqlQuery.parse(invalid), new SasFileReaderImpl(is), new StringWriter());
+                fail(invalid);
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).isNotEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void testAggregatesMatchTheRows() throws IOException {
+        Map<String, Object[]> expected = new HashMap<String, Object[]>();
+        Map<String, Set<String>> names = new HashMap<String, Set<String>>();
+        for (int row = 0; row < ROWS; row++) {
+            Double amount = (Double) generator.getValue(row, AMOUNT);
+            if (amount == null || amount <= -500) {
+                continue;
+            }
+            String code = (String) generator.getValue(row, CODE);
+            Object[] group = expected.get(code);
+            if (group == null) {
+                group = new Object[]{code, 0L, 0.0, Double.NaN, Double.NaN};
+                expected.put(code, group);
+                names.put(code, new HashSet<String>());
+            }
+            group[1] = (Long) group[1] + 1;
+            group[2] = (Double) group[2] + amount;
+            Double day = (Double) generator.getValue(row, DAY);
+            if (day != null && !(day >= (Double) group[3])) {
+                group[3] = day;
+            }
+            Double stamp = (Double) generator.getValue(row, STAMP);
+            if (stamp != null && !(stamp <= (Double) group[4])) {
+                group[4] = stamp;
+            }
+            if (generator.getValue(row, NAME) != null) {
+                names.get(code).add((String) generator.getValue(row, NAME));
+            }
+        }
+        String sql = "SELECT COUNT(DISTINCT name), code AS c, COUNT(*), SUM(amount) AS total, AVG(amount), "
+                + "MIN(day), max(stamp) FROM '" + file + "' WHERE amount > -500 GROUP BY code";
+        for (int threads : new int[]{1, 3}) {
+            for (long budget : new long[]{SqlEngine.DEFAULT_MEMORY_BUDGET, 1}) {
+                Path spills = temporaryFolder.newFolder().toPath();
+                SqlEngine engine = new SqlEngine();
+                engine.setThreads(threads);
+                engine.setMemoryBudget(budget);
+                engine.setTempDirectory(spills);
+                engine.setBatchSize(100);
+                SqlResult result = engine.query(sql);
+                assertThat(Files.list(spills).count()).isEqualTo(0L);
+                List<String> columnNames = new ArrayList<String>();
+                for (Column column : result.getColumns()) {
+                    columnNames.add(column.getName());
+                }
+                assertThat(columnNames).containsExactly("count_distinct_name", "c", "count", "total", "mean_amount",
+                        "min_day", "max_stamp");
+                assertThat(result.getRows().size()).isEqualTo(expected.size());
+                for (Object[] row : result.getRows()) {
+                    Object[] group = expected.get(row[1]);
+                    String context = threads + " threads, budget " + budget + ", code " + row[1];
+                    assertThat(row[0]).as(context).isEqualTo((long) names.get(row[1]).size());
+                    assertThat(row[2]).as(context).isEqualTo(group[1]);
+                    double sum = (Double) group[2];
+                    assertThat(((Number) row[3]).doubleValue()).as(context).isEqualTo(sum, delta(tolerance(sum)));
+                    assertThat(((Number) row[4]).doubleValue()).as(context).isEqualTo(sum / (Long) group[1],
+                            delta(tolerance(sum)));
+                    assertThat(row[5]).as(context).isEqualTo(ColumnBatch.toValue((Double) group[3],
+                            DatabaseColumnType.DATE));
+                    assertThat(row[6]).as(context).isEqualTo(ColumnBatch.toValue((Double) group[4],
+                            DatabaseColumnType.DATETIME));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMergeSplitsPartitionsOverTheBudget() throws IOException {
+        int rows = 20000;
+        long budget = 4096;
+        SasFileGenerator keys = new SasFileGenerator.Builder().rowCount(rows).numberColumn("key", "").build();
+        Path keyFile = temporaryFolder.newFile("keys.sas7bdat").toPath();
+        keys.write(keyFile);
+        Map<Double, Long> expected = new HashMap<Double, Long>();
+        for (int row = 0; row < rows; row++) {
+            Double key = (Double) keys.getValue(row, 0);
+            expected.put(key, expected.containsKey(key) ? expected.get(key) + 1 : 1L);
+        }
+        assertThat(8L * expected.size()).isGreaterThan(2 * budget * GroupTable.PARTITIONS);
+
+        Path spills = temporaryFolder.newFolder().toPath();
+        Aggregator aggregator = new Aggregator(SqlQuery.parse("SELECT key, COUNT(*) FROM f GROUP BY key"),
+                keys.getColumns());
+        final Map<Double, Long> actual = new HashMap<Double, Long>();
+        List<Aggregator.Partial> partials = new ArrayList<Aggregator.Partial>();
+        try (InputStream is = Files.newInputStream(keyFile)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            reader.setProjection(aggregator.getUsedColumns());
+            partials.add(aggregator.aggregate(new ReaderColumnBatch(reader, 100, Long.MAX_VALUE), budget, spills));
+            long emitted = aggregator.emit(partials, SqlQuery.NO_LIMIT, new RowSink() {
+                @Override
+                public void start(List<Column> columns) {
+                }
+
+                @Override
+                public void accept(Object[] row) {
+                    actual.put(((Number) row[0]).doubleValue(), (Long) row[1]);
+                }
+            }, budget, spills);
+            assertThat(emitted).isEqualTo(expected.size());
+        } finally {
+            for (Aggregator.Partial partial : partials) {
+                Aggregator.delete(partial);
+            }
+        }
+        assertThat(actual).isEqualTo(expected);
+        assertThat(partials.get(0).getSpills().size()).isGreaterThan(1);
+        assertThat(aggregator.getMergedBytes()).isLessThanOrEqualTo(4 * budget);
+        assertThat(Files.list(spills).count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testAggregatesOfNoRowsAndLimits() throws IOException {
+        SqlEngine engine = new SqlEngine();
+        SqlResult empty = engine.query("SELECT COUNT(*) AS n, MAX(amount), SUM(amount) FROM '" + file
+                + "' WHERE amount > 1e300");
+        assertThat(empty.getRows().size()).isEqualTo(1);
+        assertThat(empty.getRows().get(0)).isEqualTo(new Object[]{0L, null, null});
+        assertThat(engine.query("SELECT COUNT(*) FROM '" + file + "'").getRows().get(0)).isEqualTo(
+                new Object[]{(long) ROWS});
+        assertThat(engine.query("SELECT code, day FROM '" + file + "' GROUP BY code, day LIMIT 5").getRows().size())
+                .isEqualTo(5);
+        StringWriter csv = new StringWriter();
+        assertThat(engine.execute("SELECT code, COUNT(*) FROM '" + file + "' GROUP BY code LIMIT 0", csv))
+                .isEqualTo(0L);
+        assertThat(csv.toString().trim()).isEqualTo("code,count");
+        try (InputStream is = Files.newInputStream(file)) {
+            SqlResult all = engine.query(SqlQuery.parse("SELECT COUNT(code) AS codes FROM ignored"),
+                    new SasFileReaderImpl(is));
+            long codes = 0;
+            for (int row = 0; row < ROWS; row++) {
+                codes += generator.getValue(row, CODE) == null ? 0 : 1;
+            }
+            assertThat(all.getRows().get(0)).isEqualTo(new Object[]{codes});
+        }
+    }
+
+    @Test
+    public void testColumnCacheServesRepeatedQueries() throws IOException {
+        ColumnChunkCache cache = new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 2);
+        SqlEngine cached = new SqlEngine();
+        cached.setColumnCache(cache);
+        cached.setBatchSize(100);
+        SqlEngine uncached = new SqlEngine();
+        String[] queries = {"SELECT * FROM '" + file + "'",
+                "SELECT name, day, stamp FROM '" + file + "' WHERE amount > 0 AND code LIKE 'A%' LIMIT 20",
+                "SELECT code, COUNT(*), SUM(amount), MIN(day), MAX(stamp) FROM '" + file + "' GROUP BY code",
+                "SELECT COUNT(*) FROM '" + file + "'"};
+        for (String sql : queries) {
+            List<Object[]> expected = uncached.query(sql).getRows();
+            assertRows(sql, cached.query(sql).getRows(), expected);
+            long misses = cache.getMisses();
+            long hits = cache.getHits();
+            assertRows(sql, cached.query(sql).getRows(), expected);
+            assertThat(cache.getMisses()).as(sql).isEqualTo(misses);
+            if (!sql.startsWith("SELECT COUNT(*)")) {
+                assertThat(cache.getHits()).as(sql).isGreaterThan(hits);
+            }
+        }
+        assertThat(cache.getMisses()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testColumnCacheStopsAtTheLimit() throws IOException {
+        ColumnChunkCache cache = new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 1);
+        SqlEngine cached = new SqlEngine();
+        cached.setColumnCache(cache);
+        cached.setBatchSize(10);
+        String sql = "SELECT name, amount, code FROM '" + file + "' LIMIT 10";
+        assertRows(sql, cached.query(sql).getRows(), new SqlEngine().query(sql).getRows());
+        assertThat(cache.getChunkCount(file)).isGreaterThan(4);
+        assertThat(cache.getMisses()).isLessThanOrEqualTo(2 * 3);
+    }
+
+    @Test
+    public void testSnapshotServesQueries() throws IOException {
+        SqlEngine snapshots = new SqlEngine();
+        snapshots.setSnapshots(true);
+        snapshots.setBatchSize(100);
+        SqlEngine plain = new SqlEngine();
+        String[] queries = {"SELECT * FROM '" + file + "'",
+                "SELECT name, day, stamp FROM '" + file + "' WHERE amount > 0 AND code LIKE 'A%' LIMIT 20",
+                "SELECT code, COUNT(*), SUM(amount), MIN(day), MAX(stamp) FROM '" + file + "' GROUP BY code"};
+        for (String sql : queries) {
+            assertRows(sql, snapshots.query(sql).getRows(), plain.query(sql).getRows());
+        }
+        assertThat(ColumnarSnapshot.isCurrent(file)).isTrue();
+    }
+
+    private static void assertRows(String sql, List<Object[]> actual, List<Object[]> expected) {
+        assertThat(actual.size()).as(sql).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).as(sql + " row " + i).isEqualTo(expected.get(i));
+        }
+    }
+
+    private static double tolerance(double expected) {
+        return Math.abs(expected) * 1e-9 + 1e-6;
+    }
+
+    private void assertQuery(String sql, int[] columns, long limit, RowPredicate predicate) throws IOException {
+        for (int batchSize : new int[]{1, 100, SqlEngine.DEFAULT_BATCH_SIZE}) {
+            StringWriter expected = new StringWriter();
+            long expectedRows = 0;
+            try (InputStream is = Files.newInputStream(file)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                List<Column> selected = new ArrayList<Column>();
+                for (int column : columns) {
+                    selected.add(reader.getColumns().get(column));
+                }
+                CSVDataWriterImpl writer = new CSVDataWriterImpl(expected);
+                writer.writeColumnNames(selected);
+                Object[] raw = new Object[generator.getColumns().size()];
+                for (int row = 0; row < ROWS && expectedRows < limit; row++) {
+                    Object[] values = reader.readNext();
+                    for (int column = 0; column < raw.length; column++) {
+                        raw[column] = generator.getValue(row, column);
+                    }
+                    if (predicate == null || predicate.test(raw)) {
+                        Object[] result = new Object[columns.length];
+                        for (int i = 0; i < columns.length; i++) {
+                            result[i] = values[columns[i]];
+                        }
+                        writer.writeRow(selected, result);
+                        expectedRows++;
+                    }
+                }
+            }
+            assertThat(expectedRows).as(sql).isGreaterThan(limit == 0 ? -1 : 0);
+
+            StringWriter actual = new StringWriter();
+            SqlEngine engine = new SqlEngine();
+            engine.setBatchSize(batchSize);
+            try (InputStream is = Files.newInputStream(file)) {
+                assertThat(engine.execute(SqlQuery.parse(sql), new SasFileReaderImpl(is), actual)).as(sql)
+                        .isEqualTo(expectedRows);
+            }
+            assertThat(actual.toString()).as(sql + " batch " + batchSize).isEqualTo(expected.toString());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.AvroDataWriterImpl;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AvroDataWriterUnitTest {
+    private static final long SAS_TO_JAVA_DAYS = 3653;
+    private static final long MICROSECONDS_IN_DAY = 86400L * 1000000;
+    private static final char[] TYPES = {'d', 'a', 't', 'm', 's', 's'};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testConvertedAndRawRows() throws IOException, DataFormatException {
+        SasFileGenerator generator = new SasFileGenerator.Builder().rowCount(5000).missingRate(0.2)
+                .numberColumn("amount", "").numberColumn("day", "DATE9.").numberColumn("stamp", "DATETIME20.")
+                .numberColumn("clock", "TIME8.").stringColumn("name", 30).stringColumn("code", 3).build();
+        Path file = temporaryFolder.newFile("avro.sas7bdat").toPath();
+        generator.write(file);
+        for (String codec : new String[]{AvroDataWriterImpl.NULL_CODEC, AvroDataWriterImpl.DEFLATE_CODEC}) {
+            for (boolean raw : new boolean[]{false, true}) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (InputStream is = Files.newInputStream(file)) {
+                    SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                    try (AvroDataWriter writer = new AvroDataWriterImpl.Builder(bytes, reader.getColumns())
+                            .codec(codec).blockSize(4096).threads(3).build()) {
+                        for (Object[] row = raw ? reader.readNextRaw() : reader.readNext(); row != null;
+                             row = raw ? reader.readNextRaw() : reader.readNext()) {
+                            writer.writeRow(row);
+                        }
+                        assertThat(writer.getRowCount()).isEqualTo(5000);
+                    }
+                }
+                Container container = new Container(bytes.toByteArray());
+                assertThat(container.metadata.get("avro.codec")).isEqualTo(codec);
+                assertThat(container.blocks).isGreaterThan(10);
+                assertThat(container.records.size()).isEqualTo(5000);
+                for (int row = 0; row < 5000; row++) {
+                    for (int column = 0; column < TYPES.length; column++) {
+                        assertThat(container.records.get(row)[column])
+                                .isEqualTo(expected(generator.getValue(row, column), TYPES[column]));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSchema() throws IOException, DataFormatException {
+        List<Column> columns = Arrays.asList(
+                new Column(1, "1st col", "A \"quoted\" label", "", Number.class, 8),
+                new Column(2, "1st-col", "", "YYMMDD10.", Number.class, 8),
+                new Column(3, "flag", null, "", Number.class, 2),
+                new Column(4, "when", null, "DATETIME20.", Number.class, 8),
+                new Column(5, "text", null, "", String.class, 10));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AvroDataWriter writer = new AvroDataWriterImpl.Builder(bytes, columns).name("my file").threads(1).build();
+        writer.writeRow(new Object[]{1.5, null, 7L, null, "été"});
+        writer.close();
+        assertThat(writer.getSchema()).isEqualTo("{\"type\":\"record\",\"name\":\"my_file\",\"fields\":["
+                + "{\"name\":\"_1st_col\",\"type\":[\"null\",\"double\"],\"default\":null,"
+                + "\"doc\":\"A \\\"quoted\\\" label\"},"
+                + "{\"name\":\"_1st_col_1\",\"type\":[\"null\",{\"type\":\"int\",\"logicalType\":\"date\"}],"
+                + "\"default\":null},"
+                + "{\"name\":\"flag\",\"type\":[\"null\",\"int\"],\"default\":null},"
+                + "{\"name\":\"when\",\"type\":[\"null\",{\"type\":\"long\",\"logicalType\":\"timestamp-micros\"}],"
+                + "\"default\":null},"
+                + "{\"name\":\"text\",\"type\":[\"null\",\"string\"],\"default\":null}]}");
+        Container container = new Container(bytes.toByteArray());
+        assertThat(container.metadata.get("avro.schema")).isEqualTo(writer.getSchema());
+        assertThat(container.metadata.get("avro.codec")).isEqualTo(AvroDataWriterImpl.DEFLATE_CODEC);
+        container.decode(new char[]{'d', 'a', 'i', 't', 's'});
+        assertThat(container.records.get(0)).isEqualTo(new Object[]{1.5, null, 7L, null, "été"});
+    }
+
+    @Test
+    public void testEmptyFileAndInvalidSettings() throws IOException, DataFormatException {
+        List<Column> columns = Collections.singletonList(new Column(1, "x", null, "", Number.class, 8));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new AvroDataWriterImpl.Builder(bytes, columns).codec(AvroDataWriterImpl.NULL_CODEC).build().close();
+        Container container = new Container(bytes.toByteArray());
+        assertThat(container.blocks).isEqualTo(0);
+        for (String codec : new String[]{"snappy", "zstandard", "lz4"}) {
+            try {
+                new AvroDataWriterImpl.Builder(bytes, columns).codec(codec).build();
+                throw new AssertionError("The codec " + codec + " is not supported");
+            } catch (IllegalArgumentException expected) {
+                assertThat(expected.getMessage()).contains(codec);
+            }
+        }
+    }
+
+    private static Object expected(Object generated, char type) {
+        if (generated == null) {
+            return null;
+        }
+        switch (type) {
+            case 'a':
+                return (long) Math.floor((Double) generated) - SAS_TO_JAVA_DAYS;
+            case 't':
+                return Math.round((Double) generated * 1000000) - SAS_TO_JAVA_DAYS * MICROSECONDS_IN_DAY;
+            case 'm':
+                return Math.floorMod(Math.round((Double) generated * 1000000), MICROSECONDS_IN_DAY);
+            default:
+                return generated;
+        }
+    }
+
+    /**
+     * A minimal reader of Avro object container files with nullable unions of primitive types.
+     */
+    private static final class Container {
+        private final Map<String, String> metadata = new LinkedHashMap<String, String>();
+        private final List<byte[]> data = new ArrayList<byte[]>();
+        private final List<Object[]> records = new ArrayList<Object[]>();
+        private int blocks;
+        private long count;
+
+        Container(byte[] file) throws DataFormatException {
+            ByteBuffer buffer = ByteBuffer.wrap(file);
+            byte[] magic = new byte[4];
+            buffer.get(magic);
+            assertThat(magic).isEqualTo(new byte[]{'O', 'b', 'j', 1});
+            for (long entries = readLong(buffer); entries != 0; entries = readLong(buffer)) {
+                for (long i = 0; i < entries; i++) {
+                    metadata.put(readString(buffer), readString(buffer));
+                }
+            }
+            byte[] sync = new byte[16];
+            buffer.get(sync);
+            while (buffer.hasRemaining()) {
+                count += readLong(buffer);
+                byte[] block = new byte[(int) readLong(buffer)];
+                buffer.get(block);
+                data.add(AvroDataWriterImpl.DEFLATE_CODEC.equals(metadata.get("avro.codec")) ? inflate(block) : block);
+                byte[] blockSync = new byte[16];
+                buffer.get(blockSync);
+                assertThat(blockSync).isEqualTo(sync);
+                blocks++;
+            }
+            if (metadata.get("avro.schema").contains("\"name\":\"clock\"")) {
+                decode(TYPES);
+            }
+        }
+
+        void decode(char[] types) {
+            for (byte[] block : data) {
+                ByteBuffer buffer = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+                while (buffer.hasRemaining()) {
+                    Object[] record = new Object[types.length];
+                    for (int i = 0; i < types.length; i++) {
+                        long branch = readLong(buffer);
+                        if (branch == 1) {
+                            record[i] = types[i] == 's' ? readString(buffer)
+                                    : types[i] == 'd' ? (Object) buffer.getDouble() : (Object) readLong(buffer);
+                        } else {
+                            assertThat(branch).isEqualTo(0);
+                        }
+                    }
+                    records.add(record);
+                }
+            }
+            assertThat((long) records.size()).isEqualTo(count);
+        }
+
+        private static byte[] inflate(byte[] block) throws DataFormatException {
+            Inflater inflater = new Inflater(true);
+            inflater.setInput(block);
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                result.write(chunk, 0, inflater.inflate(chunk));
+            }
+            inflater.end();
+            return result.toByteArray();
+        }
+
+        private static long readLong(ByteBuffer buffer) {
+            long n = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = buffer.get() & 0xFF;
+                n |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[(int) readLong(buffer)];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.ColumnChunk;
+import com.epam.parso.impl.ColumnChunkCache;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ColumnChunkCacheUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testChunksMatchRows() throws IOException {
+        for (String fileName : Arrays.asList("mix_data_misc", "extend_yes", "charset_utf8")) {
+            Path file = copy(fileName, temporaryFolder.newFile(fileName + ".sas7bdat").toPath());
+            List<Object[]> rows = readRows(fileName);
+            ColumnChunkCache cache = new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 16);
+            int columnCount = rows.get(0).length;
+            for (int column = 0; column < columnCount; column++) {
+                assertColumn(rows, column, cache.getColumn(file, column));
+                assertColumn(rows, column, cache.getColumn(file, column));
+            }
+            assertThat(cache.getHits()).isEqualTo(cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testRepeatedReadsHitTheCache() throws IOException {
+        Path file = copy("mix_data_misc", temporaryFolder.newFile("m.sas7bdat").toPath());
+        ColumnChunkCache cache = new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 16);
+        List<ColumnChunk> chunks = cache.getColumn(file, 0);
+        assertThat(chunks.size()).isGreaterThan(1);
+        assertThat(cache.getMisses()).isEqualTo(chunks.size());
+        assertThat(cache.getColumn(file, 0).get(1)).isSameAs(chunks.get(1));
+        assertThat(cache.getHits()).isEqualTo(chunks.size());
+        assertThat(cache.getSize()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testChunkOfSeveralColumns() throws IOException {
+        Path file = copy("mix_data_misc", temporaryFolder.newFile("m.sas7bdat").toPath());
+        List<Object[]> rows = readRows("mix_data_misc");
+        ColumnChunkCache cache = new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 16);
+        int chunkCount = cache.getChunkCount(file);
+        assertThat(chunkCount).isGreaterThan(2);
+        int[] columns = {0, 2, 3};
+        ColumnChunk[] chunks = cache.getChunk(file, 2, columns);
+        assertThat(cache.getMisses()).isEqualTo(3 * columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            assertChunk(rows, columns[i], chunks[i]);
+        }
+        cache.getChunk(file, 2, 0, 1);
+        assertThat(cache.getMisses()).isEqualTo(3 * columns.length + 1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        for (int column : columns) {
+            assertColumn(rows, column, cache.getColumn(file, column));
+        }
+    }
+
+    @Test
+    public void testEvictionUnderBudget() throws IOException {
+        Path file = copy("mix_data_misc", temporaryFolder.newFile("m.sas7bdat").toPath());
+        List<Object[]> rows = readRows("mix_data_misc");
+        long columnSize = 0;
+        for (ColumnChunk chunk : new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 16).getColumn(file, 0)) {
+            columnSize += chunk.getSizeInBytes();
+        }
+        ColumnChunkCache cache = new ColumnChunkCache(columnSize / 2, 16);
+        cache.getColumn(file, 0);
+        assertThat(cache.getEvictions()).isGreaterThan(0);
+        assertThat(cache.getSize()).isLessThanOrEqualTo(columnSize / 2);
+        long misses = cache.getMisses();
+        assertColumn(rows, 0, cache.getColumn(file, 0));
+        assertThat(cache.getMisses()).isGreaterThan(misses);
+        assertThat(cache.getHits()).isGreaterThan(0);
+        assertThat(cache.getSize()).isLessThanOrEqualTo(columnSize / 2);
+    }
+
+    @Test
+    public void testRewrittenFileIsNotServedFromCache() throws IOException {
+        Path file = copy("all_rand_normal", temporaryFolder.newFile("r.sas7bdat").toPath());
+        ColumnChunkCache cache = new ColumnChunkCache(ColumnChunkCache.DEFAULT_CAPACITY, 16);
+        cache.getColumn(file, 0);
+        copy("mix_data_misc", file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+        assertColumn(readRows("mix_data_misc"), 0, cache.getColumn(file, 0));
+        assertThat(cache.getHits()).isEqualTo(0);
+    }
+
+    private static void assertColumn(List<Object[]> rows, int column, List<ColumnChunk> chunks) {
+        int row = 0;
+        for (ColumnChunk chunk : chunks) {
+            assertThat(chunk.getFirstRow()).isEqualTo(row);
+            assertChunk(rows, column, chunk);
+            row += chunk.getRowCount();
+        }
+        assertThat(row).isEqualTo(rows.size());
+    }
+
+    private static void assertChunk(List<Object[]> rows, int column, ColumnChunk chunk) {
+        for (int i = 0; i < chunk.getRowCount(); i++) {
+            Object expected = rows.get((int) chunk.getFirstRow() + i)[column];
+            if (chunk.isNumeric()) {
+                if (expected == null) {
+                    assertThat(chunk.isNull(i)).isTrue();
+                } else {
+                    assertThat(chunk.getDouble(i)).isEqualTo(((Number) expected).doubleValue());
+                }
+            } else {
+                assertThat(chunk.getBytes(i)).isEqualTo((byte[]) expected);
+            }
+        }
+    }
+
+    private static List<Object[]> readRows(String fileName) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is, true);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNextRaw(); row != null; row = reader.readNextRaw()) {
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+
+    private static Path copy(String fileName, Path target) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.ColumnChunk;
+import com.epam.parso.impl.ColumnarSnapshot;
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SasFileWriterImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ColumnarSnapshotUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRowsMatchReader() throws IOException {
+        for (String fileName : Arrays.asList("mix_data_misc", "extend_yes", "charset_utf8", "all_rand_normal",
+                "tmp868_14")) {
+            Path file = copy(fileName, temporaryFolder.newFile(fileName + ".sas7bdat").toPath());
+            assertSnapshot(file);
+        }
+    }
+
+    @Test
+    public void testGeneratedFileWithSeveralChunks() throws IOException {
+        Path file = temporaryFolder.newFile("wide.sas7bdat").toPath();
+        new SasFileGenerator.Builder().compression(SasFileWriterImpl.CHAR_COMPRESSION).rowCount(2500)
+                .missingRate(0.9).numberColumn("day", "DATE9.").numberColumn("stamp", "DATETIME20.")
+                .columns(2, 1, 32000).build().write(file);
+        ColumnarSnapshot snapshot = assertSnapshot(file);
+        assertThat(snapshot.getColumn(0).size()).isGreaterThan(1);
+        assertThat(snapshot.getChunkCount()).isEqualTo(snapshot.getColumn(0).size());
+        ColumnChunk[] chunk = snapshot.getChunk(1, 2, 0);
+        assertThat(chunk[0].getFirstRow()).isEqualTo(snapshot.getColumn(2).get(1).getFirstRow());
+        assertThat(chunk[0].getDouble(0)).isEqualTo(snapshot.getColumn(2).get(1).getDouble(0));
+        assertThat(chunk[1].getRowCount()).isEqualTo(snapshot.getColumn(0).get(1).getRowCount());
+        assertThat(snapshot.getSasFileProperties().getCompressionMethod())
+                .isEqualTo(SasFileWriterImpl.CHAR_COMPRESSION);
+    }
+
+    @Test
+    public void testColumnsAreChunksOfRawValues() throws IOException {
+        Path file = copy("mix_data_misc", temporaryFolder.newFile("m.sas7bdat").toPath());
+        ColumnarSnapshot snapshot = ColumnarSnapshot.open(file);
+        try (InputStream is = Files.newInputStream(file)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is, true);
+            long row = 0;
+            for (Object[] values = reader.readNextRaw(); values != null; values = reader.readNextRaw(), row++) {
+                for (int column = 0; column < values.length; column++) {
+                    List<ColumnChunk> chunks = snapshot.getColumn(column);
+                    ColumnChunk chunk = chunks.get(0);
+                    assertThat(chunk.getFirstRow()).isEqualTo(0);
+                    if (chunk.isNumeric()) {
+                        assertThat(chunk.isNull((int) row)).isEqualTo(values[column] == null);
+                        if (values[column] != null) {
+                            assertThat(chunk.getDouble((int) row))
+                                    .isEqualTo(((Number) values[column]).doubleValue());
+                        }
+                    } else {
+                        assertThat(chunk.getBytes((int) row)).isEqualTo((byte[]) values[column]);
+                    }
+                }
+            }
+            assertThat((long) snapshot.getColumn(0).get(0).getRowCount()).isEqualTo(row);
+        }
+    }
+
+    @Test
+    public void testSnapshotIsReusedUntilTheFileChanges() throws IOException {
+        Path file = copy("all_rand_normal", temporaryFolder.newFile("r.sas7bdat").toPath());
+        Path snapshotPath = ColumnarSnapshot.getSnapshotPath(file);
+        assertThat(ColumnarSnapshot.isCurrent(file)).isFalse();
+        ColumnarSnapshot.open(file);
+        assertThat(Files.exists(snapshotPath)).isTrue();
+        assertThat(ColumnarSnapshot.isCurrent(file)).isTrue();
+        FileTime written = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(snapshotPath, written);
+        ColumnarSnapshot.open(file);
+        assertThat(Files.getLastModifiedTime(snapshotPath)).isEqualTo(written);
+
+        copy("mix_data_misc", file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+        assertThat(ColumnarSnapshot.isCurrent(file)).isFalse();
+        assertSnapshot(file);
+        assertThat(ColumnarSnapshot.isCurrent(file)).isTrue();
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRewritten() throws IOException {
+        Path file = copy("extend_no", temporaryFolder.newFile("e.sas7bdat").toPath());
+        Files.write(ColumnarSnapshot.getSnapshotPath(file), new byte[100]);
+        assertThat(ColumnarSnapshot.isCurrent(file)).isFalse();
+        assertSnapshot(file);
+    }
+
+    private static ColumnarSnapshot assertSnapshot(Path file) throws IOException {
+        for (boolean raw : new boolean[]{false, true}) {
+            ColumnarSnapshot snapshot = ColumnarSnapshot.open(file);
+            try (InputStream is = Files.newInputStream(file)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                assertThat(snapshot.getColumns().size()).isEqualTo(reader.getColumns().size());
+                for (int i = 0; i < snapshot.getColumns().size(); i++) {
+                    Column expected = reader.getColumns().get(i);
+                    Column actual = snapshot.getColumns().get(i);
+                    assertThat(actual.getName()).isEqualTo(expected.getName());
+                    assertThat(actual.getFormat()).isEqualTo(expected.getFormat());
+                    assertThat(actual.getLabel()).isEqualTo(expected.getLabel());
+                    assertThat(actual.getLength()).isEqualTo(expected.getLength());
+                }
+                SasFileProperties properties = reader.getSasFileProperties();
+                assertThat(snapshot.getSasFileProperties().getRowCount()).isEqualTo(properties.getRowCount());
+                assertThat(snapshot.getSasFileProperties().getName()).isEqualTo(properties.getName());
+                assertThat(snapshot.getSasFileProperties().getDateCreated()).isEqualTo(properties.getDateCreated());
+                Object[][] rows = raw ? snapshot.readAllRaw() : snapshot.readAll();
+                for (Object[] row : rows) {
+                    assertThat(row).isEqualTo(raw ? reader.readNextRaw() : reader.readNext());
+                }
+                assertThat(reader.readNext()).isNull();
+                assertThat(snapshot.readNext()).isNull();
+            }
+        }
+        return ColumnarSnapshot.open(file);
+    }
+
+    private static Path copy(String fileName, Path target) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.alphacruncher.sas.CSVExporter;
+import com.epam.parso.impl.SasFileReaderImpl;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FlightRecorderEventsUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testConversionEvents() throws IOException {
+        Path input = temporaryFolder.getRoot().toPath().resolve("mix_data_misc.sas7bdat");
+        InputStream is = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        try {
+            Files.copy(is, input, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+        Path dump = temporaryFolder.getRoot().toPath().resolve("recording.jfr");
+        Recording recording = new Recording();
+        try {
+            for (String name : new String[]{"FileOpen", "PageRead", "Decompression", "OutputWrite", "Export"}) {
+                recording.enable("com.epam.parso." + name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            new CSVExporter().export(input, temporaryFolder.getRoot().toPath().resolve("out.csv"));
+            recording.stop();
+            recording.dump(dump);
+        } finally {
+            recording.close();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Map<String, RecordedEvent> firstEvents = new HashMap<String, RecordedEvent>();
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        long decompressedRows = 0;
+        for (RecordedEvent event : events) {
+            String name = event.getEventType().getName();
+            if (!firstEvents.containsKey(name)) {
+                firstEvents.put(name, event);
+            }
+            counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+            if ("com.epam.parso.Decompression".equals(name)) {
+                decompressedRows += event.getLong("rows");
+                assertThat(event.getString("compression")).isEqualTo("SASYZCRL");
+            }
+        }
+
+        SasFileProperties properties;
+        InputStream metadata = Files.newInputStream(input);
+        try {
+            properties = SasFileReaderImpl.metadataReader(metadata).getSasFileProperties();
+        } finally {
+            metadata.close();
+        }
+        RecordedEvent fileOpen = firstEvents.get("com.epam.parso.FileOpen");
+        assertThat(fileOpen.getLong("columnCount")).isEqualTo(properties.getColumnsCount());
+        assertThat(fileOpen.getInt("pageLength")).isEqualTo(properties.getPageLength());
+        assertThat(counts.get("com.epam.parso.PageRead")).isGreaterThan(100);
+        assertThat(decompressedRows).isEqualTo(properties.getRowCount());
+        assertThat(counts.get("com.epam.parso.OutputWrite")).isGreaterThan(0);
+        long outputSize = Files.size(temporaryFolder.getRoot().toPath().resolve("out.csv"));
+        assertThat((long) counts.get("com.epam.parso.OutputWrite")).isLessThanOrEqualTo(2 * outputSize / 8192 + 1);
+        assertThat(firstEvents.get("com.epam.parso.Export").getLong("rows")).isEqualTo(properties.getRowCount());
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.JsonLinesDataWriterImpl;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JsonLinesDataWriterUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testValues() throws IOException {
+        List<Column> columns = Arrays.asList(
+                new Column(1, "amount", null, "", Number.class, 8),
+                new Column(2, "day", null, "DATE9.", Number.class, 8),
+                new Column(3, "stamp", null, "DATETIME20.", Number.class, 8),
+                new Column(4, "clock", null, "TIME8.", Number.class, 8),
+                new Column(5, "say \"hi\"", null, "", String.class, 20),
+                new Column(6, "code", null, "", String.class, 4));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonLinesDataWriter writer = new JsonLinesDataWriterImpl.Builder(bytes, columns).build()) {
+            writer.writeRowsArray(new Object[][]{
+                    {0.1, new Date(0), LocalDateTime.of(2017, 1, 18, 7, 5, 9), LocalDateTime.of(1960, 1, 1, 23, 59, 1),
+                            "a\"b\\c\nd\u0001", "ABC".getBytes(StandardCharsets.US_ASCII)},
+                    {-1234567.25, new Date(-86400000L * 3653), LocalDateTime.of(1900, 12, 31, 0, 0, 0, 125000000),
+                            null, "été 😀", "a\"b".getBytes(StandardCharsets.US_ASCII)},
+                    {42L, null, null, null, null, null},
+                    {Double.NaN, 0.0, 1.0e20, 45296.5, "", null},
+                    null});
+            writer.writeRow(new Object[]{1.0 / 3, 21567.0, 1.8e9 + 0.25, 86399.0, "x", "y"});
+            assertThat(writer.getRowCount()).isEqualTo(5);
+        }
+        assertThat(new String(bytes.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"amount\":0.1,\"day\":\"1970-01-01\",\"stamp\":\"2017-01-18T07:05:09\",\"clock\":\"23:59:01\","
+                        + "\"say \\\"hi\\\"\":\"a\\\"b\\\\c\\nd\\u0001\",\"code\":\"ABC\"}\n"
+                        + "{\"amount\":-1234567.25,\"day\":\"1960-01-01\",\"stamp\":\"1900-12-31T00:00:00.125\","
+                        + "\"clock\":null,\"say \\\"hi\\\"\":\"été 😀\",\"code\":\"a\\\"b\"}\n"
+                        + "{\"amount\":42,\"day\":null,\"stamp\":null,\"clock\":null,\"say \\\"hi\\\"\":null,"
+                        + "\"code\":null}\n"
+                        + "{\"amount\":null,\"day\":\"1960-01-01\",\"stamp\":null,"
+                        + "\"clock\":\"12:34:56.5\",\"say \\\"hi\\\"\":\"\",\"code\":null}\n"
+                        + "{\"amount\":0.3333333333333333,\"day\":\"2019-01-18\",\"stamp\":\"2017-01-14T08:00:00.25\","
+                        + "\"clock\":\"23:59:59\",\"say \\\"hi\\\"\":\"x\",\"code\":\"y\"}\n");
+    }
+
+    @Test
+    public void testDoublesReadBack() throws IOException {
+        List<Column> columns = Collections.singletonList(new Column(1, "x", null, "", Number.class, 8));
+        Random random = new Random(7);
+        double[] values = new double[20000];
+        for (int i = 0; i < values.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    values[i] = random.nextDouble();
+                    break;
+                case 1:
+                    values[i] = Math.round(random.nextGaussian() * 1e6) / 100.0;
+                    break;
+                case 2:
+                    values[i] = Double.longBitsToDouble(random.nextLong());
+                    break;
+                default:
+                    values[i] = random.nextInt(1000) / 8.0 - 60;
+                    break;
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonLinesDataWriter writer = new JsonLinesDataWriterImpl.Builder(bytes, columns).bufferSize(100)
+                .build()) {
+            for (double value : values) {
+                writer.writeRow(new Object[]{value});
+            }
+        }
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertThat(lines.length).isEqualTo(values.length);
+        for (int i = 0; i < values.length; i++) {
+            String number = lines[i].substring("{\"x\":".length(), lines[i].length() - 1);
+            if (Double.isNaN(values[i]) || Double.isInfinite(values[i])) {
+                assertThat(number).isEqualTo("null");
+            } else {
+                assertThat(Double.parseDouble(number)).isEqualTo(values[i]);
+                assertThat(number.length()).isLessThanOrEqualTo(Double.toString(values[i]).length() + 1);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelAndRawRowsMatchSequential() throws IOException {
+        SasFileGenerator generator = new SasFileGenerator.Builder().rowCount(5000).missingRate(0.2)
+                .numberColumn("amount", "").numberColumn("day", "DATE9.").numberColumn("stamp", "DATETIME20.")
+                .numberColumn("clock", "TIME8.").stringColumn("name", 30).stringColumn("code", 3).build();
+        Path file = temporaryFolder.newFile("jsonl.sas7bdat").toPath();
+        generator.write(file);
+        byte[] expected = null;
+        for (int threads : new int[]{1, 3}) {
+            for (boolean raw : new boolean[]{false, true}) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (InputStream is = Files.newInputStream(file)) {
+                    SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                    try (JsonLinesDataWriter writer = new JsonLinesDataWriterImpl.Builder(bytes, reader.getColumns())
+                            .bufferSize(4096).threads(threads).build()) {
+                        for (Object[] row = raw ? reader.readNextRaw() : reader.readNext(); row != null;
+                             row = raw ? reader.readNextRaw() : reader.readNext()) {
+                            writer.writeRow(row);
+                        }
+                    }
+                }
+                if (expected == null) {
+                    expected = bytes.toByteArray();
+                    String[] lines = new String(expected, StandardCharsets.UTF_8).split("\n");
+                    assertThat(lines.length).isEqualTo(5000);
+                    assertThat(lines[0]).startsWith("{\"amount\":");
+                } else {
+                    assertThat(bytes.toByteArray()).isEqualTo(expected);
+                }
+            }
+        }
+    }
+}
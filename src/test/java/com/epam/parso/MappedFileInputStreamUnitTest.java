@@ -0,0 +1,127 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.MappedFileInputStream;
+import com.epam.parso.impl.SasFilePosition;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MappedFileInputStreamUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRowsAcrossWindows() throws IOException {
+        for (String fileName : new String[]{"mix_data_misc", "extend_yes", "doubles"}) {
+            Path file = temporaryFolder.newFile(fileName + ".sas7bdat").toPath();
+            InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+            try {
+                Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                is.close();
+            }
+            List<Object[]> expected = readRows(Files.newInputStream(file));
+            assertThat(expected).isNotEmpty();
+            List<Object[]> actual = readRows(new MappedFileInputStream(file, 1000));
+            assertThat(actual.size()).isEqualTo(expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i)).isEqualTo(expected.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSeekAcrossWindows() throws IOException {
+        Path file = temporaryFolder.newFile("mix_data_misc.sas7bdat").toPath();
+        InputStream is = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        try {
+            Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+        List<Object[]> rows = readRows(Files.newInputStream(file));
+        SasFilePosition position = null;
+        try (MappedFileInputStream mapped = new MappedFileInputStream(file, 4096)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(mapped);
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                position = reader.getPosition();
+                if (position.getPageIndex() >= 100 && position.getRowOnPageIndex() == 0) {
+                    break;
+                }
+            }
+        }
+        try (MappedFileInputStream mapped = new MappedFileInputStream(file, 4096)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(mapped);
+            assertThat(position.getPageIndex()).isEqualTo(100);
+            reader.seek(position);
+            assertThat(reader.readNext()).isEqualTo(rows.get((int) position.getRowIndex()));
+        }
+    }
+
+    @Test
+    public void testOffsetsBeyondTwoGigabytes() throws IOException {
+        Path file = temporaryFolder.newFile("sparse.bin").toPath();
+        long offset = 3L * 1024 * 1024 * 1024;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(offset + 16);
+            raf.seek(offset);
+            raf.write(new byte[]{1, 2, 3, 4});
+        }
+        try (MappedFileInputStream mapped = new MappedFileInputStream(file, 1024 * 1024)) {
+            assertThat(mapped.getSize()).isEqualTo(offset + 16);
+            assertThat(mapped.skip(offset - 2)).isEqualTo(offset - 2);
+            byte[] bytes = new byte[6];
+            assertThat(mapped.read(bytes, 0, 6)).isEqualTo(6);
+            assertThat(bytes).isEqualTo(new byte[]{0, 0, 1, 2, 3, 4});
+            assertThat(mapped.getPosition()).isEqualTo(offset + 4);
+            assertThat(mapped.available()).isEqualTo(12);
+            assertThat(mapped.skip(100)).isEqualTo(12);
+            assertThat(mapped.read()).isEqualTo(-1);
+            mapped.seek(offset + 1);
+            assertThat(mapped.read()).isEqualTo(2);
+        }
+    }
+
+    private static List<Object[]> readRows(InputStream is) throws IOException {
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.ParallelGzipOutputStream;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParallelGzipOutputStreamUnitTest {
+    private static final String FILE_NAME = "sas7bdat//mix_data_misc.sas7bdat";
+
+    @Test
+    public void testRoundTripAcrossManyBlocks() throws IOException {
+        byte[] data = new byte[1000003];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try {
+            OutputStream os = new ParallelGzipOutputStream(compressed, 6, 4096, executor, 4);
+            os.write(data, 0, 10);
+            os.write(data[10]);
+            os.flush();
+            os.write(data, 11, data.length - 11);
+            os.close();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(compressed.size()).isLessThan(data.length / 2);
+        assertThat(gunzip(compressed.toByteArray())).isEqualTo(data);
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, 1, 2).close();
+        assertThat(compressed.size()).isGreaterThan(0);
+        assertThat(gunzip(compressed.toByteArray())).isEmpty();
+    }
+
+    @Test
+    public void testCompressedCsvMatchesPlainCsv() throws IOException {
+        StringWriter plain = new StringWriter();
+        writeCsv(plain);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Writer gzipWriter = new OutputStreamWriter(new ParallelGzipOutputStream(compressed, 9, 3), "utf-8");
+        writeCsv(gzipWriter);
+        gzipWriter.close();
+
+        assertThat(new String(gunzip(compressed.toByteArray()), "utf-8")).isEqualTo(plain.toString());
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            SasFileReader reader = new SasFileReaderImpl(is);
+            CSVDataWriter csvDataWriter = new CSVDataWriterImpl(writer);
+            csvDataWriter.writeColumnNames(reader.getColumns());
+            csvDataWriter.writeRowsArray(reader.getColumns(), reader.readAll());
+        } finally {
+            is.close();
+        }
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.PostgreSQLBinaryDataWriterImpl;
+import com.epam.parso.impl.PostgreSQLBinaryType;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PostgreSQLBinaryDataWriterUnitTest {
+    private static final String[] FILE_NAMES = {"sas7bdat//mix_data_misc.sas7bdat",
+            "sas7bdat//only_datetime.sas7bdat", "sas7bdat//mix_and_missing.sas7bdat"};
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final long POSTGRESQL_EPOCH_SECONDS = 946684800L;
+
+    @Test
+    public void testNumericEncoding() throws IOException {
+        Column column = new Column(1, "x", "", "", Number.class, 8);
+        List<Column> columns = Collections.singletonList(column);
+        Object[] values = {-12345.678, 0.00012, 0.000012, 0L, 1e8, 123456789012L, -0.5, null,
+                Double.POSITIVE_INFINITY};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PostgreSQLBinaryDataWriter writer = new PostgreSQLBinaryDataWriterImpl(bytes);
+        writer.writeHeader();
+        for (Object value : values) {
+            writer.writeRow(columns, new Object[]{value});
+        }
+        writer.writeTrailer();
+
+        List<Object[]> tuples = decode(bytes.toByteArray(), Collections.singletonList(PostgreSQLBinaryType.NUMERIC));
+        assertThat(tuples).hasSize(values.length);
+        for (int i = 0; i < values.length - 2; i++) {
+            assertThat(((BigDecimal) tuples.get(i)[0]).compareTo(new BigDecimal(values[i].toString()))).isEqualTo(0);
+        }
+        assertThat(tuples.get(values.length - 2)[0]).isNull();
+        assertThat(tuples.get(values.length - 1)[0]).isNull();
+    }
+
+    @Test
+    public void testFilesRoundTrip() throws IOException {
+        for (String fileName : FILE_NAMES) {
+            InputStream is = getResourceAsStream(fileName);
+            try {
+                SasFileReader reader = new SasFileReaderImpl(is);
+                List<Column> columns = reader.getColumns();
+                Object[][] rows = reader.readAll();
+                List<PostgreSQLBinaryType> types = new ArrayList<PostgreSQLBinaryType>();
+                for (Column column : columns) {
+                    types.add(PostgreSQLBinaryType.of(column));
+                }
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                PostgreSQLBinaryDataWriter writer = new PostgreSQLBinaryDataWriterImpl(bytes);
+                writer.writeHeader();
+                writer.writeRowsArray(columns, rows);
+                writer.writeTrailer();
+
+                List<Object[]> tuples = decode(bytes.toByteArray(), types);
+                assertThat(tuples).hasSize(rows.length);
+                for (int i = 0; i < rows.length; i++) {
+                    for (int j = 0; j < columns.size(); j++) {
+                        assertDecoded(types.get(j), rows[i][j], tuples.get(i)[j]);
+                    }
+                }
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDateTimeEncoding() throws IOException {
+        List<Column> columns = Arrays.asList(new Column(1, "d", "", "DATE9.", Number.class, 8),
+                new Column(2, "dt", "", "DATETIME20.", Number.class, 8),
+                new Column(3, "t", "", "TIME8.", Number.class, 8),
+                new Column(4, "i", "", "", Number.class, 2),
+                new Column(5, "s", "", "", String.class, 10));
+        List<PostgreSQLBinaryType> types = new ArrayList<PostgreSQLBinaryType>();
+        for (Column column : columns) {
+            types.add(PostgreSQLBinaryType.of(column));
+        }
+        assertThat(types).isEqualTo(Arrays.asList(PostgreSQLBinaryType.DATE, PostgreSQLBinaryType.TIMESTAMP,
+                PostgreSQLBinaryType.TIME, PostgreSQLBinaryType.INT4, PostgreSQLBinaryType.TEXT));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PostgreSQLBinaryDataWriter writer = new PostgreSQLBinaryDataWriterImpl(bytes);
+        writer.writeHeader();
+        writer.writeRow(columns, new Object[]{new Date((POSTGRESQL_EPOCH_SECONDS + 86400) * 1000),
+                LocalDateTime.of(2000, 1, 1, 0, 0, 1, 500000000), LocalDateTime.of(1960, 1, 1, 1, 2, 3), 7L,
+                "\u00e9t\u00e9"});
+        writer.writeRow(columns, new Object[]{14611.0, 1262304001.5, 3723.0, 7.0, "abc".getBytes("CP1252")});
+        writer.writeTrailer();
+
+        List<Object[]> tuples = decode(bytes.toByteArray(), types);
+        assertThat(tuples.get(0)).isEqualTo(new Object[]{1, 1500000L, 3723000000L, 7, "\u00e9t\u00e9"});
+        assertThat(tuples.get(1)).isEqualTo(new Object[]{1, 1500000L, 3723000000L, 7, "abc"});
+    }
+
+    private static void assertDecoded(PostgreSQLBinaryType type, Object expected, Object actual) {
+        if (expected == null) {
+            assertThat(actual).isNull();
+            return;
+        }
+        switch (type) {
+            case NUMERIC:
+                BigDecimal expectedDecimal = expected instanceof Double ? BigDecimal.valueOf((Double) expected)
+                        : BigDecimal.valueOf(((Number) expected).longValue());
+                assertThat(((BigDecimal) actual).compareTo(expectedDecimal)).isEqualTo(0);
+                break;
+            case INT4:
+                assertThat(actual).isEqualTo(((Number) expected).intValue());
+                break;
+            case DATE:
+                assertThat(new Date(((Integer) actual + POSTGRESQL_EPOCH_SECONDS / 86400) * 86400000L))
+                        .isEqualTo(expected);
+                break;
+            case TIMESTAMP:
+                long micros = (Long) actual;
+                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(
+                        Math.floorDiv(micros, 1000000L) + POSTGRESQL_EPOCH_SECONDS,
+                        (int) Math.floorMod(micros, 1000000L) * 1000, ZoneOffset.UTC);
+                assertThat(dateTime).isEqualTo(((LocalDateTime) expected).withNano(
+                        ((LocalDateTime) expected).getNano() / 1000 * 1000));
+                break;
+            default:
+                assertThat(actual).isEqualTo(expected);
+                break;
+        }
+    }
+
+    private static List<Object[]> decode(byte[] data, List<PostgreSQLBinaryType> types) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+        assertThat(signature).isEqualTo(SIGNATURE);
+        assertThat(in.readInt()).isEqualTo(0);
+        assertThat(in.readInt()).isEqualTo(0);
+        List<Object[]> tuples = new ArrayList<Object[]>();
+        for (short fieldCount = in.readShort(); fieldCount != -1; fieldCount = in.readShort()) {
+            assertThat((int) fieldCount).isEqualTo(types.size());
+            Object[] tuple = new Object[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                int length = in.readInt();
+                if (length == -1) {
+                    continue;
+                }
+                switch (types.get(i)) {
+                    case NUMERIC:
+                        tuple[i] = readNumeric(in, length);
+                        break;
+                    case INT4:
+                    case DATE:
+                        assertThat(length).isEqualTo(4);
+                        tuple[i] = in.readInt();
+                        break;
+                    case TIME:
+                    case TIMESTAMP:
+                        assertThat(length).isEqualTo(8);
+                        tuple[i] = in.readLong();
+                        break;
+                    default:
+                        byte[] text = new byte[length];
+                        in.readFully(text);
+                        tuple[i] = new String(text, StandardCharsets.UTF_8);
+                        break;
+                }
+            }
+            tuples.add(tuple);
+        }
+        assertThat(in.read()).isEqualTo(-1);
+        return tuples;
+    }
+
+    private static BigDecimal readNumeric(DataInputStream in, int length) throws IOException {
+        int digitCount = in.readShort();
+        int weight = in.readShort();
+        int sign = in.readShort() & 0xFFFF;
+        int scale = in.readShort();
+        assertThat(length).isEqualTo(8 + 2 * digitCount);
+        BigDecimal value = BigDecimal.ZERO;
+        for (int i = 0; i < digitCount; i++) {
+            short digit = in.readShort();
+            assertThat((int) digit).isGreaterThanOrEqualTo(0).isLessThan(10000);
+            value = value.add(new BigDecimal(BigInteger.valueOf(digit), 4 * (i - weight)));
+        }
+        assertThat(value.scale() <= Math.max(scale, 0) || value.stripTrailingZeros().scale() <= scale).isTrue();
+        return sign == 0x4000 ? value.negate() : value;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.ReadPlan;
+import com.epam.parso.impl.ReadPlanner;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReadPlannerUnitTest {
+    private static final long GB = 1024L * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static SasFileProperties properties(int pageLength, long rowLength, long columns, String compression) {
+        SasFileProperties properties = new SasFileProperties();
+        properties.setPageLength(pageLength);
+        properties.setPageCount(1000);
+        properties.setRowLength(rowLength);
+        properties.setColumnsCount(columns);
+        properties.setCompressionMethod(compression);
+        return properties;
+    }
+
+    @Test
+    public void testStrategy() {
+        ReadPlanner planner = new ReadPlanner(8, 4 * GB, true);
+        SasFileProperties uncompressed = properties(65536, 800, 10, null);
+        assertThat(planner.plan(uncompressed, 1024 * 1024, 0).getStrategy()).isEqualTo(ReadPlan.Strategy.STREAM);
+        assertThat(planner.plan(uncompressed, 10 * GB, 0).getStrategy()).isEqualTo(ReadPlan.Strategy.MAPPED);
+        assertThat(planner.plan(properties(65536, 800, 10, "SASYZCRL"), 10 * GB, 0).getStrategy())
+                .isEqualTo(ReadPlan.Strategy.STREAM);
+        assertThat(new ReadPlanner(8, 4 * GB, false).plan(uncompressed, 10 * GB, 0).getStrategy())
+                .isEqualTo(ReadPlan.Strategy.STREAM);
+    }
+
+    @Test
+    public void testSizes() {
+        ReadPlanner planner = new ReadPlanner(8, 4 * GB, true);
+        ReadPlan small = planner.plan(properties(4096, 800, 10, null), 20000, 0);
+        assertThat(small.getBufferSize()).isEqualTo(20000);
+        assertThat(small.getWindowSize()).isEqualTo(20000);
+        ReadPlan large = planner.plan(properties(1024 * 1024, 800, 10, null), 10 * GB, 0);
+        assertThat(large.getBufferSize()).isEqualTo(8 * 1024 * 1024);
+        assertThat(large.getWindowSize()).isEqualTo(256 * 1024 * 1024);
+        assertThat(large.toString()).startsWith("MAPPED window=268435456 parallelism=4");
+    }
+
+    @Test
+    public void testParallelism() {
+        ReadPlanner planner = new ReadPlanner(16, 4 * GB, true);
+        assertThat(planner.plan(properties(65536, 800, 10, null), 10 * GB, 0).getParallelism())
+                .isEqualTo(ReadPlanner.IO_BOUND_PARALLELISM);
+        assertThat(planner.plan(properties(65536, 800, 10, "SASYZCR2"), 10 * GB, 0).getParallelism()).isEqualTo(16);
+        assertThat(planner.plan(properties(65536, 800, 100, null), 10 * GB, 0).getParallelism()).isEqualTo(16);
+
+        SasFileProperties wide = properties(65536, 200000, 20000, "SASYZCRL");
+        ReadPlan limited = new ReadPlanner(16, 256 * 1024 * 1024, true).plan(wide, 10 * GB, 0);
+        assertThat(limited.getParallelism()).isEqualTo(1);
+        assertThat(limited.getReason()).contains("limited by memory");
+        ReadPlan projected = new ReadPlanner(16, 8 * GB, true).plan(wide, 10 * GB, 10);
+        assertThat(projected.getParallelism()).isEqualTo(16);
+    }
+
+    @Test
+    public void testReadPlannedFiles() throws IOException {
+        for (String fileName : new String[]{"mix_data_misc", "extend_yes", "doubles"}) {
+            Path file = temporaryFolder.newFile(fileName + ".sas7bdat").toPath();
+            InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+            try {
+                Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                is.close();
+            }
+            List<Object[]> expected = readRows(Files.newInputStream(file));
+            for (ReadPlan.Strategy strategy : ReadPlan.Strategy.values()) {
+                ReadPlan plan = new ReadPlan(strategy, 4096, 4096, 1, "test");
+                List<Object[]> actual = readRows(plan.open(file));
+                assertThat(actual.size()).isEqualTo(expected.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertThat(actual.get(i)).isEqualTo(expected.get(i));
+                }
+            }
+            ReadPlan plan = new ReadPlanner().plan(file, 0);
+            assertThat(plan.getStrategy()).isEqualTo(ReadPlan.Strategy.STREAM);
+            assertThat(plan.getBufferSize()).isEqualTo((int) Math.min(Files.size(file), plan.getBufferSize()));
+        }
+    }
+
+    private static List<Object[]> readRows(InputStream is) throws IOException {
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+}
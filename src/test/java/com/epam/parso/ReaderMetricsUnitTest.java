@@ -0,0 +1,125 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.CountingReaderMetrics;
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SortingSasFileReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReaderMetricsUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testUncompressedFile() throws IOException {
+        CountingReaderMetrics metrics = new CountingReaderMetrics();
+        SasFileProperties properties = readAll("extend_yes", metrics);
+        Map<String, Long> counters = metrics.getCounters();
+
+        long pages = counters.get("pages.meta") + counters.get("pages.data") + counters.get("pages.mix")
+                + counters.get("pages.amd") + counters.get("pages.other");
+        assertThat(counters.get("pages.data")).isGreaterThan(0);
+        assertThat(pages).isLessThanOrEqualTo(properties.getPageCount());
+        assertThat(counters.get("bytes.read")).isEqualTo(pages * properties.getPageLength());
+        assertThat(counters.get("rows.decoded")).isEqualTo(properties.getRowCount());
+        assertThat(counters.get("rows.decompressed")).isEqualTo(0);
+        assertThat(counters.get("nanos.decoding")).isGreaterThan(0);
+        assertThat(metrics.getCompressionRatios()).isEmpty();
+    }
+
+    @Test
+    public void testCompressedFile() throws IOException {
+        CountingReaderMetrics metrics = new CountingReaderMetrics();
+        SasFileProperties properties = readAll("mix_data_misc", metrics);
+        Map<String, Long> counters = metrics.getCounters();
+
+        assertThat(counters.get("rows.decoded")).isEqualTo(properties.getRowCount());
+        assertThat(counters.get("rows.decompressed")).isGreaterThan(0);
+        assertThat(counters.get("decompression.SASYZCRL.rows")).isEqualTo(counters.get("rows.decompressed"));
+        assertThat(counters.get("decompression.SASYZCRL.bytes")).isEqualTo(counters.get("rows.decompressed")
+                * properties.getRowLength());
+        assertThat(metrics.getCompressionRatios().get("SASYZCRL")).isGreaterThan(1.0);
+        assertThat(metrics.getSummary()).contains("Compression SASYZCRL: ");
+    }
+
+    @Test
+    public void testSortedCompressedFile() throws IOException {
+        CountingReaderMetrics unsorted = new CountingReaderMetrics();
+        SasFileProperties properties = readAll("mix_data_misc", unsorted);
+        Path file = temporaryFolder.newFile("mix_data_misc.sas7bdat").toPath();
+        InputStream is = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        try {
+            Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            is.close();
+        }
+        String orderBy = readColumnName(file);
+
+        CountingReaderMetrics metrics = new CountingReaderMetrics();
+        SortingSasFileReader reader = new SortingSasFileReader.Builder(file).orderBy(orderBy).threads(3)
+                .metrics(metrics).build();
+        try {
+            while (reader.readNext() != null) {
+                continue;
+            }
+        } finally {
+            reader.close();
+        }
+        Map<String, Long> counters = metrics.getCounters();
+        assertThat(counters.get("rows.decoded")).isEqualTo(properties.getRowCount());
+        assertThat(counters.get("nanos.decoding")).isGreaterThan(0);
+        assertThat(counters.get("rows.decompressed")).isEqualTo(unsorted.getCounters().get("rows.decompressed"));
+        assertThat(counters.get("decompression.SASYZCRL.rows")).isEqualTo(counters.get("rows.decompressed"));
+        assertThat(counters.get("nanos.decompression")).isGreaterThan(0);
+    }
+
+    private static String readColumnName(Path file) throws IOException {
+        InputStream is = Files.newInputStream(file);
+        try {
+            return SasFileReaderImpl.metadataReader(is).getColumns().get(0).getName();
+        } finally {
+            is.close();
+        }
+    }
+
+    private static SasFileProperties readAll(String fileName, ReaderMetrics metrics) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            SasFileReader reader = new SasFileReaderImpl(is, metrics);
+            while (reader.readNext() != null) {
+                continue;
+            }
+            return reader.getSasFileProperties();
+        } finally {
+            is.close();
+        }
+    }
+}
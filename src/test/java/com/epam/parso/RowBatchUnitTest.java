@@ -0,0 +1,137 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.RowBatch;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static com.epam.parso.TestUtils.getSas7bdatFilesList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Delta.delta;
+
+public class RowBatchUnitTest {
+    private static final double DAYS_TO_1970 = 3653;
+    private static final double SECONDS_TO_1970 = 315619200;
+
+    @Test
+    public void testBatchesMatchTheRowsOfTheReader() throws IOException {
+        URL resourcesPath = this.getClass().getClassLoader().getResource("");
+        List<File> files = getSas7bdatFilesList(resourcesPath.getFile() + "//sas7bdat");
+        assertThat(files).isNotEmpty();
+        int checkedFiles = 0;
+        for (File file : files) {
+            String fileName = file.getName();
+            List<Object[]> expected = readRows(fileName);
+            if (expected == null || expected.isEmpty()) {
+                continue;
+            }
+            try (InputStream is = getResourceAsStream("sas7bdat//" + fileName)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                List<Column> columns = reader.getColumns();
+                RowBatch batch = new RowBatch(reader, 7);
+                double[] numbers = new double[batch.capacity()];
+                String[] strings = new String[batch.capacity()];
+                int first = 0;
+                for (int size = batch.read(7, Long.MAX_VALUE); size > 0; size = batch.read(7, Long.MAX_VALUE)) {
+                    for (int column = 0; column < columns.size(); column++) {
+                        boolean numeric = columns.get(column).getType() == Number.class;
+                        if (numeric) {
+                            batch.readNumbers(column, numbers);
+                        } else {
+                            batch.readStrings(column, strings);
+                        }
+                        for (int i = 0; i < size; i++) {
+                            Object value = expected.get(first + i)[column];
+                            String context = fileName + " row " + (first + i) + " column " + column;
+                            if (numeric) {
+                                double number = toNumber(value);
+                                if (Double.isNaN(number)) {
+                                    assertThat(Double.isNaN(numbers[i])).as(context).isTrue();
+                                } else {
+                                    assertThat(numbers[i]).as(context).isEqualTo(number, delta(1e-3));
+                                }
+                            } else {
+                                assertThat((Object) strings[i]).as(context).isEqualTo(value);
+                            }
+                        }
+                    }
+                    for (int i = 0; i < size; i++) {
+                        assertThat(batch.decodeRow(i)).as(fileName + " row " + (first + i))
+                                .isEqualTo(expected.get(first + i));
+                    }
+                    first += size;
+                }
+                assertThat(first).as(fileName).isEqualTo(expected.size());
+                checkedFiles++;
+            }
+        }
+        assertThat(checkedFiles).isGreaterThan(0);
+    }
+
+    @Test
+    public void testReadingStopsAtThePage() throws IOException {
+        try (InputStream is = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat")) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            long endPage = reader.getPosition().getPageIndex() + 1;
+            RowBatch batch = new RowBatch(reader, 100000);
+            int size = batch.read(100000, endPage);
+            assertThat(size).isGreaterThan(0);
+            assertThat(size).isLessThan((int) reader.getSasFileProperties().getRowCount());
+            assertThat(reader.getPosition().getPageIndex()).isGreaterThanOrEqualTo(endPage);
+        }
+    }
+
+    private static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime() / 86400000.0 + DAYS_TO_1970;
+        }
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return dateTime.toEpochSecond(ZoneOffset.UTC) + SECONDS_TO_1970 + dateTime.getNano() / 1e9;
+        }
+        return Double.NaN;
+    }
+
+    private static List<Object[]> readRows(String fileName) throws IOException {
+        try (InputStream is = getResourceAsStream("sas7bdat//" + fileName)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                rows.add(row);
+            }
+            return rows;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
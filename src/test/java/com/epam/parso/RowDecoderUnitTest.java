@@ -0,0 +1,120 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.SasFileParser;
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static com.epam.parso.TestUtils.getSas7bdatFilesList;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RowDecoderUnitTest {
+    @After
+    public void clearProperty() {
+        System.clearProperty(SasFileParser.SPECIALIZED_DECODERS_PROPERTY);
+    }
+
+    @Test
+    public void testSpecializedDecodersMatchTheParser() throws IOException {
+        URL resourcesPath = this.getClass().getClassLoader().getResource("");
+        List<File> files = getSas7bdatFilesList(resourcesPath.getFile() + "//sas7bdat");
+        assertThat(files).isNotEmpty();
+        for (File file : files) {
+            String fileName = file.getName();
+            for (int mode = 0; mode < 3; mode++) {
+                System.setProperty(SasFileParser.SPECIALIZED_DECODERS_PROPERTY, "false");
+                List<Object[]> expected = readRows(fileName, mode);
+                System.setProperty(SasFileParser.SPECIALIZED_DECODERS_PROPERTY, "true");
+                List<Object[]> actual = readRows(fileName, mode);
+                assertThat(actual.size()).as(fileName).isEqualTo(expected.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertThat(actual.get(i)).as(fileName + " row " + i).isEqualTo(expected.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProjectionSkipsTheOtherColumns() throws IOException {
+        URL resourcesPath = this.getClass().getClassLoader().getResource("");
+        List<File> files = getSas7bdatFilesList(resourcesPath.getFile() + "//sas7bdat");
+        for (File file : files) {
+            String fileName = file.getName();
+            for (String specialized : new String[]{"false", "true"}) {
+                System.setProperty(SasFileParser.SPECIALIZED_DECODERS_PROPERTY, specialized);
+                List<Object[]> expected = readRows(fileName, 0);
+                Object[] last = expected.isEmpty() ? null : expected.get(expected.size() - 1);
+                if (last == null || last.length == 0 || last[0] instanceof Class) {
+                    continue;
+                }
+                List<Object[]> actual = new ArrayList<Object[]>();
+                try (InputStream is = getResourceAsStream("sas7bdat//" + fileName)) {
+                    SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                    int[] projection = new int[(reader.getColumns().size() + 1) / 2];
+                    for (int i = 0; i < projection.length; i++) {
+                        projection[i] = i * 2;
+                    }
+                    reader.setProjection(projection);
+                    for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                        actual.add(row);
+                    }
+                }
+                assertThat(actual.size()).as(fileName).isEqualTo(expected.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    Object[] row = expected.get(i).clone();
+                    for (int column = 1; column < row.length; column += 2) {
+                        row[column] = null;
+                    }
+                    assertThat(actual.get(i)).as(fileName + " row " + i).isEqualTo(row);
+                }
+            }
+        }
+    }
+
+    private static List<Object[]> readRows(String fileName, int mode) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName);
+        try {
+            SasFileReaderImpl reader = mode == 2 ? new SasFileReaderImpl(is, true) : new SasFileReaderImpl(is);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            try {
+                for (Object[] row = next(reader, mode); row != null; row = next(reader, mode)) {
+                    rows.add(row);
+                }
+            } catch (IOException | RuntimeException e) {
+                rows.add(new Object[]{e.getClass()});
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+
+    private static Object[] next(SasFileReaderImpl reader, int mode) throws IOException {
+        return mode == 0 ? reader.readNext() : reader.readNextRaw();
+    }
+}
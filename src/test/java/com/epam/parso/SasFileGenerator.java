@@ -0,0 +1,282 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.epam.parso.impl.SasFileWriterImpl;
+
+import static com.epam.parso.impl.SasFileConstants.BYTES_IN_DOUBLE;
+import static com.epam.parso.impl.SasFileConstants.DATE_FORMATS;
+
+/**
+ * Writes synthetic .sas7bdat files with {@link SasFileWriterImpl}, so that benchmarks, parallel-reader tests and
+ * large-file tests can create inputs of any size on demand:
+ * <pre>
+ * SasFileGenerator generator = new SasFileGenerator.Builder()
+ *         .u64(true).bigEndian(false).pageLength(65536).rowCount(50000000)
+ *         .columns(20, 10, 32).numberColumn("day", "DATE9.").missingRate(0.05)
+ *         .build();
+ * generator.write(path);
+ * </pre>
+ * The numeric columns come first, as SAS lays them out, and take 8 bytes. The cell values are a function of the
+ * seed, the row and the column, so {@link #getValue(long, int)} gives the expected value of any cell without keeping
+ * the rows in memory.
+ */
+public final class SasFileGenerator {
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final double SECONDS_IN_DAY = 86400;
+    private static final int FORMATTED_DAYS = 40000;
+
+    private final boolean u64;
+    private final boolean bigEndian;
+    private final int pageLength;
+    private final String compression;
+    private final long rowCount;
+    private final double missingRate;
+    private final long seed;
+    private final String name;
+    private final List<Column> columns;
+
+    private SasFileGenerator(Builder builder) {
+        u64 = builder.u64;
+        bigEndian = builder.bigEndian;
+        pageLength = builder.pageLength;
+        compression = builder.compression;
+        rowCount = builder.rowCount;
+        missingRate = builder.missingRate;
+        seed = builder.seed;
+        name = builder.name;
+
+        List<Column> ordered = new ArrayList<Column>();
+        for (Column column : builder.columns) {
+            if (column.getType() == Number.class) {
+                ordered.add(column);
+            }
+        }
+        for (Column column : builder.columns) {
+            if (column.getType() == String.class) {
+                ordered.add(column);
+            }
+        }
+        columns = new ArrayList<Column>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            Column column = ordered.get(i);
+            columns.add(new Column(i + 1, column.getName(), column.getLabel(), column.getFormat(), column.getType(),
+                    column.getLength()));
+        }
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * The value written in a cell: a {@link Double} for numeric columns, days since 1960 for date formats and
+     * seconds since 1960 for other formats, or a {@link String} for character columns, null when missing.
+     *
+     * @param row    the index of the row.
+     * @param column the index of the column in {@link #getColumns()}.
+     * @return the value of the cell.
+     */
+    public Object getValue(long row, int column) {
+        long hash = hash(row, column);
+        if (isMissing(hash)) {
+            return null;
+        }
+        Column sasColumn = columns.get(column);
+        if (sasColumn.getType() == Number.class) {
+            return number(hash, sasColumn.getFormat());
+        }
+        byte[] bytes = new byte[sasColumn.getLength()];
+        return new String(bytes, 0, fillString(bytes, 0, bytes.length, hash), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the file, streaming the rows so that files larger than the memory can be written.
+     *
+     * @param file the file to write.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(Path file) throws IOException {
+        try (SasFileWriter writer = new SasFileWriterImpl.Builder(file, columns).u64(u64).bigEndian(bigEndian)
+                .pageLength(pageLength).compression(compression).name(name).build()) {
+            Object[] values = new Object[columns.size()];
+            for (long row = 0; row < rowCount; row++) {
+                for (int column = 0; column < values.length; column++) {
+                    values[column] = getValue(row, column);
+                }
+                writer.writeRow(values);
+            }
+        }
+    }
+
+    private long hash(long row, int column) {
+        long z = seed + row * 0x9E3779B97F4A7C15L + (column + 1) * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private boolean isMissing(long hash) {
+        return (hash >>> 11) * 0x1.0p-53 < missingRate;
+    }
+
+    private static double number(long hash, String format) {
+        long bits = hash & 0x7FFFFFFFL;
+        if (format.isEmpty()) {
+            return (bits % 8000000 - 4000000) / 4.0;
+        }
+        long days = bits % FORMATTED_DAYS;
+        return isDateFormat(format) ? days : days * SECONDS_IN_DAY + bits % (long) SECONDS_IN_DAY;
+    }
+
+    private static boolean isDateFormat(String format) {
+        for (Pattern pattern : DATE_FORMATS) {
+            if (pattern.matcher(format).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int fillString(byte[] target, int offset, int width, long hash) {
+        int length = 1 + (int) ((hash >>> 32) % width);
+        long bits = hash;
+        for (int i = 0; i < length; i++) {
+            if (i % 8 == 0) {
+                bits = bits * 0x5851F42D4C957F2DL + 0x14057B7EF767814FL;
+            }
+            target[offset + i] = ALPHABET[(int) ((bits >>> (56 - 8 * (i % 8))) & 0xFF) % ALPHABET.length];
+        }
+        return length;
+    }
+
+    public static class Builder {
+        private boolean u64 = true;
+        private boolean bigEndian;
+        private int pageLength = 65536;
+        private String compression;
+        private long rowCount = 1000;
+        private double missingRate;
+        private long seed = 1;
+        private String name = "SYNTHETIC";
+        private final List<Column> columns = new ArrayList<Column>();
+
+        public Builder u64(boolean val) {
+            u64 = val;
+            return this;
+        }
+
+        public Builder bigEndian(boolean val) {
+            bigEndian = val;
+            return this;
+        }
+
+        public Builder pageLength(int val) {
+            pageLength = val;
+            return this;
+        }
+
+        /**
+         * @param val {@link SasFileWriterImpl#CHAR_COMPRESSION}, {@link SasFileWriterImpl#BIN_COMPRESSION} or null.
+         * @return result builder.
+         */
+        public Builder compression(String val) {
+            compression = val;
+            return this;
+        }
+
+        public Builder rowCount(long val) {
+            rowCount = val;
+            return this;
+        }
+
+        /**
+         * @param val the share of missing cells, from 0 for none to 1 for all of them.
+         * @return result builder.
+         */
+        public Builder missingRate(double val) {
+            missingRate = val;
+            return this;
+        }
+
+        public Builder seed(long val) {
+            seed = val;
+            return this;
+        }
+
+        public Builder name(String val) {
+            name = val;
+            return this;
+        }
+
+        /**
+         * @param columnName the name of the column.
+         * @param format     the SAS format of the column, such as "DATE9." or "DATETIME20.", or "" for none.
+         * @return result builder.
+         */
+        public Builder numberColumn(String columnName, String format) {
+            columns.add(new Column(columns.size() + 1, columnName, "Label of " + columnName, format, Number.class,
+                    BYTES_IN_DOUBLE));
+            return this;
+        }
+
+        public Builder stringColumn(String columnName, int width) {
+            if (width < 1 || width > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid string width: " + width);
+            }
+            columns.add(new Column(columns.size() + 1, columnName, "Label of " + columnName, "", String.class,
+                    width));
+            return this;
+        }
+
+        /**
+         * Adds numeric columns NUM1, NUM2, ... without format and character columns STR1, STR2, ...
+         *
+         * @param numbers     the number of numeric columns.
+         * @param strings     the number of character columns.
+         * @param stringWidth the width of the character columns.
+         * @return result builder.
+         */
+        public Builder columns(int numbers, int strings, int stringWidth) {
+            for (int i = 1; i <= numbers; i++) {
+                numberColumn("NUM" + i, "");
+            }
+            for (int i = 1; i <= strings; i++) {
+                stringColumn("STR" + i, stringWidth);
+            }
+            return this;
+        }
+
+        public SasFileGenerator build() {
+            if (columns.isEmpty() || rowCount < 0 || missingRate < 0 || missingRate > 1 || pageLength < 1024) {
+                throw new IllegalArgumentException("Columns, a page of at least 1024 bytes, a row count and a missing "
+                        + "rate between 0 and 1 are required");
+            }
+            return new SasFileGenerator(this);
+        }
+    }
+}
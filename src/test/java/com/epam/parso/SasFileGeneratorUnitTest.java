@@ -0,0 +1,153 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.SasFileReaderImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SasFileGeneratorUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testLayouts() throws IOException {
+        for (boolean u64 : new boolean[]{false, true}) {
+            for (boolean bigEndian : new boolean[]{false, true}) {
+                SasFileGenerator generator = new SasFileGenerator.Builder().u64(u64).bigEndian(bigEndian)
+                        .pageLength(4096).rowCount(1000).missingRate(0.2).seed(u64 ? 7 : 11)
+                        .stringColumn("name", 30).numberColumn("amount", "").numberColumn("day", "DATE9.")
+                        .stringColumn("code", 5).numberColumn("stamp", "DATETIME20.")
+                        .build();
+                Path file = temporaryFolder.newFile(u64 + "_" + bigEndian + ".sas7bdat").toPath();
+                generator.write(file);
+
+                SasFileReaderImpl reader = read(file, generator, 1000);
+                SasFileProperties properties = reader.getSasFileProperties();
+                assertThat(properties.isU64()).isEqualTo(u64);
+                assertThat(properties.getEndianness()).isEqualTo(bigEndian ? 0 : 1);
+                assertThat(properties.getPageLength()).isEqualTo(4096);
+                assertThat(Files.size(file)).isEqualTo(properties.getHeaderLength()
+                        + properties.getPageCount() * 4096);
+                assertThat(properties.getCompressionMethod()).isNull();
+                assertThat(properties.getName()).isEqualTo("SYNTHETIC");
+
+                List<Column> columns = reader.getColumns();
+                assertThat(columns.size()).isEqualTo(5);
+                assertThat(columns.get(0).getName()).isEqualTo("amount");
+                assertThat(columns.get(1).getFormat()).isEqualTo("DATE9.");
+                assertThat(columns.get(3).getName()).isEqualTo("name");
+                assertThat(columns.get(3).getLabel()).isEqualTo("Label of name");
+                assertThat(columns.get(3).getLength()).isEqualTo(30);
+                assertThat(columns.get(4).getType()).isEqualTo((Object) String.class);
+            }
+        }
+    }
+
+    @Test
+    public void testFormattedValues() throws IOException {
+        SasFileGenerator generator = new SasFileGenerator.Builder().numberColumn("day", "DATE9.")
+                .numberColumn("stamp", "DATETIME20.").rowCount(10).build();
+        Path file = temporaryFolder.newFile("formatted.sas7bdat").toPath();
+        generator.write(file);
+        try (InputStream is = Files.newInputStream(file)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            Object[] row = reader.readNext();
+            assertThat(row[0]).isInstanceOf(Date.class);
+            assertThat(row[1]).isInstanceOf(LocalDateTime.class);
+            long day = ((Date) row[0]).getTime() / 86400000L + 3653;
+            assertThat((double) day).isEqualTo((Double) generator.getValue(0, 0));
+            long seconds = ((LocalDateTime) row[1]).toEpochSecond(ZoneOffset.UTC) + 3653 * 86400L;
+            assertThat((double) seconds).isEqualTo((Double) generator.getValue(0, 1));
+        }
+    }
+
+    @Test
+    public void testManyColumnsAndPages() throws IOException {
+        for (boolean u64 : new boolean[]{false, true}) {
+            SasFileGenerator generator = new SasFileGenerator.Builder().u64(u64).pageLength(4096)
+                    .columns(300, 200, 3).rowCount(20).missingRate(0.5).build();
+            Path file = temporaryFolder.newFile("wide_" + u64 + ".sas7bdat").toPath();
+            generator.write(file);
+            SasFileReaderImpl reader = read(file, generator, 20);
+            assertThat(reader.getColumns().size()).isEqualTo(500);
+            assertThat(reader.getColumns().get(499).getName()).isEqualTo("STR200");
+        }
+    }
+
+    @Test
+    public void testMissingRates() throws IOException {
+        for (double missingRate : new double[]{0, 1}) {
+            SasFileGenerator generator = new SasFileGenerator.Builder().columns(3, 3, 8).rowCount(500)
+                    .missingRate(missingRate).build();
+            Path file = temporaryFolder.newFile("missing_" + missingRate + ".sas7bdat").toPath();
+            generator.write(file);
+            try (InputStream is = Files.newInputStream(file)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                    for (Object value : row) {
+                        assertThat(value == null).isEqualTo(missingRate == 1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        SasFileGenerator generator = new SasFileGenerator.Builder().columns(1, 1, 4).rowCount(0).build();
+        Path file = temporaryFolder.newFile("empty.sas7bdat").toPath();
+        generator.write(file);
+        read(file, generator, 0);
+    }
+
+    private static SasFileReaderImpl read(Path file, SasFileGenerator generator, long rowCount) throws IOException {
+        try (InputStream is = Files.newInputStream(file)) {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            assertThat(reader.getSasFileProperties().getRowCount()).isEqualTo(rowCount);
+            long row = 0;
+            for (Object[] values = reader.readNextRaw(); values != null; values = reader.readNextRaw()) {
+                for (int column = 0; column < values.length; column++) {
+                    Object expected = generator.getValue(row, column);
+                    if (expected instanceof Double && values[column] instanceof Long) {
+                        expected = ((Double) expected).longValue();
+                    } else if (expected == null && values[column] instanceof Double) {
+                        expected = Double.NaN;
+                    }
+                    assertThat(values[column]).isEqualTo(expected);
+                }
+                row++;
+            }
+            assertThat(row).isEqualTo(rowCount);
+            return reader;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.SasFilePosition;
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SasFileWriterImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SasFileReaderSeekUnitTest {
+    private static final List<String> FILE_NAMES = Arrays.asList("mix_data_misc", "mix_data_with_longchar",
+            "doubles", "tmp868_14", "extend_yes", "charset_utf8");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSeekToEveryPageBoundary() throws IOException {
+        for (String fileName : FILE_NAMES) {
+            List<Object[]> rows = new ArrayList<Object[]>();
+            List<SasFilePosition> boundaries = new ArrayList<SasFilePosition>();
+            InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+            try {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                long rowCount = reader.getSasFileProperties().getRowCount();
+                for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                    rows.add(row);
+                    SasFilePosition position = reader.getPosition();
+                    if (position.getRowOnPageIndex() == 0 && rows.size() < rowCount) {
+                        assertThat(position.getRowIndex()).isEqualTo(rows.size());
+                        boundaries.add(position);
+                    }
+                }
+            } finally {
+                is.close();
+            }
+            for (SasFilePosition boundary : boundaries) {
+                List<Object[]> rest = readFrom(fileName, boundary);
+                assertThat(rest.size()).isEqualTo(rows.size() - (int) boundary.getRowIndex());
+                for (int i = 0; i < rest.size(); i++) {
+                    assertThat(Arrays.deepEquals(rest.get(i), rows.get((int) boundary.getRowIndex() + i))).isTrue();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSeekWithinPage() throws IOException {
+        SasFilePosition position;
+        Object[] expected;
+        InputStream is = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            for (int i = 0; i < 1234; i++) {
+                reader.readNext();
+            }
+            position = reader.getPosition();
+            expected = reader.readNext();
+        } finally {
+            is.close();
+        }
+        is = getResourceAsStream("sas7bdat//mix_data_misc.sas7bdat");
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            reader.seek(position);
+            assertThat(Arrays.deepEquals(reader.readNext(), expected)).isTrue();
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testSkipRows() throws IOException {
+        for (String fileName : FILE_NAMES) {
+            List<Object[]> rows = readFrom(fileName, null);
+            for (int skipped : new int[]{0, 1, 7, rows.size() / 3, rows.size() - 1, rows.size(), rows.size() + 5}) {
+                InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+                try {
+                    SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                    assertThat(reader.skipRows(skipped)).isEqualTo(Math.min(skipped, rows.size()));
+                    for (int i = Math.min(skipped, rows.size()); i < rows.size(); i++) {
+                        assertThat(Arrays.deepEquals(reader.readNext(), rows.get(i))).as(fileName + " " + i).isTrue();
+                    }
+                    assertThat(reader.readNext()).isNull();
+                } finally {
+                    is.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPageRangesCoverTheRows() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        for (String fileName : FILE_NAMES) {
+            Path file = temporaryFolder.newFile(fileName + ".sas7bdat").toPath();
+            InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+            try {
+                Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                is.close();
+            }
+            files.add(file);
+        }
+        for (String compression : new String[]{SasFileWriterImpl.CHAR_COMPRESSION, SasFileWriterImpl.BIN_COMPRESSION}) {
+            Path file = temporaryFolder.newFile(compression + ".sas7bdat").toPath();
+            new SasFileGenerator.Builder().compression(compression).pageLength(4096).rowCount(2000).missingRate(0.2)
+                    .numberColumn("amount", "").stringColumn("name", 30).build().write(file);
+            files.add(file);
+        }
+        for (Path file : files) {
+            List<Object[]> rows = new ArrayList<Object[]>();
+            long pageCount;
+            InputStream is = Files.newInputStream(file);
+            try {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                pageCount = reader.getSasFileProperties().getPageCount();
+                for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                    rows.add(row);
+                }
+            } finally {
+                is.close();
+            }
+            for (int ranges : new int[]{1, 2, 3, 7}) {
+                List<Object[]> actual = new ArrayList<Object[]>();
+                for (int range = 0; range < ranges; range++) {
+                    actual.addAll(readPages(file, pageCount * range / ranges, pageCount * (range + 1) / ranges));
+                }
+                assertThat(actual.size()).as(file + " " + ranges).isEqualTo(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    assertThat(Arrays.deepEquals(actual.get(i), rows.get(i))).as(file + " row " + i).isTrue();
+                }
+            }
+        }
+    }
+
+    private static List<Object[]> readPages(Path file, long start, long end) throws IOException {
+        InputStream is = Files.newInputStream(file);
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            reader.seekToPage(start);
+            List<Object[]> rows = new ArrayList<Object[]>();
+            while (reader.getPosition().getPageIndex() < end || end == reader.getSasFileProperties().getPageCount()) {
+                Object[] row = reader.readNext();
+                if (row == null) {
+                    break;
+                }
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+
+    private static List<Object[]> readFrom(String fileName, SasFilePosition position) throws IOException {
+        InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+        try {
+            SasFileReaderImpl reader = new SasFileReaderImpl(is);
+            if (position != null) {
+                reader.seek(position);
+            }
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (Object[] row = reader.readNext(); row != null; row = reader.readNext()) {
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SasFileWriterImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SasFileWriterUnitTest {
+    private static final String[] COMPRESSIONS = {null, SasFileWriterImpl.CHAR_COMPRESSION,
+            SasFileWriterImpl.BIN_COMPRESSION};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompressedRoundTrip() throws IOException {
+        for (String compression : COMPRESSIONS) {
+            for (boolean u64 : new boolean[]{false, true}) {
+                for (boolean bigEndian : new boolean[]{false, true}) {
+                    SasFileGenerator generator = new SasFileGenerator.Builder().u64(u64).bigEndian(bigEndian)
+                            .compression(compression).pageLength(4096).rowCount(3000).missingRate(0.3)
+                            .stringColumn("name", 40).numberColumn("amount", "").numberColumn("day", "DATE9.")
+                            .stringColumn("code", 3).numberColumn("stamp", "DATETIME20.")
+                            .build();
+                    Path file = temporaryFolder.newFile(compression + "_" + u64 + "_" + bigEndian + ".sas7bdat")
+                            .toPath();
+                    generator.write(file);
+                    try (InputStream is = Files.newInputStream(file)) {
+                        SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                        SasFileProperties properties = reader.getSasFileProperties();
+                        assertThat(properties.getCompressionMethod()).isEqualTo(compression);
+                        assertThat(properties.getRowCount()).isEqualTo(3000);
+                        assertThat(Files.size(file)).isEqualTo(properties.getHeaderLength()
+                                + properties.getPageCount() * 4096);
+                        long row = 0;
+                        for (Object[] values = reader.readNextRaw(); values != null; values = reader.readNextRaw()) {
+                            for (int column = 0; column < values.length; column++) {
+                                assertThat(values[column]).isEqualTo(expected(generator.getValue(row, column),
+                                        values[column]));
+                            }
+                            row++;
+                        }
+                        assertThat(row).isEqualTo(3000);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompressorsOnRandomAndRepetitiveRows() throws IOException {
+        List<Column> columns = Arrays.asList(new Column(1, "bytes", "", "", String.class, 6000));
+        Random random = new Random(3);
+        byte[][] rows = new byte[200][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new byte[6000];
+            int alphabet = 1 + i % 4 * 31;
+            int runLength = 1 + i % 7 * 50;
+            for (int j = 0; j < rows[i].length; j++) {
+                rows[i][j] = j % runLength == 0 || j == 0 ? (byte) ('!' + random.nextInt(alphabet))
+                        : rows[i][j - 1];
+            }
+            if (i % 10 == 0) {
+                Arrays.fill(rows[i], (byte) (i % 20 == 0 ? ' ' : '0'));
+            }
+        }
+        for (String compression : COMPRESSIONS) {
+            Path file = temporaryFolder.newFile("bytes_" + compression + ".sas7bdat").toPath();
+            try (SasFileWriter writer = new SasFileWriterImpl.Builder(file, columns).compression(compression)
+                    .pageLength(16384).threads(3).build()) {
+                for (byte[] row : rows) {
+                    writer.writeRow(new Object[]{row});
+                }
+                assertThat(writer.getRowCount()).isEqualTo(rows.length);
+            }
+            try (InputStream is = Files.newInputStream(file)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                for (byte[] row : rows) {
+                    Object value = reader.readNext()[0];
+                    String text = new String(row, "UTF-8").trim();
+                    assertThat(value).isEqualTo(text.isEmpty() ? null : text);
+                }
+                assertThat(reader.readNext()).isNull();
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedFilesAreSmaller() throws IOException {
+        long[] sizes = new long[COMPRESSIONS.length];
+        for (int i = 0; i < COMPRESSIONS.length; i++) {
+            Path file = temporaryFolder.newFile("size_" + COMPRESSIONS[i] + ".sas7bdat").toPath();
+            new SasFileGenerator.Builder().compression(COMPRESSIONS[i]).rowCount(20000).missingRate(0.5)
+                    .columns(5, 5, 64).build().write(file);
+            sizes[i] = Files.size(file);
+        }
+        assertThat(sizes[1]).isLessThan(sizes[0]);
+        assertThat(sizes[2]).isLessThan(sizes[0]);
+    }
+
+    @Test
+    public void testValues() throws IOException {
+        List<Column> columns = Arrays.asList(
+                new Column(1, "text", "Text", "", String.class, 4),
+                new Column(2, "short", "", "", Number.class, 4),
+                new Column(3, "day", "", "DATE9.", Number.class, 8),
+                new Column(4, "stamp", "Stamp", "DATETIME20.", Number.class, 8),
+                new Column(5, "raw", "", "", String.class, 3));
+        Date day = new Date(86400000L * 20000);
+        LocalDateTime stamp = LocalDateTime.of(2020, 5, 17, 10, 30, 15);
+        for (String compression : COMPRESSIONS) {
+            Path file = temporaryFolder.newFile("values_" + compression + ".sas7bdat").toPath();
+            try (SasFileWriter writer = new SasFileWriterImpl.Builder(file, columns).compression(compression)
+                    .u64(false).build()) {
+                writer.writeRow(new Object[]{"truncated", 1.5, day, stamp, "ab".getBytes("UTF-8")});
+                writer.writeRow(new Object[]{null, null, null, null, null});
+            }
+            try (InputStream is = Files.newInputStream(file)) {
+                SasFileReaderImpl reader = new SasFileReaderImpl(is);
+                List<Column> read = reader.getColumns();
+                assertThat(read.get(0).getName()).isEqualTo("text");
+                assertThat(read.get(1).getLength()).isEqualTo(4);
+                assertThat(read.get(3).getLabel()).isEqualTo("Stamp");
+                assertThat(reader.getSasFileProperties().getName()).isEqualTo("values_" + compression);
+                assertThat(reader.readNext()).isEqualTo(new Object[]{"trun", 1.5, day, stamp, "ab"});
+                assertThat(reader.readNext()).isEqualTo(new Object[]{null, null, null, null, null});
+                assertThat(reader.readNext()).isNull();
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRow() throws IOException {
+        List<Column> columns = Arrays.asList(new Column(1, "x", "", "", Number.class, 8));
+        try (SasFileWriter writer = new SasFileWriterImpl.Builder(temporaryFolder.newFile("invalid.sas7bdat")
+                .toPath(), columns).build()) {
+            writer.writeRow(new Object[]{1, 2});
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCompression() throws IOException {
+        List<Column> columns = Arrays.asList(new Column(1, "x", "", "", Number.class, 8));
+        new SasFileWriterImpl.Builder(temporaryFolder.newFile("unsupported.sas7bdat").toPath(), columns)
+                .compression("SASYZCR3").build();
+    }
+
+    private static Object expected(Object generated, Object read) {
+        if (generated instanceof Double && read instanceof Long) {
+            return ((Double) generated).longValue();
+        } else if (generated == null && read instanceof Double) {
+            return Double.NaN;
+        }
+        return generated;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+
+package com.epam.parso;
+
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SasFileWriterImpl;
+import com.epam.parso.impl.SortingSasFileReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SortingSasFileReaderUnitTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSortsGeneratedFiles() throws IOException {
+        int file = 0;
+        for (String compression : Arrays.asList(null, SasFileWriterImpl.CHAR_COMPRESSION,
+                SasFileWriterImpl.BIN_COMPRESSION)) {
+            for (boolean bigEndian : new boolean[]{false, true}) {
+                Path input = generate(temporaryFolder.newFile("g" + file++ + ".sas7bdat").toPath(), compression,
+                        bigEndian, 3000);
+                assertSorted(input, "KEY, NUM1 DESC", 6000, 3);
+                assertSorted(input, "day desc,key", SortingSasFileReader.DEFAULT_MEMORY_BUDGET, 2);
+                assertSorted(input, "STR1", 100000, 1);
+            }
+        }
+    }
+
+    @Test
+    public void testMergesManyRuns() throws IOException {
+        Path input = generate(temporaryFolder.newFile("runs.sas7bdat").toPath(), SasFileWriterImpl.CHAR_COMPRESSION,
+                false, 1500);
+        assertSorted(input, "NUM1", 1, 2);
+        assertSorted(input, "KEY DESC, day", 1, 1);
+    }
+
+    @Test
+    public void testSortsResourceFiles() throws IOException {
+        for (String fileName : Arrays.asList("mix_data_misc", "all_rand_normal", "doubles")) {
+            Path input = temporaryFolder.getRoot().toPath().resolve(fileName + ".sas7bdat");
+            InputStream is = getResourceAsStream("sas7bdat//" + fileName + ".sas7bdat");
+            try {
+                Files.copy(is, input, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                is.close();
+            }
+            List<Column> columns = read(input).getColumns();
+            assertSorted(input, columns.get(0).getName(), 1 << 20, 2);
+            assertSorted(input, columns.get(columns.size() - 1).getName() + " DESC", 1 << 20, 2);
+        }
+    }
+
+    @Test
+    public void testTemporaryFilesAreDeleted() throws IOException {
+        Path input = generate(temporaryFolder.newFile("t.sas7bdat").toPath(), null, false, 500);
+        File directory = temporaryFolder.newFolder("runs");
+        SortingSasFileReader reader = new SortingSasFileReader.Builder(input).orderBy("NUM1").memoryBudget(1000)
+                .tempDirectory(directory.toPath()).threads(2).build();
+        assertThat(reader.readNext()).isNotNull();
+        assertThat(directory.list()).isNotEmpty();
+        reader.close();
+        assertThat(directory.list()).isEmpty();
+        assertThat(reader.readNext()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownColumn() throws IOException {
+        Path input = generate(temporaryFolder.newFile("u.sas7bdat").toPath(), null, false, 10);
+        new SortingSasFileReader.Builder(input).orderBy("NUM1, MISSING").build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDirection() throws IOException {
+        Path input = generate(temporaryFolder.newFile("d.sas7bdat").toPath(), null, false, 10);
+        new SortingSasFileReader.Builder(input).orderBy("NUM1 DOWN").build();
+    }
+
+    private static Path generate(Path file, String compression, boolean bigEndian, long rows) throws IOException {
+        new SasFileGenerator.Builder().compression(compression).bigEndian(bigEndian).rowCount(rows)
+                .missingRate(0.2).pageLength(4096).stringColumn("KEY", 1).numberColumn("NUM1", "")
+                .numberColumn("day", "DATE9.").stringColumn("STR1", 12).build().write(file);
+        return file;
+    }
+
+    private static void assertSorted(Path input, String orderBy, long memoryBudget, int threads)
+            throws IOException {
+        for (boolean raw : new boolean[]{false, true}) {
+            SasFileReaderImpl reader = read(input);
+            List<Object[]> expected = new ArrayList<Object[]>();
+            for (Object[] row = next(reader, raw); row != null; row = next(reader, raw)) {
+                expected.add(row);
+            }
+            Collections.sort(expected, comparator(reader.getColumns(), orderBy));
+            try (SortingSasFileReader sorted = new SortingSasFileReader.Builder(input).orderBy(orderBy)
+                    .memoryBudget(memoryBudget).threads(threads).build()) {
+                assertThat(sorted.getColumns().size()).isEqualTo(reader.getColumns().size());
+                for (Object[] row : expected) {
+                    assertThat(next(sorted, raw)).isEqualTo(row);
+                }
+                assertThat(next(sorted, raw)).isNull();
+            }
+        }
+    }
+
+    private static SasFileReaderImpl read(Path input) throws IOException {
+        return new SasFileReaderImpl(new ByteArrayInputStream(Files.readAllBytes(input)));
+    }
+
+    private static Object[] next(SasFileReader reader, boolean raw) throws IOException {
+        return raw ? reader.readNextRaw() : reader.readNext();
+    }
+
+    private static Comparator<Object[]> comparator(List<Column> columns, String orderBy) {
+        final List<Integer> indexes = new ArrayList<Integer>();
+        final List<Boolean> descending = new ArrayList<Boolean>();
+        for (String item : orderBy.split(",")) {
+            String[] parts = item.trim().split("\\s+");
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).getName().equalsIgnoreCase(parts[0])) {
+                    indexes.add(i);
+                }
+            }
+            descending.add(parts.length > 1 && parts[1].equalsIgnoreCase("DESC"));
+        }
+        return new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] first, Object[] second) {
+                for (int i = 0; i < indexes.size(); i++) {
+                    int comparison = compareValues(first[indexes.get(i)], second[indexes.get(i)]);
+                    if (comparison != 0) {
+                        return descending.get(i) ? -comparison : comparison;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    private static int compareValues(Object firstValue, Object secondValue) {
+        Object first = isMissing(firstValue) ? null : firstValue;
+        Object second = isMissing(secondValue) ? null : secondValue;
+        if (first == null || second == null) {
+            return first == null ? second == null ? 0 : -1 : 1;
+        }
+        if (first instanceof Number) {
+            return Double.compare(((Number) first).doubleValue(), ((Number) second).doubleValue());
+        }
+        if (first instanceof Date) {
+            return ((Date) first).compareTo((Date) second);
+        }
+        return first.toString().compareTo(second.toString());
+    }
+
+    private static boolean isMissing(Object value) {
+        return value == null || value instanceof Double && ((Double) value).isNaN();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * *************************************************************************
+ * Copyright (C) 2015 EPAM
+ * <p>
+ * This file is part of Parso.
+ * <p>
+ * This file may be distributed and/or modified under the terms of the
+ * GNU General Public License version 3 as published by the Free Software
+ * Foundation and appearing in the file LICENSE.GPL included in the
+ * packaging of this file.
+ * <p>
+ * This file is provided AS IS with NO WARRANTY OF ANY KIND, INCLUDING THE
+ * WARRANTY OF DESIGN, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ * *************************************************************************
+ */
+
+package com.epam.parso;
+
+import com.epam.parso.impl.CSVDataWriterImpl;
+import com.epam.parso.impl.SasFileReaderImpl;
+import com.epam.parso.impl.SplittingCSVDataWriterImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.epam.parso.TestUtils.getResourceAsStream;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SplittingCSVDataWriterUnitTest {
+    private static final String FILE_NAME = "sas7bdat//mix_data_misc.sas7bdat";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRowBoundedPartsConcatenateToPlainCsv() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        SplittingCSVDataWriterImpl writer = new SplittingCSVDataWriterImpl.Builder(directory).maxRows(1000).build();
+        long rowCount = write(writer);
+        writer.close();
+
+        List<SplittingCSVDataWriterImpl.Part> parts = writer.getParts();
+        assertThat(parts).hasSize((int) ((rowCount + 999) / 1000));
+        assertThat(parts.get(0).getFileName()).isEqualTo("part-00000.csv");
+        StringBuilder concatenated = new StringBuilder();
+        long rows = 0;
+        for (SplittingCSVDataWriterImpl.Part part : parts) {
+            assertThat(part.getRows()).isLessThanOrEqualTo(1000);
+            rows += part.getRows();
+            byte[] content = Files.readAllBytes(directory.resolve(part.getFileName()));
+            assertThat((long) content.length).isEqualTo(part.getBytes());
+            concatenated.append(new String(content, StandardCharsets.UTF_8));
+        }
+        assertThat(rows).isEqualTo(rowCount);
+        assertThat(concatenated.toString()).isEqualTo(plainCsv());
+
+        List<String> manifest = Files.readAllLines(directory.resolve(SplittingCSVDataWriterImpl.MANIFEST_FILE_NAME),
+                StandardCharsets.UTF_8);
+        assertThat(manifest).hasSize(parts.size() + 1);
+        assertThat(manifest.get(1)).isEqualTo("part-00000.csv,1000," + parts.get(0).getBytes());
+    }
+
+    @Test
+    public void testByteBoundedPartsWithHeaderPerPart() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        SplittingCSVDataWriterImpl writer = new SplittingCSVDataWriterImpl.Builder(directory).maxBytes(200000)
+                .headerPerPart(true).build();
+        write(writer);
+        writer.close();
+
+        String header = plainCsv().substring(0, plainCsv().indexOf('\n') + 1);
+        assertThat(writer.getParts().size()).isGreaterThan(1);
+        for (SplittingCSVDataWriterImpl.Part part : writer.getParts()) {
+            String content = new String(Files.readAllBytes(directory.resolve(part.getFileName())),
+                    StandardCharsets.UTF_8);
+            assertThat(content.startsWith(header)).isTrue();
+            assertThat(part.getBytes()).isLessThan(200000 + 1000);
+        }
+    }
+
+    private long write(CSVDataWriter writer) throws IOException {
+        InputStream is = getResourceAsStream(FILE_NAME);
+        try {
+            SasFileReader reader = new SasFileReaderImpl(is);
+            writer.writeColumnNames(reader.getColumns());
+            writer.writeRowsArray(reader.getColumns(), reader.readAll());
+            return reader.getSasFileProperties().getRowCount();
+        } finally {
+            is.close();
+        }
+    }
+
+    private String plainCsv() throws IOException {
+        StringWriter plain = new StringWriter();
+        write(new CSVDataWriterImpl(plain));
+        return plain.toString();
+    }
+}